@@ -23,7 +23,12 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -81,6 +86,9 @@ public class CacheAccess<K, V>
      * If the object cannot be found in the cache, it will be retrieved by
      * calling the supplier and subsequently storing it in the cache.
      * <p>
+     * Only one caller per key and region runs the supplier. Concurrent callers
+     * for the same key wait for its result. A null result is not cached.
+     * <p>
      * @param name
      * @param supplier supplier to be called if the value is not found
      * @return Object.
@@ -88,15 +96,127 @@ public class CacheAccess<K, V>
     @Override
     public V get(final K name, final Supplier<V> supplier)
     {
-        V value = get(name);
+        final V value = get(name);
+
+        if (value != null)
+        {
+            return value;
+        }
+
+        try
+        {
+            return getAsync(name, key -> CompletableFuture.completedFuture(supplier.get())).join();
+        }
+        catch (final CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error)
+            {
+                throw (Error) e.getCause();
+            }
+            throw new CacheException(e.getCause());
+        }
+    }
+
+    /**
+     * Retrieve an object from the cache region this instance provides access to.
+     * If the object cannot be found in the cache, it will be retrieved by
+     * calling the loader and subsequently storing the result in the cache.
+     * <p>
+     * Only one caller per key and region runs the loader. Concurrent callers
+     * for the same key get a future completed with the result of that load.
+     * The loader is called in the calling thread. A null result is not cached.
+     * <p>
+     * @param name
+     * @param loader loader to be called if the value is not found
+     * @return a future completed with the object.
+     */
+    @Override
+    public CompletableFuture<V> getAsync(final K name, final Function<K, CompletableFuture<V>> loader)
+    {
+        final V value = get(name);
 
-        if (value == null)
+        if (value != null)
         {
-            value = supplier.get();
-            put(name, value);
+            return CompletableFuture.completedFuture(value);
         }
 
-        return value;
+        final ConcurrentMap<K, CompletableFuture<V>> loadsInFlight = this.getCacheControl().getLoadsInFlight();
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        final CompletableFuture<V> inFlight = loadsInFlight.putIfAbsent(name, result);
+
+        if (inFlight != null)
+        {
+            return inFlight.thenApply(Function.identity());
+        }
+
+        // a load may have completed between the get and the registration
+        final V loaded = get(name);
+        if (loaded != null)
+        {
+            loadsInFlight.remove(name, result);
+            result.complete(loaded);
+            return result;
+        }
+
+        CompletableFuture<V> load;
+        try
+        {
+            load = Objects.requireNonNull(loader.apply(name), "loader returned null");
+        }
+        catch (final Throwable e)
+        {
+            // errors too, or the load would stay registered and block later callers
+            load = new CompletableFuture<>();
+            load.completeExceptionally(e);
+        }
+
+        load.whenComplete((val, error) -> {
+            Throwable failure = error;
+            try
+            {
+                if (failure == null && val != null)
+                {
+                    put(name, val);
+                }
+            }
+            catch (final Throwable e)
+            {
+                failure = e;
+            }
+            finally
+            {
+                // remove only after the put, so that later callers find the value
+                loadsInFlight.remove(name, result);
+            }
+
+            if (failure != null)
+            {
+                result.completeExceptionally(failure instanceof CompletionException
+                        && failure.getCause() != null ? failure.getCause() : failure);
+            }
+            else
+            {
+                result.complete(val);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Registers the function used to reload elements of the region when they are read after the
+     * RefreshAheadFactor fraction of their max life has elapsed.
+     * <p>
+     * @param reloader reloader to be called in the background, or null to disable refresh-ahead
+     */
+    @Override
+    public void setReloader(final Function<K, V> reloader)
+    {
+        this.getCacheControl().setReloader(reloader);
     }
 
     /**
@@ -21,6 +21,8 @@ package org.apache.commons.jcs3.access.behavior;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import org.apache.commons.jcs3.access.exception.CacheException;
@@ -51,6 +53,50 @@ public interface ICacheAccess<K, V>
      */
     V get(K name, Supplier<V> supplier);
 
+    /**
+     * Asynchronous get method. If the object cannot be found in the cache, it will be
+     * retrieved by calling the loader and subsequently storing the result in the cache.
+     * Concurrent calls for the same missing key share a single load.
+     * <p>
+     * The default implementation loads in the calling thread with {@link #get(Object, Supplier)}
+     * and returns a completed future.
+     * <p>
+     * @param name
+     * @param loader loader to be called if the value is not found
+     * @return a future completed with the object.
+     * @since 3.2
+     */
+    default CompletableFuture<V> getAsync(final K name, final Function<K, CompletableFuture<V>> loader)
+    {
+        try
+        {
+            return CompletableFuture.completedFuture(get(name, () -> loader.apply(name).join()));
+        }
+        catch (final RuntimeException e)
+        {
+            final CompletableFuture<V> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * Registers the function used to reload elements when they are read after the
+     * RefreshAheadFactor fraction of their max life has elapsed. The current value is returned
+     * meanwhile and the element is replaced when the reload completes.
+     * <p>
+     * <p>
+     * The default implementation does not support refresh-ahead.
+     * <p>
+     * @param reloader reloader to be called in the background, or null to disable refresh-ahead
+     * @throws UnsupportedOperationException if refresh-ahead is not supported
+     * @since 3.2
+     */
+    default void setReloader(final Function<K, V> reloader)
+    {
+        throw new UnsupportedOperationException("Refresh-ahead is not supported");
+    }
+
     /**
      * Retrieve matching objects from the cache region this instance provides access to.
      * <p>
@@ -0,0 +1,872 @@
+package org.apache.commons.jcs3.auxiliary;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.jcs3.auxiliary.lateral.LateralCommand;
+import org.apache.commons.jcs3.auxiliary.lateral.LateralElementDescriptor;
+import org.apache.commons.jcs3.auxiliary.lateral.LateralResponse;
+import org.apache.commons.jcs3.auxiliary.remote.value.RemoteCacheRequest;
+import org.apache.commons.jcs3.auxiliary.remote.value.RemoteCacheResponse;
+import org.apache.commons.jcs3.auxiliary.remote.value.RemoteRequestType;
+import org.apache.commons.jcs3.engine.CacheElement;
+import org.apache.commons.jcs3.engine.CacheElementSerialized;
+import org.apache.commons.jcs3.engine.ElementAttributes;
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+import org.apache.commons.jcs3.engine.behavior.IElementAttributes;
+import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
+
+/**
+ * A compact binary encoding of the messages exchanged by the lateral and remote caches:
+ * LateralElementDescriptor, LateralResponse, RemoteCacheRequest and RemoteCacheResponse.
+ * <p>
+ * A message starts with a magic number, the version of the encoding and the message type. The
+ * fields follow in a fixed order. Commands are written as a byte, using a fixed code per command
+ * which does not depend on the order of the enum constants. Keys and values are written as
+ * length prefixed byte arrays produced by the wrapped element serializer. Element attributes are
+ * written field by field. Cache names are sent once and then referred to by index, so an instance
+ * must only be used for one direction of one connection, and the messages must be decoded in the
+ * order they were encoded.
+ * <p>
+ * Lengths and counts are checked against the rest of the message before anything is allocated, a
+ * message claiming more data than it holds is rejected as corrupt.
+ * <p>
+ * Any other object is written with the wrapped serializer. Data without the magic number is read
+ * with the wrapped serializer as well, so this can read messages sent by peers not using it.
+ */
+public class BinaryMessageCodec
+    implements IElementSerializer
+{
+    /** Marks a binary message, "JCSB" */
+    public static final int MAGIC = 0x4A435342;
+
+    /** The version of the encoding */
+    public static final byte VERSION = 1;
+
+    /** Message type of the handshake */
+    private static final byte TYPE_HELLO = 0;
+
+    /** Message type of a LateralElementDescriptor */
+    private static final byte TYPE_LATERAL_ELEMENT_DESCRIPTOR = 1;
+
+    /** Message type of a LateralResponse */
+    private static final byte TYPE_LATERAL_RESPONSE = 2;
+
+    /** Message type of a RemoteCacheRequest */
+    private static final byte TYPE_REMOTE_REQUEST = 3;
+
+    /** Message type of a RemoteCacheResponse */
+    private static final byte TYPE_REMOTE_RESPONSE = 4;
+
+    /** Message type of a plain payload */
+    private static final byte TYPE_PAYLOAD = 5;
+
+    /** Payload kind of null */
+    private static final byte NULL = 0;
+
+    /** Payload kind of a CacheElement */
+    private static final byte ELEMENT = 1;
+
+    /** Payload kind of a CacheElementSerialized */
+    private static final byte SERIALIZED_ELEMENT = 2;
+
+    /** Payload kind of a map of elements by key */
+    private static final byte ELEMENT_MAP = 3;
+
+    /** Payload kind of a set of keys */
+    private static final byte KEY_SET = 4;
+
+    /** Payload kind of any other object, written by the wrapped serializer */
+    private static final byte OBJECT = 5;
+
+    /** Index of a null name */
+    private static final int NAME_NULL = -1;
+
+    /** Index announcing a new name */
+    private static final int NAME_NEW = -2;
+
+    /** Maximum number of names remembered per direction */
+    private static final int MAX_NAMES = 1024;
+
+    /** The lateral commands by their code on the wire. Only append, never reorder. */
+    private static final LateralCommand[] LATERAL_COMMANDS = {
+        LateralCommand.UPDATE, LateralCommand.REMOVE, LateralCommand.REMOVEALL, LateralCommand.DISPOSE,
+        LateralCommand.GET, LateralCommand.GET_MATCHING, LateralCommand.GET_KEYSET, LateralCommand.BATCH,
+        LateralCommand.INVALIDATE, LateralCommand.GET_MULTIPLE };
+
+    /** The remote request types by their code on the wire. Only append, never reorder. */
+    private static final RemoteRequestType[] REMOTE_REQUEST_TYPES = {
+        RemoteRequestType.ALIVE_CHECK, RemoteRequestType.GET, RemoteRequestType.GET_MULTIPLE,
+        RemoteRequestType.GET_MATCHING, RemoteRequestType.UPDATE, RemoteRequestType.REMOVE,
+        RemoteRequestType.REMOVE_ALL, RemoteRequestType.GET_KEYSET, RemoteRequestType.DISPOSE };
+
+    /** The serializer for keys, values and unknown objects */
+    private final IElementSerializer serializer;
+
+    /** The index of the names written so far (guarded by this) */
+    private final Map<String, Integer> writtenNames = new HashMap<>();
+
+    /** The names first written by the message being encoded (guarded by this) */
+    private final List<String> newNames = new ArrayList<>();
+
+    /** The names read so far, by index (guarded by this) */
+    private final List<String> readNames = new ArrayList<>();
+
+    /** Whether a message in this encoding has been read */
+    private volatile boolean binaryRead;
+
+    /**
+     * @param serializer the serializer for keys, values and unknown objects
+     */
+    public BinaryMessageCodec( final IElementSerializer serializer )
+    {
+        this.serializer = serializer;
+    }
+
+    /**
+     * @return the handshake message announcing the version of the encoding
+     */
+    public static byte[] hello()
+    {
+        return new byte[] {
+            (byte) ( MAGIC >>> 24 ), (byte) ( MAGIC >>> 16 ), (byte) ( MAGIC >>> 8 ), (byte) MAGIC,
+            VERSION, TYPE_HELLO };
+    }
+
+    /**
+     * @param data a message
+     * @return true if the message is a handshake
+     */
+    public static boolean isHello( final byte[] data )
+    {
+        return isBinary( data ) && data.length >= 6 && data[5] == TYPE_HELLO;
+    }
+
+    /**
+     * @param data a message, from its position to its limit
+     * @return true if the message is a handshake
+     * @since 3.2
+     */
+    public static boolean isHello( final ByteBuffer data )
+    {
+        final int start = data.position();
+        return data.remaining() >= 6 && data.getInt( start ) == MAGIC && data.get( start + 5 ) == TYPE_HELLO;
+    }
+
+    /**
+     * @param data a message
+     * @return true if the message is written in this encoding
+     */
+    public static boolean isBinary( final byte[] data )
+    {
+        return data != null && data.length >= 6
+            && ( ( data[0] & 0xFF ) << 24 | ( data[1] & 0xFF ) << 16
+                | ( data[2] & 0xFF ) << 8 | data[3] & 0xFF ) == MAGIC;
+    }
+
+    /**
+     * @return true if a message in this encoding has been read, so the peer understands it
+     */
+    public boolean isBinaryRead()
+    {
+        return binaryRead;
+    }
+
+    /**
+     * Encodes a message. Names announced by a message which cannot be encoded are forgotten
+     * again, since the peer never sees them.
+     * <p>
+     * @param obj the message
+     * @return the encoded message
+     * @throws IOException if a key or value cannot be serialized
+     */
+    @Override
+    public synchronized <T> byte[] serialize( final T obj )
+        throws IOException
+    {
+        boolean encoded = false;
+        try
+        {
+            final byte[] message = encode( obj );
+            encoded = true;
+            return message;
+        }
+        finally
+        {
+            if ( !encoded )
+            {
+                newNames.forEach( writtenNames::remove );
+            }
+            newNames.clear();
+        }
+    }
+
+    /**
+     * Encodes a message, announcing new names in it.
+     */
+    private byte[] encode( final Object obj )
+        throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream( 128 );
+        final DataOutputStream out = new DataOutputStream( bytes );
+        out.writeInt( MAGIC );
+        out.writeByte( VERSION );
+
+        if ( obj instanceof LateralElementDescriptor )
+        {
+            out.writeByte( TYPE_LATERAL_ELEMENT_DESCRIPTOR );
+            writeDescriptor( out, (LateralElementDescriptor<?, ?>) obj );
+        }
+        else if ( obj instanceof LateralResponse )
+        {
+            final LateralResponse<?> response = (LateralResponse<?>) obj;
+            out.writeByte( TYPE_LATERAL_RESPONSE );
+            out.writeLong( response.getRequestId() );
+            writePayload( out, response.getPayload() );
+        }
+        else if ( obj instanceof RemoteCacheRequest )
+        {
+            out.writeByte( TYPE_REMOTE_REQUEST );
+            writeRequest( out, (RemoteCacheRequest<?, ?>) obj );
+        }
+        else if ( obj instanceof RemoteCacheResponse )
+        {
+            final RemoteCacheResponse<?> response = (RemoteCacheResponse<?>) obj;
+            out.writeByte( TYPE_REMOTE_RESPONSE );
+            out.writeBoolean( response.isSuccess() );
+            writeString( out, response.getErrorMessage() );
+            writePayload( out, response.getPayload() );
+        }
+        else
+        {
+            out.writeByte( TYPE_PAYLOAD );
+            writePayload( out, obj );
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a message. Data not written in this encoding is read by the wrapped serializer.
+     * <p>
+     * @param data the encoded message
+     * @param loader class loader to use
+     * @return the message
+     * @throws IOException if the message is corrupt or of an unknown version
+     * @throws ClassNotFoundException if a key or value cannot be deserialized
+     */
+    @Override
+    @SuppressWarnings("unchecked") // Need to cast to the type expected by the caller
+    public synchronized <T> T deSerialize( final byte[] data, final ClassLoader loader )
+        throws IOException, ClassNotFoundException
+    {
+        if ( !isBinary( data ) )
+        {
+            return serializer.deSerialize( data, loader );
+        }
+
+        final DataInputStream in = new DataInputStream( new ByteArrayInputStream( data, 4, data.length - 4 ) );
+        final byte version = in.readByte();
+        if ( version > VERSION )
+        {
+            throw new StreamCorruptedException( "Unsupported message version " + version );
+        }
+        binaryRead = true;
+
+        final byte type = in.readByte();
+        switch ( type )
+        {
+            case TYPE_HELLO:
+                return null;
+
+            case TYPE_LATERAL_ELEMENT_DESCRIPTOR:
+                return (T) readDescriptor( in, loader, false );
+
+            case TYPE_LATERAL_RESPONSE:
+                final long requestId = in.readLong();
+                return (T) new LateralResponse<>( requestId, readPayload( in, loader ) );
+
+            case TYPE_REMOTE_REQUEST:
+                return (T) readRequest( in, loader );
+
+            case TYPE_REMOTE_RESPONSE:
+                final RemoteCacheResponse<Object> response = new RemoteCacheResponse<>();
+                response.setSuccess( in.readBoolean() );
+                response.setErrorMessage( readString( in ) );
+                response.setPayload( readPayload( in, loader ) );
+                return (T) response;
+
+            case TYPE_PAYLOAD:
+                return (T) readPayload( in, loader );
+
+            default:
+                throw new StreamCorruptedException( "Unknown message type " + type );
+        }
+    }
+
+    /**
+     * Writes a lateral command, and the commands of a batch.
+     */
+    private void writeDescriptor( final DataOutputStream out, final LateralElementDescriptor<?, ?> led )
+        throws IOException
+    {
+        out.writeByte( code( LATERAL_COMMANDS, led.getCommand() ) );
+        out.writeLong( led.getRequesterId() );
+        out.writeInt( led.getValHashCode() );
+        out.writeLong( led.getVersion() );
+        out.writeLong( led.getRequestId() );
+        writeElement( out, led.getPayload() );
+
+        final List<? extends LateralElementDescriptor<?, ?>> batch = led.getBatch();
+        if ( batch == null )
+        {
+            out.writeInt( -1 );
+        }
+        else
+        {
+            out.writeInt( batch.size() );
+            for ( final LateralElementDescriptor<?, ?> command : batch )
+            {
+                writeDescriptor( out, command );
+            }
+        }
+    }
+
+    /**
+     * Reads a lateral command, and the commands of a batch. Batches are not nested.
+     */
+    private <K, V> LateralElementDescriptor<K, V> readDescriptor( final DataInputStream in, final ClassLoader loader,
+        final boolean inBatch )
+        throws IOException, ClassNotFoundException
+    {
+        final int command = in.readByte();
+        if ( command < 0 || command >= LATERAL_COMMANDS.length )
+        {
+            throw new StreamCorruptedException( "Unknown lateral command " + command );
+        }
+        if ( inBatch && LATERAL_COMMANDS[command] == LateralCommand.BATCH )
+        {
+            throw new StreamCorruptedException( "Nested batch" );
+        }
+
+        final LateralElementDescriptor<K, V> led = new LateralElementDescriptor<>( null, LATERAL_COMMANDS[command] );
+        led.requesterId = in.readLong();
+        led.valHashCode = in.readInt();
+        led.version = in.readLong();
+        led.requestId = in.readLong();
+        led.ce = readElement( in, loader );
+
+        final int batchSize = readCount( in );
+        if ( batchSize >= 0 )
+        {
+            led.batch = new ArrayList<>( batchSize );
+            for ( int i = 0; i < batchSize; i++ )
+            {
+                led.batch.add( readDescriptor( in, loader, true ) );
+            }
+        }
+
+        return led;
+    }
+
+    /**
+     * Writes a remote cache request.
+     */
+    private void writeRequest( final DataOutputStream out, final RemoteCacheRequest<?, ?> request )
+        throws IOException
+    {
+        out.writeByte( request.getRequestType() == null ? -1 : code( REMOTE_REQUEST_TYPES, request.getRequestType() ) );
+        out.writeLong( request.getRequesterId() );
+        writeName( out, request.getCacheName() );
+        writeObject( out, request.getKey() );
+
+        final Set<?> keySet = request.getKeySet();
+        if ( keySet == null )
+        {
+            out.writeInt( -1 );
+        }
+        else
+        {
+            out.writeInt( keySet.size() );
+            for ( final Object key : keySet )
+            {
+                writeObject( out, key );
+            }
+        }
+
+        writeString( out, request.getPattern() );
+        writeElement( out, request.getCacheElement() );
+    }
+
+    /**
+     * Reads a remote cache request.
+     */
+    private <K, V> RemoteCacheRequest<K, V> readRequest( final DataInputStream in, final ClassLoader loader )
+        throws IOException, ClassNotFoundException
+    {
+        final RemoteCacheRequest<K, V> request = new RemoteCacheRequest<>();
+
+        final int type = in.readByte();
+        if ( type >= 0 )
+        {
+            if ( type >= REMOTE_REQUEST_TYPES.length )
+            {
+                throw new StreamCorruptedException( "Unknown request type " + type );
+            }
+            request.setRequestType( REMOTE_REQUEST_TYPES[type] );
+        }
+
+        request.setRequesterId( in.readLong() );
+        request.setCacheName( readName( in ) );
+        request.setKey( readObject( in, loader ) );
+
+        final int keyCount = readCount( in );
+        if ( keyCount >= 0 )
+        {
+            final Set<K> keySet = new HashSet<>();
+            for ( int i = 0; i < keyCount; i++ )
+            {
+                keySet.add( readObject( in, loader ) );
+            }
+            request.setKeySet( keySet );
+        }
+
+        request.setPattern( readString( in ) );
+        request.setCacheElement( readElement( in, loader ) );
+        return request;
+    }
+
+    /**
+     * Writes the payload of a response. Elements, maps of elements and key sets are written in
+     * this encoding, anything else by the wrapped serializer.
+     */
+    private void writePayload( final DataOutputStream out, final Object payload )
+        throws IOException
+    {
+        if ( payload == null )
+        {
+            out.writeByte( NULL );
+        }
+        else if ( payload instanceof ICacheElement )
+        {
+            writeElement( out, (ICacheElement<?, ?>) payload );
+        }
+        else if ( payload instanceof Map && isElementMap( (Map<?, ?>) payload ) )
+        {
+            final Map<?, ?> map = (Map<?, ?>) payload;
+            out.writeByte( ELEMENT_MAP );
+            out.writeInt( map.size() );
+            for ( final Map.Entry<?, ?> entry : map.entrySet() )
+            {
+                writeObject( out, entry.getKey() );
+                writeElement( out, (ICacheElement<?, ?>) entry.getValue() );
+            }
+        }
+        else if ( payload instanceof Set )
+        {
+            final Set<?> set = (Set<?>) payload;
+            out.writeByte( KEY_SET );
+            out.writeInt( set.size() );
+            for ( final Object key : set )
+            {
+                writeObject( out, key );
+            }
+        }
+        else
+        {
+            out.writeByte( OBJECT );
+            writeObject( out, payload );
+        }
+    }
+
+    /**
+     * Reads the payload of a response.
+     */
+    private Object readPayload( final DataInputStream in, final ClassLoader loader )
+        throws IOException, ClassNotFoundException
+    {
+        final byte kind = in.readByte();
+        switch ( kind )
+        {
+            case NULL:
+                return null;
+
+            case ELEMENT:
+            case SERIALIZED_ELEMENT:
+                return readElementBody( kind, in, loader );
+
+            case ELEMENT_MAP:
+                final int size = readCount( in );
+                final Map<Object, ICacheElement<Object, Object>> map = new HashMap<>();
+                for ( int i = 0; i < size; i++ )
+                {
+                    final Object key = readObject( in, loader );
+                    map.put( key, readElement( in, loader ) );
+                }
+                return map;
+
+            case KEY_SET:
+                final int count = readCount( in );
+                final Set<Object> set = new HashSet<>();
+                for ( int i = 0; i < count; i++ )
+                {
+                    set.add( readObject( in, loader ) );
+                }
+                return set;
+
+            case OBJECT:
+                return readObject( in, loader );
+
+            default:
+                throw new StreamCorruptedException( "Unknown payload kind " + kind );
+        }
+    }
+
+    /**
+     * @param map a map
+     * @return true if all values are cache elements
+     */
+    private static boolean isElementMap( final Map<?, ?> map )
+    {
+        for ( final Object value : map.values() )
+        {
+            if ( !( value instanceof ICacheElement ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a cache element. Elements of other classes than CacheElement and
+     * CacheElementSerialized are written by the wrapped serializer.
+     */
+    private void writeElement( final DataOutputStream out, final ICacheElement<?, ?> ce )
+        throws IOException
+    {
+        if ( ce == null )
+        {
+            out.writeByte( NULL );
+        }
+        else if ( ce.getClass() == CacheElement.class )
+        {
+            out.writeByte( ELEMENT );
+            writeName( out, ce.getCacheName() );
+            writeObject( out, ce.getKey() );
+            writeObject( out, ce.getVal() );
+            writeAttributes( out, ce.getElementAttributes() );
+        }
+        else if ( ce.getClass() == CacheElementSerialized.class )
+        {
+            out.writeByte( SERIALIZED_ELEMENT );
+            writeName( out, ce.getCacheName() );
+            writeObject( out, ce.getKey() );
+            writeBytes( out, ( (CacheElementSerialized<?, ?>) ce ).getSerializedValue() );
+            writeAttributes( out, ce.getElementAttributes() );
+        }
+        else
+        {
+            out.writeByte( OBJECT );
+            writeObject( out, ce );
+        }
+    }
+
+    /**
+     * Reads a cache element.
+     */
+    private <K, V> ICacheElement<K, V> readElement( final DataInputStream in, final ClassLoader loader )
+        throws IOException, ClassNotFoundException
+    {
+        return readElementBody( in.readByte(), in, loader );
+    }
+
+    /**
+     * Reads a cache element of the given kind.
+     */
+    @SuppressWarnings("unchecked") // Need to cast the deserialized objects
+    private <K, V> ICacheElement<K, V> readElementBody( final byte kind, final DataInputStream in, final ClassLoader loader )
+        throws IOException, ClassNotFoundException
+    {
+        switch ( kind )
+        {
+            case NULL:
+                return null;
+
+            case ELEMENT:
+            {
+                final String cacheName = readName( in );
+                final K key = readObject( in, loader );
+                final V val = readObject( in, loader );
+                return new CacheElement<>( cacheName, key, val, readAttributes( in, loader ) );
+            }
+
+            case SERIALIZED_ELEMENT:
+            {
+                final String cacheName = readName( in );
+                final K key = readObject( in, loader );
+                final byte[] serializedValue = readBytes( in );
+                return new CacheElementSerialized<>( cacheName, key, serializedValue, readAttributes( in, loader ) );
+            }
+
+            case OBJECT:
+                return (ICacheElement<K, V>) readObject( in, loader );
+
+            default:
+                throw new StreamCorruptedException( "Unknown element kind " + kind );
+        }
+    }
+
+    /**
+     * Writes element attributes field by field. Attributes of other classes than
+     * ElementAttributes are written by the wrapped serializer.
+     */
+    private void writeAttributes( final DataOutputStream out, final IElementAttributes attr )
+        throws IOException
+    {
+        if ( attr.getClass() != ElementAttributes.class )
+        {
+            out.writeByte( OBJECT );
+            writeObject( out, attr );
+            return;
+        }
+
+        out.writeByte( ELEMENT );
+        out.writeByte( ( attr.getIsSpool() ? 1 : 0 ) | ( attr.getIsLateral() ? 2 : 0 )
+            | ( attr.getIsRemote() ? 4 : 0 ) | ( attr.getIsEternal() ? 8 : 0 ) );
+        out.writeLong( attr.getMaxLife() );
+        out.writeLong( attr.getIdleTime() );
+        out.writeInt( attr.getSize() );
+        out.writeLong( attr.getCreateTime() );
+        out.writeLong( attr.getLastAccessTime() );
+        out.writeLong( attr.getTimeFactorForMilliseconds() );
+    }
+
+    /**
+     * Reads element attributes.
+     */
+    private IElementAttributes readAttributes( final DataInputStream in, final ClassLoader loader )
+        throws IOException, ClassNotFoundException
+    {
+        final byte kind = in.readByte();
+        if ( kind == OBJECT )
+        {
+            return readObject( in, loader );
+        }
+
+        final ElementAttributes attr = new ElementAttributes();
+        final byte flags = in.readByte();
+        attr.setIsSpool( ( flags & 1 ) != 0 );
+        attr.setIsLateral( ( flags & 2 ) != 0 );
+        attr.setIsRemote( ( flags & 4 ) != 0 );
+        attr.setIsEternal( ( flags & 8 ) != 0 );
+        attr.setMaxLife( in.readLong() );
+        attr.setIdleTime( in.readLong() );
+        attr.setSize( in.readInt() );
+        attr.setCreateTime( in.readLong() );
+        attr.setLastAccessTime( in.readLong() );
+        attr.setTimeFactorForMilliseconds( in.readLong() );
+        return attr;
+    }
+
+    /**
+     * Writes a cache name, or its index if it was written before.
+     */
+    private void writeName( final DataOutputStream out, final String name )
+        throws IOException
+    {
+        if ( name == null )
+        {
+            out.writeInt( NAME_NULL );
+            return;
+        }
+
+        final Integer index = writtenNames.get( name );
+        if ( index != null )
+        {
+            out.writeInt( index.intValue() );
+            return;
+        }
+
+        out.writeInt( NAME_NEW );
+        out.writeUTF( name );
+        if ( writtenNames.size() < MAX_NAMES )
+        {
+            writtenNames.put( name, Integer.valueOf( writtenNames.size() ) );
+            newNames.add( name );
+        }
+    }
+
+    /**
+     * Reads a cache name.
+     */
+    private String readName( final DataInputStream in )
+        throws IOException
+    {
+        final int index = in.readInt();
+        if ( index == NAME_NULL )
+        {
+            return null;
+        }
+
+        if ( index == NAME_NEW )
+        {
+            final String name = in.readUTF();
+            if ( readNames.size() < MAX_NAMES )
+            {
+                readNames.add( name );
+            }
+            return name;
+        }
+
+        if ( index < 0 || index >= readNames.size() )
+        {
+            throw new StreamCorruptedException( "Unknown name index " + index );
+        }
+        return readNames.get( index );
+    }
+
+    /**
+     * Writes an object serialized by the wrapped serializer.
+     */
+    private void writeObject( final DataOutputStream out, final Object obj )
+        throws IOException
+    {
+        writeBytes( out, obj == null ? null : serializer.serialize( obj ) );
+    }
+
+    /**
+     * Reads an object serialized by the wrapped serializer.
+     */
+    private <T> T readObject( final DataInputStream in, final ClassLoader loader )
+        throws IOException, ClassNotFoundException
+    {
+        final byte[] bytes = readBytes( in );
+        return bytes == null ? null : serializer.deSerialize( bytes, loader );
+    }
+
+    /**
+     * Writes a string that may be longer than 64k.
+     */
+    private static void writeString( final DataOutputStream out, final String s )
+        throws IOException
+    {
+        writeBytes( out, s == null ? null : s.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    /**
+     * Reads a string.
+     */
+    private static String readString( final DataInputStream in )
+        throws IOException
+    {
+        final byte[] bytes = readBytes( in );
+        return bytes == null ? null : new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Writes a length prefixed byte array, -1 for null.
+     */
+    private static void writeBytes( final DataOutputStream out, final byte[] bytes )
+        throws IOException
+    {
+        if ( bytes == null )
+        {
+            out.writeInt( -1 );
+            return;
+        }
+
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+    /**
+     * Reads a length prefixed byte array.
+     */
+    private static byte[] readBytes( final DataInputStream in )
+        throws IOException
+    {
+        final int length = in.readInt();
+        if ( length < 0 )
+        {
+            return null;
+        }
+        if ( length > in.available() )
+        {
+            throw new StreamCorruptedException( "Invalid length " + length + ", "
+                + in.available() + " bytes left" );
+        }
+
+        final byte[] bytes = new byte[length];
+        in.readFully( bytes );
+        return bytes;
+    }
+
+    /**
+     * Reads the number of entries of a collection, -1 for null. Every entry takes at least one
+     * byte, so the count cannot exceed the rest of the message.
+     */
+    private static int readCount( final DataInputStream in )
+        throws IOException
+    {
+        final int count = in.readInt();
+        if ( count > in.available() )
+        {
+            throw new StreamCorruptedException( "Invalid count " + count + ", "
+                + in.available() + " bytes left" );
+        }
+        return count;
+    }
+
+    /**
+     * @param codes the constants by their code on the wire
+     * @param value a constant
+     * @return the code of the constant
+     * @throws NotSerializableException if the constant has no code
+     */
+    private static int code( final Enum<?>[] codes, final Enum<?> value )
+        throws NotSerializableException
+    {
+        for ( int i = 0; i < codes.length; i++ )
+        {
+            if ( codes[i] == value )
+            {
+                return i;
+            }
+        }
+        throw new NotSerializableException( "No code for " + value );
+    }
+}
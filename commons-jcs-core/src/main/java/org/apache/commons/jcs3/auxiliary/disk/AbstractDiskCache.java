@@ -22,30 +22,34 @@ package org.apache.commons.jcs3.auxiliary.disk;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.jcs3.auxiliary.AbstractAuxiliaryCacheEventLogging;
 import org.apache.commons.jcs3.auxiliary.AuxiliaryCache;
 import org.apache.commons.jcs3.auxiliary.disk.behavior.IDiskCacheAttributes;
-import org.apache.commons.jcs3.engine.CacheEventQueueFactory;
-import org.apache.commons.jcs3.engine.CacheInfo;
 import org.apache.commons.jcs3.engine.CacheStatus;
 import org.apache.commons.jcs3.engine.behavior.ICache;
 import org.apache.commons.jcs3.engine.behavior.ICacheElement;
 import org.apache.commons.jcs3.engine.behavior.ICacheEventQueue;
 import org.apache.commons.jcs3.engine.behavior.ICacheListener;
+import org.apache.commons.jcs3.engine.logging.behavior.ICacheEvent;
+import org.apache.commons.jcs3.engine.logging.behavior.ICacheEventLogger;
 import org.apache.commons.jcs3.engine.stats.StatElement;
 import org.apache.commons.jcs3.engine.stats.Stats;
 import org.apache.commons.jcs3.engine.stats.behavior.IStatElement;
 import org.apache.commons.jcs3.engine.stats.behavior.IStats;
 import org.apache.commons.jcs3.log.Log;
 import org.apache.commons.jcs3.log.LogManager;
-import org.apache.commons.jcs3.utils.struct.LRUMap;
+import org.apache.commons.jcs3.utils.threadpool.PoolConfiguration;
+import org.apache.commons.jcs3.utils.threadpool.PoolConfiguration.WhenBlockedPolicy;
+import org.apache.commons.jcs3.utils.threadpool.ThreadPoolManager;
 
 /**
  * Abstract class providing a base implementation of a disk cache, which can be easily extended to
@@ -55,9 +59,13 @@ import org.apache.commons.jcs3.utils.struct.LRUMap;
  * does not acquire or release any locks. Implementations should do so as necessary. This is mainly
  * done to minimize the time spent in critical sections.
  *
+ * Updates are collected in a write-behind buffer, see {@link WriteBehindBuffer}, and written by a
+ * background task. Repeated updates of a key are merged while it waits, and removals cancel the
+ * pending write.
+ *
  * Error handling in this class needs to be addressed. Currently if an exception is thrown by the
- * persistence mechanism, this class destroys the event queue. Should it also destroy purgatory?
- * Should it dispose itself?
+ * persistence mechanism, it is logged and the affected elements are lost. Should the cache dispose
+ * itself?
  */
 public abstract class AbstractDiskCache<K, V>
     extends AbstractAuxiliaryCacheEventLogging<K, V>
@@ -65,24 +73,27 @@ public abstract class AbstractDiskCache<K, V>
     /** The logger */
     private static final Log log = LogManager.getLog( AbstractDiskCache.class );
 
+    /** Idle time after which the write-behind thread of a region ends */
+    private static final int WRITE_BEHIND_KEEP_ALIVE_MILLIS = 30000;
+
     /** Generic disk cache attributes */
     private final IDiskCacheAttributes diskCacheAttributes;
 
     /**
-     * Map where elements are stored between being added to this cache and actually spooled to disk.
-     * This allows puts to the disk cache to return quickly, and the more expensive operation of
-     * serializing the elements to persistent storage queued for later.
+     * Buffer where elements are stored between being added to this cache and actually spooled to
+     * disk. This allows puts to the disk cache to return quickly, and the more expensive operation
+     * of serializing the elements to persistent storage happens later.
      *
-     * If the elements are pulled into the memory cache while the are still in purgatory, writing to
-     * disk can be canceled.
+     * An element which is updated again while it waits is only written once. If it is removed
+     * meanwhile, writing to disk is canceled.
      */
-    private Map<K, PurgatoryElement<K, V>> purgatory;
+    private final WriteBehindBuffer<K, V> purgatory;
 
-    /**
-     * The CacheEventQueue where changes will be queued for asynchronous updating of the persistent
-     * storage.
-     */
-    private final ICacheEventQueue<K, V> cacheEventQueue;
+    /** Runs the write-behind task */
+    private final ExecutorService purgatoryExecutor;
+
+    /** Whether the executor belongs to this region */
+    private final boolean ownExecutor;
 
     /**
      * Indicates whether the cache is 'alive': initialized, but not yet disposed. Child classes must
@@ -105,8 +116,8 @@ public abstract class AbstractDiskCache<K, V>
     // ----------------------------------------------------------- constructors
 
     /**
-     * Construct the abstract disk cache, create event queues and purgatory. Child classes should
-     * set the alive flag to true after they are initialized.
+     * Construct the abstract disk cache and create purgatory. Child classes should set the alive
+     * flag to true after they are initialized.
      *
      * @param attr
      */
@@ -115,15 +126,23 @@ public abstract class AbstractDiskCache<K, V>
         this.diskCacheAttributes = attr;
         this.cacheName = attr.getCacheName();
 
-        // create queue
-        final CacheEventQueueFactory<K, V> fact = new CacheEventQueueFactory<>();
-        this.cacheEventQueue = fact.createCacheEventQueue(
-                new MyCacheListener(), CacheInfo.listenerId, cacheName,
-                   diskCacheAttributes.getEventQueuePoolName(),
-                   diskCacheAttributes.getEventQueueType() );
+        // the pooled type shares the event queue pool with other regions
+        this.ownExecutor = attr.getEventQueueType() != ICacheEventQueue.QueueType.POOLED;
+        if ( ownExecutor )
+        {
+            this.purgatoryExecutor = ThreadPoolManager.getInstance().createPool(
+                    new PoolConfiguration( false, 0, 1, 1, WRITE_BEHIND_KEEP_ALIVE_MILLIS, WhenBlockedPolicy.BLOCK, 0 ),
+                    "AbstractDiskCache.WriteBehind-" + cacheName );
+        }
+        else
+        {
+            this.purgatoryExecutor = ThreadPoolManager.getInstance().getExecutorService(
+                    attr.getEventQueuePoolName() == null ? "cache_event_queue" : attr.getEventQueuePoolName() );
+        }
 
         // create purgatory
-        initPurgatory();
+        this.purgatory = new WriteBehindBuffer<>( cacheName, purgatoryExecutor, removeAllLock.readLock(),
+                this::writeBehind, attr.getMaxPurgatorySize(), attr.getMaxPurgatoryBytes() );
     }
 
     /**
@@ -143,48 +162,50 @@ public abstract class AbstractDiskCache<K, V>
     }
 
     /**
-     * Purgatory size of -1 means to use a HashMap with no size limit. Anything greater will use an
-     * LRU map of some sort.
+     * Lets purgatory hand pending updates to {@link #processUpdateBatch(List)} in batches.
+     * <p>
+     * @param batchSize maximum number of updates per batch, 1 to disable batching
+     * @param lingerMillis time to wait for a batch to fill up
+     */
+    protected void configureUpdateBatching( final int batchSize, final long lingerMillis )
+    {
+        purgatory.setBatchSize( batchSize );
+        purgatory.setBatchLingerMillis( lingerMillis );
+    }
+
+    /**
+     * Writes elements taken from purgatory, unless the cache has been disposed meanwhile. This is
+     * called while holding the read lock of removeAll.
      *
-     * TODO Currently setting this to 0 will cause nothing to be put to disk, since it will assume
-     *       that if an item is not in purgatory, then it must have been plucked. We should make 0
-     *       work, a way to not use purgatory.
+     * @param elements the elements with unique keys
+     * @throws IOException
      */
-    private void initPurgatory()
+    private void writeBehind( final List<ICacheElement<K, V>> elements )
+        throws IOException
     {
-        // we need this so we can stop the updates from happening after a
-        // remove all
-        removeAllLock.writeLock().lock();
+        if ( !alive.get() )
+        {
+            return;
+        }
 
-        try
+        if ( elements.size() == 1 )
         {
-            synchronized (this)
-            {
-                if ( diskCacheAttributes.getMaxPurgatorySize() >= 0 )
-                {
-                    purgatory = Collections.synchronizedMap(
-                            new LRUMap<>( diskCacheAttributes.getMaxPurgatorySize()));
-                }
-                else
-                {
-                    purgatory = new ConcurrentHashMap<>();
-                }
-            }
+            doUpdate( elements.get( 0 ) );
         }
-        finally
+        else
         {
-            removeAllLock.writeLock().unlock();
+            doUpdateBatch( elements );
         }
     }
 
     // ------------------------------------------------------- interface ICache
 
     /**
-     * Adds the provided element to the cache. Element will be added to purgatory, and then queued
-     * for later writing to the serialized storage mechanism.
+     * Adds the provided element to the cache. Element will be added to purgatory for later writing
+     * to the serialized storage mechanism. If the key is still waiting in purgatory, the element
+     * replaces the pending one. If purgatory is full, this waits until there is space.
      *
-     * An update results in a put event being created. The put event will call the handlePut method
-     * defined here. The handlePut method calls the implemented doPut on the child.
+     * With a maximum purgatory size of 0 the element is written immediately.
      *
      * @param cacheElement
      * @throws IOException
@@ -197,26 +218,22 @@ public abstract class AbstractDiskCache<K, V>
         log.debug( "Putting element in purgatory, cacheName: {0}, key: {1}",
                 () -> cacheName, cacheElement::getKey);
 
-        try
+        if ( diskCacheAttributes.getMaxPurgatorySize() == 0 )
         {
-            // Wrap the CacheElement in a PurgatoryElement
-            final PurgatoryElement<K, V> pe = new PurgatoryElement<>( cacheElement );
-
-            // Indicates the the element is eligible to be spooled to disk,
-            // this will remain true unless the item is pulled back into
-            // memory.
-            pe.setSpoolable( true );
+            removeAllLock.readLock().lock();
 
-            // Add the element to purgatory
-            purgatory.put( pe.getKey(), pe );
-
-            // Queue element for serialization
-            cacheEventQueue.addPutEvent( pe );
+            try
+            {
+                writeBehind( Collections.singletonList( cacheElement ) );
+            }
+            finally
+            {
+                removeAllLock.readLock().unlock();
+            }
         }
-        catch ( final IOException ex )
+        else
         {
-            log.error( "Problem adding put event to queue.", ex );
-            cacheEventQueue.destroy();
+            purgatory.put( cacheElement );
         }
     }
 
@@ -238,7 +255,7 @@ public abstract class AbstractDiskCache<K, V>
             return null;
         }
 
-        PurgatoryElement<K, V> pe = purgatory.get( key );
+        final ICacheElement<K, V> pe = purgatory.get( key );
 
         // If the element was found in purgatory
         if ( pe != null )
@@ -250,23 +267,22 @@ public abstract class AbstractDiskCache<K, V>
                 log.debug( "Purgatory hits = {0}", purgHits );
             }
 
-            // Since the element will go back to the memory cache, we could set
-            // spoolable to false, which will prevent the queue listener from
-            // serializing the element. This would not match the disk cache
-            // behavior and the behavior of other auxiliaries. Gets never remove
-            // items from auxiliaries.
+            // Since the element will go back to the memory cache, we could
+            // cancel the write. This would not match the disk cache behavior
+            // and the behavior of other auxiliaries. Gets never remove items
+            // from auxiliaries.
             // Beyond consistency, the items should stay in purgatory and get
             // spooled since the mem cache may be set to 0. If an item is
             // active, it will keep getting put into purgatory and removed. The
             // CompositeCache now does not put an item to memory from disk if
             // the size is 0.
-            // Do not set spoolable to false. Just let it go to disk. This
-            // will allow the memory size = 0 setting to work well.
+            // Do not cancel the write. Just let it go to disk. This will
+            // allow the memory size = 0 setting to work well.
 
             log.debug( "Found element in purgatory, cacheName: {0}, key: {1}",
                     cacheName, key );
 
-            return pe.getCacheElement();
+            return pe;
         }
 
         // If we reach this point, element was not found in purgatory, so get
@@ -278,12 +294,83 @@ public abstract class AbstractDiskCache<K, V>
         catch (final IOException e)
         {
             log.error( e );
-            cacheEventQueue.destroy();
         }
 
         return null;
     }
 
+    /**
+     * Gets the elements which are in purgatory from there and looks up the others with
+     * {@link #processGetMultipleFromDisk(Set)}.
+     *
+     * @param keys
+     * @return a map of K key to ICacheElement&lt;K, V&gt; element, or an empty map if there is no
+     *         data in cache for any of these keys
+     */
+    @Override
+    protected Map<K, ICacheElement<K, V>> processGetMultiple( final Set<K> keys )
+    {
+        final Map<K, ICacheElement<K, V>> result = new HashMap<>();
+
+        // If not alive, always return nothing.
+        if ( keys == null || keys.isEmpty() || !alive.get() )
+        {
+            return result;
+        }
+
+        final Set<K> diskKeys = new HashSet<>();
+        for ( final K key : keys )
+        {
+            final ICacheElement<K, V> pe = purgatory.get( key );
+            if ( pe != null )
+            {
+                purgHits++;
+                result.put( key, pe );
+            }
+            else
+            {
+                diskKeys.add( key );
+            }
+        }
+
+        if ( !diskKeys.isEmpty() )
+        {
+            try
+            {
+                result.putAll( processGetMultipleFromDisk( diskKeys ) );
+            }
+            catch (final IOException e)
+            {
+                log.error( e );
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the elements for keys which are not in purgatory. The default looks up one key after
+     * the other, subclasses may read them at once.
+     *
+     * @param keys the keys, not empty
+     * @return a map of K key to ICacheElement&lt;K, V&gt; element for the keys found
+     * @throws IOException
+     */
+    protected Map<K, ICacheElement<K, V>> processGetMultipleFromDisk( final Set<K> keys )
+        throws IOException
+    {
+        final Map<K, ICacheElement<K, V>> result = new HashMap<>();
+        for ( final K key : keys )
+        {
+            final ICacheElement<K, V> element = doGet( key );
+            if ( element != null )
+            {
+                result.put( key, element );
+            }
+        }
+        return result;
+    }
+
     /**
      * Gets items from the cache matching the given pattern. Items from memory will replace those
      * from remote sources.
@@ -302,8 +389,8 @@ public abstract class AbstractDiskCache<K, V>
     public Map<K, ICacheElement<K, V>> getMatching( final String pattern )
         throws IOException
     {
-        // this avoids locking purgatory, but it uses more memory
-        Set<K> keyArray = new HashSet<>(purgatory.keySet());
+        // this copies the keys, so purgatory is not locked while matching
+        final Set<K> keyArray = purgatory.getKeys();
 
         final Set<K> matchingKeys = getKeyMatcher().getMatchingKeysFromArray(pattern, keyArray);
 
@@ -338,30 +425,14 @@ public abstract class AbstractDiskCache<K, V>
     public final boolean remove( final K key )
         throws IOException
     {
-        // I'm getting the object, so I can lock on the element
-        // Remove element from purgatory if it is there
-        PurgatoryElement<K, V> pe = purgatory.remove( key );
-        boolean present;
-
-        if ( pe != null )
-        {
-            synchronized ( pe.getCacheElement() )
-            {
-                // no way to remove from queue, just make sure it doesn't get on
-                // disk and then removed right afterwards
-                pe.setSpoolable( false );
+        // Cancel a pending write and wait for a running one, so the
+        // element doesn't get on disk after it has been removed
+        final boolean pending = purgatory.cancel( key );
 
-                // Remove from persistent store immediately
-                present = doRemove( key );
-            }
-        }
-        else
-        {
-            // Remove from persistent store immediately
-            present = doRemove( key );
-        }
+        // Remove from persistent store immediately
+        final boolean present = doRemove( key );
 
-        return present;
+        return pending || present;
     }
 
     /**
@@ -374,11 +445,21 @@ public abstract class AbstractDiskCache<K, V>
     {
         if ( this.diskCacheAttributes.isAllowRemoveAll() )
         {
-            // Replace purgatory with a new empty hashtable
-            initPurgatory();
+            // we need this so we can stop the updates from happening
+            // after a remove all
+            removeAllLock.writeLock().lock();
+
+            try
+            {
+                purgatory.clear();
 
-            // Remove all from persistent store immediately
-            doRemoveAll();
+                // Remove all from persistent store immediately
+                doRemoveAll();
+            }
+            finally
+            {
+                removeAllLock.writeLock().unlock();
+            }
         }
         else
         {
@@ -393,8 +474,8 @@ public abstract class AbstractDiskCache<K, V>
      * Disposal proceeds in several steps.
      * <ol>
      * <li>Prior to this call the Composite cache dumped the memory into the disk cache. If it is
-     * large then we need to wait for the event queue to finish.</li>
-     * <li>Wait until the event queue is empty of until the configured ShutdownSpoolTimeLimit is
+     * large then we need to wait for purgatory to be written.</li>
+     * <li>Wait until purgatory is empty or until the configured ShutdownSpoolTimeLimit is
      * reached.</li>
      * <li>Call doDispose on the concrete impl.</li>
      * </ol>
@@ -405,31 +486,22 @@ public abstract class AbstractDiskCache<K, V>
         throws IOException
     {
         // wait up to 60 seconds for dispose and then quit if not done.
-        long shutdownSpoolTime = this.diskCacheAttributes.getShutdownSpoolTimeLimit() * 1000L;
+        final long shutdownSpoolTime = this.diskCacheAttributes.getShutdownSpoolTimeLimit() * 1000L;
 
-        while (!cacheEventQueue.isEmpty() && shutdownSpoolTime > 0)
+        if (!purgatory.awaitEmpty( shutdownSpoolTime ))
         {
-            try
-            {
-                Thread.sleep(100);
-                shutdownSpoolTime -= 100;
-            }
-            catch ( final InterruptedException e )
-            {
-                break;
-            }
+            log.info( "No longer waiting for purgatory to be written, discarding {0} elements",
+                    purgatory::size);
         }
 
-        if (shutdownSpoolTime <= 0)
+        log.info( "In dispose, closing purgatory." );
+        purgatory.close();
+        if ( ownExecutor )
         {
-            log.info( "No longer waiting for event queue to finish: {0}",
-                    cacheEventQueue::getStatistics);
+            // This stops the processor thread.
+            purgatoryExecutor.shutdown();
         }
 
-        log.info( "In dispose, destroying event queue." );
-        // This stops the processor thread.
-        cacheEventQueue.destroy();
-
         // Invoke any implementation specific disposal code
         // need to handle the disposal first.
         doDispose();
@@ -437,6 +509,19 @@ public abstract class AbstractDiskCache<K, V>
         alive.set(false);
     }
 
+    /**
+     * Waits until the updates in purgatory have been written to disk. Updates added meanwhile
+     * are waited for as well.
+     *
+     * @param timeoutMillis the maximum time to wait
+     * @return whether purgatory is empty
+     * @since 3.2
+     */
+    public boolean awaitPurgatoryEmpty( final long timeoutMillis )
+    {
+        return purgatory.awaitEmpty( timeoutMillis );
+    }
+
     /**
      * @return the region name.
      * @see ICache#getCacheName
@@ -473,10 +558,9 @@ public abstract class AbstractDiskCache<K, V>
 
         elems.add(new StatElement<>( "Purgatory Hits", Integer.valueOf(purgHits) ) );
         elems.add(new StatElement<>( "Purgatory Size", Integer.valueOf(purgatory.size()) ) );
-
-        // get the stats from the event queue too
-        final IStats eqStats = this.cacheEventQueue.getStatistics();
-        elems.addAll(eqStats.getStatElements());
+        elems.add(new StatElement<>( "Purgatory Bytes", Long.valueOf(purgatory.getBytes()) ) );
+        elems.add(new StatElement<>( "Purgatory Coalesced Updates", Long.valueOf(purgatory.getCoalescedCount()) ) );
+        elems.add(new StatElement<>( "Purgatory Full Waits", Long.valueOf(purgatory.getWaitCount()) ) );
 
         stats.setStatElements( elems );
 
@@ -516,7 +600,12 @@ public abstract class AbstractDiskCache<K, V>
     /**
      * Cache that implements the CacheListener interface, and calls appropriate methods in its
      * parent class.
+     *
+     * @deprecated Updates no longer go through an event queue but through purgatory, see
+     *             {@link WriteBehindBuffer}. This is only kept for subclasses which refer to it,
+     *             the listener writes to the persistent store directly.
      */
+    @Deprecated
     protected class MyCacheListener
         implements ICacheListener<K, V>
     {
@@ -550,10 +639,8 @@ public abstract class AbstractDiskCache<K, V>
         /**
          * @param element
          * @throws IOException
-         * @see ICacheListener#handlePut NOTE: This checks if the element is a puratory element and
-         *      behaves differently depending. However since we have control over how elements are
-         *      added to the cache event queue, that may not be needed ( they are always
-         *      PurgatoryElements ).
+         * @see ICacheListener#handlePut NOTE: A purgatory element is unwrapped and written like
+         *      any other element. A remove all waits until the write is done.
          */
         @Override
         public void handlePut( ICacheElement<K, V> element )
@@ -561,62 +648,21 @@ public abstract class AbstractDiskCache<K, V>
         {
             if (alive.get())
             {
-                // If the element is a PurgatoryElement<K, V> we must check to see
-                // if it is still spoolable, and remove it from purgatory.
                 if ( element instanceof PurgatoryElement )
                 {
-                    final PurgatoryElement<K, V> pe = (PurgatoryElement<K, V>) element;
-
-                    synchronized ( pe.getCacheElement() )
-                    {
-                        // TODO consider a timeout.
-                        // we need this so that we can have multiple update
-                        // threads and still have removeAll requests come in that
-                        // always win
-                        removeAllLock.readLock().lock();
-
-                        try
-                        {
-                            // If the element has already been removed from
-                            // purgatory do nothing
-                            if (!purgatory.containsKey(pe.getKey()))
-                            {
-                                return;
-                            }
-
-                            element = pe.getCacheElement();
-
-                            // If the element is still eligible, spool it.
-                            if ( pe.isSpoolable() )
-                            {
-                                doUpdate( element );
-                            }
-                        }
-                        finally
-                        {
-                            removeAllLock.readLock().unlock();
-                        }
-
-                        // After the update has completed, it is safe to
-                        // remove the element from purgatory.
-                        purgatory.remove( element.getKey() );
-                    }
+                    element = ( (PurgatoryElement<K, V>) element ).getCacheElement();
                 }
-                else
+
+                removeAllLock.readLock().lock();
+
+                try
                 {
-                    // call the child's implementation
                     doUpdate( element );
                 }
-            }
-            else
-            {
-                /*
-                 * The cache is not alive, hence the element should be removed from purgatory. All
-                 * elements should be removed eventually. Perhaps, the alive check should have been
-                 * done before it went in the queue. This block handles the case where the disk
-                 * cache fails during normal operations.
-                 */
-                purgatory.remove( element.getKey() );
+                finally
+                {
+                    removeAllLock.readLock().unlock();
+                }
             }
         }
 
@@ -725,6 +771,48 @@ public abstract class AbstractDiskCache<K, V>
         super.updateWithEventLogging( cacheElement );
     }
 
+    /**
+     * Add a number of cache elements to the persistent store. An update event is logged for each
+     * element.
+     *
+     * @param cacheElements
+     * @throws IOException
+     */
+    protected final void doUpdateBatch( final List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        final List<ICacheEvent<K>> cacheEvents = new ArrayList<>( cacheElements.size() );
+        for ( final ICacheElement<K, V> cacheElement : cacheElements )
+        {
+            cacheEvents.add( createICacheEvent( cacheElement, ICacheEventLogger.UPDATE_EVENT ) );
+        }
+
+        try
+        {
+            processUpdateBatch( cacheElements );
+        }
+        finally
+        {
+            cacheEvents.forEach( this::logICacheEvent );
+        }
+    }
+
+    /**
+     * Implementation of a batch of puts. The elements are in the order of the updates, with unique
+     * keys. The default stores each element separately, subclasses may write the batch at once.
+     *
+     * @param cacheElements
+     * @throws IOException
+     */
+    protected void processUpdateBatch( final List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        for ( final ICacheElement<K, V> cacheElement : cacheElements )
+        {
+            processUpdate( cacheElement );
+        }
+    }
+
     /**
      * Remove an object from the persistent store if found.
      *
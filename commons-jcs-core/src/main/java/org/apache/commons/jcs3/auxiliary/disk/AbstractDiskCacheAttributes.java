@@ -46,6 +46,9 @@ public abstract class AbstractDiskCacheAttributes extends AbstractAuxiliaryCache
     /** default to 5000 */
     private int maxPurgatorySize = MAX_PURGATORY_SIZE_DEFAULT;
 
+    /** byte budget of purgatory, no limit by default */
+    private long maxPurgatoryBytes = -1;
+
     /** Default amount of time to allow for key persistence on shutdown */
     private static final int DEFAULT_shutdownSpoolTimeLimit = 60;
 
@@ -130,6 +133,33 @@ public abstract class AbstractDiskCacheAttributes extends AbstractAuxiliaryCache
         this.maxPurgatorySize = maxPurgatorySize;
     }
 
+    /**
+     * Gets the maximum estimated size in bytes of the elements waiting to be written to disk.
+     * <p>
+     *
+     * @return the byte budget of the write-behind buffer, -1 for no limit
+     * @since 3.2
+     */
+    @Override
+    public long getMaxPurgatoryBytes()
+    {
+        return maxPurgatoryBytes;
+    }
+
+    /**
+     * Sets the maximum estimated size in bytes of the elements waiting to be written to disk.
+     * <p>
+     *
+     * @param maxPurgatoryBytes
+     *            the byte budget of the write-behind buffer, -1 for no limit
+     * @since 3.2
+     */
+    @Override
+    public void setMaxPurgatoryBytes(final long maxPurgatoryBytes)
+    {
+        this.maxPurgatoryBytes = maxPurgatoryBytes;
+    }
+
     /**
      * Get the amount of time in seconds we will wait for elements to move to disk during shutdown
      * for a particular region.
@@ -193,6 +223,7 @@ public abstract class AbstractDiskCacheAttributes extends AbstractAuxiliaryCache
         str.append("AbstractDiskCacheAttributes ");
         str.append("\n diskPath = " + getDiskPath());
         str.append("\n maxPurgatorySize   = " + getMaxPurgatorySize());
+        str.append("\n maxPurgatoryBytes   = " + getMaxPurgatoryBytes());
         str.append("\n allowRemoveAll   = " + isAllowRemoveAll());
         str.append("\n ShutdownSpoolTimeLimit   = " + getShutdownSpoolTimeLimit());
         return str.toString();
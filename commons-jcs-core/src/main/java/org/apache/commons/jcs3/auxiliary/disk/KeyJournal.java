@@ -0,0 +1,384 @@
+package org.apache.commons.jcs3.auxiliary.disk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs3.log.Log;
+import org.apache.commons.jcs3.log.LogManager;
+
+/**
+ * An append-only journal of the changes made to the key index of a disk cache since the last
+ * snapshot of the keys was written.
+ * <p>
+ * Each record consists of the length of its body, a CRC32 checksum of the body and the body,
+ * which holds the record type and the serialized key and descriptor. Puts and removals are
+ * recorded. On startup the snapshot is loaded and the journal is replayed on top of it. Replay
+ * stops at the first incomplete or corrupted record, as left by a crash in the middle of a write,
+ * and the journal is truncated there.
+ * <p>
+ * When the journal has grown larger than the key index, the owner compacts it: it writes a new
+ * snapshot and then resets the journal. Replaying the journal on top of a snapshot which already
+ * contains its changes gives the same result, so a crash between the two steps is harmless.
+ * <p>
+ * The records are written through the file channel without forcing it, so they survive a crash of
+ * the process, but not necessarily of the operating system.
+ */
+public class KeyJournal<K, D>
+    implements AutoCloseable
+{
+    /** The logger */
+    private static final Log log = LogManager.getLog( KeyJournal.class );
+
+    /** Size of the record header: body length and checksum */
+    private static final int HEADER_SIZE_BYTES = 8;
+
+    /** Record type of a put */
+    private static final byte PUT = 1;
+
+    /** Record type of a removal */
+    private static final byte REMOVE = 2;
+
+    /** The journal file */
+    private final File file;
+
+    /** Serializer for keys and descriptors */
+    private final IElementSerializer serializer;
+
+    /** Minimum number of records before the journal should be compacted */
+    private final int compactionRecords;
+
+    /** The channel of the journal file */
+    private final FileChannel fc;
+
+    /** Position of the end of the last complete record */
+    private long end;
+
+    /** Number of records in the journal */
+    private long recordCount;
+
+    /**
+     * Opens or creates the journal file.
+     * <p>
+     * @param file the journal file
+     * @param serializer serializer for keys and descriptors
+     * @param compactionRecords minimum number of records before compaction is due
+     * @throws IOException
+     */
+    public KeyJournal( final File file, final IElementSerializer serializer, final int compactionRecords )
+        throws IOException
+    {
+        this.file = file;
+        this.serializer = serializer;
+        this.compactionRecords = compactionRecords;
+        this.fc = FileChannel.open( file.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE );
+        this.end = fc.size();
+    }
+
+    /**
+     * Records that the key has been stored at the location given by the descriptor.
+     * <p>
+     * @param key
+     * @param descriptor
+     * @throws IOException
+     */
+    public synchronized void put( final K key, final D descriptor )
+        throws IOException
+    {
+        append( putRecord( key, descriptor ) );
+    }
+
+    /**
+     * Records a number of puts with a single write.
+     * <p>
+     * @param entries the keys and descriptors, in the order of the puts
+     * @throws IOException
+     */
+    public synchronized void putAll( final Map<K, D> entries )
+        throws IOException
+    {
+        final ByteBuffer[] records = new ByteBuffer[entries.size()];
+        int i = 0;
+        for ( final Map.Entry<K, D> entry : entries.entrySet() )
+        {
+            records[i++] = putRecord( entry.getKey(), entry.getValue() );
+        }
+
+        append( records );
+    }
+
+    /**
+     * Records that the key has been removed.
+     * <p>
+     * @param key
+     * @throws IOException
+     */
+    public synchronized void remove( final K key )
+        throws IOException
+    {
+        final byte[] keyBytes = serializer.serialize( key );
+        final ByteBuffer record = allocateRecord( 1 + keyBytes.length );
+        record.put( REMOVE ).put( keyBytes );
+        append( record );
+    }
+
+    /**
+     * Replays the journal. Stops at the first incomplete or corrupted record and truncates the
+     * journal there.
+     * <p>
+     * @param onPut called for each put
+     * @param onRemove called for each removal
+     * @return the number of records replayed
+     * @throws IOException
+     */
+    public synchronized long replay( final BiConsumer<K, D> onPut, final Consumer<K> onRemove )
+        throws IOException
+    {
+        final long length = fc.size();
+        long pos = 0;
+        long count = 0;
+
+        try (InputStream is = Files.newInputStream( file.toPath() );
+             DataInputStream in = new DataInputStream( new BufferedInputStream( is ) ))
+        {
+            while ( pos + HEADER_SIZE_BYTES <= length )
+            {
+                final int bodyLength = in.readInt();
+                final int checksum = in.readInt();
+                if ( bodyLength < 1 || pos + HEADER_SIZE_BYTES + bodyLength > length )
+                {
+                    break;
+                }
+
+                final byte[] body = new byte[bodyLength];
+                in.readFully( body );
+                final CRC32 crc = new CRC32();
+                crc.update( body, 0, bodyLength );
+                if ( (int) crc.getValue() != checksum )
+                {
+                    break;
+                }
+
+                try
+                {
+                    apply( body, onPut, onRemove );
+                }
+                catch ( final IOException | ClassNotFoundException | ClassCastException e )
+                {
+                    log.warn( "Unreadable record at position {0} of key journal [{1}]",
+                            pos, file, e );
+                    break;
+                }
+
+                pos += HEADER_SIZE_BYTES + bodyLength;
+                count++;
+            }
+        }
+
+        if ( pos < length )
+        {
+            log.warn( "Truncating key journal [{0}] at position {1} of {2}, "
+                    + "the rest is incomplete or corrupted.", file, pos, length );
+            fc.truncate( pos );
+        }
+
+        end = pos;
+        recordCount = count;
+
+        log.info( "Replayed {0} records of key journal [{1}]", count, file );
+
+        return count;
+    }
+
+    /**
+     * The journal should be compacted once it has at least the configured number of records and
+     * more records than there are keys, i.e. once it is larger than a snapshot would be.
+     * <p>
+     * @param keyCount the number of keys in the index
+     * @return true if compaction is due
+     */
+    public synchronized boolean isCompactionDue( final int keyCount )
+    {
+        return recordCount >= compactionRecords && recordCount > keyCount;
+    }
+
+    /**
+     * Empties the journal. Called after a snapshot of the keys was written.
+     * <p>
+     * @throws IOException
+     */
+    public synchronized void reset()
+        throws IOException
+    {
+        fc.truncate( 0 );
+        fc.force( true );
+        end = 0;
+        recordCount = 0;
+    }
+
+    /**
+     * Forces the journal to the storage device.
+     * <p>
+     * @throws IOException
+     */
+    public synchronized void force()
+        throws IOException
+    {
+        fc.force( false );
+    }
+
+    /**
+     * @return the number of records in the journal
+     */
+    public synchronized long getRecordCount()
+    {
+        return recordCount;
+    }
+
+    /**
+     * @return the length of the journal in bytes
+     */
+    public synchronized long length()
+    {
+        return end;
+    }
+
+    /**
+     * Closes the journal file.
+     * <p>
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close()
+        throws IOException
+    {
+        fc.close();
+    }
+
+    /**
+     * Creates a put record.
+     * <p>
+     * @param key
+     * @param descriptor
+     * @return the record
+     * @throws IOException
+     */
+    private ByteBuffer putRecord( final K key, final D descriptor )
+        throws IOException
+    {
+        final byte[] keyBytes = serializer.serialize( key );
+        final byte[] descriptorBytes = serializer.serialize( descriptor );
+        final ByteBuffer record = allocateRecord( 1 + 4 + keyBytes.length + descriptorBytes.length );
+        record.put( PUT ).putInt( keyBytes.length ).put( keyBytes ).put( descriptorBytes );
+        return record;
+    }
+
+    /**
+     * @param bodyLength
+     * @return a buffer for a record, positioned at the start of the body
+     */
+    private static ByteBuffer allocateRecord( final int bodyLength )
+    {
+        final ByteBuffer record = ByteBuffer.allocate( HEADER_SIZE_BYTES + bodyLength );
+        record.position( HEADER_SIZE_BYTES );
+        return record;
+    }
+
+    /**
+     * Fills in the headers and writes the records at the end of the journal.
+     * <p>
+     * @param records the records, positioned at the end of their bodies
+     * @throws IOException
+     */
+    private void append( final ByteBuffer... records )
+        throws IOException
+    {
+        long total = 0;
+        for ( final ByteBuffer record : records )
+        {
+            final int bodyLength = record.position() - HEADER_SIZE_BYTES;
+            final CRC32 crc = new CRC32();
+            crc.update( record.array(), HEADER_SIZE_BYTES, bodyLength );
+            record.putInt( 0, bodyLength );
+            record.putInt( 4, (int) crc.getValue() );
+            record.flip();
+            total += record.limit();
+        }
+
+        fc.position( end );
+        long written = 0;
+        while ( written < total )
+        {
+            written += fc.write( records );
+        }
+
+        end += total;
+        recordCount += records.length;
+    }
+
+    /**
+     * Decodes a record body and calls the matching consumer.
+     * <p>
+     * @param body
+     * @param onPut
+     * @param onRemove
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void apply( final byte[] body, final BiConsumer<K, D> onPut, final Consumer<K> onRemove )
+        throws IOException, ClassNotFoundException
+    {
+        final ByteBuffer buffer = ByteBuffer.wrap( body );
+        switch ( buffer.get() )
+        {
+            case PUT:
+                final int keyLength = buffer.getInt();
+                final K key = serializer.deSerialize( Arrays.copyOfRange( body, 5, 5 + keyLength ), null );
+                final D descriptor = serializer.deSerialize( Arrays.copyOfRange( body, 5 + keyLength, body.length ), null );
+                onPut.accept( key, descriptor );
+                break;
+
+            case REMOVE:
+                onRemove.accept( serializer.deSerialize( Arrays.copyOfRange( body, 1, body.length ), null ) );
+                break;
+
+            default:
+                throw new IOException( "Unknown record type " + body[0] );
+        }
+    }
+}
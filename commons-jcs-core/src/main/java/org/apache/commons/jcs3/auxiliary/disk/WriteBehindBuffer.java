@@ -0,0 +1,599 @@
+package org.apache.commons.jcs3.auxiliary.disk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+import org.apache.commons.jcs3.engine.memory.behavior.IWeigher;
+import org.apache.commons.jcs3.engine.memory.util.DefaultWeigher;
+import org.apache.commons.jcs3.log.Log;
+import org.apache.commons.jcs3.log.LogManager;
+
+/**
+ * Holds the elements put to a disk cache until they are written by a background task.
+ * <p>
+ * There is at most one pending write per key. An update of a key which is still waiting replaces
+ * the element in place, so a hot key is written once per flush instead of once per update. A
+ * remove cancels the pending write and waits for a write of the key already in progress, so that
+ * it cannot resurrect the element afterwards.
+ * <p>
+ * The buffer can be limited by the number of keys and by the estimated size of the elements.
+ * Updates of new keys wait while either limit is reached, until the writer catches up.
+ * <p>
+ * The flush lock is held while a batch is taken from the buffer and written. Clearing the buffer
+ * while holding the corresponding exclusive lock guarantees that no element taken before is
+ * written afterwards.
+ *
+ * @since 3.2
+ */
+public class WriteBehindBuffer<K, V>
+{
+    /** The logger */
+    private static final Log log = LogManager.getLog( WriteBehindBuffer.class );
+
+    /** How long to wait for space before checking the state again */
+    private static final long WAIT_MILLIS = 100;
+
+    /**
+     * Writes the elements taken from the buffer.
+     */
+    @FunctionalInterface
+    public interface Writer<K, V>
+    {
+        /**
+         * @param elements the elements in the order of their first update, with unique keys
+         * @throws IOException
+         */
+        void write( List<ICacheElement<K, V>> elements )
+            throws IOException;
+    }
+
+    /** A pending element with its weight */
+    private static class Entry<K, V>
+    {
+        /** The latest element for the key */
+        ICacheElement<K, V> element;
+
+        /** Its estimated size */
+        long weight;
+    }
+
+    /** Region name, for logging */
+    private final String cacheName;
+
+    /** Runs the flush task */
+    private final ExecutorService executor;
+
+    /** Held while taking and writing a batch */
+    private final Lock flushLock;
+
+    /** Writes the batches */
+    private final Writer<K, V> writer;
+
+    /** Maximum number of pending keys, -1 for no limit */
+    private final int maxSize;
+
+    /** Maximum estimated size of the pending and in flight elements, -1 for no limit */
+    private final long maxBytes;
+
+    /** Estimates the element sizes */
+    private final IWeigher<K, V> weigher = new DefaultWeigher<>();
+
+    /** Guards the state below */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Signaled when elements leave the buffer */
+    private final Condition notFull = lock.newCondition();
+
+    /** Signaled when a batch is complete */
+    private final Condition notFilling = lock.newCondition();
+
+    /** Signaled when a write has finished */
+    private final Condition written = lock.newCondition();
+
+    /** Elements waiting to be written, in the order of their first update */
+    private final LinkedHashMap<K, Entry<K, V>> pending = new LinkedHashMap<>();
+
+    /** Elements being written */
+    private final Map<K, Entry<K, V>> writing = new HashMap<>();
+
+    /** Estimated size of the pending and in flight elements */
+    private long bytes;
+
+    /** Whether a flush task is scheduled or running */
+    private boolean flushing;
+
+    /** Whether the buffer no longer accepts elements */
+    private boolean closed;
+
+    /** Maximum number of elements written at once */
+    private int batchSize = 1;
+
+    /** Time to wait for a batch to fill up */
+    private long batchLingerMillis;
+
+    /** Number of updates merged into a pending write */
+    private long coalescedCount;
+
+    /** Number of updates which had to wait for space */
+    private long waitCount;
+
+    /**
+     * @param cacheName the region name
+     * @param executor runs the flush task
+     * @param flushLock held while taking and writing a batch
+     * @param writer writes the batches
+     * @param maxSize maximum number of pending keys, -1 for no limit
+     * @param maxBytes maximum estimated size of the buffered elements, -1 for no limit
+     */
+    public WriteBehindBuffer( final String cacheName, final ExecutorService executor, final Lock flushLock,
+            final Writer<K, V> writer, final int maxSize, final long maxBytes )
+    {
+        this.cacheName = cacheName;
+        this.executor = executor;
+        this.flushLock = flushLock;
+        this.writer = writer;
+        this.maxSize = maxSize;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param batchSize the maximum number of elements written at once, 1 to disable batching
+     */
+    public void setBatchSize( final int batchSize )
+    {
+        this.batchSize = Math.max( 1, batchSize );
+    }
+
+    /**
+     * @return the maximum number of elements written at once
+     */
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    /**
+     * @param batchLingerMillis the time to wait for a batch to fill up, in milliseconds
+     */
+    public void setBatchLingerMillis( final long batchLingerMillis )
+    {
+        this.batchLingerMillis = Math.max( 0, batchLingerMillis );
+    }
+
+    /**
+     * @return the time to wait for a batch to fill up, in milliseconds
+     */
+    public long getBatchLingerMillis()
+    {
+        return batchLingerMillis;
+    }
+
+    /**
+     * Adds an element to be written. A pending element of the same key is replaced and keeps its
+     * position. A new key waits while the buffer is full.
+     * <p>
+     * @param element the element
+     */
+    public void put( final ICacheElement<K, V> element )
+    {
+        final long weight = weigher.weigh( element );
+        final K key = element.getKey();
+
+        lock.lock();
+        try
+        {
+            if ( isFull( key ) )
+            {
+                waitCount++;
+                while ( !closed && isFull( key ) )
+                {
+                    try
+                    {
+                        notFull.await( WAIT_MILLIS, TimeUnit.MILLISECONDS );
+                    }
+                    catch ( final InterruptedException e )
+                    {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+
+            if ( closed )
+            {
+                log.debug( "{0}: Buffer is closed, not writing key {1}", cacheName, key );
+                return;
+            }
+
+            Entry<K, V> entry = pending.get( key );
+            if ( entry != null )
+            {
+                coalescedCount++;
+                bytes -= entry.weight;
+            }
+            else
+            {
+                entry = new Entry<>();
+                pending.put( key, entry );
+            }
+
+            entry.element = element;
+            entry.weight = weight;
+            bytes += weight;
+
+            if ( !flushing )
+            {
+                flushing = true;
+                executor.execute( this::flush );
+            }
+            else if ( pending.size() >= batchSize )
+            {
+                notFilling.signal();
+            }
+        }
+        catch ( final RejectedExecutionException e )
+        {
+            log.error( "{0}: Could not schedule the write-behind task, discarding the buffer",
+                    cacheName, e );
+            flushing = false;
+            clear();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the latest element of the key which has not been written yet.
+     * <p>
+     * @param key the key
+     * @return the element or null
+     */
+    public ICacheElement<K, V> get( final K key )
+    {
+        lock.lock();
+        try
+        {
+            Entry<K, V> entry = pending.get( key );
+            if ( entry == null )
+            {
+                entry = writing.get( key );
+            }
+            return entry == null ? null : entry.element;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the keys of the elements which have not been written yet
+     */
+    public Set<K> getKeys()
+    {
+        lock.lock();
+        try
+        {
+            final Set<K> keys = new HashSet<>( pending.keySet() );
+            keys.addAll( writing.keySet() );
+            return keys;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cancels the pending write of the key and waits until a write of the key in progress has
+     * finished.
+     * <p>
+     * @param key the key
+     * @return whether a write was pending
+     */
+    public boolean cancel( final K key )
+    {
+        lock.lock();
+        try
+        {
+            final Entry<K, V> entry = pending.remove( key );
+            if ( entry != null )
+            {
+                bytes -= entry.weight;
+                notFull.signalAll();
+            }
+
+            while ( writing.containsKey( key ) )
+            {
+                try
+                {
+                    written.await();
+                }
+                catch ( final InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            return entry != null;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discards all pending writes. Callers should hold the exclusive counterpart of the flush lock.
+     */
+    public void clear()
+    {
+        lock.lock();
+        try
+        {
+            pending.values().forEach( entry -> bytes -= entry.weight );
+            pending.clear();
+            notFull.signalAll();
+            written.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all elements have been written.
+     * <p>
+     * @param timeoutMillis the maximum time to wait
+     * @return whether the buffer is empty
+     */
+    public boolean awaitEmpty( final long timeoutMillis )
+    {
+        long nanos = TimeUnit.MILLISECONDS.toNanos( timeoutMillis );
+
+        lock.lock();
+        try
+        {
+            while ( !isEmpty() && nanos > 0 )
+            {
+                nanos = written.awaitNanos( nanos );
+            }
+            return isEmpty();
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            return isEmpty();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discards the pending writes and stops accepting elements.
+     */
+    public void close()
+    {
+        lock.lock();
+        try
+        {
+            closed = true;
+            clear();
+            notFilling.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of elements which have not been written yet
+     */
+    public int size()
+    {
+        lock.lock();
+        try
+        {
+            return pending.size() + writing.size();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the estimated size of the elements which have not been written yet
+     */
+    public long getBytes()
+    {
+        lock.lock();
+        try
+        {
+            return bytes;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of updates merged into a pending write
+     */
+    public long getCoalescedCount()
+    {
+        lock.lock();
+        try
+        {
+            return coalescedCount;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of updates which had to wait for space
+     */
+    public long getWaitCount()
+    {
+        lock.lock();
+        try
+        {
+            return waitCount;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return whether nothing is pending or being written, the lock must be held
+     */
+    private boolean isEmpty()
+    {
+        return pending.isEmpty() && writing.isEmpty();
+    }
+
+    /**
+     * @param key the key to add
+     * @return whether there is no space for the key, the lock must be held
+     */
+    private boolean isFull( final K key )
+    {
+        if ( maxBytes >= 0 && bytes >= maxBytes && bytes > 0 )
+        {
+            return true;
+        }
+
+        return maxSize >= 0 && pending.size() >= maxSize && !pending.containsKey( key );
+    }
+
+    /**
+     * Writes batches until the buffer is empty.
+     */
+    private void flush()
+    {
+        while ( true )
+        {
+            final List<Entry<K, V>> batch = new ArrayList<>();
+
+            lock.lock();
+            try
+            {
+                if ( batchLingerMillis > 0 && !closed && pending.size() < batchSize )
+                {
+                    notFilling.await( batchLingerMillis, TimeUnit.MILLISECONDS );
+                }
+            }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+
+            flushLock.lock();
+            try
+            {
+                lock.lock();
+                try
+                {
+                    if ( pending.isEmpty() )
+                    {
+                        flushing = false;
+                        written.signalAll();
+                        return;
+                    }
+
+                    final Iterator<Map.Entry<K, Entry<K, V>>> it = pending.entrySet().iterator();
+                    while ( it.hasNext() && batch.size() < batchSize )
+                    {
+                        final Map.Entry<K, Entry<K, V>> e = it.next();
+                        it.remove();
+                        writing.put( e.getKey(), e.getValue() );
+                        batch.add( e.getValue() );
+                    }
+                }
+                finally
+                {
+                    lock.unlock();
+                }
+
+                final List<ICacheElement<K, V>> elements = new ArrayList<>( batch.size() );
+                batch.forEach( entry -> elements.add( entry.element ) );
+                writer.write( elements );
+            }
+            catch ( final IOException | RuntimeException e )
+            {
+                log.error( "{0}: Failure writing {1} elements", cacheName, batch.size(), e );
+            }
+            finally
+            {
+                flushLock.unlock();
+
+                lock.lock();
+                try
+                {
+                    for ( final Entry<K, V> entry : batch )
+                    {
+                        writing.remove( entry.element.getKey() );
+                        bytes -= entry.weight;
+                    }
+                    notFull.signalAll();
+                    written.signalAll();
+                }
+                finally
+                {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+}
@@ -72,6 +72,24 @@ public interface IDiskCacheAttributes
      */
     void setMaxPurgatorySize( int maxPurgatorySize );
 
+    /**
+     * Gets the maximum estimated size in bytes of the elements waiting to be written to disk.
+     * <p>
+     * @return the byte budget of the write-behind buffer, -1 for no limit
+     * @since 3.2
+     */
+    long getMaxPurgatoryBytes();
+
+    /**
+     * Sets the maximum estimated size in bytes of the elements waiting to be written to disk.
+     * Updates wait while the buffer is above this budget.
+     * <p>
+     * @param maxPurgatoryBytes
+     *            the byte budget of the write-behind buffer, -1 for no limit
+     * @since 3.2
+     */
+    void setMaxPurgatoryBytes( long maxPurgatoryBytes );
+
     /**
      * Get the amount of time in seconds we will wait for elements to move to
      * disk during shutdown for a particular region.
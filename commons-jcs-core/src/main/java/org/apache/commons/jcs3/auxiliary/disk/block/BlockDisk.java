@@ -22,13 +22,18 @@ package org.apache.commons.jcs3.auxiliary.disk.block;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs3.io.ByteBufferPool;
+import org.apache.commons.jcs3.io.ByteBufferSink;
 import org.apache.commons.jcs3.log.Log;
 import org.apache.commons.jcs3.log.LogManager;
 import org.apache.commons.jcs3.utils.serialization.StandardSerializer;
@@ -36,6 +41,12 @@ import org.apache.commons.jcs3.utils.serialization.StandardSerializer;
 /**
  * This class manages reading an writing data to disk. When asked to write a value, it returns a
  * block array. It can read an object from the block numbers in a byte array.
+ * <p>
+ * Optionally, reads go through memory mapped regions of the data file instead of the file channel.
+ * The regions have a fixed size which is a multiple of the block size, so a block never spans two
+ * regions. A region is mapped up to the end of the file and mapped again once the file has grown
+ * past it. An object stored in a single block is deserialized from the mapped region in place.
+ * Writes always go through the file channel.
  */
 public class BlockDisk implements AutoCloseable
 {
@@ -47,7 +58,7 @@ public class BlockDisk implements AutoCloseable
     // N.B. 4 bytes is the size used for ByteBuffer.putInt(int value) and ByteBuffer.getInt()
 
     /** defaults to 4kb */
-    private static final int DEFAULT_BLOCK_SIZE_BYTES = 4 * 1024;
+    static final int DEFAULT_BLOCK_SIZE_BYTES = 4 * 1024;
 
     /** Size of the blocks */
     private final int blockSizeBytes;
@@ -76,6 +87,15 @@ public class BlockDisk implements AutoCloseable
     /** How many items have we put to disk */
     private final AtomicLong putCount = new AtomicLong();
 
+    /** Size of the memory mapped regions, 0 if reads are not memory mapped */
+    private final int mapRegionSizeBytes;
+
+    /** The memory mapped regions of the file, null where not mapped yet */
+    private volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+
+    /** How many times have regions been mapped */
+    private final AtomicLong mapCount = new AtomicLong();
+
     /**
      * Constructor for the Disk object
      * <p>
@@ -112,6 +132,23 @@ public class BlockDisk implements AutoCloseable
      */
     public BlockDisk(final File file, final int blockSizeBytes, final IElementSerializer elementSerializer)
         throws IOException
+    {
+        this(file, blockSizeBytes, elementSerializer, 0);
+    }
+
+    /**
+     * Creates the file and set the block size in bytes. Reads are memory mapped if the region size
+     * is greater than 0. It is rounded down to a multiple of the block size.
+     * <p>
+     * @param file
+     * @param blockSizeBytes
+     * @param elementSerializer
+     * @param mapRegionSizeBytes size of the memory mapped regions, 0 to read through the channel
+     * @throws IOException
+     */
+    public BlockDisk(final File file, final int blockSizeBytes, final IElementSerializer elementSerializer,
+            final int mapRegionSizeBytes)
+        throws IOException
     {
         this.filepath = file.getAbsolutePath();
         this.fc = FileChannel.open(file.toPath(),
@@ -124,6 +161,16 @@ public class BlockDisk implements AutoCloseable
 
         this.blockSizeBytes = blockSizeBytes;
         this.elementSerializer = elementSerializer;
+
+        if (mapRegionSizeBytes > 0)
+        {
+            this.mapRegionSizeBytes = Math.max(1, mapRegionSizeBytes / blockSizeBytes) * blockSizeBytes;
+            log.info("Memory mapping BlockDisk reads, regionSizeBytes [{0}]", this.mapRegionSizeBytes);
+        }
+        else
+        {
+            this.mapRegionSizeBytes = 0;
+        }
     }
 
     /**
@@ -156,12 +203,11 @@ public class BlockDisk implements AutoCloseable
      * <p>
      * The program flow is as follows:
      * <ol>
-     * <li>Serialize the object.</li>
+     * <li>Serialize the object into a pooled buffer.</li>
      * <li>Determine the number of blocks needed.</li>
      * <li>Look for free blocks in the emptyBlock list.</li>
      * <li>If there were not enough in the empty list. Take the nextBlock and increment it.</li>
-     * <li>If the data will not fit in one block, create sub arrays.</li>
-     * <li>Write the subarrays to disk.</li>
+     * <li>Write each chunk of the buffer with its header to its block.</li>
      * <li>If the process fails we should decrement the block count if we took from it.</li>
      * </ol>
      * @param object
@@ -171,16 +217,33 @@ public class BlockDisk implements AutoCloseable
     protected <T> int[] write(final T object)
         throws IOException
     {
-        // serialize the object
-        final byte[] data = elementSerializer.serialize(object);
+        try (ByteBufferSink sink = new ByteBufferSink())
+        {
+            // serialize the object
+            elementSerializer.serialize(object, sink);
+            return write(sink.flip());
+        }
+    }
+
+    /**
+     * Writes serialized data to disk and returns the blocks it was stored in.
+     * <p>
+     * @param data the serialized object
+     * @return the blocks we used.
+     * @throws IOException
+     */
+    private int[] write(final ByteBuffer data)
+        throws IOException
+    {
+        final int dataLength = data.remaining();
 
-        log.debug("write, total pre-chunking data.length = {0}", data.length);
+        log.debug("write, total pre-chunking data.length = {0}", dataLength);
 
-        this.putBytes.addAndGet(data.length);
+        this.putBytes.addAndGet(dataLength);
         this.putCount.incrementAndGet();
 
         // figure out how many blocks we need.
-        final int numBlocksNeeded = calculateTheNumberOfBlocksNeeded(data);
+        final int numBlocksNeeded = calculateTheNumberOfBlocksNeeded(dataLength);
 
         log.debug("numBlocksNeeded = {0}", numBlocksNeeded);
 
@@ -190,16 +253,17 @@ public class BlockDisk implements AutoCloseable
         int offset = 0;
         final int maxChunkSize = blockSizeBytes - HEADER_SIZE_BYTES;
         final ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE_BYTES);
-        final ByteBuffer dataBuffer = ByteBuffer.wrap(data);
+        final ByteBuffer dataBuffer = data.duplicate();
+        final int start = data.position();
 
         for (int i = 0; i < numBlocksNeeded; i++)
         {
             headerBuffer.clear();
-            final int length = Math.min(maxChunkSize, data.length - offset);
+            final int length = Math.min(maxChunkSize, dataLength - offset);
             headerBuffer.putInt(length);
             headerBuffer.flip();
 
-            dataBuffer.position(offset).limit(offset + length);
+            dataBuffer.limit(start + offset + length).position(start + offset);
             final ByteBuffer slice = dataBuffer.slice();
 
             final long position = calculateByteOffsetForBlockAsLong(blocks[i]);
@@ -267,50 +331,92 @@ public class BlockDisk implements AutoCloseable
     protected <T> T read(final int[] blockNumbers)
         throws IOException, ClassNotFoundException
     {
-        final ByteBuffer data;
+        final long fileLength = fc.size();
 
-        if (blockNumbers.length == 1)
+        if (blockNumbers.length == 1 && isMemoryMapped())
         {
-            data = readBlock(blockNumbers[0]);
+            // a view of the mapped region, read in place
+            final long position = calculateByteOffsetForBlockAsLong(blockNumbers[0]);
+            final int datalen = readBlockLength(position, fileLength);
+            final ByteBuffer data = mappedSlice(position + HEADER_SIZE_BYTES, datalen, fileLength);
+
+            log.debug("read, total post combination data.length = {0}", datalen);
+
+            return elementSerializer.deSerializeBuffer(data, null);
         }
-        else
+
+        final ByteBufferPool pool = ByteBufferPool.getDefault();
+        final ByteBuffer data = pool.acquire(blockNumbers.length * getBlockSizeBytes());
+        try
         {
-            data = ByteBuffer.allocate(blockNumbers.length * getBlockSizeBytes());
             // get all the blocks into data
-            for (short i = 0; i < blockNumbers.length; i++)
+            for (final int block : blockNumbers)
             {
-                final ByteBuffer chunk = readBlock(blockNumbers[i]);
-                data.put(chunk);
+                readBlock(block, data, fileLength);
             }
 
             data.flip();
-        }
 
-        log.debug("read, total post combination data.length = {0}", () -> data.limit());
+            log.debug("read, total post combination data.length = {0}", () -> data.limit());
 
-        return elementSerializer.deSerialize(data.array(), null);
+            return elementSerializer.deSerializeBuffer(data, null);
+        }
+        finally
+        {
+            pool.release(data);
+        }
     }
 
     /**
-     * This reads the occupied data in a block.
+     * This reads the occupied data in a block and appends it to the buffer.
      * <p>
-     * The first four bytes of the record should tell us how long it is. The data is read into a
-     * byte array and then an object is constructed from the byte array.
-     * <p>
-     * @return byte[]
      * @param block
+     * @param target the buffer to append the data to
+     * @param fileLength the current length of the file
      * @throws IOException
      */
-    private ByteBuffer readBlock(final int block)
+    private void readBlock(final int block, final ByteBuffer target, final long fileLength)
+        throws IOException
+    {
+        final long position = calculateByteOffsetForBlockAsLong(block);
+        final int datalen = readBlockLength(position, fileLength);
+
+        if (isMemoryMapped())
+        {
+            target.put(mappedSlice(position + HEADER_SIZE_BYTES, datalen, fileLength));
+            return;
+        }
+
+        final int limit = target.limit();
+        target.limit(target.position() + datalen);
+        long pos = position + HEADER_SIZE_BYTES;
+        while (target.hasRemaining())
+        {
+            final int read = fc.read(target, pos);
+            if (read < 0)
+            {
+                throw new IOException("Unexpected end of file reading block " + block);
+            }
+            pos += read;
+        }
+        target.limit(limit);
+    }
+
+    /**
+     * The first four bytes of a block tell us how much data it holds.
+     * <p>
+     * @param position the position of the block
+     * @param fileLength the current length of the file
+     * @return the length of the data in the block
+     * @throws IOException if the block is corrupt
+     */
+    private int readBlockLength(final long position, final long fileLength)
         throws IOException
     {
         int datalen = 0;
 
         String message = null;
         boolean corrupted = false;
-        final long fileLength = fc.size();
-
-        final long position = calculateByteOffsetForBlockAsLong(block);
 //        if (position > fileLength)
 //        {
 //            corrupted = true;
@@ -318,11 +424,23 @@ public class BlockDisk implements AutoCloseable
 //        }
 //        else
         {
-            final ByteBuffer datalength = ByteBuffer.allocate(HEADER_SIZE_BYTES);
-            fc.read(datalength, position);
-            datalength.flip();
-            datalen = datalength.getInt();
-            if (position + datalen > fileLength)
+            if (isMemoryMapped())
+            {
+                datalen = mappedSlice(position, HEADER_SIZE_BYTES, fileLength).getInt();
+            }
+            else
+            {
+                final ByteBuffer datalength = ByteBuffer.allocate(HEADER_SIZE_BYTES);
+                fc.read(datalength, position);
+                datalength.flip();
+                datalen = datalength.getInt();
+            }
+            if (datalen < 0 || datalen > blockSizeBytes - HEADER_SIZE_BYTES)
+            {
+                corrupted = true;
+                message = "Record " + position + " has an invalid length " + datalen + ".";
+            }
+            else if (position + datalen > fileLength)
             {
                 corrupted = true;
                 message = "Record " + position + " exceeds file length.";
@@ -335,11 +453,73 @@ public class BlockDisk implements AutoCloseable
             throw new IOException("The File Is Corrupt, need to reset");
         }
 
-        final ByteBuffer data = ByteBuffer.allocate(datalen);
-        fc.read(data, position + HEADER_SIZE_BYTES);
-        data.flip();
+        return datalen;
+    }
+
+    /**
+     * Returns a view of a part of the file, without copying. Maps the region containing it if it
+     * is not mapped yet or if the mapping ends before the requested part.
+     * <p>
+     * @param position the position in the file
+     * @param length the number of bytes
+     * @param fileLength the current length of the file
+     * @return the view of the mapped region
+     * @throws IOException
+     */
+    private ByteBuffer mappedSlice(final long position, final int length, final long fileLength)
+        throws IOException
+    {
+        final int index = (int) (position / mapRegionSizeBytes);
+        final int offset = (int) (position % mapRegionSizeBytes);
+
+        final MappedByteBuffer[] current = regions;
+        MappedByteBuffer region = index < current.length ? current[index] : null;
+        if (region == null || region.capacity() < offset + length)
+        {
+            region = map(index, offset + length, fileLength);
+        }
+
+        final ByteBuffer slice = region.duplicate();
+        slice.limit(offset + length).position(offset);
+        return slice.slice();
+    }
+
+    /**
+     * Maps a region of the file up to the end of the file or the region size.
+     * <p>
+     * @param index the number of the region
+     * @param minLength the length the mapping needs to have
+     * @param fileLength the current length of the file
+     * @return the mapped region
+     * @throws IOException if the file is too short
+     */
+    private synchronized MappedByteBuffer map(final int index, final int minLength, final long fileLength)
+        throws IOException
+    {
+        MappedByteBuffer[] current = regions;
+        if (index < current.length && current[index] != null && current[index].capacity() >= minLength)
+        {
+            // mapped by another thread meanwhile
+            return current[index];
+        }
+
+        final long start = (long) index * mapRegionSizeBytes;
+        final long length = Math.min(mapRegionSizeBytes, fileLength - start);
+        if (length < minLength)
+        {
+            log.warn("\n The file is corrupt: \n Record {0} exceeds file length.", start);
+            throw new IOException("The File Is Corrupt, need to reset");
+        }
+
+        final MappedByteBuffer region = fc.map(MapMode.READ_ONLY, start, length);
+        current = index < current.length ? current.clone() : Arrays.copyOf(current, index + 1);
+        current[index] = region;
+        regions = current;
+        mapCount.incrementAndGet();
+
+        log.debug("Mapped region {0} of {1}, length = {2}", index, filepath, length);
 
-        return data;
+        return region;
     }
 
     /**
@@ -378,8 +558,18 @@ public class BlockDisk implements AutoCloseable
      */
     protected int calculateTheNumberOfBlocksNeeded(final byte[] data)
     {
-        final int dataLength = data.length;
+        return calculateTheNumberOfBlocksNeeded(data.length);
+    }
 
+    /**
+     * Calculates how many blocks are needed for data of the given length.
+     * <p>
+     * @param dataLength the length of the serialized data
+     * @return the number of blocks needed
+     * @since 3.2
+     */
+    protected int calculateTheNumberOfBlocksNeeded(final int dataLength)
+    {
         final int oneBlock = blockSizeBytes - HEADER_SIZE_BYTES;
 
         // takes care of 0 = HEADER_SIZE_BYTES + blockSizeBytes
@@ -420,6 +610,10 @@ public class BlockDisk implements AutoCloseable
     {
         this.numberOfBlocks.set(0);
         this.emptyBlocks.clear();
+        synchronized (this)
+        {
+            this.regions = new MappedByteBuffer[0];
+        }
         fc.close();
     }
 
@@ -433,6 +627,8 @@ public class BlockDisk implements AutoCloseable
     {
         this.numberOfBlocks.set(0);
         this.emptyBlocks.clear();
+        // drop the mappings of the truncated file
+        this.regions = new MappedByteBuffer[0];
         fc.truncate(0);
         fc.force(true);
     }
@@ -475,6 +671,38 @@ public class BlockDisk implements AutoCloseable
         return this.emptyBlocks.size();
     }
 
+    /**
+     * @return true if reads are memory mapped
+     */
+    protected boolean isMemoryMapped()
+    {
+        return mapRegionSizeBytes > 0;
+    }
+
+    /**
+     * @return the number of regions currently mapped
+     */
+    protected int getMappedRegions()
+    {
+        int mapped = 0;
+        for (final MappedByteBuffer region : regions)
+        {
+            if (region != null)
+            {
+                mapped++;
+            }
+        }
+        return mapped;
+    }
+
+    /**
+     * @return how many times regions have been mapped
+     */
+    protected long getMapCount()
+    {
+        return mapCount.get();
+    }
+
     /**
      * For debugging only.
      * <p>
@@ -492,6 +720,7 @@ public class BlockDisk implements AutoCloseable
         buf.append("\n  Put Count [" + this.putCount + "]");
         buf.append("\n  Average Size [" + getAveragePutSizeBytes() + "]");
         buf.append("\n  Empty Blocks [" + this.getEmptyBlocks() + "]");
+        buf.append("\n  Map Region Size [" + this.mapRegionSizeBytes + "]");
         try
         {
             buf.append("\n  Length [" + length() + "]");
@@ -119,17 +119,13 @@ public class BlockDiskCache<K, V>
 
         try
         {
-            if ( this.blockDiskCacheAttributes.getBlockSizeBytes() > 0 )
-            {
-                this.dataFile = new BlockDisk( new File( rootDirectory, fileName + ".data" ),
-                                               this.blockDiskCacheAttributes.getBlockSizeBytes(),
-                                               getElementSerializer() );
-            }
-            else
-            {
-                this.dataFile = new BlockDisk( new File( rootDirectory, fileName + ".data" ),
-                                               getElementSerializer() );
-            }
+            final int blockSizeBytes = this.blockDiskCacheAttributes.getBlockSizeBytes() > 0
+                    ? this.blockDiskCacheAttributes.getBlockSizeBytes() : BlockDisk.DEFAULT_BLOCK_SIZE_BYTES;
+            final int mapRegionSizeBytes = this.blockDiskCacheAttributes.isMemoryMapped()
+                    ? this.blockDiskCacheAttributes.getMemoryMapRegionSizeBytes() : 0;
+
+            this.dataFile = new BlockDisk( new File( rootDirectory, fileName + ".data" ),
+                                           blockSizeBytes, getElementSerializer(), mapRegionSizeBytes );
 
             keyStore = new BlockDiskKeyStore<>( this.blockDiskCacheAttributes, this );
 
@@ -161,7 +157,7 @@ public class BlockDiskCache<K, V>
         // TODO we might need to stagger this a bit.
         if ( this.blockDiskCacheAttributes.getKeyPersistenceIntervalSeconds() > 0 )
         {
-            future = scheduledExecutor.scheduleAtFixedRate(keyStore::saveKeys,
+            future = scheduledExecutor.scheduleAtFixedRate(keyStore::persistKeys,
                     this.blockDiskCacheAttributes.getKeyPersistenceIntervalSeconds(),
                     this.blockDiskCacheAttributes.getKeyPersistenceIntervalSeconds(),
                     TimeUnit.SECONDS);
@@ -566,7 +562,8 @@ public class BlockDiskCache<K, V>
         {
             // Prevents any interaction with the cache while we're shutting down.
             setAlive(false);
-            this.keyStore.saveKeys();
+            this.keyStore.persistKeys();
+            this.keyStore.close();
 
             if (future != null)
             {
@@ -679,6 +676,14 @@ public class BlockDiskCache<K, V>
                     Long.valueOf(this.dataFile.getAveragePutSizeBytes()) ) );
             elems.add(new StatElement<>( "Empty Blocks",
                     Integer.valueOf(this.dataFile.getEmptyBlocks()) ) );
+
+            if (this.dataFile.isMemoryMapped())
+            {
+                elems.add(new StatElement<>( "Mapped Regions",
+                        Integer.valueOf(this.dataFile.getMappedRegions()) ) );
+                elems.add(new StatElement<>( "Map Count",
+                        Long.valueOf(this.dataFile.getMapCount()) ) );
+            }
         }
 
         // get the stats from the super too
@@ -45,6 +45,24 @@ public class BlockDiskCacheAttributes
     /** The keys will be persisted at this interval.  -1 mean never. */
     private long keyPersistenceIntervalSeconds = DEFAULT_KEY_PERSISTENCE_INTERVAL_SECONDS;
 
+    /** Should reads go through memory mapped regions of the data file. */
+    private boolean memoryMapped;
+
+    /** The default size of the memory mapped regions, 64 MB. */
+    private static final int DEFAULT_MEMORY_MAP_REGION_SIZE_BYTES = 64 * 1024 * 1024;
+
+    /** The size of the memory mapped regions. */
+    private int memoryMapRegionSizeBytes = DEFAULT_MEMORY_MAP_REGION_SIZE_BYTES;
+
+    /** Should changes to the keys be recorded in a journal between the key persistence runs. */
+    private boolean useKeyJournal;
+
+    /** The default number of journal records before compaction is considered. */
+    private static final int DEFAULT_KEY_JOURNAL_COMPACTION_RECORDS = 10000;
+
+    /** Minimum number of journal records before the journal is compacted into the key file. */
+    private int keyJournalCompactionRecords = DEFAULT_KEY_JOURNAL_COMPACTION_RECORDS;
+
     /**
      * The size of the blocks. All blocks are the same size.
      * <p>
@@ -95,6 +113,80 @@ public class BlockDiskCacheAttributes
         return keyPersistenceIntervalSeconds;
     }
 
+    /**
+     * If true, the data file is read through memory mapped regions instead of the file channel.
+     * <p>
+     * @param memoryMapped The memoryMapped to set.
+     */
+    public void setMemoryMapped( final boolean memoryMapped )
+    {
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * @return Returns the memoryMapped.
+     */
+    public boolean isMemoryMapped()
+    {
+        return memoryMapped;
+    }
+
+    /**
+     * The size of the memory mapped regions. It is rounded down to a multiple of the block size.
+     * <p>
+     * @param memoryMapRegionSizeBytes The memoryMapRegionSizeBytes to set.
+     */
+    public void setMemoryMapRegionSizeBytes( final int memoryMapRegionSizeBytes )
+    {
+        this.memoryMapRegionSizeBytes = memoryMapRegionSizeBytes;
+    }
+
+    /**
+     * @return Returns the memoryMapRegionSizeBytes.
+     */
+    public int getMemoryMapRegionSizeBytes()
+    {
+        return memoryMapRegionSizeBytes;
+    }
+
+    /**
+     * If true, every change to the keys is appended to a journal file, so the keys survive a crash
+     * of the process. The key file is then only rewritten when the journal is compacted.
+     * <p>
+     * @param useKeyJournal The useKeyJournal to set.
+     */
+    public void setUseKeyJournal( final boolean useKeyJournal )
+    {
+        this.useKeyJournal = useKeyJournal;
+    }
+
+    /**
+     * @return Returns the useKeyJournal.
+     */
+    public boolean isUseKeyJournal()
+    {
+        return useKeyJournal;
+    }
+
+    /**
+     * The journal is compacted into the key file once it has at least this number of records and
+     * more records than there are keys.
+     * <p>
+     * @param keyJournalCompactionRecords The keyJournalCompactionRecords to set.
+     */
+    public void setKeyJournalCompactionRecords( final int keyJournalCompactionRecords )
+    {
+        this.keyJournalCompactionRecords = keyJournalCompactionRecords;
+    }
+
+    /**
+     * @return Returns the keyJournalCompactionRecords.
+     */
+    public int getKeyJournalCompactionRecords()
+    {
+        return keyJournalCompactionRecords;
+    }
+
     /**
      * Write out the values for debugging purposes.
      * <p>
@@ -111,6 +203,10 @@ public class BlockDiskCacheAttributes
         str.append( "\n BlockSizeBytes [" + this.getBlockSizeBytes() + "]" );
         str.append( "\n KeyPersistenceIntervalSeconds [" + this.getKeyPersistenceIntervalSeconds() + "]" );
         str.append( "\n DiskLimitType [" + this.getDiskLimitType() + "]" );
+        str.append( "\n MemoryMapped [" + this.isMemoryMapped() + "]" );
+        str.append( "\n MemoryMapRegionSizeBytes [" + this.getMemoryMapRegionSizeBytes() + "]" );
+        str.append( "\n UseKeyJournal [" + this.isUseKeyJournal() + "]" );
+        str.append( "\n KeyJournalCompactionRecords [" + this.getKeyJournalCompactionRecords() + "]" );
         return str.toString();
     }
 }
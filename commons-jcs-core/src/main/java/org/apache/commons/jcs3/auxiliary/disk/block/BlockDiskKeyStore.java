@@ -27,7 +27,9 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -37,6 +39,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.jcs3.auxiliary.disk.KeyJournal;
 import org.apache.commons.jcs3.auxiliary.disk.behavior.IDiskCacheAttributes.DiskLimitType;
 import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
 import org.apache.commons.jcs3.io.ObjectInputStreamClassLoaderAware;
@@ -81,6 +84,7 @@ public class BlockDiskKeyStore<K>
         protected void processRemovedLRU(final K key, final int[] value)
         {
             blockDiskCache.freeBlocks(value);
+            journalRemove(key);
             if (log.isDebugEnabled())
             {
                 log.debug("{0}: Removing key: [{1}] from key store.", logCacheName, key);
@@ -128,6 +132,13 @@ public class BlockDiskKeyStore<K>
             contentSize.addAndGet(value.length * blockSize / 1024 + 1);
         }
 
+        @Override
+        public void clear()
+        {
+            super.clear();
+            contentSize.set(0);
+        }
+
         /**
          * This is called when the may key size is reached. The least recently
          * used item will be passed here. We will store the position and size of
@@ -141,6 +152,7 @@ public class BlockDiskKeyStore<K>
         protected void processRemovedLRU(final K key, final int[] value)
         {
             blockDiskCache.freeBlocks(value);
+            journalRemove(key);
             if (log.isDebugEnabled())
             {
                 log.debug("{0}: Removing key: [{1}] from key store.", logCacheName, key);
@@ -224,6 +236,12 @@ public class BlockDiskKeyStore<K>
     /** The key file signature for new-style key files */
     private final static int KEY_FILE_SIGNATURE = 0x6A63734B; // "jcsK"
 
+    /** The journal of changes to the keys since the key file was written, if enabled. */
+    private KeyJournal<K, int[]> journal;
+
+    /** True while the keys are loaded. Evictions during the load are not journaled. */
+    private boolean loadingKeys;
+
     /** The name to prefix log messages with. */
     protected final String logCacheName;
 
@@ -283,7 +301,21 @@ public class BlockDiskKeyStore<K>
 
         log.info("{0}: Key File [{1}]", logCacheName, this.keyFile.getAbsolutePath());
 
-        if (keyFile.length() > 0)
+        if (cacheAttributes.isUseKeyJournal())
+        {
+            try
+            {
+                this.journal = new KeyJournal<>(new File(rootDirectory, fileName + ".journal"),
+                        serializer, cacheAttributes.getKeyJournalCompactionRecords());
+            }
+            catch (final IOException e)
+            {
+                log.error("{0}: Problem opening key journal, keys are saved periodically only.",
+                        logCacheName, e);
+            }
+        }
+
+        if (keyFile.length() > 0 || journal != null && journal.length() > 0)
         {
             loadKeys();
             if (!verify())
@@ -383,7 +415,9 @@ public class BlockDiskKeyStore<K>
 
     /**
      * Loads the keys from the .key file. The keys are stored individually on
-     * disk. They are added one by one to an LRUMap.
+     * disk. If the key journal is enabled, the changes recorded since the key
+     * file was written are replayed on top of them. They are added one by one
+     * to an LRUMap.
      */
     protected void loadKeys()
     {
@@ -396,77 +430,101 @@ public class BlockDiskKeyStore<K>
 
         synchronized (keyFile)
         {
-            // Check file type
-            int fileSignature = 0;
-
-            try (FileChannel bc = FileChannel.open(keyFile.toPath(), StandardOpenOption.READ))
+            if (keyFile.length() > 0)
             {
-                final ByteBuffer signature = ByteBuffer.allocate(4);
-                bc.read(signature);
-                signature.flip();
-                fileSignature = signature.getInt();
+                // Check file type
+                int fileSignature = 0;
 
-                if (fileSignature == KEY_FILE_SIGNATURE)
+                try (FileChannel bc = FileChannel.open(keyFile.toPath(), StandardOpenOption.READ))
                 {
-                    while (true)
+                    final ByteBuffer signature = ByteBuffer.allocate(4);
+                    bc.read(signature);
+                    signature.flip();
+                    fileSignature = signature.getInt();
+
+                    if (fileSignature == KEY_FILE_SIGNATURE)
                     {
-                        try
+                        while (true)
                         {
-                            final BlockDiskElementDescriptor<K> descriptor =
-                                    serializer.deSerializeFrom(bc, null);
-                            if (descriptor != null)
+                            try
                             {
-                                keys.put(descriptor.getKey(), descriptor.getBlocks());
+                                final BlockDiskElementDescriptor<K> descriptor =
+                                        serializer.deSerializeFrom(bc, null);
+                                if (descriptor != null)
+                                {
+                                    keys.put(descriptor.getKey(), descriptor.getBlocks());
+                                }
+                            }
+                            catch (EOFException e)
+                            {
+                                break;
                             }
-                        }
-                        catch (EOFException e)
-                        {
-                            break;
                         }
                     }
                 }
-            }
-            catch (final IOException | ClassNotFoundException e)
-            {
-                log.error("{0}: Problem loading keys for file {1}", logCacheName, fileName, e);
-            }
+                catch (final IOException | ClassNotFoundException e)
+                {
+                    log.error("{0}: Problem loading keys for file {1}", logCacheName, fileName, e);
+                }
 
-            if (fileSignature != KEY_FILE_SIGNATURE)
-            {
-                try (InputStream fis = Files.newInputStream(keyFile.toPath());
-                     ObjectInputStream ois = new ObjectInputStreamClassLoaderAware(fis, null))
+                if (fileSignature != KEY_FILE_SIGNATURE)
                 {
-                    while (true)
+                    try (InputStream fis = Files.newInputStream(keyFile.toPath());
+                         ObjectInputStream ois = new ObjectInputStreamClassLoaderAware(fis, null))
                     {
-                        @SuppressWarnings("unchecked")
-                        final
-                        // Need to cast from Object
-                        BlockDiskElementDescriptor<K> descriptor = (BlockDiskElementDescriptor<K>) ois.readObject();
-                        if (descriptor != null)
+                        while (true)
                         {
-                            keys.put(descriptor.getKey(), descriptor.getBlocks());
+                            @SuppressWarnings("unchecked")
+                            final
+                            // Need to cast from Object
+                            BlockDiskElementDescriptor<K> descriptor = (BlockDiskElementDescriptor<K>) ois.readObject();
+                            if (descriptor != null)
+                            {
+                                keys.put(descriptor.getKey(), descriptor.getBlocks());
+                            }
                         }
                     }
+                    catch (final EOFException eof)
+                    {
+                        // nothing
+                    }
+                    catch (final IOException | ClassNotFoundException e)
+                    {
+                        log.error("{0}: Problem loading keys (old style) for file {1}", logCacheName, fileName, e);
+                    }
                 }
-                catch (final EOFException eof)
+            }
+
+            if (journal != null)
+            {
+                try
                 {
-                    // nothing
+                    final long records = journal.replay(keys::put, keys::remove);
+                    log.debug("{0}: Replayed {1} records of the key journal.", logCacheName, records);
                 }
-                catch (final IOException | ClassNotFoundException e)
+                catch (final IOException e)
                 {
-                    log.error("{0}: Problem loading keys (old style) for file {1}", logCacheName, fileName, e);
+                    log.error("{0}: Problem replaying key journal for file {1}", logCacheName, fileName, e);
                 }
             }
         }
 
-        if (!keys.isEmpty())
+        loadingKeys = true;
+        try
         {
-            keyHash.putAll(keys);
+            if (!keys.isEmpty())
+            {
+                keyHash.putAll(keys);
 
-            log.debug("{0}: Found {1} in keys file.", () -> logCacheName, keys::size);
-            log.info("{0}: Loaded keys from [{1}], key count: {2}; up to {3} will be available.",
-                    () -> logCacheName, () -> fileName, this::size,
-                    () -> maxKeySize);
+                log.debug("{0}: Found {1} in keys file.", () -> logCacheName, keys::size);
+                log.info("{0}: Loaded keys from [{1}], key count: {2}; up to {3} will be available.",
+                        () -> logCacheName, () -> fileName, this::size,
+                        () -> maxKeySize);
+            }
+        }
+        finally
+        {
+            loadingKeys = false;
         }
     }
 
@@ -479,7 +537,25 @@ public class BlockDiskKeyStore<K>
      */
     public void put(final K key, final int[] value)
     {
-        this.keyHash.put(key, value);
+        if (journal == null)
+        {
+            this.keyHash.put(key, value);
+            return;
+        }
+
+        synchronized (keyFile)
+        {
+            this.keyHash.put(key, value);
+            try
+            {
+                journal.put(key, value);
+            }
+            catch (final IOException e)
+            {
+                log.error("{0}: Problem journaling key {1}", logCacheName, key, e);
+            }
+            compactJournalIfDue();
+        }
     }
 
     /**
@@ -491,7 +567,84 @@ public class BlockDiskKeyStore<K>
      */
     public int[] remove(final K key)
     {
-        return this.keyHash.remove(key);
+        if (journal == null)
+        {
+            return this.keyHash.remove(key);
+        }
+
+        synchronized (keyFile)
+        {
+            final int[] value = this.keyHash.remove(key);
+            if (value != null)
+            {
+                journalRemove(key);
+                compactJournalIfDue();
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Records the removal of the key in the key journal, if enabled.
+     * <p>
+     *
+     * @param key
+     */
+    private void journalRemove(final K key)
+    {
+        if (journal != null && !loadingKeys)
+        {
+            try
+            {
+                journal.remove(key);
+            }
+            catch (final IOException e)
+            {
+                log.error("{0}: Problem journaling removal of key {1}", logCacheName, key, e);
+            }
+        }
+    }
+
+    /**
+     * Writes the key file and empties the journal, once the journal holds
+     * more records than there are keys.
+     */
+    private void compactJournalIfDue()
+    {
+        if (journal.isCompactionDue(size()))
+        {
+            saveKeys();
+        }
+    }
+
+    /**
+     * Saves the keys if they are not persistent otherwise. With a key journal
+     * this only happens when the journal is due for compaction.
+     */
+    protected void persistKeys()
+    {
+        if (journal == null || journal.isCompactionDue(size()))
+        {
+            saveKeys();
+        }
+    }
+
+    /**
+     * Closes the key journal, if enabled.
+     */
+    protected void close()
+    {
+        if (journal != null)
+        {
+            try
+            {
+                journal.close();
+            }
+            catch (final IOException e)
+            {
+                log.error("{0}: Problem closing key journal.", logCacheName, e);
+            }
+        }
     }
 
     /**
@@ -509,6 +662,10 @@ public class BlockDiskKeyStore<K>
     /**
      * Saves key file to disk. This gets the LRUMap entry set and write the
      * entries out one by one after putting them in a wrapper.
+     * <p>
+     * The keys are written to a temporary file which then replaces the key
+     * file, so a crash while saving leaves the previous key file intact.
+     * Afterwards the key journal is emptied.
      */
     protected void saveKeys()
     {
@@ -518,7 +675,9 @@ public class BlockDiskKeyStore<K>
 
         synchronized (keyFile)
         {
-            try (FileChannel bc = FileChannel.open(keyFile.toPath(),
+            final File keyFileTemp = new File(keyFile.getParentFile(), keyFile.getName() + ".tmp");
+
+            try (FileChannel bc = FileChannel.open(keyFileTemp.toPath(),
                     StandardOpenOption.CREATE,
                     StandardOpenOption.WRITE,
                     StandardOpenOption.TRUNCATE_EXISTING))
@@ -542,10 +701,37 @@ public class BlockDiskKeyStore<K>
                     // stream these out in the loop.
                     serializer.serializeTo(descriptor, bc);
                 }
+
+                bc.force(false);
+            }
+            catch (final IOException e)
+            {
+                log.error("{0}: Problem storing keys.", logCacheName, e);
+                return;
+            }
+
+            try
+            {
+                try
+                {
+                    Files.move(keyFileTemp.toPath(), keyFile.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                catch (final AtomicMoveNotSupportedException e)
+                {
+                    Files.move(keyFileTemp.toPath(), keyFile.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                if (journal != null)
+                {
+                    journal.reset();
+                }
             }
             catch (final IOException e)
             {
                 log.error("{0}: Problem storing keys.", logCacheName, e);
+                return;
             }
         }
 
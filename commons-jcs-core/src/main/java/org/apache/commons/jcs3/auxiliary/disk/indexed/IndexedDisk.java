@@ -26,6 +26,8 @@ import java.nio.channels.FileChannel;
 import java.nio.file.StandardOpenOption;
 
 import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs3.io.ByteBufferPool;
+import org.apache.commons.jcs3.io.ByteBufferSink;
 import org.apache.commons.jcs3.log.Log;
 import org.apache.commons.jcs3.log.LogManager;
 
@@ -68,8 +70,8 @@ public class IndexedDisk implements AutoCloseable
     /**
      * This reads an object from the given starting position on the file.
      * <p>
-     * The first four bytes of the record should tell us how long it is. The data is read into a byte
-     * array and then an object is constructed from the byte array.
+     * The first four bytes of the record should tell us how long it is. The data is read into a
+     * pooled buffer and the object is constructed from the buffer.
      * <p>
      * @return Serializable
      * @param ded
@@ -111,11 +113,28 @@ public class IndexedDisk implements AutoCloseable
             throw new IOException("The File Is Corrupt, need to reset");
         }
 
-        final ByteBuffer data = ByteBuffer.allocate(ded.len);
-        fc.read(data, ded.pos + HEADER_SIZE_BYTES);
-        data.flip();
+        final ByteBufferPool pool = ByteBufferPool.getDefault();
+        final ByteBuffer data = pool.acquire(ded.len);
+        try
+        {
+            long pos = ded.pos + HEADER_SIZE_BYTES;
+            while (data.hasRemaining())
+            {
+                final int read = fc.read(data, pos);
+                if (read < 0)
+                {
+                    throw new IOException("Unexpected end of file reading " + ded);
+                }
+                pos += read;
+            }
+            data.flip();
 
-        return elementSerializer.deSerialize(data.array(), null);
+            return elementSerializer.deSerializeBuffer(data, null);
+        }
+        finally
+        {
+            pool.release(data);
+        }
     }
 
     /**
@@ -202,6 +221,170 @@ public class IndexedDisk implements AutoCloseable
         return written == data.length;
     }
 
+    /**
+     * Writes a record, the four byte length header followed by the data, at the position of the
+     * descriptor.
+     * <p>
+     * @param ded the descriptor of the record
+     * @param record the header and the data
+     * @return true if we wrote successfully
+     * @throws IOException
+     * @since 3.2
+     */
+    protected boolean write(final IndexedDiskElementDescriptor ded, final ByteBuffer record)
+        throws IOException
+    {
+        log.trace("write> pos={0}, length={1}", ded.pos, ded.len);
+
+        if (record.remaining() != HEADER_SIZE_BYTES + ded.len
+            || record.getInt(record.position()) != ded.len)
+        {
+            throw new IOException("Mismatched descriptor and data lengths");
+        }
+
+        long pos = ded.pos;
+        while (record.hasRemaining())
+        {
+            final int written = fc.write(record, pos);
+            if (written <= 0)
+            {
+                return false;
+            }
+            pos += written;
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes a batch of contiguous records, each a four byte length header followed by the data,
+     * with a single write. The descriptors must be contiguous, each record starting where the
+     * previous one ends.
+     * <p>
+     * @param deds the descriptors of the records, in file order
+     * @param records the records, one after the other
+     * @return true if all the data was written
+     * @throws IOException
+     * @since 3.2
+     */
+    protected boolean write(final IndexedDiskElementDescriptor[] deds, final ByteBuffer records)
+        throws IOException
+    {
+        if (deds.length == 0)
+        {
+            return true;
+        }
+
+        final long start = deds[0].pos;
+        int offset = records.position();
+        for (final IndexedDiskElementDescriptor ded : deds)
+        {
+            if (ded.pos != start + offset - records.position())
+            {
+                throw new IOException("Batch records are not contiguous at position " + ded.pos);
+            }
+            if (records.limit() - offset < HEADER_SIZE_BYTES + ded.len
+                || records.getInt(offset) != ded.len)
+            {
+                throw new IOException("Mismatched descriptor and data lengths");
+            }
+            offset += HEADER_SIZE_BYTES + ded.len;
+        }
+        if (offset != records.limit())
+        {
+            throw new IOException("Mismatched descriptor and data lengths");
+        }
+
+        log.trace("write> pos={0}, records={1}, bytes={2}", start, deds.length, records.remaining());
+
+        long pos = start;
+        while (records.hasRemaining())
+        {
+            final int written = fc.write(records, pos);
+            if (written <= 0)
+            {
+                return false;
+            }
+            pos += written;
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes a batch of records with a single gathering write. The descriptors must be contiguous,
+     * each record starting where the previous one ends.
+     * <p>
+     * @param deds the descriptors of the records, in file order
+     * @param data the serialized records
+     * @return true if all the data was written
+     * @throws IOException
+     */
+    protected boolean write(final IndexedDiskElementDescriptor[] deds, final byte[][] data)
+        throws IOException
+    {
+        if (deds.length == 0)
+        {
+            return true;
+        }
+
+        final ByteBuffer[] buffers = new ByteBuffer[2 * deds.length];
+        final ByteBuffer headers = ByteBuffer.allocate(HEADER_SIZE_BYTES * deds.length);
+        final long start = deds[0].pos;
+        long pos = start;
+
+        for (int i = 0; i < deds.length; i++)
+        {
+            if (data[i].length != deds[i].len)
+            {
+                throw new IOException("Mismatched descriptor and data lengths");
+            }
+            if (deds[i].pos != pos)
+            {
+                throw new IOException("Batch records are not contiguous at position " + pos);
+            }
+
+            headers.limit(headers.position() + HEADER_SIZE_BYTES);
+            final ByteBuffer header = headers.slice();
+            header.putInt(data[i].length);
+            header.flip();
+            headers.position(headers.limit());
+
+            buffers[2 * i] = header;
+            buffers[2 * i + 1] = ByteBuffer.wrap(data[i]);
+            pos += HEADER_SIZE_BYTES + data[i].length;
+        }
+
+        log.trace("write> pos={0}, records={1}, bytes={2}", start, deds.length, pos - start);
+
+        // FileChannel has no positional gathering write, but all writers hold the
+        // storage write lock and readers use positional reads.
+        fc.position(start);
+        long remaining = pos - start;
+        while (remaining > 0)
+        {
+            final long written = fc.write(buffers);
+            if (written <= 0)
+            {
+                return false;
+            }
+            remaining -= written;
+        }
+
+        return true;
+    }
+
+    /**
+     * Forces any updates to the storage device.
+     * <p>
+     * @throws IOException
+     */
+    protected void force()
+        throws IOException
+    {
+        fc.force(false);
+    }
+
     /**
      * Serializes the object and write it out to the given position.
      * <p>
@@ -213,8 +396,11 @@ public class IndexedDisk implements AutoCloseable
     protected <T> void writeObject(final T obj, final long pos)
         throws IOException
     {
-        final byte[] data = elementSerializer.serialize(obj);
-        write(new IndexedDiskElementDescriptor(pos, data.length), data);
+        try (ByteBufferSink record = new ByteBufferSink())
+        {
+            final int length = elementSerializer.serializeTo(obj, record) - HEADER_SIZE_BYTES;
+            write(new IndexedDiskElementDescriptor(pos, length), record.flip());
+        }
     }
 
     /**
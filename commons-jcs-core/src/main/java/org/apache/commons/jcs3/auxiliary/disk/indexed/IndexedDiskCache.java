@@ -22,12 +22,16 @@ package org.apache.commons.jcs3.auxiliary.disk.indexed;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +43,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.jcs3.auxiliary.AuxiliaryCacheAttributes;
 import org.apache.commons.jcs3.auxiliary.disk.AbstractDiskCache;
+import org.apache.commons.jcs3.auxiliary.disk.KeyJournal;
 import org.apache.commons.jcs3.auxiliary.disk.behavior.IDiskCacheAttributes.DiskLimitType;
 import org.apache.commons.jcs3.engine.behavior.ICacheElement;
 import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
@@ -50,6 +55,7 @@ import org.apache.commons.jcs3.engine.stats.StatElement;
 import org.apache.commons.jcs3.engine.stats.Stats;
 import org.apache.commons.jcs3.engine.stats.behavior.IStatElement;
 import org.apache.commons.jcs3.engine.stats.behavior.IStats;
+import org.apache.commons.jcs3.io.ByteBufferSink;
 import org.apache.commons.jcs3.log.Log;
 import org.apache.commons.jcs3.log.LogManager;
 import org.apache.commons.jcs3.utils.struct.AbstractLRUMap;
@@ -78,6 +84,12 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
     /** The IndexedDisk manages reads and writes to the key file. */
     private IndexedDisk keyFile;
 
+    /** The journal of changes to the keys since the key file was written, if enabled. */
+    private KeyJournal<K, IndexedDiskElementDescriptor> journal;
+
+    /** True while the keys are loaded. Evictions during the load are not journaled. */
+    private boolean loadingKeys;
+
     /** Map containing the keys and disk offsets. */
     private final Map<K, IndexedDiskElementDescriptor> keyHash;
 
@@ -126,6 +138,9 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
     /** How many items were there on startup. */
     private int startupSize;
 
+    /** How many batches of updates have been written. */
+    private int updateBatchCnt;
+
     /** the number of bytes free on disk. */
     private final AtomicLong bytesFree = new AtomicLong();
 
@@ -166,6 +181,7 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
         setElementSerializer(elementSerializer);
 
         this.cattr = cattr;
+        configureUpdateBatching(cattr.getUpdateBatchSize(), cattr.getUpdateBatchLingerMillis());
         this.maxKeySize = cattr.getMaxKeySize();
         this.isRealTimeOptimizationEnabled = cattr.getOptimizeAtRemoveCount() > 0;
         this.isShutdownOptimizationEnabled = cattr.isOptimizeOnShutdown();
@@ -226,13 +242,19 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
         this.dataFile = new IndexedDisk(new File(rafDir, fileName + ".data"), getElementSerializer());
         this.keyFile = new IndexedDisk(new File(rafDir, fileName + ".key"), getElementSerializer());
 
+        if (cattr.isUseKeyJournal())
+        {
+            this.journal = new KeyJournal<>(new File(rafDir, fileName + ".journal"),
+                    getElementSerializer(), cattr.getKeyJournalCompactionRecords());
+        }
+
         if (cattr.isClearDiskOnStartup())
         {
             log.info("{0}: ClearDiskOnStartup is set to true. Ignoring any persisted data.",
                     logCacheName);
             initializeEmptyStore();
         }
-        else if (!keyFile.isEmpty())
+        else if (!keyFile.isEmpty() || journal != null && journal.length() > 0)
         {
             // If the key file has contents, try to initialize the keys
             // from it. In no keys are loaded reset the data file.
@@ -260,6 +282,11 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
         {
             dataFile.reset();
         }
+
+        if (journal != null)
+        {
+            journal.reset();
+        }
     }
 
     /**
@@ -276,6 +303,10 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
         if (keyHash.isEmpty())
         {
             dataFile.reset();
+            if (journal != null)
+            {
+                journal.reset();
+            }
         }
         else
         {
@@ -285,6 +316,10 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
                 keyHash.clear();
                 keyFile.reset();
                 dataFile.reset();
+                if (journal != null)
+                {
+                    journal.reset();
+                }
                 log.warn("{0}: Corruption detected. Resetting data and keys files.", logCacheName);
             }
             else
@@ -298,8 +333,9 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
     }
 
     /**
-     * Loads the keys from the .key file. The keys are stored in a HashMap on disk. This is
-     * converted into a LRUMap.
+     * Loads the keys from the .key file. The keys are stored in a HashMap on disk. If the key
+     * journal is enabled, the changes recorded since the key file was written are replayed on top
+     * of it. This is converted into a LRUMap.
      */
     protected void loadKeys()
     {
@@ -309,11 +345,27 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
 
         try
         {
+            loadingKeys = true;
+
             // clear a key map to use.
             keyHash.clear();
 
-            final HashMap<K, IndexedDiskElementDescriptor> keys = keyFile.readObject(
-                new IndexedDiskElementDescriptor(0, (int) keyFile.length() - IndexedDisk.HEADER_SIZE_BYTES));
+            HashMap<K, IndexedDiskElementDescriptor> keys = null;
+            if (!keyFile.isEmpty())
+            {
+                keys = keyFile.readObject(
+                    new IndexedDiskElementDescriptor(0, (int) keyFile.length() - IndexedDisk.HEADER_SIZE_BYTES));
+            }
+
+            if (journal != null)
+            {
+                if (keys == null)
+                {
+                    keys = new HashMap<>();
+                }
+                final long records = journal.replay(keys::put, keys::remove);
+                log.debug("{0}: Replayed {1} records of the key journal.", logCacheName, records);
+            }
 
             if (keys != null)
             {
@@ -336,6 +388,7 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
         }
         finally
         {
+            loadingKeys = false;
             storageLock.writeLock().unlock();
         }
     }
@@ -420,20 +473,57 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
 
     /**
      * Saves key file to disk. This converts the LRUMap to a HashMap for deserialization.
+     * <p>
+     * The keys are written to a temporary file which then replaces the key file, so a crash while
+     * saving leaves the previous key file intact. Afterwards the key journal is emptied.
      */
     protected void saveKeys()
     {
+        storageLock.writeLock().lock();
+
         try
         {
             log.info("{0}: Saving keys to: {1}, key count: {2}",
                     () -> logCacheName, () -> fileName, keyHash::size);
 
-            keyFile.reset();
+            final File keyFileTemp = new File(rafDir, fileName + ".key.tmp");
+            final IndexedDisk tempFile = new IndexedDisk(keyFileTemp, getElementSerializer());
+            try
+            {
+                tempFile.reset();
 
-            final HashMap<K, IndexedDiskElementDescriptor> keys = new HashMap<>(keyHash);
-            if (!keys.isEmpty())
+                final HashMap<K, IndexedDiskElementDescriptor> keys = new HashMap<>(keyHash);
+                if (!keys.isEmpty())
+                {
+                    tempFile.writeObject(keys, 0);
+                }
+                tempFile.force();
+            }
+            finally
+            {
+                tempFile.close();
+            }
+
+            final File keyFileName = new File(rafDir, fileName + ".key");
+            keyFile.close();
+            try
+            {
+                Files.move(keyFileTemp.toPath(), keyFileName.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (final AtomicMoveNotSupportedException e)
+            {
+                Files.move(keyFileTemp.toPath(), keyFileName.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+            finally
             {
-                keyFile.writeObject(keys, 0);
+                keyFile = new IndexedDisk(keyFileName, getElementSerializer());
+            }
+
+            if (journal != null)
+            {
+                journal.reset();
             }
 
             log.info("{0}: Finished saving keys.", logCacheName);
@@ -442,6 +532,71 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
         {
             log.error("{0}: Problem storing keys.", logCacheName, e);
         }
+        finally
+        {
+            storageLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records the new location of the key in the key journal, if enabled. Compacts the journal
+     * into the key file when it has grown too large.
+     * (guarded by the storage write lock)
+     * <p>
+     *
+     * @param key
+     * @param ded
+     */
+    private void journalPut(final K key, final IndexedDiskElementDescriptor ded)
+    {
+        if (journal != null)
+        {
+            try
+            {
+                journal.put(key, ded);
+            }
+            catch (final IOException e)
+            {
+                log.error("{0}: Failure journaling key {1}", logCacheName, key, e);
+            }
+        }
+    }
+
+    /**
+     * Records the removal of the key in the key journal, if enabled.
+     * (guarded by the storage write lock)
+     * <p>
+     *
+     * @param key
+     */
+    private void journalRemove(final K key)
+    {
+        if (journal != null && !loadingKeys)
+        {
+            try
+            {
+                journal.remove(key);
+            }
+            catch (final IOException e)
+            {
+                log.error("{0}: Failure journaling removal of key {1}", logCacheName, key, e);
+            }
+        }
+    }
+
+    /**
+     * Writes the key file and empties the journal, once the journal holds more records than there
+     * are keys.
+     * (guarded by the storage write lock)
+     */
+    private void compactJournalIfDue()
+    {
+        if (journal != null && journal.isCompactionDue(keyHash.size()))
+        {
+            log.debug("{0}: Compacting key journal of {1} records.",
+                    () -> logCacheName, journal::getRecordCount);
+            saveKeys();
+        }
     }
 
     /**
@@ -468,10 +623,10 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
         // old element with same key
         IndexedDiskElementDescriptor old = null;
 
-        try
+        try (ByteBufferSink record = new ByteBufferSink())
         {
             IndexedDiskElementDescriptor ded = null;
-            final byte[] data = getElementSerializer().serialize(ce);
+            final int length = getElementSerializer().serializeTo(ce, record) - IndexedDisk.HEADER_SIZE_BYTES;
 
             // make sure this only locks for one particular cache region
             storageLock.writeLock().lock();
@@ -481,17 +636,17 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
 
                 // Item with the same key already exists in file.
                 // Try to reuse the location if possible.
-                if (old != null && data.length <= old.len)
+                if (old != null && length <= old.len)
                 {
                     // Reuse the old ded. The defrag relies on ded updates by reference, not
                     // replacement.
                     ded = old;
-                    ded.len = data.length;
+                    ded.len = length;
                 }
                 else
                 {
                     // we need this to compare in the recycle bin
-                    ded = new IndexedDiskElementDescriptor(dataFile.length(), data.length);
+                    ded = new IndexedDiskElementDescriptor(dataFile.length(), length);
 
                     if (doRecycle)
                     {
@@ -501,7 +656,7 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
                             // remove element from recycle bin
                             recycle.remove(rep);
                             ded = rep;
-                            ded.len = data.length;
+                            ded.len = length;
                             recycleCnt++;
                             this.adjustBytesFree(ded, false);
                             log.debug("{0}: using recycled ded {1} rep.len = {2} ded.len = {3}",
@@ -526,7 +681,9 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
                     }
                 }
 
-                dataFile.write(ded, data);
+                dataFile.write(ded, record.flip());
+                journalPut(ce.getKey(), ded);
+                compactJournalIfDue();
             }
             finally
             {
@@ -543,6 +700,154 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
         }
     }
 
+    /**
+     * Update the disk cache with a batch of elements taken from the queue. The elements are laid
+     * out contiguously at the end of the data file and written with a single gathering write. The
+     * slots of replaced elements go to the recycle bin. A single element is stored like any other
+     * update.
+     * <p>
+     *
+     * @param elements
+     *            The elements to put to disk, with unique keys.
+     */
+    @Override
+    protected void processUpdateBatch(final List<ICacheElement<K, V>> elements)
+    {
+        if (!isAlive())
+        {
+            log.error("{0}: No longer alive; aborting put of {1} elements",
+                    logCacheName, elements.size());
+            return;
+        }
+
+        if (elements.size() > 1)
+        {
+            writeBatch(elements);
+        }
+        else
+        {
+            elements.forEach(this::processUpdate);
+        }
+
+        if (cattr.isSyncOnUpdateBatch())
+        {
+            storageLock.readLock().lock();
+            try
+            {
+                dataFile.force();
+            }
+            catch (final IOException e)
+            {
+                log.error("{0}: Failure syncing data file", logCacheName, e);
+            }
+            finally
+            {
+                storageLock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Serializes the elements, appends them to the data file with a single write and adds them to
+     * the key map.
+     * <p>
+     *
+     * @param elements
+     *            The elements to put to disk.
+     */
+    private void writeBatch(final List<ICacheElement<K, V>> elements)
+    {
+        final List<ICacheElement<K, V>> batch = new ArrayList<>(elements.size());
+        final List<Integer> lengths = new ArrayList<>(elements.size());
+        final ByteBufferSink records = new ByteBufferSink();
+
+        // serialize outside of the lock, one record after the other
+        for (final ICacheElement<K, V> ce : elements)
+        {
+            final int start = records.position();
+            try
+            {
+                lengths.add(Integer.valueOf(
+                        getElementSerializer().serializeTo(ce, records) - IndexedDisk.HEADER_SIZE_BYTES));
+                batch.add(ce);
+            }
+            catch (final IOException e)
+            {
+                records.position(start);
+                log.error("{0}: Failure serializing element, key: {1}",
+                        logCacheName, ce.getKey(), e);
+            }
+        }
+
+        if (batch.isEmpty())
+        {
+            records.close();
+            return;
+        }
+
+        final IndexedDiskElementDescriptor[] deds = new IndexedDiskElementDescriptor[batch.size()];
+
+        storageLock.writeLock().lock();
+        try
+        {
+            long pos = dataFile.length();
+            for (int i = 0; i < deds.length; i++)
+            {
+                deds[i] = new IndexedDiskElementDescriptor(pos, lengths.get(i).intValue());
+                pos += IndexedDisk.HEADER_SIZE_BYTES + deds[i].len;
+            }
+
+            if (!dataFile.write(deds, records.flip()))
+            {
+                throw new IOException("Incomplete write of update batch");
+            }
+
+            if (journal != null)
+            {
+                final Map<K, IndexedDiskElementDescriptor> entries = new LinkedHashMap<>();
+                for (int i = 0; i < deds.length; i++)
+                {
+                    entries.put(batch.get(i).getKey(), deds[i]);
+                }
+                journal.putAll(entries);
+            }
+
+            // Only index the elements once they are on disk
+            for (int i = 0; i < deds.length; i++)
+            {
+                final IndexedDiskElementDescriptor old = keyHash.put(batch.get(i).getKey(), deds[i]);
+
+                if (queueInput)
+                {
+                    queuedPutList.add(deds[i]);
+                }
+
+                // add the old slot to the recycle bin
+                if (old != null)
+                {
+                    addToRecycleBin(old);
+                }
+            }
+
+            updateBatchCnt++;
+            compactJournalIfDue();
+        }
+        catch (final IOException e)
+        {
+            log.error("{0}: Failure writing batch of {1} elements",
+                    logCacheName, batch.size(), e);
+            return;
+        }
+        finally
+        {
+            storageLock.writeLock().unlock();
+            records.close();
+        }
+
+        log.debug("{0}: Put batch to file: {1}, elements: {2}, position: {3}",
+                logCacheName, fileName, deds.length, deds[0].pos);
+    }
+
     /**
      * Gets the key, then goes to disk to get the object.
      * <p>
@@ -834,6 +1139,10 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
         final IndexedDiskElementDescriptor ded = keyHash.remove(key);
         removed = ded != null;
         addToRecycleBin(ded);
+        if (removed)
+        {
+            journalRemove(key);
+        }
 
         log.debug("{0}: Disk removal: Removed from key hash, key [{1}] removed = {2}",
                 logCacheName, key, removed);
@@ -889,6 +1198,11 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
             dataFile = new IndexedDisk(dataFileTemp, getElementSerializer());
             keyFile = new IndexedDisk(keyFileTemp, getElementSerializer());
 
+            if (journal != null)
+            {
+                journal.reset();
+            }
+
             this.recycle.clear();
             this.keyHash.clear();
         }
@@ -1002,7 +1316,11 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
             optimizeFile();
         }
 
-        saveKeys();
+        // With a journal the keys are already persistent, unless the journal is due for compaction
+        if (journal == null || journal.isCompactionDue(keyHash.size()))
+        {
+            saveKeys();
+        }
 
         try
         {
@@ -1012,6 +1330,11 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
             dataFile = null;
             keyFile.close();
             keyFile = null;
+            if (journal != null)
+            {
+                journal.close();
+                journal = null;
+            }
         }
         catch (final IOException e)
         {
@@ -1125,6 +1448,7 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
 
         // CREATE SNAPSHOT
         IndexedDiskElementDescriptor[] defragList = null;
+        Map<IndexedDiskElementDescriptor, K> defragKeys = null;
 
         storageLock.writeLock().lock();
 
@@ -1134,6 +1458,16 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
             // shut off recycle while we're optimizing,
             doRecycle = false;
             defragList = createPositionSortedDescriptorList();
+
+            if (journal != null)
+            {
+                // the keys of the descriptors, to journal their moves
+                defragKeys = new IdentityHashMap<>(keyHash.size());
+                for (final Map.Entry<K, IndexedDiskElementDescriptor> entry : keyHash.entrySet())
+                {
+                    defragKeys.put(entry.getValue(), entry.getKey());
+                }
+            }
         }
         finally
         {
@@ -1142,7 +1476,7 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
 
         // Defrag the file outside of the write lock. This allows a move to be made,
         // and yet have the element still accessible for reading or writing.
-        long expectedNextPos = defragFile(defragList, 0);
+        long expectedNextPos = defragFile(defragList, 0, defragKeys);
 
         // ADD THE QUEUED ITEMS to the end and then truncate
         storageLock.writeLock().lock();
@@ -1156,7 +1490,7 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
                     defragList = queuedPutList.toArray(new IndexedDiskElementDescriptor[0]);
 
                     // pack them at the end
-                    expectedNextPos = defragFile(defragList, expectedNextPos);
+                    expectedNextPos = defragFile(defragList, expectedNextPos, null);
                 }
                 // TRUNCATE THE FILE
                 dataFile.truncate(expectedNextPos);
@@ -1175,6 +1509,12 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
             // turn recycle back on.
             doRecycle = true;
             isOptimizing = false;
+
+            // the moves of the queued puts were not journaled
+            if (journal != null)
+            {
+                saveKeys();
+            }
         }
         finally
         {
@@ -1195,9 +1535,12 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
      *            sorted list of descriptors for optimization
      * @param startingPos
      *            the start position in the file
+     * @param defragKeys
+     *            the keys of the descriptors, if the moves are to be journaled
      * @return this is the potential new file end
      */
-    private long defragFile(final IndexedDiskElementDescriptor[] defragList, final long startingPos)
+    private long defragFile(final IndexedDiskElementDescriptor[] defragList, final long startingPos,
+            final Map<IndexedDiskElementDescriptor, K> defragKeys)
     {
         final ElapsedTimer timer = new ElapsedTimer();
         long preFileSize = 0;
@@ -1215,6 +1558,15 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
                     if (expectedNextPos != element.pos)
                     {
                         dataFile.move(element, expectedNextPos);
+
+                        if (defragKeys != null)
+                        {
+                            final K key = defragKeys.get(element);
+                            if (key != null && getQuiet(key) == element)
+                            {
+                                journalPut(key, element);
+                            }
+                        }
                     }
                     expectedNextPos = element.pos + IndexedDisk.HEADER_SIZE_BYTES + element.len;
                 }
@@ -1242,6 +1594,23 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
         return 0;
     }
 
+    /**
+     * Gets the descriptor of the key without changing the order of the LRU map.
+     * <p>
+     *
+     * @param key
+     * @return the descriptor or null
+     */
+    private IndexedDiskElementDescriptor getQuiet(final K key)
+    {
+        if (keyHash instanceof AbstractLRUMap)
+        {
+            return ((AbstractLRUMap<K, IndexedDiskElementDescriptor>) keyHash).getQuiet(key);
+        }
+
+        return keyHash.get(key);
+    }
+
     /**
      * Creates a snapshot of the IndexedDiskElementDescriptors in the keyHash and returns them
      * sorted by position in the dataFile.
@@ -1437,6 +1806,7 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
         elems.add(new StatElement<>("Times Optimized", Integer.valueOf(this.timesOptimized)));
         elems.add(new StatElement<>("Recycle Count", Integer.valueOf(this.recycleCnt)));
         elems.add(new StatElement<>("Recycle Bin Size", Integer.valueOf(this.recycle.size())));
+        elems.add(new StatElement<>("Update Batch Count", Integer.valueOf(this.updateBatchCnt)));
         elems.add(new StatElement<>("Startup Size", Integer.valueOf(this.startupSize)));
 
         // get the stats from the super too
@@ -1539,6 +1909,13 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
             contentSize.addAndGet((value.len + IndexedDisk.HEADER_SIZE_BYTES) / 1024 + 1);
         }
 
+        @Override
+        public void clear()
+        {
+            super.clear();
+            contentSize.set(0);
+        }
+
         @Override
         public IndexedDiskElementDescriptor put(final K key, final IndexedDiskElementDescriptor value)
         {
@@ -1600,6 +1977,7 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
             }
 
             addToRecycleBin(value);
+            journalRemove(key);
 
             log.debug("{0}: Removing key: [{1}] from key store.", logCacheName, key);
             log.debug("{0}: Key store size: [{1}].", logCacheName, this.size());
@@ -1639,6 +2017,7 @@ public class IndexedDiskCache<K, V> extends AbstractDiskCache<K, V>
         protected void processRemovedLRU(final K key, final IndexedDiskElementDescriptor value)
         {
             addToRecycleBin(value);
+            journalRemove(key);
             log.debug("{0}: Removing key: [{1}] from key store.", logCacheName, key);
             log.debug("{0}: Key store size: [{1}].", logCacheName, this.size());
 
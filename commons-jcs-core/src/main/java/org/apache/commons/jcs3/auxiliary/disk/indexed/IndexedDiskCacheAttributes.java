@@ -51,6 +51,27 @@ public class IndexedDiskCacheAttributes
     /** Should we clear the disk on startup. If true the contents of disk are cleared. */
     private boolean clearDiskOnStartup = DEFAULT_CLEAR_DISK_ON_STARTUP;
 
+    /** The default maximum number of updates written at once. */
+    public static final int DEFAULT_UPDATE_BATCH_SIZE = 1;
+
+    /** Maximum number of queued updates written at once. 1 means no batching. */
+    private int updateBatchSize = DEFAULT_UPDATE_BATCH_SIZE;
+
+    /** Time to wait for more updates to fill up a batch, in milliseconds. */
+    private long updateBatchLingerMillis;
+
+    /** Should the data file be forced to disk after each batch. */
+    private boolean syncOnUpdateBatch;
+
+    /** The default number of journal records before compaction is considered. */
+    public static final int DEFAULT_KEY_JOURNAL_COMPACTION_RECORDS = 10000;
+
+    /** Should changes to the keys be recorded in a journal instead of saving the keys on shutdown only. */
+    private boolean useKeyJournal;
+
+    /** Minimum number of journal records before the journal is compacted into the key file. */
+    private int keyJournalCompactionRecords = DEFAULT_KEY_JOURNAL_COMPACTION_RECORDS;
+
     /**
      * Constructor for the DiskCacheAttributes object
      */
@@ -131,6 +152,96 @@ public class IndexedDiskCacheAttributes
         return clearDiskOnStartup;
     }
 
+    /**
+     * @return the maximum number of queued updates written at once
+     */
+    public int getUpdateBatchSize()
+    {
+        return updateBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of queued updates written at once. A batch is laid out
+     * contiguously at the end of the data file and written with a single call.
+     * <p>
+     * @param updateBatchSize the batch size, 1 to write each update separately
+     */
+    public void setUpdateBatchSize( final int updateBatchSize )
+    {
+        this.updateBatchSize = updateBatchSize;
+    }
+
+    /**
+     * @return the time to wait for more updates to fill up a batch, in milliseconds
+     */
+    public long getUpdateBatchLingerMillis()
+    {
+        return updateBatchLingerMillis;
+    }
+
+    /**
+     * @param updateBatchLingerMillis the time to wait for more updates to fill up a batch, in
+     *            milliseconds. 0 only batches the updates already waiting in the queue.
+     */
+    public void setUpdateBatchLingerMillis( final long updateBatchLingerMillis )
+    {
+        this.updateBatchLingerMillis = updateBatchLingerMillis;
+    }
+
+    /**
+     * @return whether the data file is forced to disk after each batch
+     */
+    public boolean isSyncOnUpdateBatch()
+    {
+        return syncOnUpdateBatch;
+    }
+
+    /**
+     * @param syncOnUpdateBatch whether the data file is forced to disk after each batch
+     */
+    public void setSyncOnUpdateBatch( final boolean syncOnUpdateBatch )
+    {
+        this.syncOnUpdateBatch = syncOnUpdateBatch;
+    }
+
+    /**
+     * @return whether changes to the keys are recorded in a journal
+     */
+    public boolean isUseKeyJournal()
+    {
+        return useKeyJournal;
+    }
+
+    /**
+     * If true, every change to the keys is appended to a journal file, so the keys survive a crash
+     * of the process. Otherwise the keys are only saved on shutdown.
+     * <p>
+     * @param useKeyJournal whether changes to the keys are recorded in a journal
+     */
+    public void setUseKeyJournal( final boolean useKeyJournal )
+    {
+        this.useKeyJournal = useKeyJournal;
+    }
+
+    /**
+     * @return the minimum number of journal records before the journal is compacted
+     */
+    public int getKeyJournalCompactionRecords()
+    {
+        return keyJournalCompactionRecords;
+    }
+
+    /**
+     * The journal is compacted into the key file once it has at least this number of records and
+     * more records than there are keys.
+     * <p>
+     * @param keyJournalCompactionRecords the minimum number of journal records before compaction
+     */
+    public void setKeyJournalCompactionRecords( final int keyJournalCompactionRecords )
+    {
+        this.keyJournalCompactionRecords = keyJournalCompactionRecords;
+    }
+
     /**
      * Write out the values for debugging purposes.
      * <p>
@@ -148,6 +259,11 @@ public class IndexedDiskCacheAttributes
         str.append( "\n shutdownSpoolTimeLimit  = " + super.getShutdownSpoolTimeLimit() );
         str.append( "\n optimizeOnShutdown  = " + optimizeOnShutdown );
         str.append( "\n clearDiskOnStartup  = " + clearDiskOnStartup );
+        str.append( "\n updateBatchSize  = " + updateBatchSize );
+        str.append( "\n updateBatchLingerMillis  = " + updateBatchLingerMillis );
+        str.append( "\n syncOnUpdateBatch  = " + syncOnUpdateBatch );
+        str.append( "\n useKeyJournal  = " + useKeyJournal );
+        str.append( "\n keyJournalCompactionRecords  = " + keyJournalCompactionRecords );
         return str.toString();
     }
 }
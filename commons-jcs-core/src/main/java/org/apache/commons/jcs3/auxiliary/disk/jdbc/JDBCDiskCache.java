@@ -25,7 +25,9 @@ import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -94,6 +96,24 @@ public class JDBCDiskCache<K, V>
     /** # of times getMatching was called */
     private final AtomicInteger getMatchingCount = new AtomicInteger(0);
 
+    /** # of times getMultiple went to the database */
+    private final AtomicInteger getMultipleCount = new AtomicInteger(0);
+
+    /** The default maximum number of keys in one query */
+    protected static final int DEFAULT_MAX_KEYS_PER_QUERY = 256;
+
+    /** # of batches of updates written */
+    private final AtomicInteger updateBatchCount = new AtomicInteger(0);
+
+    /** # of batches of updates that failed and were written one by one */
+    private final AtomicInteger updateBatchFallbackCount = new AtomicInteger(0);
+
+    /** The dialect specific upsert statement, null if there is none */
+    private volatile String upsertSql;
+
+    /** Whether the upsert statement has been looked up */
+    private volatile boolean upsertSqlResolved;
+
     /** db connection pool */
     private final DataSourceFactory dsFactory;
 
@@ -120,14 +140,16 @@ public class JDBCDiskCache<K, V>
         // This initializes the pool access.
         this.dsFactory = dsFactory;
 
+        configureUpdateBatching( cattr.getUpdateBatchSize(), cattr.getUpdateBatchLingerMillis() );
+
         // Initialization finished successfully, so set alive to true.
         setAlive(true);
     }
 
     /**
-     * Inserts or updates. By default it will try to insert. If the item exists we will get an
-     * error. It will then update. This behavior is configurable. The cache can be configured to
-     * check before inserting.
+     * Inserts or updates. If the database has an upsert statement, it is used. Otherwise it will
+     * try to insert by default. If the item exists we will get an error. It will then update. This
+     * behavior is configurable. The cache can be configured to check before inserting.
      * <p>
      * @param ce
      */
@@ -145,7 +167,14 @@ public class JDBCDiskCache<K, V>
             try
             {
                 final byte[] element = getElementSerializer().serialize( ce );
-                insertOrUpdate( ce, con, element );
+                if ( getUpsertSql( con ) != null )
+                {
+                    upsertRow( ce, con, element );
+                }
+                else
+                {
+                    insertOrUpdate( ce, con, element );
+                }
             }
             catch ( final IOException e )
             {
@@ -158,6 +187,297 @@ public class JDBCDiskCache<K, V>
         }
     }
 
+    /**
+     * Writes a batch of updates on a single connection in one transaction. The rows are written
+     * with the upsert statement of the database, or else updated and then inserted if they did not
+     * exist, using JDBC batching. If the batch fails, it is rolled back and the elements are
+     * written one by one.
+     * <p>
+     * @param cacheElements the elements in the order of the updates, with unique keys
+     */
+    @Override
+    protected void processUpdateBatch( final List<ICacheElement<K, V>> cacheElements )
+    {
+        if ( cacheElements.size() == 1 )
+        {
+            processUpdate( cacheElements.get( 0 ) );
+            return;
+        }
+
+        updateCount.addAndGet( cacheElements.size() );
+
+        log.debug( "updating batch of {0} elements", cacheElements::size );
+
+        // serialize before taking a connection
+        final List<ICacheElement<K, V>> batch = new ArrayList<>( cacheElements.size() );
+        final List<byte[]> data = new ArrayList<>( cacheElements.size() );
+        for ( final ICacheElement<K, V> ce : cacheElements )
+        {
+            try
+            {
+                data.add( getElementSerializer().serialize( ce ) );
+                batch.add( ce );
+            }
+            catch ( final IOException e )
+            {
+                log.error( "Could not serialize element [{0}]", ce.getKey(), e );
+            }
+        }
+
+        if ( batch.isEmpty() )
+        {
+            return;
+        }
+
+        try (Connection con = getDataSource().getConnection())
+        {
+            try
+            {
+                writeBatch( batch, con, data );
+                updateBatchCount.incrementAndGet();
+            }
+            catch ( final SQLException e )
+            {
+                updateBatchFallbackCount.incrementAndGet();
+                log.warn( "Could not write batch of {0} elements, writing them one by one",
+                        batch.size(), e );
+
+                for ( int i = 0; i < batch.size(); i++ )
+                {
+                    insertOrUpdate( batch.get( i ), con, data.get( i ) );
+                }
+            }
+        }
+        catch ( final SQLException e )
+        {
+            log.error( "Problem getting connection.", e );
+        }
+    }
+
+    /**
+     * Writes the rows of a batch in one transaction.
+     * <p>
+     * @param batch the elements
+     * @param con a database connection
+     * @param data the serialized elements
+     * @throws SQLException if the batch could not be written, after rolling it back
+     */
+    private void writeBatch( final List<ICacheElement<K, V>> batch, final Connection con, final List<byte[]> data )
+        throws SQLException
+    {
+        final boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit( false );
+
+        try
+        {
+            final long now = System.currentTimeMillis() / 1000;
+            final String sqlUpsert = getUpsertSql( con );
+
+            if ( sqlUpsert != null )
+            {
+                try (PreparedStatement psUpsert = con.prepareStatement( sqlUpsert ))
+                {
+                    for ( int i = 0; i < batch.size(); i++ )
+                    {
+                        setRowParameters( psUpsert, batch.get( i ), data.get( i ), now );
+                        psUpsert.addBatch();
+                    }
+                    psUpsert.executeBatch();
+                }
+            }
+            else
+            {
+                // update all rows, then insert the ones that were not there
+                final List<Integer> missing = new ArrayList<>();
+
+                try (PreparedStatement psUpdate = con.prepareStatement( getUpdateSql() ))
+                {
+                    for ( int i = 0; i < batch.size(); i++ )
+                    {
+                        setUpdateParameters( psUpdate, batch.get( i ), data.get( i ), now );
+                        psUpdate.addBatch();
+                    }
+
+                    final int[] counts = psUpdate.executeBatch();
+                    for ( int i = 0; i < counts.length; i++ )
+                    {
+                        if ( counts[i] == Statement.SUCCESS_NO_INFO )
+                        {
+                            throw new SQLException( "The driver does not report update counts of batches" );
+                        }
+                        if ( counts[i] == 0 )
+                        {
+                            missing.add( Integer.valueOf( i ) );
+                        }
+                    }
+                }
+
+                if ( !missing.isEmpty() )
+                {
+                    try (PreparedStatement psInsert = con.prepareStatement( getInsertSql() ))
+                    {
+                        for ( final Integer i : missing )
+                        {
+                            setRowParameters( psInsert, batch.get( i ), data.get( i ), now );
+                            psInsert.addBatch();
+                        }
+                        psInsert.executeBatch();
+                    }
+                }
+            }
+
+            con.commit();
+        }
+        catch ( final SQLException e )
+        {
+            con.rollback();
+            throw e;
+        }
+        finally
+        {
+            con.setAutoCommit( autoCommit );
+        }
+    }
+
+    /**
+     * Inserts or replaces a row with the upsert statement of the database. If this fails, the
+     * element is written as if there was no upsert statement.
+     * <p>
+     * @param ce
+     * @param con
+     * @param element
+     */
+    private void upsertRow( final ICacheElement<K, V> ce, final Connection con, final byte[] element )
+    {
+        try (PreparedStatement psUpsert = con.prepareStatement( getUpsertSql( con ) ))
+        {
+            setRowParameters( psUpsert, ce, element, System.currentTimeMillis() / 1000 );
+            psUpsert.execute();
+        }
+        catch ( final SQLException e )
+        {
+            log.warn( "Could not upsert element [{0}], trying insert or update", ce.getKey(), e );
+            insertOrUpdate( ce, con, element );
+        }
+    }
+
+    /**
+     * Returns the upsert statement of the database, looking it up on first use.
+     * <p>
+     * @param con a database connection
+     * @return the statement or null if the database has none
+     * @throws SQLException if the database meta data is not available
+     */
+    private String getUpsertSql( final Connection con )
+        throws SQLException
+    {
+        if ( !upsertSqlResolved )
+        {
+            upsertSql = createUpsertSql( con.getMetaData() );
+            upsertSqlResolved = true;
+
+            log.info( "Using upsert statement [{0}]", upsertSql );
+        }
+
+        return upsertSql;
+    }
+
+    /**
+     * Creates a statement that inserts a row, or replaces it if the key already exists, in one
+     * round trip. The parameters are the same as those of the insert statement: CACHE_KEY, REGION,
+     * ELEMENT, MAX_LIFE_SECONDS, IS_ETERNAL, CREATE_TIME, UPDATE_TIME_SECONDS and
+     * SYSTEM_EXPIRE_TIME_SECONDS.
+     * <p>
+     * There is no portable upsert, so the generic implementation returns null. Subclasses for a
+     * specific database override this.
+     * <p>
+     * @param dmd the meta data of the database, to check its version
+     * @return the statement or null if the database has none
+     * @throws SQLException if the meta data cannot be read
+     * @since 3.2
+     */
+    protected String createUpsertSql( final DatabaseMetaData dmd )
+        throws SQLException
+    {
+        return null;
+    }
+
+    /**
+     * @return the statement inserting a row
+     */
+    private String getInsertSql()
+    {
+        return String.format("insert into %s"
+                + " (CACHE_KEY, REGION, ELEMENT, MAX_LIFE_SECONDS, IS_ETERNAL, CREATE_TIME, UPDATE_TIME_SECONDS,"
+                + " SYSTEM_EXPIRE_TIME_SECONDS) "
+                + " values (?, ?, ?, ?, ?, ?, ?, ?)", getJdbcDiskCacheAttributes().getTableName());
+    }
+
+    /**
+     * @return the statement updating a row
+     */
+    private String getUpdateSql()
+    {
+        return String.format("update %s"
+                + " set ELEMENT  = ?, CREATE_TIME = ?, UPDATE_TIME_SECONDS = ?, " + " SYSTEM_EXPIRE_TIME_SECONDS = ? "
+                + " where CACHE_KEY = ? and REGION = ?", getJdbcDiskCacheAttributes().getTableName());
+    }
+
+    /**
+     * Sets the parameters of the insert or upsert statement.
+     * <p>
+     * @param ps the statement
+     * @param ce the element
+     * @param element the serialized element
+     * @param now the current time in seconds
+     * @throws SQLException
+     */
+    private void setRowParameters( final PreparedStatement ps, final ICacheElement<K, V> ce,
+            final byte[] element, final long now )
+        throws SQLException
+    {
+        ps.setString( 1, ce.getKey().toString() );
+        ps.setString( 2, this.getCacheName() );
+        ps.setBytes( 3, element );
+        ps.setLong( 4, ce.getElementAttributes().getMaxLife() );
+        ps.setString( 5, ce.getElementAttributes().getIsEternal() ? "T" : "F" );
+
+        final Timestamp createTime = new Timestamp( ce.getElementAttributes().getCreateTime() );
+        ps.setTimestamp( 6, createTime );
+
+        ps.setLong( 7, now );
+
+        final long expireTime = now + ce.getElementAttributes().getMaxLife();
+        ps.setLong( 8, expireTime );
+    }
+
+    /**
+     * Sets the parameters of the update statement.
+     * <p>
+     * @param ps the statement
+     * @param ce the element
+     * @param element the serialized element
+     * @param now the current time in seconds
+     * @throws SQLException
+     */
+    private void setUpdateParameters( final PreparedStatement ps, final ICacheElement<K, V> ce,
+            final byte[] element, final long now )
+        throws SQLException
+    {
+        ps.setBytes( 1, element );
+
+        final Timestamp createTime = new Timestamp( ce.getElementAttributes().getCreateTime() );
+        ps.setTimestamp( 2, createTime );
+
+        ps.setLong( 3, now );
+
+        final long expireTime = now + ce.getElementAttributes().getMaxLife();
+        ps.setLong( 4, expireTime );
+
+        ps.setString( 5, ce.getKey().toString() );
+        ps.setString( 6, this.getCacheName() );
+    }
+
     /**
      * If test before insert it true, we check to see if the element exists. If the element exists
      * we will update. Otherwise, we try inserting.  If this fails because the item exists, we will
@@ -201,28 +521,10 @@ public class JDBCDiskCache<K, V>
     private boolean insertRow( final ICacheElement<K, V> ce, final Connection con, final byte[] element )
     {
         boolean exists = false;
-        final String sqlI = String.format("insert into %s"
-                + " (CACHE_KEY, REGION, ELEMENT, MAX_LIFE_SECONDS, IS_ETERNAL, CREATE_TIME, UPDATE_TIME_SECONDS,"
-                + " SYSTEM_EXPIRE_TIME_SECONDS) "
-                + " values (?, ?, ?, ?, ?, ?, ?, ?)", getJdbcDiskCacheAttributes().getTableName());
 
-        try (PreparedStatement psInsert = con.prepareStatement( sqlI ))
+        try (PreparedStatement psInsert = con.prepareStatement( getInsertSql() ))
         {
-            psInsert.setString( 1, ce.getKey().toString() );
-            psInsert.setString( 2, this.getCacheName() );
-            psInsert.setBytes( 3, element );
-            psInsert.setLong( 4, ce.getElementAttributes().getMaxLife() );
-            psInsert.setString( 5, ce.getElementAttributes().getIsEternal() ? "T" : "F" );
-
-            final Timestamp createTime = new Timestamp( ce.getElementAttributes().getCreateTime() );
-            psInsert.setTimestamp( 6, createTime );
-
-            final long now = System.currentTimeMillis() / 1000;
-            psInsert.setLong( 7, now );
-
-            final long expireTime = now + ce.getElementAttributes().getMaxLife();
-            psInsert.setLong( 8, expireTime );
-
+            setRowParameters( psInsert, ce, element, System.currentTimeMillis() / 1000 );
             psInsert.execute();
         }
         catch ( final SQLException e )
@@ -255,25 +557,11 @@ public class JDBCDiskCache<K, V>
      */
     private void updateRow( final ICacheElement<K, V> ce, final Connection con, final byte[] element )
     {
-        final String sqlU = String.format("update %s"
-                + " set ELEMENT  = ?, CREATE_TIME = ?, UPDATE_TIME_SECONDS = ?, " + " SYSTEM_EXPIRE_TIME_SECONDS = ? "
-                + " where CACHE_KEY = ? and REGION = ?", getJdbcDiskCacheAttributes().getTableName());
+        final String sqlU = getUpdateSql();
 
         try (PreparedStatement psUpdate = con.prepareStatement( sqlU ))
         {
-            psUpdate.setBytes( 1, element );
-
-            final Timestamp createTime = new Timestamp( ce.getElementAttributes().getCreateTime() );
-            psUpdate.setTimestamp( 2, createTime );
-
-            final long now = System.currentTimeMillis() / 1000;
-            psUpdate.setLong( 3, now );
-
-            final long expireTime = now + ce.getElementAttributes().getMaxLife();
-            psUpdate.setLong( 4, expireTime );
-
-            psUpdate.setString( 5, (String) ce.getKey() );
-            psUpdate.setString( 6, this.getCacheName() );
+            setUpdateParameters( psUpdate, ce, element, System.currentTimeMillis() / 1000 );
             psUpdate.execute();
 
             log.debug( "ran update {0}", sqlU );
@@ -383,6 +671,108 @@ public class JDBCDiskCache<K, V>
         return obj;
     }
 
+    /**
+     * Queries the database for the values of several keys with in-lists of at most
+     * {@link #getMaxKeysPerQuery()} keys. Only rows which are eternal or not yet expired are
+     * selected, so expired elements are not transferred and deserialized.
+     * <p>
+     * The in-lists are padded to a power of two by repeating the last key, so that only a few
+     * different statements are prepared.
+     * <p>
+     * @param keys
+     * @return a map of K key to ICacheElement&lt;K, V&gt; element for the keys found
+     */
+    @Override
+    protected Map<K, ICacheElement<K, V>> processGetMultipleFromDisk( final Set<K> keys )
+    {
+        getMultipleCount.incrementAndGet();
+
+        log.debug( "Getting {0} keys from disk", keys::size );
+
+        final Map<K, ICacheElement<K, V>> results = new HashMap<>();
+
+        if ( !isAlive() )
+        {
+            return results;
+        }
+
+        final List<K> keyList = new ArrayList<>( keys );
+        final int maxKeys = Math.max( 1, getMaxKeysPerQuery() );
+        final long now = System.currentTimeMillis() / 1000;
+
+        try (Connection con = getDataSource().getConnection())
+        {
+            for ( int from = 0; from < keyList.size(); from += maxKeys )
+            {
+                final List<K> chunk = keyList.subList( from, Math.min( from + maxKeys, keyList.size() ) );
+                final int paddedSize = chunk.size() == 1 ? 1 : Math.min( maxKeys, Integer.highestOneBit( chunk.size() - 1 ) << 1 );
+
+                final StringBuilder params = new StringBuilder( "?" );
+                for ( int i = 1; i < paddedSize; i++ )
+                {
+                    params.append( ", ?" );
+                }
+
+                // region, keys, eternal, now
+                final String selectString = String.format("select ELEMENT from %s where REGION = ? and CACHE_KEY in (%s)"
+                        + " and (IS_ETERNAL = ? or SYSTEM_EXPIRE_TIME_SECONDS >= ?)",
+                        getJdbcDiskCacheAttributes().getTableName(), params);
+
+                try (PreparedStatement psSelect = con.prepareStatement( selectString ))
+                {
+                    int index = 1;
+                    psSelect.setString( index++, this.getCacheName() );
+                    for ( int i = 0; i < paddedSize; i++ )
+                    {
+                        psSelect.setString( index++, chunk.get( Math.min( i, chunk.size() - 1 ) ).toString() );
+                    }
+                    psSelect.setString( index++, "T" );
+                    psSelect.setLong( index, now );
+
+                    try (ResultSet rs = psSelect.executeQuery())
+                    {
+                        while ( rs.next() )
+                        {
+                            final byte[] data = rs.getBytes( 1 );
+                            if ( data != null )
+                            {
+                                try
+                                {
+                                    // USE THE SERIALIZER
+                                    final ICacheElement<K, V> value = getElementSerializer().deSerialize( data, null );
+                                    results.put( value.getKey(), value );
+                                }
+                                catch ( final IOException | ClassNotFoundException e )
+                                {
+                                    log.error( "Problem getting items for keys {0}", chunk, e );
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        catch ( final SQLException sqle )
+        {
+            log.error( "Caught a SQL exception trying to get the items for keys {0}",
+                    keys, sqle );
+        }
+
+        return results;
+    }
+
+    /**
+     * Returns the maximum number of keys in the in-list of one query. Databases limit the number
+     * of parameters or the length of a statement, so subclasses may adjust this.
+     * <p>
+     * @return the maximum number of keys per query
+     * @since 3.2
+     */
+    protected int getMaxKeysPerQuery()
+    {
+        return DEFAULT_MAX_KEYS_PER_QUERY;
+    }
+
     /**
      * This will run a like query. It will try to construct a usable query but different
      * implementations will be needed to adjust the syntax.
@@ -735,6 +1125,9 @@ public class JDBCDiskCache<K, V>
         elems.add(new StatElement<>( "Update Count", updateCount ) );
         elems.add(new StatElement<>( "Get Count", getCount ) );
         elems.add(new StatElement<>( "Get Matching Count", getMatchingCount ) );
+        elems.add(new StatElement<>( "Get Multiple Count", getMultipleCount ) );
+        elems.add(new StatElement<>( "Update Batch Count", updateBatchCount ) );
+        elems.add(new StatElement<>( "Update Batch Fallback Count", updateBatchFallbackCount ) );
         elems.add(new StatElement<>( "DB URL", getJdbcDiskCacheAttributes().getUrl()) );
 
         stats.setStatElements( elems );
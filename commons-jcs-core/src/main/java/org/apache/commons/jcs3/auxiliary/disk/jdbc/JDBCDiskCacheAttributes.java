@@ -75,6 +75,15 @@ public class JDBCDiskCacheAttributes
     /** Should we remove expired in the background. */
     private boolean useDiskShrinker = true;
 
+    /** The default maximum number of updates written at once. */
+    public static final int DEFAULT_UPDATE_BATCH_SIZE = 1;
+
+    /** Maximum number of queued updates written at once. 1 means no batching. */
+    private int updateBatchSize = DEFAULT_UPDATE_BATCH_SIZE;
+
+    /** Time to wait for more updates to fill up a batch, in milliseconds. */
+    private long updateBatchLingerMillis;
+
     /** The default Pool Name to which the connection pool will be keyed. */
     public static final String DEFAULT_POOL_NAME = "jcs";
 
@@ -288,6 +297,46 @@ public class JDBCDiskCacheAttributes
         return useDiskShrinker;
     }
 
+    /**
+     * @return the maximum number of queued updates written at once
+     * @since 3.2
+     */
+    public int getUpdateBatchSize()
+    {
+        return updateBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of queued updates written at once. A batch is written with JDBC
+     * batching on a single connection and committed once.
+     * <p>
+     * @param updateBatchSize the batch size, 1 to write each update separately
+     * @since 3.2
+     */
+    public void setUpdateBatchSize( final int updateBatchSize )
+    {
+        this.updateBatchSize = updateBatchSize;
+    }
+
+    /**
+     * @return the time to wait for more updates to fill up a batch, in milliseconds
+     * @since 3.2
+     */
+    public long getUpdateBatchLingerMillis()
+    {
+        return updateBatchLingerMillis;
+    }
+
+    /**
+     * @param updateBatchLingerMillis the time to wait for more updates to fill up a batch, in
+     *            milliseconds. 0 only batches the updates already waiting in the queue.
+     * @since 3.2
+     */
+    public void setUpdateBatchLingerMillis( final long updateBatchLingerMillis )
+    {
+        this.updateBatchLingerMillis = updateBatchLingerMillis;
+    }
+
     /**
      * @param connectionPoolName the connectionPoolName to set
      */
@@ -324,6 +373,8 @@ public class JDBCDiskCacheAttributes
         buf.append( "\n AllowRemoveAll [" + isAllowRemoveAll() + "]" );
         buf.append( "\n ShrinkerIntervalSeconds [" + getShrinkerIntervalSeconds() + "]" );
         buf.append( "\n useDiskShrinker [" + isUseDiskShrinker() + "]" );
+        buf.append( "\n UpdateBatchSize [" + getUpdateBatchSize() + "]" );
+        buf.append( "\n UpdateBatchLingerMillis [" + getUpdateBatchLingerMillis() + "]" );
         return buf.toString();
     }
 }
@@ -0,0 +1,97 @@
+package org.apache.commons.jcs3.auxiliary.disk.jdbc.hsql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+
+import org.apache.commons.jcs3.auxiliary.disk.jdbc.JDBCDiskCache;
+import org.apache.commons.jcs3.auxiliary.disk.jdbc.JDBCDiskCacheAttributes;
+import org.apache.commons.jcs3.auxiliary.disk.jdbc.TableState;
+import org.apache.commons.jcs3.auxiliary.disk.jdbc.dsfactory.DataSourceFactory;
+
+/**
+ * The HSQLDiskCache extends the core JDBCDiskCache with the merge statement of HSQLDB 2, so that
+ * a put is a single statement. Older versions of HSQLDB use the generic insert and update.
+ *
+ * @since 3.2
+ */
+public class HSQLDiskCache<K, V>
+    extends JDBCDiskCache<K, V>
+{
+    /**
+     * Constructs a HSQL Disk Cache for the provided cache attributes.
+     * <p>
+     * @param cattr the configuration object for this cache
+     * @param dsFactory the DataSourceFactory for this cache
+     * @param tableState an object to track table operations
+     */
+    public HSQLDiskCache( final JDBCDiskCacheAttributes cattr, final DataSourceFactory dsFactory,
+            final TableState tableState )
+    {
+        super( cattr, dsFactory, tableState );
+    }
+
+    /**
+     * HSQLDB has no limit on the length of in-lists. Larger lists only save round trips to an
+     * embedded database, so the size stays moderate.
+     * <p>
+     * @return the maximum number of keys per query
+     */
+    @Override
+    protected int getMaxKeysPerQuery()
+    {
+        return 512;
+    }
+
+    /**
+     * Uses merge with a row of parameters, which is supported since HSQLDB 2.0. The parameters
+     * are cast, since their types cannot be derived from a values list.
+     * <p>
+     * @param dmd the meta data of the database
+     * @return the merge statement or null for older versions
+     * @throws SQLException
+     */
+    @Override
+    protected String createUpsertSql( final DatabaseMetaData dmd )
+        throws SQLException
+    {
+        if ( dmd.getDatabaseMajorVersion() < 2 )
+        {
+            return null;
+        }
+
+        return String.format("merge into %s using (values (cast(? as varchar(250)), cast(? as varchar(250)),"
+                + " cast(? as varbinary(16777216)), cast(? as bigint), cast(? as char(1)), cast(? as timestamp),"
+                + " cast(? as bigint), cast(? as bigint)))"
+                + " as vals (CACHE_KEY, REGION, ELEMENT, MAX_LIFE_SECONDS, IS_ETERNAL, CREATE_TIME,"
+                + " UPDATE_TIME_SECONDS, SYSTEM_EXPIRE_TIME_SECONDS)"
+                + " on %1$s.CACHE_KEY = vals.CACHE_KEY and %1$s.REGION = vals.REGION"
+                + " when matched then update set %1$s.ELEMENT = vals.ELEMENT,"
+                + " %1$s.MAX_LIFE_SECONDS = vals.MAX_LIFE_SECONDS, %1$s.IS_ETERNAL = vals.IS_ETERNAL,"
+                + " %1$s.CREATE_TIME = vals.CREATE_TIME, %1$s.UPDATE_TIME_SECONDS = vals.UPDATE_TIME_SECONDS,"
+                + " %1$s.SYSTEM_EXPIRE_TIME_SECONDS = vals.SYSTEM_EXPIRE_TIME_SECONDS"
+                + " when not matched then insert (CACHE_KEY, REGION, ELEMENT, MAX_LIFE_SECONDS, IS_ETERNAL,"
+                + " CREATE_TIME, UPDATE_TIME_SECONDS, SYSTEM_EXPIRE_TIME_SECONDS)"
+                + " values (vals.CACHE_KEY, vals.REGION, vals.ELEMENT, vals.MAX_LIFE_SECONDS, vals.IS_ETERNAL,"
+                + " vals.CREATE_TIME, vals.UPDATE_TIME_SECONDS, vals.SYSTEM_EXPIRE_TIME_SECONDS)", getTableName());
+    }
+}
@@ -28,9 +28,10 @@ import java.sql.Statement;
 import javax.sql.DataSource;
 
 import org.apache.commons.jcs3.auxiliary.AuxiliaryCacheAttributes;
-import org.apache.commons.jcs3.auxiliary.disk.jdbc.JDBCDiskCache;
 import org.apache.commons.jcs3.auxiliary.disk.jdbc.JDBCDiskCacheAttributes;
 import org.apache.commons.jcs3.auxiliary.disk.jdbc.JDBCDiskCacheFactory;
+import org.apache.commons.jcs3.auxiliary.disk.jdbc.TableState;
+import org.apache.commons.jcs3.auxiliary.disk.jdbc.dsfactory.DataSourceFactory;
 import org.apache.commons.jcs3.engine.behavior.ICompositeCacheManager;
 import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
 import org.apache.commons.jcs3.engine.logging.behavior.ICacheEventLogger;
@@ -53,11 +54,11 @@ public class HSQLDiskCacheFactory
      * @param compositeCacheManager
      * @param cacheEventLogger
      * @param elementSerializer
-     * @return JDBCDiskCache
+     * @return HSQLDiskCache
      * @throws SQLException if the creation of the cache instance fails
      */
     @Override
-    public <K, V> JDBCDiskCache<K, V> createCache( final AuxiliaryCacheAttributes rawAttr,
+    public <K, V> HSQLDiskCache<K, V> createCache( final AuxiliaryCacheAttributes rawAttr,
 			final ICompositeCacheManager compositeCacheManager,
 			final ICacheEventLogger cacheEventLogger,
 			final IElementSerializer elementSerializer )
@@ -66,9 +67,18 @@ public class HSQLDiskCacheFactory
         // TODO get this from the attributes.
         System.setProperty( "hsqldb.cache_scale", "8" );
 
-        final JDBCDiskCache<K, V> cache = super.createCache(rawAttr, compositeCacheManager,
-                cacheEventLogger, elementSerializer);
-        setupDatabase( cache.getDataSource(), (JDBCDiskCacheAttributes) rawAttr );
+        final JDBCDiskCacheAttributes cattr = (JDBCDiskCacheAttributes) rawAttr;
+        final TableState tableState = getTableState( cattr.getTableName() );
+        final DataSourceFactory dsFactory = getDataSourceFactory(cattr, compositeCacheManager.getConfigurationProperties());
+
+        final HSQLDiskCache<K, V> cache = new HSQLDiskCache<>(cattr, dsFactory, tableState);
+        cache.setCacheEventLogger( cacheEventLogger );
+        cache.setElementSerializer( elementSerializer );
+
+        // create a shrinker if we need it.
+        createShrinkerWhenNeeded( cattr, cache );
+
+        setupDatabase( cache.getDataSource(), cattr );
 
         return cache;
     }
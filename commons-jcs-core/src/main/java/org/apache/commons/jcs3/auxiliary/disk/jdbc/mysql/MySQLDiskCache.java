@@ -19,8 +19,12 @@ package org.apache.commons.jcs3.auxiliary.disk.jdbc.mysql;
  * under the License.
  */
 
+import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.jcs3.auxiliary.disk.jdbc.JDBCDiskCache;
 import org.apache.commons.jcs3.auxiliary.disk.jdbc.TableState;
@@ -100,6 +104,35 @@ public class MySQLDiskCache<K, V>
         return super.processGetMatching( pattern );
     }
 
+    /**
+     * This delegates to the generic JDBC disk cache. If we are currently optimizing, then this
+     * method will balk and return an empty map.
+     * <p>
+     * @param keys the keys to locate values for.
+     * @return a map of the elements found.
+     */
+    @Override
+    protected Map<K, ICacheElement<K, V>> processGetMultipleFromDisk( final Set<K> keys )
+    {
+        if (this.getTableState().getState() == TableState.OPTIMIZATION_RUNNING &&
+            this.mySQLDiskCacheAttributes.isBalkDuringOptimization())
+        {
+            return new HashMap<>();
+        }
+        return super.processGetMultipleFromDisk( keys );
+    }
+
+    /**
+     * MySQL handles long in-lists well, the size is only limited by max_allowed_packet.
+     * <p>
+     * @return the maximum number of keys per query
+     */
+    @Override
+    protected int getMaxKeysPerQuery()
+    {
+        return 1024;
+    }
+
     /**
      * @param pattern
      * @return String to use in the like query.
@@ -132,6 +165,51 @@ public class MySQLDiskCache<K, V>
         super.processUpdate( element );
     }
 
+    /**
+     * This delegates to the generic JDBC disk cache. If we are currently optimizing, then this
+     * method will balk and do nothing.
+     * <p>
+     * @param elements
+     */
+    @Override
+    protected void processUpdateBatch( final List<ICacheElement<K, V>> elements )
+    {
+        if (this.getTableState().getState() == TableState.OPTIMIZATION_RUNNING &&
+            this.mySQLDiskCacheAttributes.isBalkDuringOptimization())
+        {
+            return;
+        }
+        super.processUpdateBatch( elements );
+    }
+
+    /**
+     * Uses insert ... on duplicate key update, so that a put is a single statement. Other
+     * databases posing as MySQL, e.g. for testing, get the generic insert and update.
+     * <p>
+     * @param dmd the meta data of the database
+     * @return the upsert statement or null if this is not MySQL
+     * @throws SQLException
+     */
+    @Override
+    protected String createUpsertSql( final DatabaseMetaData dmd )
+        throws SQLException
+    {
+        final String product = dmd.getDatabaseProductName();
+        if ( product == null || !( product.startsWith( "MySQL" ) || product.startsWith( "MariaDB" ) ) )
+        {
+            return null;
+        }
+
+        return String.format("insert into %s"
+                + " (CACHE_KEY, REGION, ELEMENT, MAX_LIFE_SECONDS, IS_ETERNAL, CREATE_TIME, UPDATE_TIME_SECONDS,"
+                + " SYSTEM_EXPIRE_TIME_SECONDS) "
+                + " values (?, ?, ?, ?, ?, ?, ?, ?)"
+                + " on duplicate key update ELEMENT = values(ELEMENT), MAX_LIFE_SECONDS = values(MAX_LIFE_SECONDS),"
+                + " IS_ETERNAL = values(IS_ETERNAL), CREATE_TIME = values(CREATE_TIME),"
+                + " UPDATE_TIME_SECONDS = values(UPDATE_TIME_SECONDS),"
+                + " SYSTEM_EXPIRE_TIME_SECONDS = values(SYSTEM_EXPIRE_TIME_SECONDS)", getTableName());
+    }
+
     /**
      * Removed the expired. (now - create time) &gt; max life seconds * 1000
      * <p>
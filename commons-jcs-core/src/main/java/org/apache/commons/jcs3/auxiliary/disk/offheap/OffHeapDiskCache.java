@@ -0,0 +1,503 @@
+package org.apache.commons.jcs3.auxiliary.disk.offheap;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import org.apache.commons.jcs3.auxiliary.AuxiliaryCacheAttributes;
+import org.apache.commons.jcs3.auxiliary.disk.AbstractDiskCache;
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs3.engine.control.group.GroupAttrName;
+import org.apache.commons.jcs3.engine.control.group.GroupId;
+import org.apache.commons.jcs3.engine.stats.StatElement;
+import org.apache.commons.jcs3.engine.stats.Stats;
+import org.apache.commons.jcs3.engine.stats.behavior.IStatElement;
+import org.apache.commons.jcs3.engine.stats.behavior.IStats;
+import org.apache.commons.jcs3.log.Log;
+import org.apache.commons.jcs3.log.LogManager;
+import org.apache.commons.jcs3.utils.serialization.StandardSerializer;
+
+/**
+ * A disk cache that keeps serialized elements in direct buffers outside the Java heap.
+ * <p>
+ * It is meant as a tier between the memory cache and a file based disk cache. Configured in front
+ * of the indexed or block disk cache, elements spooled from memory are first stored here, where
+ * they can be read back without file I/O and without adding to the garbage collector's work. The
+ * amount of memory is limited by MaxBytes. When it is exhausted, the least recently used elements
+ * are dropped.
+ * <p>
+ * The contents are not persistent.
+ */
+public class OffHeapDiskCache<K, V>
+    extends AbstractDiskCache<K, V>
+{
+    /** The logger. */
+    private static final Log log = LogManager.getLog( OffHeapDiskCache.class );
+
+    /** The name to prefix all log messages with. */
+    private final String logCacheName;
+
+    /** Attributes governing the behavior of the off-heap cache. */
+    private final OffHeapDiskCacheAttributes offHeapCacheAttributes;
+
+    /** The block storage */
+    private final OffHeapSlabStore dataStore;
+
+    /** Key to descriptor, in access order */
+    private final LinkedHashMap<K, OffHeapElementDescriptor> keyHash;
+
+    /**
+     * Use this lock to synchronize reads and writes to the underlying storage mechanism. Reads
+     * change the access order of the key map, so there is no read lock.
+     */
+    private final ReentrantLock storageLock = new ReentrantLock();
+
+    /** Number of elements dropped because the store was full */
+    private long evictionCount;
+
+    /**
+     * Constructs the off-heap cache.
+     * <p>
+     * @param cacheAttributes
+     */
+    public OffHeapDiskCache( final OffHeapDiskCacheAttributes cacheAttributes )
+    {
+        this( cacheAttributes, new StandardSerializer() );
+    }
+
+    /**
+     * Constructs the off-heap cache.
+     * <p>
+     * @param cacheAttributes
+     * @param elementSerializer used if supplied, the super's super will not set a null
+     */
+    public OffHeapDiskCache( final OffHeapDiskCacheAttributes cacheAttributes, final IElementSerializer elementSerializer )
+    {
+        super( cacheAttributes );
+        setElementSerializer( elementSerializer );
+
+        this.offHeapCacheAttributes = cacheAttributes;
+        this.logCacheName = "Region [" + getCacheName() + "] ";
+
+        log.info("{0}: Constructing OffHeapDiskCache with attributes {1}", logCacheName, cacheAttributes );
+
+        this.dataStore = new OffHeapSlabStore( cacheAttributes.getBlockSizeBytes(),
+                cacheAttributes.getSlabSizeBytes(), cacheAttributes.getMaxBytes() );
+        this.keyHash = new LinkedHashMap<>( 16, 0.75f, true );
+
+        setAlive(true);
+        log.info("{0}: Off-Heap Disk Cache is alive.", logCacheName);
+    }
+
+    /**
+     * Return the keys in this cache.
+     * <p>
+     * @see org.apache.commons.jcs3.auxiliary.disk.AbstractDiskCache#getKeySet()
+     */
+    @Override
+    public Set<K> getKeySet()
+    {
+        storageLock.lock();
+        try
+        {
+            return new HashSet<>(this.keyHash.keySet());
+        }
+        finally
+        {
+            storageLock.unlock();
+        }
+    }
+
+    /**
+     * Gets matching items from the cache.
+     * <p>
+     * @param pattern
+     * @return a map of K key to ICacheElement&lt;K, V&gt; element, or an empty map if there is no
+     *         data in cache matching keys
+     */
+    @Override
+    public Map<K, ICacheElement<K, V>> processGetMatching( final String pattern )
+    {
+        final Set<K> matchingKeys = getKeyMatcher().getMatchingKeysFromArray( pattern, getKeySet() );
+
+        return matchingKeys.stream()
+            .collect(Collectors.toMap(
+                    key -> key,
+                    this::processGet)).entrySet().stream()
+                .filter(entry -> entry.getValue() != null)
+                .collect(Collectors.toMap(
+                        Entry::getKey,
+                        Entry::getValue));
+    }
+
+    /**
+     * Returns the number of keys.
+     * <p>
+     * @see org.apache.commons.jcs3.auxiliary.disk.AbstractDiskCache#getSize()
+     */
+    @Override
+    public int getSize()
+    {
+        storageLock.lock();
+        try
+        {
+            return this.keyHash.size();
+        }
+        finally
+        {
+            storageLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the ICacheElement&lt;K, V&gt; for the key if it is in the cache. The bytes are copied
+     * onto the heap under the lock, the element is deserialized after releasing it.
+     * <p>
+     * @param key
+     * @return ICacheElement
+     * @see org.apache.commons.jcs3.auxiliary.disk.AbstractDiskCache#get(Object)
+     */
+    @Override
+    protected ICacheElement<K, V> processGet( final K key )
+    {
+        if ( !isAlive() )
+        {
+            log.debug("{0}: No longer alive so returning null for key = {1}", logCacheName, key );
+            return null;
+        }
+
+        final byte[] data;
+
+        storageLock.lock();
+        try
+        {
+            final OffHeapElementDescriptor ded = this.keyHash.get( key );
+            if ( ded == null )
+            {
+                return null;
+            }
+            data = this.dataStore.read( ded.getBlocks(), ded.getLength() );
+        }
+        finally
+        {
+            storageLock.unlock();
+        }
+
+        try
+        {
+            return getElementSerializer().deSerialize( data, null );
+        }
+        catch ( final IOException | ClassNotFoundException e )
+        {
+            log.error("{0}: Failure getting from off-heap store, key = {1}", logCacheName, key, e );
+            return null;
+        }
+    }
+
+    /**
+     * Serializes the element and copies it off the heap. If there are not enough free blocks, the
+     * least recently used elements are dropped until the element fits.
+     * <p>
+     * @param element
+     * @see org.apache.commons.jcs3.auxiliary.disk.AbstractDiskCache#update(ICacheElement)
+     */
+    @Override
+    protected void processUpdate( final ICacheElement<K, V> element )
+    {
+        if ( !isAlive() )
+        {
+            log.debug("{0}: No longer alive; aborting put of key = {1}",
+                    () -> logCacheName, element::getKey);
+            return;
+        }
+
+        final byte[] data;
+        try
+        {
+            data = getElementSerializer().serialize( element );
+        }
+        catch ( final IOException e )
+        {
+            log.error("{0}: Failure serializing element, key: {1}", logCacheName, element.getKey(), e);
+            return;
+        }
+
+        storageLock.lock();
+        try
+        {
+            final OffHeapElementDescriptor old = this.keyHash.remove( element.getKey() );
+            if ( old != null )
+            {
+                this.dataStore.free( old.getBlocks() );
+            }
+
+            if ( !this.dataStore.fits( data.length ) )
+            {
+                log.warn("{0}: Element is larger than the store, key: {1}, size: {2}",
+                        logCacheName, element.getKey(), data.length);
+                return;
+            }
+
+            final Iterator<Map.Entry<K, OffHeapElementDescriptor>> lru = this.keyHash.entrySet().iterator();
+            while ( !this.dataStore.canAllocate( data.length ) && lru.hasNext() )
+            {
+                final Map.Entry<K, OffHeapElementDescriptor> eldest = lru.next();
+                lru.remove();
+                this.dataStore.free( eldest.getValue().getBlocks() );
+                evictionCount++;
+
+                log.debug("{0}: Dropped least recently used key [{1}]", logCacheName, eldest.getKey());
+            }
+
+            final int[] blocks = this.dataStore.write( data );
+            this.keyHash.put( element.getKey(), new OffHeapElementDescriptor( blocks, data.length ) );
+
+            log.debug("{0}: Put off-heap key [{1}] in [{2}] blocks", logCacheName,
+                    element.getKey(), blocks.length);
+        }
+        finally
+        {
+            storageLock.unlock();
+        }
+    }
+
+    /**
+     * Returns true if the removal was successful; or false if there is nothing to remove.
+     * <p>
+     * @param key
+     * @return true if removed anything
+     * @see org.apache.commons.jcs3.auxiliary.disk.AbstractDiskCache#remove(Object)
+     */
+    @Override
+    protected boolean processRemove( final K key )
+    {
+        if ( !isAlive() )
+        {
+            log.debug("{0}: No longer alive so returning false for key = {1}", logCacheName, key );
+            return false;
+        }
+
+        storageLock.lock();
+        try
+        {
+            if (key instanceof String && key.toString().endsWith(NAME_COMPONENT_DELIMITER))
+            {
+                return performPartialKeyRemoval((String) key);
+            }
+            else if (key instanceof GroupAttrName && ((GroupAttrName<?>) key).attrName == null)
+            {
+                return performGroupRemoval(((GroupAttrName<?>) key).groupId);
+            }
+            else
+            {
+                return performSingleKeyRemoval(key);
+            }
+        }
+        finally
+        {
+            storageLock.unlock();
+        }
+    }
+
+    /**
+     * Remove all elements from the group.
+     * <p>
+     * This operates under a lock obtained in doRemove().
+     * <p>
+     * @param key
+     * @return true if an element was removed
+     */
+    private boolean performGroupRemoval(final GroupId key)
+    {
+        final List<K> itemsToRemove = keyHash.keySet()
+                .stream()
+                .filter(k -> k instanceof GroupAttrName && ((GroupAttrName<?>) k).groupId.equals(key))
+                .collect(Collectors.toList());
+
+        itemsToRemove.forEach(this::performSingleKeyRemoval);
+
+        return !itemsToRemove.isEmpty();
+    }
+
+    /**
+     * Remove all keys of the same name hierarchy.
+     * <p>
+     * This operates under a lock obtained in doRemove().
+     * <p>
+     * @param key
+     * @return true if there was a match
+     */
+    private boolean performPartialKeyRemoval(final String key)
+    {
+        final List<K> itemsToRemove = keyHash.keySet()
+                .stream()
+                .filter(k -> k instanceof String && k.toString().startsWith(key))
+                .collect(Collectors.toList());
+
+        itemsToRemove.forEach(this::performSingleKeyRemoval);
+
+        return !itemsToRemove.isEmpty();
+    }
+
+    /**
+     * Remove a single key and free its blocks.
+     * <p>
+     * This operates under a lock obtained in doRemove().
+     * <p>
+     * @param key
+     * @return true if the key was found
+     */
+    private boolean performSingleKeyRemoval(final K key)
+    {
+        final OffHeapElementDescriptor ded = this.keyHash.remove( key );
+        if ( ded != null )
+        {
+            this.dataStore.free( ded.getBlocks() );
+        }
+
+        log.debug("{0}: Off-heap removal: key [{1}] removed = {2}", logCacheName, key, ded != null);
+        return ded != null;
+    }
+
+    /**
+     * Drops all elements and releases the slabs.
+     * <p>
+     * @see org.apache.commons.jcs3.auxiliary.disk.AbstractDiskCache#removeAll()
+     */
+    @Override
+    protected void processRemoveAll()
+    {
+        reset();
+    }
+
+    /**
+     * Drops all elements and releases the slabs. Nothing is persisted.
+     */
+    @Override
+    public void processDispose()
+    {
+        storageLock.lock();
+        try
+        {
+            setAlive(false);
+            this.keyHash.clear();
+            this.dataStore.reset();
+        }
+        finally
+        {
+            storageLock.unlock();
+        }
+
+        log.info("{0}: Shutdown complete.", logCacheName);
+    }
+
+    /**
+     * Returns the attributes.
+     * <p>
+     * @see org.apache.commons.jcs3.auxiliary.AuxiliaryCache#getAuxiliaryCacheAttributes()
+     */
+    @Override
+    public AuxiliaryCacheAttributes getAuxiliaryCacheAttributes()
+    {
+        return this.offHeapCacheAttributes;
+    }
+
+    /**
+     * Clears the key map and the slab store.
+     */
+    private void reset()
+    {
+        log.info("{0}: Resetting cache", logCacheName);
+
+        storageLock.lock();
+        try
+        {
+            this.keyHash.clear();
+            this.dataStore.reset();
+        }
+        finally
+        {
+            storageLock.unlock();
+        }
+    }
+
+    /**
+     * Returns info about the off-heap cache.
+     * <p>
+     * @see org.apache.commons.jcs3.auxiliary.AuxiliaryCache#getStatistics()
+     */
+    @Override
+    public IStats getStatistics()
+    {
+        final IStats stats = new Stats();
+        stats.setTypeName( "Off-Heap Disk Cache" );
+
+        final ArrayList<IStatElement<?>> elems = new ArrayList<>();
+
+        elems.add(new StatElement<>( "Is Alive", Boolean.valueOf(isAlive()) ) );
+
+        storageLock.lock();
+        try
+        {
+            elems.add(new StatElement<>( "Key Map Size", Integer.valueOf(this.keyHash.size()) ) );
+            elems.add(new StatElement<>( "Allocated Bytes", Long.valueOf(this.dataStore.getAllocatedBytes()) ) );
+            elems.add(new StatElement<>( "Number Of Slabs", Integer.valueOf(this.dataStore.getNumberOfSlabs()) ) );
+            elems.add(new StatElement<>( "Block Size Bytes", Integer.valueOf(this.dataStore.getBlockSizeBytes()) ) );
+            elems.add(new StatElement<>( "Used Blocks", Integer.valueOf(this.dataStore.getUsedBlocks()) ) );
+            elems.add(new StatElement<>( "Empty Blocks", Integer.valueOf(this.dataStore.getEmptyBlocks()) ) );
+            elems.add(new StatElement<>( "Eviction Count", Long.valueOf(this.evictionCount) ) );
+        }
+        finally
+        {
+            storageLock.unlock();
+        }
+
+        // get the stats from the super too
+        final IStats sStats = super.getStatistics();
+        elems.addAll(sStats.getStatElements());
+
+        stats.setStatElements( elems );
+
+        return stats;
+    }
+
+    /**
+     * This is used by the event logging.
+     * <p>
+     * @return the location of the data
+     */
+    @Override
+    protected String getDiskLocation()
+    {
+        return "off-heap";
+    }
+}
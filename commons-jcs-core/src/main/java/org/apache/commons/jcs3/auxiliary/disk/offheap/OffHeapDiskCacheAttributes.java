@@ -0,0 +1,126 @@
+package org.apache.commons.jcs3.auxiliary.disk.offheap;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.apache.commons.jcs3.auxiliary.disk.AbstractDiskCacheAttributes;
+
+/**
+ * This holds attributes for Off-Heap Disk Cache configuration.
+ */
+public class OffHeapDiskCacheAttributes
+    extends AbstractDiskCacheAttributes
+{
+    /** Don't change */
+    private static final long serialVersionUID = -4216733391247352651L;
+
+    /** Default size per block in bytes. */
+    private static final int DEFAULT_BLOCK_SIZE_BYTES = 512;
+
+    /** Default size of one direct buffer slab in bytes. */
+    private static final int DEFAULT_SLAB_SIZE_BYTES = 16 * 1024 * 1024;
+
+    /** Default maximum number of bytes held off the heap. */
+    private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /** The size per block in bytes. */
+    private int blockSizeBytes = DEFAULT_BLOCK_SIZE_BYTES;
+
+    /** The size of one slab in bytes. */
+    private int slabSizeBytes = DEFAULT_SLAB_SIZE_BYTES;
+
+    /** The maximum number of bytes held off the heap. */
+    private long maxBytes = DEFAULT_MAX_BYTES;
+
+    /**
+     * The size of the blocks. All blocks are the same size. An element uses as many blocks as
+     * needed to hold its serialized form.
+     * <p>
+     * @param blockSizeBytes The blockSizeBytes to set.
+     */
+    public void setBlockSizeBytes( final int blockSizeBytes )
+    {
+        this.blockSizeBytes = blockSizeBytes;
+    }
+
+    /**
+     * @return Returns the blockSizeBytes.
+     */
+    public int getBlockSizeBytes()
+    {
+        return blockSizeBytes;
+    }
+
+    /**
+     * The size of the direct buffers allocated from the operating system. Slabs are allocated on
+     * demand until MaxBytes is reached.
+     * <p>
+     * @param slabSizeBytes The slabSizeBytes to set.
+     */
+    public void setSlabSizeBytes( final int slabSizeBytes )
+    {
+        this.slabSizeBytes = slabSizeBytes;
+    }
+
+    /**
+     * @return Returns the slabSizeBytes.
+     */
+    public int getSlabSizeBytes()
+    {
+        return slabSizeBytes;
+    }
+
+    /**
+     * The maximum number of bytes to hold off the heap. If the limit is reached, the least
+     * recently used elements are dropped. Note that the JVM limits direct memory with
+     * -XX:MaxDirectMemorySize.
+     * <p>
+     * @param maxBytes The maxBytes to set.
+     */
+    public void setMaxBytes( final long maxBytes )
+    {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return Returns the maxBytes.
+     */
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * Write out the values for debugging purposes.
+     * <p>
+     * @return String
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder str = new StringBuilder();
+        str.append( "\nOffHeapDiskAttributes " );
+        str.append( "\n MaxPurgatorySize [" + this.getMaxPurgatorySize() + "]" );
+        str.append( "\n BlockSizeBytes [" + this.getBlockSizeBytes() + "]" );
+        str.append( "\n SlabSizeBytes [" + this.getSlabSizeBytes() + "]" );
+        str.append( "\n MaxBytes [" + this.getMaxBytes() + "]" );
+        return str.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package org.apache.commons.jcs3.auxiliary.disk.offheap;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/**
+ * Points to the blocks holding the serialized form of an element in the slab store.
+ */
+public class OffHeapElementDescriptor
+{
+    /** The blocks, in order */
+    private final int[] blocks;
+
+    /** The length of the serialized element */
+    private final int length;
+
+    /**
+     * Constructs the descriptor.
+     * <p>
+     * @param blocks the blocks
+     * @param length the length of the data
+     */
+    public OffHeapElementDescriptor( final int[] blocks, final int length )
+    {
+        this.blocks = blocks;
+        this.length = length;
+    }
+
+    /**
+     * @return the blocks
+     */
+    public int[] getBlocks()
+    {
+        return blocks;
+    }
+
+    /**
+     * @return the length of the data
+     */
+    public int getLength()
+    {
+        return length;
+    }
+}
@@ -0,0 +1,284 @@
+package org.apache.commons.jcs3.auxiliary.disk.offheap;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.jcs3.log.Log;
+import org.apache.commons.jcs3.log.LogManager;
+
+/**
+ * Stores byte arrays in fixed size blocks of direct buffers outside the Java heap.
+ * <p>
+ * The memory is allocated from the operating system in slabs of equal size, each one divided into
+ * blocks. Slabs are allocated on demand and kept until {@link #reset()}. Freed blocks are kept on a
+ * free list and reused before new blocks are carved from the slabs. The number of blocks is bounded
+ * by the maximum number of bytes.
+ * <p>
+ * This class is not thread safe. The off-heap cache guards it with its lock.
+ */
+public class OffHeapSlabStore
+{
+    /** The logger. */
+    private static final Log log = LogManager.getLog( OffHeapSlabStore.class );
+
+    /** The size of a block */
+    private final int blockSizeBytes;
+
+    /** The number of blocks per slab */
+    private final int blocksPerSlab;
+
+    /** The maximum number of blocks */
+    private final int maxBlocks;
+
+    /** The slabs allocated so far */
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+
+    /** Stack of freed block numbers */
+    private int[] freeBlocks = new int[64];
+
+    /** Number of entries in the free stack */
+    private int freeCount;
+
+    /** The number of blocks ever handed out since the last reset */
+    private int highWaterMark;
+
+    /**
+     * Constructor for the slab store.
+     * <p>
+     * @param blockSizeBytes the size of a block
+     * @param slabSizeBytes the size of a slab, rounded down to a multiple of the block size
+     * @param maxBytes the maximum number of bytes to allocate
+     */
+    public OffHeapSlabStore( final int blockSizeBytes, final int slabSizeBytes, final long maxBytes )
+    {
+        if ( blockSizeBytes <= 0 )
+        {
+            throw new IllegalArgumentException( "Block size must be positive: " + blockSizeBytes );
+        }
+
+        this.blockSizeBytes = blockSizeBytes;
+        this.blocksPerSlab = Math.max( 1, slabSizeBytes / blockSizeBytes );
+        this.maxBlocks = (int) Math.min( Integer.MAX_VALUE, Math.max( 0, maxBytes ) / blockSizeBytes );
+
+        log.info( "Constructing OffHeapSlabStore, blockSizeBytes [{0}], blocksPerSlab [{1}], maxBlocks [{2}]",
+                blockSizeBytes, blocksPerSlab, maxBlocks );
+    }
+
+    /**
+     * Calculates the number of blocks needed for the given number of bytes.
+     * <p>
+     * @param length the number of bytes
+     * @return the number of blocks
+     */
+    protected int calculateTheNumberOfBlocksNeeded( final int length )
+    {
+        return Math.max( 1, ( length + blockSizeBytes - 1 ) / blockSizeBytes );
+    }
+
+    /**
+     * Returns true if the given number of bytes would fit into the free blocks.
+     * <p>
+     * @param length the number of bytes
+     * @return true if allocate would succeed
+     */
+    public boolean canAllocate( final int length )
+    {
+        return calculateTheNumberOfBlocksNeeded( length ) <= getAvailableBlocks();
+    }
+
+    /**
+     * Returns true if the given number of bytes could be stored at all, i.e. if the store was
+     * empty.
+     * <p>
+     * @param length the number of bytes
+     * @return true if the data is not larger than the store
+     */
+    public boolean fits( final int length )
+    {
+        return calculateTheNumberOfBlocksNeeded( length ) <= maxBlocks;
+    }
+
+    /**
+     * Allocates blocks for the data and copies it off the heap.
+     * <p>
+     * @param data the data to store
+     * @return the blocks holding the data, or null if there are not enough free blocks
+     */
+    public int[] write( final byte[] data )
+    {
+        final int numBlocks = calculateTheNumberOfBlocksNeeded( data.length );
+        if ( numBlocks > getAvailableBlocks() )
+        {
+            return null;
+        }
+
+        final int[] blocks = new int[numBlocks];
+        for ( int i = 0; i < numBlocks; i++ )
+        {
+            blocks[i] = allocateBlock();
+
+            final int offset = i * blockSizeBytes;
+            final ByteBuffer block = block( blocks[i] );
+            block.put( data, offset, Math.min( blockSizeBytes, data.length - offset ) );
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Copies the data stored in the blocks back onto the heap.
+     * <p>
+     * @param blocks the blocks as returned by write
+     * @param length the length of the data
+     * @return the data
+     */
+    public byte[] read( final int[] blocks, final int length )
+    {
+        final byte[] data = new byte[length];
+        for ( int i = 0; i < blocks.length; i++ )
+        {
+            final int offset = i * blockSizeBytes;
+            final ByteBuffer block = block( blocks[i] );
+            block.get( data, offset, Math.min( blockSizeBytes, length - offset ) );
+        }
+
+        return data;
+    }
+
+    /**
+     * Returns the blocks to the free list.
+     * <p>
+     * @param blocks the blocks to free
+     */
+    public void free( final int[] blocks )
+    {
+        if ( freeCount + blocks.length > freeBlocks.length )
+        {
+            freeBlocks = Arrays.copyOf( freeBlocks, Math.max( freeBlocks.length * 2, freeCount + blocks.length ) );
+        }
+
+        for ( final int block : blocks )
+        {
+            freeBlocks[freeCount++] = block;
+        }
+    }
+
+    /**
+     * Frees all blocks and releases the slabs. The direct memory is returned to the operating
+     * system when the slabs are garbage collected.
+     */
+    public void reset()
+    {
+        slabs.clear();
+        freeBlocks = new int[64];
+        freeCount = 0;
+        highWaterMark = 0;
+    }
+
+    /**
+     * Takes a block from the free list or carves a new one, allocating a new slab if needed.
+     * <p>
+     * @return the block number
+     */
+    private int allocateBlock()
+    {
+        if ( freeCount > 0 )
+        {
+            return freeBlocks[--freeCount];
+        }
+
+        final int block = highWaterMark++;
+        if ( block / blocksPerSlab >= slabs.size() )
+        {
+            final int remaining = maxBlocks - slabs.size() * blocksPerSlab;
+            slabs.add( ByteBuffer.allocateDirect( Math.min( blocksPerSlab, remaining ) * blockSizeBytes ) );
+        }
+
+        return block;
+    }
+
+    /**
+     * Returns a view of the block positioned at its start and limited to its end.
+     * <p>
+     * @param block the block number
+     * @return the view
+     */
+    private ByteBuffer block( final int block )
+    {
+        final ByteBuffer view = slabs.get( block / blocksPerSlab ).duplicate();
+        final int start = ( block % blocksPerSlab ) * blockSizeBytes;
+        view.limit( start + blockSizeBytes );
+        view.position( start );
+        return view;
+    }
+
+    /**
+     * @return the number of blocks that can still be allocated
+     */
+    public int getAvailableBlocks()
+    {
+        return maxBlocks - highWaterMark + freeCount;
+    }
+
+    /**
+     * @return the number of blocks on the free list
+     */
+    public int getEmptyBlocks()
+    {
+        return freeCount;
+    }
+
+    /**
+     * @return the number of blocks holding data
+     */
+    public int getUsedBlocks()
+    {
+        return highWaterMark - freeCount;
+    }
+
+    /**
+     * @return the number of slabs allocated
+     */
+    public int getNumberOfSlabs()
+    {
+        return slabs.size();
+    }
+
+    /**
+     * @return the number of bytes allocated off the heap
+     */
+    public long getAllocatedBytes()
+    {
+        return slabs.stream().mapToLong( ByteBuffer::capacity ).sum();
+    }
+
+    /**
+     * @return the size of a block
+     */
+    public int getBlockSizeBytes()
+    {
+        return blockSizeBytes;
+    }
+}
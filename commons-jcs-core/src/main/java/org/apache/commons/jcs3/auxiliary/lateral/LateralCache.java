@@ -140,6 +140,36 @@ public class LateralCache<K, V>
         return obj;
     }
 
+    /**
+     * Gets all the keys in one request to the lateral.
+     * <p>
+     * @param keys
+     * @return A map of K key to ICacheElement&lt;K, V&gt; element, or an empty map if there is no
+     *         data in cache for any of these keys
+     * @throws IOException
+     */
+    @Override
+    protected Map<K, ICacheElement<K, V>> processGetMultiple( final Set<K> keys )
+        throws IOException
+    {
+        Map<K, ICacheElement<K, V>> map = Collections.emptyMap();
+
+        if ( !this.lateralCacheAttributes.getPutOnlyMode() )
+        {
+            try
+            {
+                return lateralCacheService.getMultiple( cacheName, keys );
+            }
+            catch ( final IOException e )
+            {
+                log.error( e );
+                handleException( e, "Failed to getMultiple " + keys + " from " + lateralCacheAttributes.getCacheName() + "@" + lateralCacheAttributes );
+            }
+        }
+
+        return map;
+    }
+
     /**
      * @param pattern
      * @return A map of K key to ICacheElement&lt;K, V&gt; element, or an empty map if there is no
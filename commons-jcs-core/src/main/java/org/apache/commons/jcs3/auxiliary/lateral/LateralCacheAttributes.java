@@ -65,6 +65,12 @@ public class LateralCacheAttributes
     /** If the primary fails, we will queue items before reconnect.  This limits the number of items that can be queued. */
     private int zombieQueueMaxSize = DEFAULT_ZOMBIE_QUEUE_MAX_SIZE;
 
+    /** Send gets to all laterals at once */
+    private boolean parallelGets;
+
+    /** Hedge gets by observed latency */
+    private boolean hedgedGets;
+
     /**
      * Sets the httpServer attribute of the LateralCacheAttributes object
      * <P>
@@ -271,6 +277,42 @@ public class LateralCacheAttributes
         return zombieQueueMaxSize;
     }
 
+    /**
+     * @param parallelGets whether gets are sent to all laterals at once
+     */
+    @Override
+    public void setParallelGets( final boolean parallelGets )
+    {
+        this.parallelGets = parallelGets;
+    }
+
+    /**
+     * @return whether gets are sent to all laterals at once
+     */
+    @Override
+    public boolean isParallelGets()
+    {
+        return parallelGets;
+    }
+
+    /**
+     * @param hedgedGets whether gets are hedged
+     */
+    @Override
+    public void setHedgedGets( final boolean hedgedGets )
+    {
+        this.hedgedGets = hedgedGets;
+    }
+
+    /**
+     * @return whether gets are hedged
+     */
+    @Override
+    public boolean isHedgedGets()
+    {
+        return hedgedGets;
+    }
+
     /**
      * @return debug string.
      */
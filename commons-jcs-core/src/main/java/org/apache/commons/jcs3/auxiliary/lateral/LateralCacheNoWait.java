@@ -23,11 +23,9 @@ import java.io.IOException;
 import java.rmi.UnmarshalException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.jcs3.auxiliary.AbstractAuxiliaryCache;
 import org.apache.commons.jcs3.auxiliary.lateral.behavior.ILateralCacheAttributes;
@@ -44,6 +42,7 @@ import org.apache.commons.jcs3.engine.stats.behavior.IStatElement;
 import org.apache.commons.jcs3.engine.stats.behavior.IStats;
 import org.apache.commons.jcs3.log.Log;
 import org.apache.commons.jcs3.log.LogManager;
+import org.apache.commons.jcs3.utils.timing.LatencyHistogram;
 
 /**
  * Used to queue up update requests to the underlying cache. These requests will be processed in
@@ -73,6 +72,9 @@ public class LateralCacheNoWait<K, V>
     /** times put called */
     private int putCount;
 
+    /** Latency of the gets sent to the lateral */
+    private final LatencyHistogram getLatency = new LatencyHistogram();
+
     /**
      * Constructs with the given lateral cache, and fires up an event queue for asynchronous
      * processing.
@@ -160,6 +162,7 @@ public class LateralCacheNoWait<K, V>
         getCount++;
         if ( this.getStatus() != CacheStatus.ERROR )
         {
+            final long start = System.nanoTime();
             try
             {
                 return cache.get( key );
@@ -181,12 +184,18 @@ public class LateralCacheNoWait<K, V>
             {
                 eventQueue.destroy();
             }
+            finally
+            {
+                // failures and timeouts count too, or a stalled lateral would look fast
+                getLatency.record( System.nanoTime() - start );
+            }
         }
         return null;
     }
 
     /**
-     * Gets multiple items from the cache based on the given set of keys.
+     * Gets multiple items from the cache based on the given set of keys. The keys are sent to
+     * the lateral in one request.
      * <p>
      * @param keys
      * @return a map of K key to ICacheElement&lt;K, V&gt; element, or an empty map if there is no
@@ -195,19 +204,32 @@ public class LateralCacheNoWait<K, V>
     @Override
     public Map<K, ICacheElement<K, V>> getMultiple(final Set<K> keys)
     {
-        if ( keys != null && !keys.isEmpty() )
+        getCount++;
+        if ( keys != null && !keys.isEmpty() && this.getStatus() != CacheStatus.ERROR )
         {
-            return keys.stream()
-                .collect(Collectors.toMap(
-                        key -> key,
-                        this::get)).entrySet().stream()
-                    .filter(entry -> entry.getValue() != null)
-                    .collect(Collectors.toMap(
-                            Entry::getKey,
-                            Entry::getValue));
+            try
+            {
+                return cache.getMultiple( keys );
+            }
+            catch ( final UnmarshalException ue )
+            {
+                log.debug( "Retrying the getMultiple owing to UnmarshalException." );
+                try
+                {
+                    return cache.getMultiple( keys );
+                }
+                catch ( final IOException ex )
+                {
+                    log.error( "Failed in retrying the getMultiple for the second time." );
+                    eventQueue.destroy();
+                }
+            }
+            catch ( final IOException ex )
+            {
+                eventQueue.destroy();
+            }
         }
-
-        return new HashMap<>();
+        return Collections.emptyMap();
     }
 
     /**
@@ -422,6 +444,15 @@ public class LateralCacheNoWait<K, V>
         return "Lateral Cache No Wait";
     }
 
+    /**
+     * @return the latency of the gets answered by the lateral
+     * @since 3.2
+     */
+    public LatencyHistogram getGetLatency()
+    {
+        return getLatency;
+    }
+
     /**
      * @return statistics about this communication
      */
@@ -436,6 +467,9 @@ public class LateralCacheNoWait<K, V>
         final ArrayList<IStatElement<?>> elems = new ArrayList<>(eqStats.getStatElements());
 
         elems.add(new StatElement<>( "Get Count", Integer.valueOf(this.getCount) ) );
+        final long p95 = getLatency.getPercentile( 95 );
+        elems.add(new StatElement<>( "Get Latency p95 (ms)",
+                p95 < 0 ? "n/a" : String.valueOf( TimeUnit.NANOSECONDS.toMicros( p95 ) / 1000.0 ) ) );
         elems.add(new StatElement<>( "Remove Count", Integer.valueOf(this.removeCount) ) );
         elems.add(new StatElement<>( "Put Count", Integer.valueOf(this.putCount) ) );
         elems.add(new StatElement<>( "Attributes", cache.getAuxiliaryCacheAttributes() ) );
@@ -22,15 +22,25 @@ package org.apache.commons.jcs3.auxiliary.lateral;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.apache.commons.jcs3.auxiliary.AbstractAuxiliaryCache;
@@ -44,12 +54,19 @@ import org.apache.commons.jcs3.engine.stats.behavior.IStatElement;
 import org.apache.commons.jcs3.engine.stats.behavior.IStats;
 import org.apache.commons.jcs3.log.Log;
 import org.apache.commons.jcs3.log.LogManager;
+import org.apache.commons.jcs3.utils.threadpool.DaemonThreadFactory;
 
 /**
  * Used to provide access to multiple services under nowait protection. Composite factory should
  * construct LateralCacheNoWaitFacade to give to the composite cache out of caches it constructs
  * from the varies manager to lateral services. Perhaps the lateralcache factory should be able to
  * do this.
+ * <p>
+ * With ParallelGets, reads are sent to all laterals at once from a small pool of daemon threads and
+ * the first element found is returned. With HedgedGets, the laterals are asked in the order of
+ * their observed latency and the next one only if the previous did not answer within its 95th
+ * percentile. Lookups that are already running when the element is found cannot be aborted without
+ * breaking the connection; they complete and their answers are dropped.
  */
 public class LateralCacheNoWaitFacade<K, V>
     extends AbstractAuxiliaryCache<K, V>
@@ -57,6 +74,18 @@ public class LateralCacheNoWaitFacade<K, V>
     /** The logger */
     private static final Log log = LogManager.getLog( LateralCacheNoWaitFacade.class );
 
+    /** Maximum number of threads looking up elements, the caller looks up itself beyond that */
+    private static final int MAX_LOOKUP_THREADS = 32;
+
+    /** How long idle lookup threads are kept */
+    private static final long LOOKUP_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    /** The percentile of a lateral's latency after which the next lateral is asked */
+    private static final double HEDGE_PERCENTILE = 95;
+
+    /** Answer of a lateral that did not have the element */
+    private static final Object MISS = new Object();
+
     /**
      * The queuing facade to the client.
      * @deprecated Should not have been public in the first place
@@ -81,6 +110,9 @@ public class LateralCacheNoWaitFacade<K, V>
     /** Disposed state of this facade */
     private final AtomicBoolean disposed = new AtomicBoolean(false);
 
+    /** Runs the lookups sent to several laterals at once */
+    private final ThreadPoolExecutor lookupPool;
+
     /**
      * Constructs with the given lateral cache, and fires events to any listeners.
      * <p>
@@ -115,6 +147,10 @@ public class LateralCacheNoWaitFacade<K, V>
         noWaits.forEach(noWait -> noWaitMap.put(noWait.getIdentityKey(), noWait));
         this.cacheName = cattr.getCacheName();
         this.lateralCacheAttributes = cattr;
+        this.lookupPool = new ThreadPoolExecutor( 0, MAX_LOOKUP_THREADS,
+                LOOKUP_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new DaemonThreadFactory( "JCS-LateralCacheNoWaitFacade-" + cacheName + "-" ),
+                ( lookup, pool ) -> lookup.run() );
     }
 
     /**
@@ -242,7 +278,8 @@ public class LateralCacheNoWaitFacade<K, V>
     }
 
     /**
-     * Synchronously reads from the lateral cache.
+     * Synchronously reads from the lateral cache. Depending on the configuration, the laterals are
+     * asked one after the other, all at once, or hedged by their latency.
      * <p>
      * @param key
      * @return ICacheElement
@@ -250,7 +287,31 @@ public class LateralCacheNoWaitFacade<K, V>
     @Override
     public ICacheElement<K, V> get( final K key )
     {
-        return noWaitMap.values().stream()
+        final List<LateralCacheNoWait<K, V>> peers = new ArrayList<>( noWaitMap.values() );
+
+        if ( peers.size() > 1 && lateralCacheAttributes.isHedgedGets() )
+        {
+            // take the delays once, the histograms keep changing while we sort
+            final Map<LateralCacheNoWait<K, V>, Long> delays = new IdentityHashMap<>();
+            for ( final LateralCacheNoWait<K, V> nw : peers )
+            {
+                delays.put( nw, Long.valueOf( hedgeDelay( nw ) ) );
+            }
+
+            // fastest first, unknown latencies last
+            peers.sort( Comparator.comparingLong( nw -> {
+                final long delay = delays.get( nw ).longValue();
+                return delay < 0 ? Long.MAX_VALUE : delay;
+            } ) );
+            return lookup( key, peers, delays );
+        }
+
+        if ( peers.size() > 1 && lateralCacheAttributes.isParallelGets() )
+        {
+            return lookup( key, peers, null );
+        }
+
+        return peers.stream()
             .map(nw -> nw.get(key))
             .filter(Objects::nonNull)
             .findFirst()
@@ -258,7 +319,108 @@ public class LateralCacheNoWaitFacade<K, V>
     }
 
     /**
-     * Gets multiple items from the cache based on the given set of keys.
+     * Asks the laterals for the key until one has it. Without hedging, all are asked at once.
+     * With hedging, the next lateral is asked when the last one asked did not answer within its
+     * hedge delay, or when an answer was a miss.
+     * <p>
+     * @param key
+     * @param peers the laterals in the order to ask them
+     * @param delays the hedge delays of the laterals in nanoseconds, negative if unknown, or null
+     *        to ask all at once
+     * @return the first element found, or null
+     */
+    @SuppressWarnings("unchecked") // answers are elements or MISS
+    private ICacheElement<K, V> lookup( final K key, final List<LateralCacheNoWait<K, V>> peers,
+            final Map<LateralCacheNoWait<K, V>, Long> delays )
+    {
+        final BlockingQueue<Object> answers = new LinkedBlockingQueue<>();
+        final List<Future<?>> lookups = new ArrayList<>( peers.size() );
+        int asked = 0;
+        int answered = 0;
+
+        try
+        {
+            do
+            {
+                if ( asked == answered || asked < peers.size() && delays == null )
+                {
+                    // nothing outstanding, or not waiting between laterals
+                    lookups.add( ask( peers.get( asked++ ), key, answers ) );
+                    continue;
+                }
+
+                final long delay = asked < peers.size() ? delays.get( peers.get( asked - 1 ) ).longValue() : -1;
+                final Object answer = delay < 0 ? answers.take() : answers.poll( delay, TimeUnit.NANOSECONDS );
+
+                if ( answer == null )
+                {
+                    log.debug( "Hedging get of [{0}], lateral {1} is slow", key, peers.get( asked - 1 ) );
+                    lookups.add( ask( peers.get( asked++ ), key, answers ) );
+                    continue;
+                }
+
+                answered++;
+                if ( answer != MISS )
+                {
+                    return (ICacheElement<K, V>) answer;
+                }
+            }
+            while ( answered < peers.size() );
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            lookups.forEach( lookup -> lookup.cancel( false ) );
+        }
+
+        return null;
+    }
+
+    /**
+     * Asks a lateral for the key on a lookup thread, or on the calling thread if all are busy.
+     * <p>
+     * @param nw the lateral
+     * @param key
+     * @param answers receives the element or MISS
+     * @return the lookup
+     */
+    private Future<?> ask( final LateralCacheNoWait<K, V> nw, final K key, final BlockingQueue<Object> answers )
+    {
+        return lookupPool.submit( () -> {
+            Object answer = MISS;
+            try
+            {
+                final ICacheElement<K, V> element = nw.get( key );
+                if ( element != null )
+                {
+                    answer = element;
+                }
+            }
+            finally
+            {
+                answers.add( answer );
+            }
+        } );
+    }
+
+    /**
+     * @param nw a lateral
+     * @return how long to wait for its answer before asking the next one in nanoseconds, or -1
+     *         if its latency is not known yet
+     */
+    private static long hedgeDelay( final LateralCacheNoWait<?, ?> nw )
+    {
+        return nw.getGetLatency().getPercentile( HEDGE_PERCENTILE );
+    }
+
+    /**
+     * Gets multiple items from the cache based on the given set of keys. Each lateral gets one
+     * request for all keys. With ParallelGets or HedgedGets, the laterals are asked at once and
+     * the first lateral in the list wins. Otherwise they are asked in turn for the keys not found
+     * yet.
      * <p>
      * @param keys
      * @return a map of K key to ICacheElement&lt;K, V&gt; element, or an empty map if there is no
@@ -267,24 +429,70 @@ public class LateralCacheNoWaitFacade<K, V>
     @Override
     public Map<K, ICacheElement<K, V>> getMultiple(final Set<K> keys)
     {
-        if (keys != null && !keys.isEmpty())
+        final Map<K, ICacheElement<K, V>> merged = new HashMap<>();
+        if (keys == null || keys.isEmpty())
         {
-            return keys.stream()
-                .collect(Collectors.toMap(
-                        key -> key,
-                        this::get)).entrySet().stream()
-                    .filter(entry -> entry.getValue() != null)
-                    .collect(Collectors.toMap(
-                            Entry::getKey,
-                            Entry::getValue));
+            return merged;
+        }
+
+        if (noWaitMap.size() > 1
+                && (lateralCacheAttributes.isParallelGets() || lateralCacheAttributes.isHedgedGets()))
+        {
+            for (final Map<K, ICacheElement<K, V>> found : fanOut(nw -> getMultipleFrom(nw, keys)))
+            {
+                found.forEach(merged::putIfAbsent);
+            }
+            return merged;
         }
 
-        return new HashMap<>();
+        final Set<K> missing = new HashSet<>(keys);
+        for (final LateralCacheNoWait<K, V> nw : noWaitMap.values())
+        {
+            final Map<K, ICacheElement<K, V>> found = getMultipleFrom(nw, missing);
+            merged.putAll(found);
+            missing.removeAll(found.keySet());
+            if (missing.isEmpty())
+            {
+                break;
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Gets the keys from one lateral in one request. If the request fails, the keys are asked
+     * for one by one.
+     * <p>
+     * @param nw the lateral
+     * @param keys the keys
+     * @return the elements found
+     */
+    private Map<K, ICacheElement<K, V>> getMultipleFrom(final LateralCacheNoWait<K, V> nw, final Set<K> keys)
+    {
+        try
+        {
+            return nw.getMultiple(keys);
+        }
+        catch (final RuntimeException e)
+        {
+            log.warn("Failed to get multiple keys from lateral {0}, getting them one by one", nw, e);
+
+            final Map<K, ICacheElement<K, V>> found = new HashMap<>();
+            for (final K key : keys)
+            {
+                final ICacheElement<K, V> element = nw.get(key);
+                if (element != null)
+                {
+                    found.put(key, element);
+                }
+            }
+            return found;
+        }
     }
 
     /**
-     * Synchronously reads from the lateral cache. Get a response from each! This will be slow.
-     * Merge them.
+     * Synchronously reads from the lateral cache. Get a response from each and merge them. With
+     * ParallelGets, the laterals are asked at once.
      * <p>
      * @param pattern
      * @return ICacheElement
@@ -292,11 +500,57 @@ public class LateralCacheNoWaitFacade<K, V>
     @Override
     public Map<K, ICacheElement<K, V>> getMatching(final String pattern)
     {
-        return noWaitMap.values().stream()
-                .flatMap(nw -> nw.getMatching(pattern).entrySet().stream())
+        final List<Map<K, ICacheElement<K, V>>> answers;
+        if (noWaitMap.size() > 1 && lateralCacheAttributes.isParallelGets())
+        {
+            answers = fanOut(nw -> nw.getMatching(pattern));
+        }
+        else
+        {
+            answers = noWaitMap.values().stream()
+                    .map(nw -> nw.getMatching(pattern))
+                    .collect(Collectors.toList());
+        }
+
+        return answers.stream()
+                .flatMap(found -> found.entrySet().stream())
                 .collect(Collectors.toMap(
                         Entry::getKey,
-                        Entry::getValue));
+                        Entry::getValue,
+                        (first, second) -> first));
+    }
+
+    /**
+     * Sends a read to all laterals at once and waits for all answers.
+     * <p>
+     * @param read the read
+     * @return the answers in the order of the laterals, failed reads are left out
+     */
+    private <T> List<T> fanOut(final Function<LateralCacheNoWait<K, V>, T> read)
+    {
+        final List<Future<T>> reads = noWaitMap.values().stream()
+                .map(nw -> lookupPool.submit(() -> read.apply(nw)))
+                .collect(Collectors.toList());
+
+        final List<T> answers = new ArrayList<>(reads.size());
+        for (final Future<T> future : reads)
+        {
+            try
+            {
+                answers.add(future.get());
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                reads.forEach(r -> r.cancel(false));
+                break;
+            }
+            catch (final ExecutionException e)
+            {
+                log.warn("Failed to read from lateral", e.getCause());
+            }
+        }
+        return answers;
     }
 
     /**
@@ -355,6 +609,7 @@ public class LateralCacheNoWaitFacade<K, V>
 
             noWaitMap.values().forEach(LateralCacheNoWait::dispose);
             noWaitMap.clear();
+            lookupPool.shutdown();
         }
     }
 
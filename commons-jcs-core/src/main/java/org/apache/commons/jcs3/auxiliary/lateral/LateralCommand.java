@@ -43,5 +43,14 @@ public enum LateralCommand
     GET_MATCHING,
 
     /** Command to get all keys */
-    GET_KEYSET
+    GET_KEYSET,
+
+    /** Command carrying a list of updates and removes to apply in order */
+    BATCH,
+
+    /** The command for dropping an older version of an element */
+    INVALIDATE,
+
+    /** Command to return the objects for a set of keys in one response */
+    GET_MULTIPLE
 }
@@ -20,6 +20,7 @@ package org.apache.commons.jcs3.auxiliary.lateral;
  */
 
 import java.io.Serializable;
+import java.util.List;
 
 import org.apache.commons.jcs3.engine.behavior.ICacheElement;
 
@@ -51,6 +52,21 @@ public class LateralElementDescriptor<K, V>
      */
     public int valHashCode = -1;
 
+    /**
+     * The version of the element an invalidation is sent for. This is the create time of the
+     * element, 0 if unknown.
+     */
+    public long version;
+
+    /**
+     * The id of a request expecting a response in multiplexed mode. The response carries the same
+     * id. 0 means that the response, if any, is sent without an id.
+     */
+    public long requestId;
+
+    /** The commands of a batch, in the order they are to be applied. */
+    public List<LateralElementDescriptor<K, V>> batch;
+
     /** Constructor for the LateralElementDescriptor object */
     @Deprecated // Not used
     public LateralElementDescriptor()
@@ -94,6 +110,20 @@ public class LateralElementDescriptor<K, V>
         this.requesterId = requesterId;
     }
 
+    /**
+     * Constructor for a batch of commands
+     * <p>
+     * @param batch the updates and removes to apply in order
+     * @param requesterId id of the the source of the request
+     * @since 3.2
+     */
+    public LateralElementDescriptor( final List<LateralElementDescriptor<K, V>> batch, final long requesterId )
+    {
+        this.batch = batch;
+        this.command = LateralCommand.BATCH;
+        this.requesterId = requesterId;
+    }
+
     /**
      * Return payload
      *
@@ -136,6 +166,51 @@ public class LateralElementDescriptor<K, V>
         return valHashCode;
     }
 
+    /**
+     * @return the version of the element, or 0 if unknown
+     * @since 3.2
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * @param version the version of the element
+     * @since 3.2
+     */
+    public void setVersion( final long version )
+    {
+        this.version = version;
+    }
+
+    /**
+     * @return the id of the request, or 0 if not multiplexed
+     * @since 3.2
+     */
+    public long getRequestId()
+    {
+        return requestId;
+    }
+
+    /**
+     * @param requestId the id of the request
+     * @since 3.2
+     */
+    public void setRequestId( final long requestId )
+    {
+        this.requestId = requestId;
+    }
+
+    /**
+     * @return the commands of a batch, or null if this is not a batch
+     * @since 3.2
+     */
+    public List<LateralElementDescriptor<K, V>> getBatch()
+    {
+        return batch;
+    }
+
     /**
      * @return String, all the important values that can be configured
      */
@@ -146,7 +221,13 @@ public class LateralElementDescriptor<K, V>
         buf.append( "\n LateralElementDescriptor " );
         buf.append( "\n command = [" + this.command + "]" );
         buf.append( "\n valHashCode = [" + this.valHashCode + "]" );
+        buf.append( "\n version = [" + this.version + "]" );
+        buf.append( "\n requestId = [" + this.requestId + "]" );
         buf.append( "\n ICacheElement = [" + this.ce + "]" );
+        if ( this.batch != null )
+        {
+            buf.append( "\n batch size = [" + this.batch.size() + "]" );
+        }
         return buf.toString();
     }
 }
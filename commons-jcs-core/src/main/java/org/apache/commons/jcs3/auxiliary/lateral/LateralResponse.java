@@ -0,0 +1,82 @@
+package org.apache.commons.jcs3.auxiliary.lateral;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.Serializable;
+
+/**
+ * The response to a lateral request in multiplexed mode. It carries the id of the request, so
+ * responses can be matched to their requests when several requests are in flight on one
+ * connection.
+ */
+public class LateralResponse<T>
+    implements Serializable
+{
+    /** Don't change */
+    private static final long serialVersionUID = -4873106470137422745L;
+
+    /** The id of the request */
+    private final long requestId;
+
+    /** The result of the request, may be null */
+    private final T payload;
+
+    /**
+     * Constructor
+     * <p>
+     * @param requestId the id of the request
+     * @param payload the result of the request
+     */
+    public LateralResponse( final long requestId, final T payload )
+    {
+        this.requestId = requestId;
+        this.payload = payload;
+    }
+
+    /**
+     * @return the id of the request
+     */
+    public long getRequestId()
+    {
+        return requestId;
+    }
+
+    /**
+     * @return the result of the request
+     */
+    public T getPayload()
+    {
+        return payload;
+    }
+
+    /**
+     * @return String, all the important values that can be configured
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder buf = new StringBuilder();
+        buf.append( "\n LateralResponse " );
+        buf.append( "\n requestId = [" + this.requestId + "]" );
+        buf.append( "\n payload = [" + this.payload + "]" );
+        return buf.toString();
+    }
+}
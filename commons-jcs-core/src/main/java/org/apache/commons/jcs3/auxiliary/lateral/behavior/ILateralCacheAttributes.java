@@ -217,4 +217,36 @@ public interface ILateralCacheAttributes
      * @return Returns the zombieQueueMaxSize.
      */
     int getZombieQueueMaxSize();
+
+    /**
+     * Should a get with several laterals ask all of them at once and take the first answer? If
+     * false, they are asked one after the other until one has the element. Defaults to false.
+     * <p>
+     * @param parallelGets whether gets are sent to all laterals at once
+     * @since 3.2
+     */
+    void setParallelGets( boolean parallelGets );
+
+    /**
+     * @return whether gets are sent to all laterals at once
+     * @since 3.2
+     */
+    boolean isParallelGets();
+
+    /**
+     * Should a get with several laterals be hedged? The lateral with the lowest observed 95th
+     * percentile latency is asked first. The next one is only asked if the first has not
+     * answered within its 95th percentile, or did not have the element. This takes precedence
+     * over ParallelGets.
+     * <p>
+     * @param hedgedGets whether gets are hedged
+     * @since 3.2
+     */
+    void setHedgedGets( boolean hedgedGets );
+
+    /**
+     * @return whether gets are hedged
+     * @since 3.2
+     */
+    boolean isHedgedGets();
 }
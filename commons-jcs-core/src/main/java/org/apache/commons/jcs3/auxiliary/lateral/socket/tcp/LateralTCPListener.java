@@ -19,24 +19,39 @@ package org.apache.commons.jcs3.auxiliary.lateral.socket.tcp;
  * under the License.
  */
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.StreamCorruptedException;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.jcs3.auxiliary.BinaryMessageCodec;
+import org.apache.commons.jcs3.auxiliary.lateral.LateralCommand;
 import org.apache.commons.jcs3.auxiliary.lateral.LateralElementDescriptor;
+import org.apache.commons.jcs3.auxiliary.lateral.LateralResponse;
 import org.apache.commons.jcs3.auxiliary.lateral.behavior.ILateralCacheListener;
 import org.apache.commons.jcs3.auxiliary.lateral.socket.tcp.behavior.ITCPLateralCacheAttributes;
 import org.apache.commons.jcs3.engine.CacheInfo;
@@ -45,14 +60,26 @@ import org.apache.commons.jcs3.engine.behavior.ICompositeCacheManager;
 import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
 import org.apache.commons.jcs3.engine.behavior.IShutdownObserver;
 import org.apache.commons.jcs3.engine.control.CompositeCache;
+import org.apache.commons.jcs3.io.ByteBufferPool;
+import org.apache.commons.jcs3.io.ByteBufferSink;
 import org.apache.commons.jcs3.log.Log;
 import org.apache.commons.jcs3.log.LogManager;
 import org.apache.commons.jcs3.utils.serialization.StandardSerializer;
+import org.apache.commons.jcs3.utils.threadpool.DaemonThreadFactory;
 
 /**
  * Listens for connections from other TCP lateral caches and handles them. The initialization method
  * starts a listening thread, which creates a socket server. When messages are received they are
  * passed to a pooled executor which then calls the appropriate handle method.
+ * <p>
+ * The listening thread reads the length prefixed messages of all connections without blocking and
+ * only decodes them. The commands are processed by a set of single threaded workers. All commands
+ * for a key go to the same worker, so they are applied in the order they were received. A remove
+ * all waits for all workers to finish the commands received before it.
+ * <p>
+ * The backlog of each worker is limited. A connection whose command finds the backlog of its
+ * worker full stops reading until the worker has caught up, which pushes back on the peer through
+ * TCP flow control.
  */
 public class LateralTCPListener<K, V>
     implements ILateralCacheListener<K, V>, IShutdownObserver
@@ -82,13 +109,16 @@ public class LateralTCPListener<K, V>
     private IElementSerializer serializer;
 
     /** put count */
-    private int putCnt;
+    private final AtomicInteger putCnt = new AtomicInteger();
 
     /** remove count */
-    private int removeCnt;
+    private final AtomicInteger removeCnt = new AtomicInteger();
 
     /** get count */
-    private int getCnt;
+    private final AtomicInteger getCnt = new AtomicInteger();
+
+    /** The workers processing the commands, or null to process them on the listener thread */
+    private Worker[] workers;
 
     /**
      * Use the vmid by default. This can be set for testing. If we ever need to run more than one
@@ -200,6 +230,21 @@ public class LateralTCPListener<K, V>
             serverSocket.bind(endPoint);
             serverSocket.configureBlocking(false);
 
+            final int workerThreads = getTcpLateralCacheAttributes().getListenerWorkerThreads();
+            if (workerThreads > 0)
+            {
+                final int queueSize = Math.max(1, getTcpLateralCacheAttributes().getListenerWorkerQueueSize());
+                workers = new Worker[workerThreads];
+                for (int i = 0; i < workerThreads; i++)
+                {
+                    workers[i] = new Worker("JCS-LateralTCPListener-Worker-" + port + "-" + i + "-", queueSize);
+                }
+            }
+            else
+            {
+                workers = null;
+            }
+
             listenerThread = new Thread(() -> runListener(serverSocket),
                     "JCS-LateralTCPListener-" + host + ":" + port);
             listenerThread.setDaemon(true);
@@ -257,7 +302,7 @@ public class LateralTCPListener<K, V>
     public void handlePut( final ICacheElement<K, V> element )
         throws IOException
     {
-        putCnt++;
+        putCnt.incrementAndGet();
         if ( log.isInfoEnabled() && getPutCnt() % 100 == 0 )
         {
             log.info( "Put Count (port {0}) = {1}",
@@ -282,7 +327,7 @@ public class LateralTCPListener<K, V>
     public void handleRemove( final String cacheName, final K key )
         throws IOException
     {
-        removeCnt++;
+        removeCnt.incrementAndGet();
         if ( log.isInfoEnabled() && getRemoveCnt() % 100 == 0 )
         {
             log.info( "Remove Count = {0}", this::getRemoveCnt);
@@ -293,6 +338,44 @@ public class LateralTCPListener<K, V>
         getCache( cacheName ).localRemove( key );
     }
 
+    /**
+     * Drops the local copy of an element, unless it is the same as or newer than the version
+     * the invalidation was sent for.
+     * <p>
+     * @param cacheName the name of the cache
+     * @param key the key of the element
+     * @param valHashCode the hash code of the new value, -1 if unknown
+     * @param version the create time of the new element, 0 if unknown
+     * @throws IOException
+     */
+    public void handleInvalidate( final String cacheName, final K key, final int valHashCode, final long version )
+        throws IOException
+    {
+        log.debug( "handleInvalidate> cacheName={0}, key={1}, version={2}", cacheName, key, version );
+
+        final CompositeCache<K, V> cache = getCache( cacheName );
+        final ICacheElement<K, V> local = cache.localGet( key );
+        if ( local == null )
+        {
+            return;
+        }
+
+        if ( valHashCode != -1 && local.getVal() != null && local.getVal().hashCode() == valHashCode )
+        {
+            log.debug( "Same hashCode [{0}], keeping {1}", valHashCode, key );
+            return;
+        }
+
+        if ( version != 0 && local.getElementAttributes().getCreateTime() > version )
+        {
+            log.debug( "Local copy of {0} is newer than version [{1}], keeping it", key, version );
+            return;
+        }
+
+        removeCnt.incrementAndGet();
+        cache.localRemove( key );
+    }
+
     /**
      * Gets the cache that was injected by the lateral factory. Calls removeAll on the cache.
      * <p>
@@ -318,7 +401,7 @@ public class LateralTCPListener<K, V>
     public ICacheElement<K, V> handleGet( final String cacheName, final K key )
         throws IOException
     {
-        getCnt++;
+        getCnt.incrementAndGet();
         if ( log.isInfoEnabled() && getGetCnt() % 100 == 0 )
         {
             log.info( "Get Count (port {0}) = {1}",
@@ -342,7 +425,7 @@ public class LateralTCPListener<K, V>
     public Map<K, ICacheElement<K, V>> handleGetMatching( final String cacheName, final String pattern )
         throws IOException
     {
-        getCnt++;
+        getCnt.incrementAndGet();
         if ( log.isInfoEnabled() && getGetCnt() % 100 == 0 )
         {
             log.info( "GetMatching Count (port {0}) = {1}",
@@ -355,6 +438,31 @@ public class LateralTCPListener<K, V>
         return getCache( cacheName ).localGetMatching( pattern );
     }
 
+    /**
+     * Gets the cache that was injected by the lateral factory. Calls getMultiple on the cache.
+     * <p>
+     * @param cacheName the name of the cache
+     * @param keys the keys to look up
+     * @return a map of the elements found, never null
+     * @throws IOException
+     * @since 3.2
+     */
+    public Map<K, ICacheElement<K, V>> handleGetMultiple( final String cacheName, final Set<K> keys )
+        throws IOException
+    {
+        getCnt.incrementAndGet();
+        if ( log.isInfoEnabled() && getGetCnt() % 100 == 0 )
+        {
+            log.info( "GetMultiple Count (port {0}) = {1}",
+                    () -> getTcpLateralCacheAttributes().getTcpListenerPort(),
+                    this::getGetCnt);
+        }
+
+        log.debug( "handleGetMultiple> cacheName={0}, keys={1}", cacheName, keys );
+
+        return getCache( cacheName ).localGetMultiple( keys );
+    }
+
     /**
      * Gets the cache that was injected by the lateral factory. Calls getKeySet on the cache.
      * <p>
@@ -414,7 +522,7 @@ public class LateralTCPListener<K, V>
      */
     public int getPutCnt()
     {
-        return putCnt;
+        return putCnt.get();
     }
 
     /**
@@ -422,7 +530,7 @@ public class LateralTCPListener<K, V>
      */
     public int getGetCnt()
     {
-        return getCnt;
+        return getCnt.get();
     }
 
     /**
@@ -430,7 +538,7 @@ public class LateralTCPListener<K, V>
      */
     public int getRemoveCnt()
     {
-        return removeCnt;
+        return removeCnt.get();
     }
 
     /**
@@ -544,14 +652,28 @@ public class LateralTCPListener<K, V>
                         log.info("Connected to client at {0}", client.getRemoteAddress());
 
                         client.configureBlocking(false);
-                        client.register(selector, SelectionKey.OP_READ);
+                        final SelectionKey clientKey = client.register(selector, SelectionKey.OP_READ);
+                        clientKey.attach(new Connection(clientKey));
                     }
 
-                    if (key.isReadable())
+                    if (key.isValid() && key.isReadable())
                     {
                         handleClient(key);
                     }
 
+                    if (key.isValid() && key.isWritable())
+                    {
+                        final Connection connection = getConnection(key);
+                        try
+                        {
+                            connection.flush();
+                        }
+                        catch (final IOException e)
+                        {
+                            connection.close(e);
+                        }
+                    }
+
                     i.remove();
                 }
             }
@@ -576,6 +698,14 @@ public class LateralTCPListener<K, V>
         }
         finally
         {
+            if (workers != null)
+            {
+                for (final Worker worker : workers)
+                {
+                    worker.shutdownNow();
+                }
+            }
+
             try
             {
                 serverSocket.close();
@@ -656,23 +786,109 @@ public class LateralTCPListener<K, V>
     }
 
     /**
-     * A Separate thread that runs when a command comes into the LateralTCPReceiver.
+     * @param key the selection key of a client connection
+     * @return the connection attached to the key
+     */
+    @SuppressWarnings("unchecked") // only connections of this listener are attached
+    private Connection getConnection(final SelectionKey key)
+    {
+        return (Connection) key.attachment();
+    }
+
+    /**
+     * Reads the available data of a connection and dispatches the complete commands.
+     * <p>
+     * @param key the selection key of the connection
      */
     private void handleClient(final SelectionKey key)
     {
-        final SocketChannel socketChannel = (SocketChannel) key.channel();
+        final Connection connection = getConnection(key);
 
         try
         {
-            final LateralElementDescriptor<K, V> led =
-                    serializer.deSerializeFrom(socketChannel, null);
+            connection.read();
+        }
+        catch (final IOException e)
+        {
+            connection.close(e);
+        }
+    }
 
-            if ( led == null )
+    /**
+     * Hands the command over to the worker for its key. A remove all is processed when all
+     * workers have finished the commands received before it. The commands of a batch are
+     * dispatched one after the other.
+     * <p>
+     * @param connection the connection the command was received on
+     * @param led the command
+     */
+    private void dispatch(final Connection connection, final LateralElementDescriptor<K, V> led)
+    {
+        if (led.getCommand() == LateralCommand.BATCH)
+        {
+            led.getBatch().forEach(command -> dispatch(connection, command));
+            return;
+        }
+
+        if (workers == null)
+        {
+            process(connection, led);
+            return;
+        }
+
+        try
+        {
+            if (led.getCommand() == LateralCommand.REMOVEALL)
             {
-                log.debug("LateralElementDescriptor is null");
-                return;
+                final CyclicBarrier barrier =
+                        new CyclicBarrier(workers.length, () -> process(connection, led));
+                for (final Worker worker : workers)
+                {
+                    worker.execute(() -> {
+                        try
+                        {
+                            barrier.await();
+                        }
+                        catch (final InterruptedException e)
+                        {
+                            Thread.currentThread().interrupt();
+                        }
+                        catch (final BrokenBarrierException e)
+                        {
+                            log.warn("Remove all for {0} not processed", led);
+                        }
+                    });
+                }
+                for (final Worker worker : workers)
+                {
+                    worker.pauseIfFull(connection);
+                }
             }
+            else
+            {
+                final int hash = Objects.hash(led.getPayload().getCacheName(), led.getPayload().getKey());
+                final int index = Math.floorMod(hash ^ (hash >>> 16), workers.length);
+                workers[index].execute(() -> process(connection, led));
+                workers[index].pauseIfFull(connection);
+            }
+        }
+        catch (final RejectedExecutionException e)
+        {
+            log.debug("Listener terminated, dropping {0}", led);
+        }
+    }
 
+    /**
+     * Processes a command and sends the response, if any.
+     * <p>
+     * @param connection the connection the command was received on
+     * @param led the command
+     */
+    private void process(final Connection connection, final LateralElementDescriptor<K, V> led)
+    {
+        try
+        {
+            Object obj = null;
             if ( led.getRequesterId() == getListenerId() )
             {
                 log.debug( "from self" );
@@ -682,28 +898,22 @@ public class LateralTCPListener<K, V>
                 log.debug( "receiving LateralElementDescriptor from another led = {0}",
                         led );
 
-                Object obj = handleElement(led);
-                if (obj != null)
-                {
-                    serializer.serializeTo(obj, socketChannel);
-                }
+                obj = handleElement(led);
             }
-        }
-        catch (final IOException e)
-        {
-            log.info("Caught {0}, closing connection.", e.getClass().getSimpleName(), e);
-            try
+
+            if (led.getRequestId() != 0)
             {
-                socketChannel.close();
+                // multiplexed request, always answer to complete the pending request
+                connection.send(new LateralResponse<>(led.getRequestId(), obj));
             }
-            catch (IOException e1)
+            else if (obj != null)
             {
-                log.error("Error while closing connection", e );
+                connection.send(obj);
             }
         }
-        catch (final ClassNotFoundException e)
+        catch (final IOException e)
         {
-            log.error( "Deserialization failed reading from socket", e );
+            connection.close(e);
         }
     }
 
@@ -715,8 +925,18 @@ public class LateralTCPListener<K, V>
      * @return a possible response
      * @throws IOException
      */
+    @SuppressWarnings("unchecked") // The key of GET_MULTIPLE is the key set
     private Object handleElement(final LateralElementDescriptor<K, V> led) throws IOException
     {
+        if (led.getCommand() == LateralCommand.BATCH)
+        {
+            for (final LateralElementDescriptor<K, V> command : led.getBatch())
+            {
+                handleElement(command);
+            }
+            return null;
+        }
+
         final String cacheName = led.getPayload().getCacheName();
         final K key = led.getPayload().getKey();
         Object obj = null;
@@ -755,6 +975,10 @@ public class LateralTCPListener<K, V>
                 handleRemoveAll( cacheName );
                 break;
 
+            case INVALIDATE:
+                handleInvalidate( cacheName, key, led.getValHashCode(), led.getVersion() );
+                break;
+
             case GET:
                 obj = handleGet( cacheName, key );
                 break;
@@ -767,12 +991,382 @@ public class LateralTCPListener<K, V>
                 obj = handleGetKeySet(cacheName);
                 break;
 
+            case GET_MULTIPLE:
+                obj = handleGetMultiple( cacheName, (Set<K>) key );
+                break;
+
             default: break;
         }
 
         return obj;
     }
 
+    /**
+     * A single threaded worker with a limited backlog. Connections which filled the backlog stop
+     * reading and are resumed once the worker has processed half of it.
+     */
+    private static class Worker
+    {
+        /** The thread processing the commands */
+        private final ExecutorService executor;
+
+        /** Maximum number of commands waiting to be processed */
+        private final int queueSize;
+
+        /** Number of commands waiting or being processed */
+        private final AtomicInteger backlog = new AtomicInteger();
+
+        /** The connections waiting for the backlog to drain */
+        private final Set<LateralTCPListener<?, ?>.Connection> paused = ConcurrentHashMap.newKeySet();
+
+        /**
+         * @param threadName prefix of the thread name
+         * @param queueSize maximum number of commands waiting to be processed
+         */
+        Worker(final String threadName, final int queueSize)
+        {
+            this.executor = Executors.newSingleThreadExecutor(new DaemonThreadFactory(threadName));
+            this.queueSize = queueSize;
+        }
+
+        /**
+         * Queues a command. Never blocks, the caller should check the backlog afterwards.
+         * <p>
+         * @param task the command
+         */
+        void execute(final Runnable task)
+        {
+            backlog.incrementAndGet();
+            try
+            {
+                executor.execute(() -> {
+                    try
+                    {
+                        task.run();
+                    }
+                    finally
+                    {
+                        if (backlog.decrementAndGet() <= queueSize / 2)
+                        {
+                            resumeAll();
+                        }
+                    }
+                });
+            }
+            catch (final RejectedExecutionException e)
+            {
+                backlog.decrementAndGet();
+                throw e;
+            }
+        }
+
+        /**
+         * Stops reading from the connection while the backlog is full.
+         * <p>
+         * @param connection the connection which queued a command
+         */
+        void pauseIfFull(final LateralTCPListener<?, ?>.Connection connection)
+        {
+            if (backlog.get() < queueSize)
+            {
+                return;
+            }
+
+            connection.pauseReading();
+            paused.add(connection);
+
+            // the backlog may have drained before the connection was registered
+            if (backlog.get() <= queueSize / 2)
+            {
+                resumeAll();
+            }
+        }
+
+        /**
+         * Resumes reading from all paused connections.
+         */
+        private void resumeAll()
+        {
+            for (final Iterator<LateralTCPListener<?, ?>.Connection> i = paused.iterator(); i.hasNext();)
+            {
+                final LateralTCPListener<?, ?>.Connection connection = i.next();
+                i.remove();
+                connection.resumeReading();
+            }
+        }
+
+        /**
+         * Stops the thread.
+         */
+        void shutdownNow()
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The state of a client connection. Assembles the received messages and queues the responses
+     * until the socket can take them.
+     */
+    private class Connection
+    {
+        /** The selection key of the connection */
+        private final SelectionKey key;
+
+        /** The socket channel */
+        private final SocketChannel channel;
+
+        /** The length prefix of the message being received */
+        private final ByteBuffer header = ByteBuffer.allocate(4);
+
+        /** The body of the message being received, a pooled buffer, or null while reading the length */
+        private ByteBuffer body;
+
+        /** The responses not yet written, returned to the pool once written */
+        private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+
+        /** The serializer of the messages, the binary codec if the client asked for it */
+        private volatile IElementSerializer wireSerializer = serializer;
+
+        /** Is the next message the first one of the connection */
+        private boolean first = true;
+
+        /** Whether reading waits for the workers to catch up */
+        private volatile boolean readPaused;
+
+        /**
+         * @param key the selection key of the connection
+         */
+        Connection(final SelectionKey key)
+        {
+            this.key = key;
+            this.channel = (SocketChannel) key.channel();
+        }
+
+        /**
+         * Reads whatever data is available and dispatches all complete messages. Called on the
+         * listener thread only.
+         * <p>
+         * @throws IOException if the connection failed or was closed by the client
+         */
+        void read() throws IOException
+        {
+            while (true)
+            {
+                if (body == null)
+                {
+                    if (channel.read(header) < 0)
+                    {
+                        throw new EOFException("Connection closed by client");
+                    }
+                    if (header.hasRemaining())
+                    {
+                        return;
+                    }
+
+                    header.flip();
+                    final int length = header.getInt();
+                    header.clear();
+                    if (length < 0 || length > LateralTCPSender.MAX_MESSAGE_LENGTH)
+                    {
+                        throw new StreamCorruptedException("Invalid message length " + length);
+                    }
+                    body = ByteBufferPool.getDefault().acquire(length);
+                }
+
+                if (body.hasRemaining() && channel.read(body) < 0)
+                {
+                    throw new EOFException("Connection closed by client");
+                }
+                if (body.hasRemaining())
+                {
+                    return;
+                }
+
+                final ByteBuffer message = body;
+                body = null;
+                message.flip();
+
+                try
+                {
+                    if (first)
+                    {
+                        first = false;
+                        if (BinaryMessageCodec.isHello(message))
+                        {
+                            acceptCodec();
+                            continue;
+                        }
+                    }
+
+                    final LateralElementDescriptor<K, V> led = wireSerializer.deSerializeBuffer(message, null);
+                    if (led == null)
+                    {
+                        log.debug("LateralElementDescriptor is null");
+                    }
+                    else
+                    {
+                        dispatch(this, led);
+                    }
+                }
+                catch (final ClassNotFoundException e)
+                {
+                    log.error( "Deserialization failed reading from socket", e );
+                }
+                finally
+                {
+                    ByteBufferPool.getDefault().release(message);
+                }
+
+                if (readPaused)
+                {
+                    // continue when the workers have caught up
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Stops reading from the connection. Called on the listener thread only.
+         */
+        synchronized void pauseReading()
+        {
+            readPaused = true;
+            if (key.isValid())
+            {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+        }
+
+        /**
+         * Continues reading from the connection.
+         */
+        synchronized void resumeReading()
+        {
+            readPaused = false;
+            if (key.isValid())
+            {
+                key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+                key.selector().wakeup();
+            }
+        }
+
+        /**
+         * Encodes and queues a response and writes as much as the socket takes. The rest is
+         * written by the listener thread once the socket is writable.
+         * <p>
+         * @param obj the response
+         * @throws IOException
+         */
+        synchronized void send(final Object obj) throws IOException
+        {
+            // encode under the lock, the binary codec expects the messages in encoding order
+            final ByteBufferSink sink = new ByteBufferSink();
+            try
+            {
+                wireSerializer.serializeTo(obj, sink);
+            }
+            catch (final IOException | RuntimeException e)
+            {
+                sink.close();
+                throw e;
+            }
+
+            outbound.add(sink.flip());
+            flush();
+        }
+
+        /**
+         * Switches the connection to the binary message codec and confirms with the same
+         * handshake.
+         * <p>
+         * @throws IOException
+         */
+        synchronized void acceptCodec() throws IOException
+        {
+            log.debug("Using binary message codec with {0}", channel::socket);
+            wireSerializer = new BinaryMessageCodec(serializer);
+            write(BinaryMessageCodec.hello());
+        }
+
+        /**
+         * Queues a message with its length prefix and writes as much as the socket takes.
+         * (guarded by this)
+         * <p>
+         * @param message the message
+         * @throws IOException
+         */
+        private void write(final byte[] message) throws IOException
+        {
+            final ByteBuffer buffer = ByteBuffer.allocate(4 + message.length);
+            buffer.putInt(message.length);
+            buffer.put(message);
+            buffer.flip();
+
+            outbound.add(buffer);
+            flush();
+        }
+
+        /**
+         * Writes the queued responses until the socket is full.
+         * <p>
+         * @throws IOException
+         */
+        synchronized void flush() throws IOException
+        {
+            ByteBuffer buffer;
+            while ((buffer = outbound.peek()) != null)
+            {
+                channel.write(buffer);
+                if (buffer.hasRemaining())
+                {
+                    // continue when the socket is writable again
+                    key.interestOps((readPaused ? 0 : SelectionKey.OP_READ) | SelectionKey.OP_WRITE);
+                    key.selector().wakeup();
+                    return;
+                }
+                ByteBufferPool.getDefault().release(outbound.poll());
+            }
+
+            if (key.isValid() && (key.interestOps() & SelectionKey.OP_WRITE) != 0)
+            {
+                key.interestOps(readPaused ? 0 : SelectionKey.OP_READ);
+            }
+        }
+
+        /**
+         * Closes the connection after a failure.
+         * <p>
+         * @param e the failure
+         */
+        void close(final IOException e)
+        {
+            if (!channel.isOpen())
+            {
+                return;
+            }
+
+            log.info("Caught {0}, closing connection.", e.getClass().getSimpleName(), e);
+            try
+            {
+                channel.close();
+            }
+            catch (final IOException e1)
+            {
+                log.error("Error while closing connection", e1 );
+            }
+
+            synchronized (this)
+            {
+                ByteBuffer buffer;
+                while ((buffer = outbound.poll()) != null)
+                {
+                    ByteBufferPool.getDefault().release(buffer);
+                }
+            }
+        }
+    }
+
     /**
      * Shuts down the receiver.
      */
@@ -19,19 +19,30 @@ package org.apache.commons.jcs3.auxiliary.lateral.socket.tcp;
  * under the License.
  */
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.StreamCorruptedException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.apache.commons.jcs3.auxiliary.BinaryMessageCodec;
 import org.apache.commons.jcs3.auxiliary.lateral.LateralElementDescriptor;
+import org.apache.commons.jcs3.auxiliary.lateral.LateralResponse;
 import org.apache.commons.jcs3.auxiliary.lateral.socket.tcp.behavior.ITCPLateralCacheAttributes;
 import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs3.io.ByteBufferPool;
 import org.apache.commons.jcs3.log.Log;
 import org.apache.commons.jcs3.log.LogManager;
 import org.apache.commons.jcs3.utils.serialization.StandardSerializer;
@@ -39,12 +50,20 @@ import org.apache.commons.jcs3.utils.serialization.StandardSerializer;
 /**
  * This class is based on the log4j SocketAppender class. I'm using a different repair structure, so
  * it is significantly different.
+ * <p>
+ * In multiplexed mode, every request expecting a response gets a request id. Requests are written
+ * as soon as the connection is free for writing, without waiting for earlier responses. The
+ * responses are read asynchronously and complete the pending request with the same id, in
+ * whatever order they arrive.
  */
 public class LateralTCPSender
 {
     /** The logger */
     private static final Log log = LogManager.getLog( LateralTCPSender.class );
 
+    /** Largest message accepted on a lateral connection, anything above is treated as corrupt */
+    static final int MAX_MESSAGE_LENGTH = 256 * 1024 * 1024;
+
     /** Config */
     private final int socketOpenTimeOut;
     private final int socketSoTimeOut;
@@ -52,8 +71,14 @@ public class LateralTCPSender
     /** The serializer. */
     private final IElementSerializer serializer;
 
+    /** Should the binary message codec be negotiated */
+    private final boolean binaryCodec;
+
+    /** The serializer of the messages, the binary codec if negotiated */
+    private IElementSerializer wireSerializer;
+
     /** The client connection with the server. */
-    private AsynchronousSocketChannel client;
+    private volatile AsynchronousSocketChannel client;
 
     /** how many messages sent */
     private int sendCnt;
@@ -61,6 +86,19 @@ public class LateralTCPSender
     /** Use to synchronize multiple threads that may be trying to get. */
     private final Lock lock = new ReentrantLock(true);
 
+    /** Are requests pipelined and matched to responses by id */
+    private final boolean multiplexed;
+
+    /** The last request id used in multiplexed mode */
+    private final AtomicLong requestIds = new AtomicLong();
+
+    /** Requests waiting for their response in multiplexed mode, by request id */
+    private final ConcurrentMap<Long, CompletableFuture<Object>> pendingRequests =
+            new ConcurrentHashMap<>();
+
+    /** Set when the connection failed in multiplexed mode */
+    private volatile Throwable failure;
+
     /**
      * Constructor for the LateralTCPSender object.
      * <p>
@@ -88,8 +126,11 @@ public class LateralTCPSender
     {
         this.socketOpenTimeOut = lca.getOpenTimeOut();
         this.socketSoTimeOut = lca.getSocketTimeOut();
+        this.multiplexed = lca.isMultiplexed();
+        this.binaryCodec = lca.isBinaryCodec();
 
         this.serializer = serializer;
+        this.wireSerializer = serializer;
 
         final String p1 = lca.getTcpServer();
         if ( p1 == null )
@@ -128,6 +169,42 @@ public class LateralTCPSender
     {
         log.info( "Attempting connection to [{0}:{1}]", host, port );
 
+        connect( host, port );
+
+        if ( binaryCodec )
+        {
+            try
+            {
+                negotiateCodec();
+                log.info( "Using binary message codec with [{0}:{1}]", host, port );
+            }
+            catch ( final IOException e )
+            {
+                log.warn( "[{0}:{1}] does not support the binary message codec, "
+                        + "falling back to serialization -- {2}", host, port, e.getMessage() );
+                client.close();
+                connect( host, port );
+            }
+        }
+
+        if ( multiplexed )
+        {
+            // a new connection starts without the failure of the previous one
+            failure = null;
+            new ResponseReader( client ).start();
+        }
+    }
+
+    /**
+     * Opens the connection.
+     * <p>
+     * @param host
+     * @param port
+     * @throws IOException
+     */
+    private void connect( final String host, final int port )
+        throws IOException
+    {
         try
         {
             client = AsynchronousSocketChannel.open();
@@ -142,6 +219,69 @@ public class LateralTCPSender
         }
     }
 
+    /**
+     * Offers the binary message codec to the listener. A listener supporting it answers with the
+     * same handshake, an older one closes the connection.
+     * <p>
+     * @throws IOException if the listener did not accept the codec
+     */
+    private void negotiateCodec()
+        throws IOException
+    {
+        final byte[] hello = BinaryMessageCodec.hello();
+        final ByteBuffer request = ByteBuffer.allocate( 4 + hello.length );
+        request.putInt( hello.length );
+        request.put( hello );
+        request.flip();
+
+        final ByteBuffer header = ByteBuffer.allocate( 4 );
+        try
+        {
+            while ( request.hasRemaining() )
+            {
+                client.write( request ).get( socketOpenTimeOut, TimeUnit.MILLISECONDS );
+            }
+
+            readFully( header );
+            header.flip();
+            final int length = header.getInt();
+            if ( length < 0 || length > 1024 )
+            {
+                throw new IOException( "Unexpected handshake response length " + length );
+            }
+
+            final ByteBuffer response = ByteBuffer.allocate( length );
+            readFully( response );
+            if ( !BinaryMessageCodec.isHello( response.array() ) )
+            {
+                throw new IOException( "Unexpected handshake response" );
+            }
+        }
+        catch ( final InterruptedException | ExecutionException | TimeoutException e )
+        {
+            throw new IOException( "Handshake failed", e );
+        }
+
+        wireSerializer = new BinaryMessageCodec( serializer );
+    }
+
+    /**
+     * Reads until the buffer is full, waiting at most the open timeout for each read.
+     * <p>
+     * @param buffer the buffer to fill
+     */
+    private void readFully( final ByteBuffer buffer )
+        throws IOException, InterruptedException, ExecutionException, TimeoutException
+    {
+        while ( buffer.hasRemaining() )
+        {
+            if ( client.read( buffer ).get( socketOpenTimeOut, TimeUnit.MILLISECONDS ).intValue() < 0 )
+            {
+                throw new EOFException( "Connection closed during handshake" );
+            }
+        }
+    }
+
     /**
      * Sends commands to the lateral cache listener.
      * <p>
@@ -167,7 +307,7 @@ public class LateralTCPSender
         lock.lock();
         try
         {
-            serializer.serializeTo(led, client, socketSoTimeOut);
+            wireSerializer.serializeTo(led, client, socketSoTimeOut);
         }
         finally
         {
@@ -201,12 +341,30 @@ public class LateralTCPSender
         // Normal puts, etc to laterals do not have to be synchronized.
         Object response = null;
 
+        if ( multiplexed )
+        {
+            final CompletableFuture<Object> future = sendAndReceiveAsync( led );
+            try
+            {
+                return future.get( socketSoTimeOut, TimeUnit.MILLISECONDS );
+            }
+            catch ( final InterruptedException | ExecutionException | TimeoutException e )
+            {
+                future.cancel( false );
+                final String message = "No response for request " + led.getRequestId() +
+                    " from " + client.getRemoteAddress() + " SoTimeout [" + socketSoTimeOut +
+                    "] Connected [" + client.isOpen() + "]";
+                log.error( message, e );
+                throw new IOException( message, e );
+            }
+        }
+
         lock.lock();
         try
         {
             // write object to listener
             send(led);
-            response = serializer.deSerializeFrom(client, socketSoTimeOut, null);
+            response = wireSerializer.deSerializeFrom(client, socketSoTimeOut, null);
         }
         catch ( final IOException | ClassNotFoundException ioe )
         {
@@ -224,6 +382,105 @@ public class LateralTCPSender
         return response;
     }
 
+    /**
+     * Sends a request to the lateral cache listener without waiting for the response. The returned
+     * future is completed with the response. If it is cancelled, a late response is dropped.
+     * <p>
+     * In multiplexed mode the request is assigned a request id and any number of requests may be
+     * in flight. Otherwise this sends and receives synchronously.
+     * <p>
+     * @param led the request
+     * @return the future response
+     * @since 3.2
+     */
+    public <K, V> CompletableFuture<Object> sendAndReceiveAsync( final LateralElementDescriptor<K, V> led )
+    {
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        if ( !multiplexed )
+        {
+            try
+            {
+                future.complete( sendAndReceive( led ) );
+            }
+            catch ( final IOException e )
+            {
+                future.completeExceptionally( e );
+            }
+            return future;
+        }
+
+        if ( led == null )
+        {
+            future.complete( null );
+            return future;
+        }
+
+        final long requestId = requestIds.incrementAndGet();
+        led.setRequestId( requestId );
+        pendingRequests.put( Long.valueOf( requestId ), future );
+        future.whenComplete( ( response, e ) -> pendingRequests.remove( Long.valueOf( requestId ) ) );
+
+        // Checked after registering: a failure before this is seen here, a later one fails the
+        // registered request
+        final Throwable cause = failure;
+        if ( cause != null )
+        {
+            future.completeExceptionally( new IOException( "Connection failed", cause ) );
+            return future;
+        }
+
+        try
+        {
+            send( led );
+        }
+        catch ( final IOException e )
+        {
+            future.completeExceptionally( e );
+        }
+
+        return future;
+    }
+
+    /**
+     * @return the number of requests waiting for their response in multiplexed mode
+     * @since 3.2
+     */
+    public int getPendingRequestCount()
+    {
+        return pendingRequests.size();
+    }
+
+    /**
+     * Completes the pending request with the response.
+     * <p>
+     * @param response the response
+     */
+    private void complete( final LateralResponse<?> response )
+    {
+        final CompletableFuture<Object> future =
+                pendingRequests.remove( Long.valueOf( response.getRequestId() ) );
+        if ( future != null )
+        {
+            future.complete( response.getPayload() );
+        }
+        else
+        {
+            log.debug( "Dropping late response for request {0}", response::getRequestId );
+        }
+    }
+
+    /**
+     * Fails all pending requests and any further request.
+     * <p>
+     * @param cause the reason
+     */
+    private void failPendingRequests( final Throwable cause )
+    {
+        failure = cause;
+        pendingRequests.values().forEach( future -> future.completeExceptionally( cause ) );
+    }
+
     /**
      * Closes connection used by all LateralTCPSenders for this lateral connection. Dispose request
      * should come into the facade and be sent to all lateral cache services. The lateral cache
@@ -236,5 +493,133 @@ public class LateralTCPSender
     {
         log.info( "Dispose called" );
         client.close();
+        failPendingRequests( new IOException( "Sender disposed" ) );
+    }
+
+    /**
+     * Reads the length prefixed responses from the connection in multiplexed mode, one after the
+     * other, and completes the pending requests.
+     */
+    private class ResponseReader
+        implements CompletionHandler<Integer, ByteBuffer>
+    {
+        /** The connection read from */
+        private final AsynchronousSocketChannel channel;
+
+        /** The buffer for the length prefix */
+        private final ByteBuffer header = ByteBuffer.allocate( 4 );
+
+        /**
+         * @param channel the connection to read from
+         */
+        ResponseReader( final AsynchronousSocketChannel channel )
+        {
+            this.channel = channel;
+        }
+
+        /**
+         * Starts reading the next response.
+         */
+        void start()
+        {
+            header.clear();
+            channel.read( header, header, this );
+        }
+
+        /**
+         * Called when a read completed. Continues reading until the buffer is full, then reads
+         * the body of the response or handles it.
+         * <p>
+         * @param result the number of bytes read
+         * @param buffer the buffer read into
+         */
+        @Override
+        public void completed( final Integer result, final ByteBuffer buffer )
+        {
+            // the body buffer to give back if anything goes wrong
+            ByteBuffer body = buffer == header ? null : buffer;
+
+            try
+            {
+                if ( result.intValue() < 0 )
+                {
+                    throw new EOFException( "Connection closed by server" );
+                }
+
+                if ( buffer.hasRemaining() )
+                {
+                    channel.read( buffer, buffer, this );
+                    return;
+                }
+
+                if ( buffer == header )
+                {
+                    header.flip();
+                    final int length = header.getInt();
+                    if ( length < 0 || length > MAX_MESSAGE_LENGTH )
+                    {
+                        throw new StreamCorruptedException( "Invalid response length " + length );
+                    }
+
+                    body = ByteBufferPool.getDefault().acquire( length );
+                    channel.read( body, body, this );
+                    return;
+                }
+
+                buffer.flip();
+                final Object response = wireSerializer.deSerializeBuffer( buffer, null );
+                body = null;
+                ByteBufferPool.getDefault().release( buffer );
+
+                if ( !( response instanceof LateralResponse ) )
+                {
+                    throw new IOException( "Unexpected response " + response
+                            + ", does the server support multiplexed requests?" );
+                }
+                complete( (LateralResponse<?>) response );
+            }
+            catch ( final IOException | ClassNotFoundException | RuntimeException e )
+            {
+                // runtime exceptions would otherwise end the reader silently
+                failed( e, body );
+                return;
+            }
+
+            start();
+        }
+
+        /**
+         * Called when a read failed. Fails all pending requests and gives back the body buffer.
+         * <p>
+         * @param exc the reason
+         * @param buffer the buffer read into, may be null
+         */
+        @Override
+        public void failed( final Throwable exc, final ByteBuffer buffer )
+        {
+            if ( buffer != header )
+            {
+                ByteBufferPool.getDefault().release( buffer );
+            }
+
+            if ( channel.isOpen() )
+            {
+                log.error( "Failure reading responses, closing connection", exc );
+                try
+                {
+                    channel.close();
+                }
+                catch ( final IOException e )
+                {
+                    log.debug( "Problem closing connection", e );
+                }
+            }
+
+            // a replaced connection must not fail the requests of the new one
+            if ( channel == client )
+            {
+                failPendingRequests( exc );
+            }
+        }
     }
 }
@@ -23,10 +23,18 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.jcs3.auxiliary.lateral.LateralCommand;
 import org.apache.commons.jcs3.auxiliary.lateral.LateralElementDescriptor;
@@ -39,6 +47,7 @@ import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
 import org.apache.commons.jcs3.log.Log;
 import org.apache.commons.jcs3.log.LogManager;
 import org.apache.commons.jcs3.utils.serialization.StandardSerializer;
+import org.apache.commons.jcs3.utils.threadpool.DaemonThreadFactory;
 
 /**
  * A lateral cache service implementation. Does not implement getGroupKey
@@ -54,6 +63,7 @@ public class LateralTCPService<K, V>
     private final boolean allowPut;
     private final boolean allowGet;
     private final boolean issueRemoveOnPut;
+    private final boolean invalidationOnly;
 
     /** Sends to another lateral. */
     private final LateralTCPSender sender;
@@ -61,6 +71,24 @@ public class LateralTCPService<K, V>
     /** use the vmid by default */
     private long listenerId = CacheInfo.listenerId;
 
+    /** Maximum number of commands in a batch, or 0 if not batching */
+    private final int batchSize;
+
+    /** Maximum time a command waits for its batch */
+    private final long batchIntervalMillis;
+
+    /** The updates and removes waiting to be sent, by region and key (guarded by itself) */
+    private final Map<Map.Entry<String, K>, LateralElementDescriptor<K, V>> batch;
+
+    /** Sends incomplete batches, or null if not batching */
+    private final ScheduledExecutorService batchScheduler;
+
+    /** The scheduled send of the current batch */
+    private ScheduledFuture<?> batchFuture;
+
+    /** The failure of the last scheduled send, reported with the next command */
+    private IOException batchFailure;
+
     /**
      * Constructor for the LateralTCPService object
      * <p>
@@ -90,6 +118,21 @@ public class LateralTCPService<K, V>
         this.allowGet = lca.isAllowGet();
         this.allowPut = lca.isAllowPut();
         this.issueRemoveOnPut = lca.isIssueRemoveOnPut();
+        this.invalidationOnly = lca.isInvalidationOnly();
+        this.batchSize = lca.getBatchSize() > 1 ? lca.getBatchSize() : 0;
+        this.batchIntervalMillis = lca.getBatchIntervalMillis();
+
+        if ( batchSize > 0 )
+        {
+            this.batch = new LinkedHashMap<>();
+            this.batchScheduler = Executors.newSingleThreadScheduledExecutor(
+                    new DaemonThreadFactory( "JCS-LateralTCPService-Batch-" ) );
+        }
+        else
+        {
+            this.batch = null;
+            this.batchScheduler = null;
+        }
 
         try
         {
@@ -103,6 +146,10 @@ public class LateralTCPService<K, V>
             // This gets thrown over and over in recovery mode.
             // The stack trace isn't useful here.
             log.error( "Could not create sender to [{0}] -- {1}", lca::getTcpServer, e::getMessage);
+            if ( batchScheduler != null )
+            {
+                batchScheduler.shutdown();
+            }
             throw e;
         }
     }
@@ -138,12 +185,24 @@ public class LateralTCPService<K, V>
             return;
         }
 
+        // send only the key and version, the value is fetched on demand
+        if ( this.invalidationOnly )
+        {
+            final CacheElement<K, V> ce = new CacheElement<>( item.getCacheName(), item.getKey(), null );
+            final LateralElementDescriptor<K, V> led =
+                    new LateralElementDescriptor<>(ce, LateralCommand.INVALIDATE, requesterId);
+            led.valHashCode = item.getVal() != null ? item.getVal().hashCode() : -1;
+            led.version = item.getElementAttributes().getCreateTime();
+            send( led );
+            return;
+        }
+
         // if we shouldn't remove on put, then put
         if ( !this.issueRemoveOnPut )
         {
             final LateralElementDescriptor<K, V> led =
                     new LateralElementDescriptor<>(item, LateralCommand.UPDATE, requesterId);
-            sender.send( led );
+            send( led );
         }
         // else issue a remove with the hashcode for remove check on
         // on the other end, this will be a server config option
@@ -156,7 +215,7 @@ public class LateralTCPService<K, V>
             final LateralElementDescriptor<K, V> led =
                     new LateralElementDescriptor<>(ce, LateralCommand.REMOVE, requesterId);
             led.valHashCode = item.getVal().hashCode();
-            sender.send( led );
+            send( led );
         }
     }
 
@@ -184,7 +243,117 @@ public class LateralTCPService<K, V>
         final CacheElement<K, V> ce = new CacheElement<>( cacheName, key, null );
         final LateralElementDescriptor<K, V> led =
                 new LateralElementDescriptor<>(ce, LateralCommand.REMOVE, requesterId);
-        sender.send( led );
+        send( led );
+    }
+
+    /**
+     * Sends an update, remove or invalidation, or adds it to the current batch. The command replaces a command
+     * for the same key waiting in the batch. A full batch is sent right away, an incomplete one
+     * after the batch interval.
+     * <p>
+     * @param led the update or remove
+     * @throws IOException if sending this or the last scheduled batch failed
+     */
+    private void send( final LateralElementDescriptor<K, V> led )
+        throws IOException
+    {
+        if ( batch == null )
+        {
+            sender.send( led );
+            return;
+        }
+
+        synchronized ( batch )
+        {
+            checkBatchFailure();
+
+            final Map.Entry<String, K> id = new AbstractMap.SimpleImmutableEntry<>(
+                    led.getPayload().getCacheName(), led.getPayload().getKey() );
+            // keep the batch in the order of the last command for each key
+            batch.remove( id );
+            batch.put( id, led );
+
+            if ( batch.size() >= batchSize )
+            {
+                sendBatch();
+            }
+            else if ( batchFuture == null )
+            {
+                batchFuture = batchScheduler.schedule( this::sendScheduledBatch,
+                        batchIntervalMillis, TimeUnit.MILLISECONDS );
+            }
+        }
+    }
+
+    /**
+     * Sends the commands waiting in the batch, as a single command if there is only one.
+     * (guarded by the batch)
+     * <p>
+     * @throws IOException
+     */
+    private void sendBatch()
+        throws IOException
+    {
+        if ( batchFuture != null )
+        {
+            batchFuture.cancel( false );
+            batchFuture = null;
+        }
+
+        if ( batch.isEmpty() )
+        {
+            return;
+        }
+
+        final List<LateralElementDescriptor<K, V>> commands = new ArrayList<>( batch.values() );
+        batch.clear();
+
+        if ( commands.size() == 1 )
+        {
+            sender.send( commands.get( 0 ) );
+        }
+        else
+        {
+            log.debug( "Sending batch of {0} commands", commands::size );
+            sender.send( new LateralElementDescriptor<>( commands, getListenerId() ) );
+        }
+    }
+
+    /**
+     * Sends the batch after the batch interval. A failure is reported with the next command.
+     */
+    private void sendScheduledBatch()
+    {
+        synchronized ( batch )
+        {
+            batchFuture = null;
+            try
+            {
+                sendBatch();
+            }
+            catch ( final IOException e )
+            {
+                log.error( "Sending batch failed", e );
+                batchFailure = e;
+            }
+        }
+    }
+
+    /**
+     * Throws the failure of the last scheduled batch, if any.
+     * (guarded by the batch)
+     * <p>
+     * @throws IOException
+     */
+    private void checkBatchFailure()
+        throws IOException
+    {
+        if ( batchFailure != null )
+        {
+            final IOException e = batchFailure;
+            batchFailure = null;
+            throw new IOException( "Sending batch failed", e );
+        }
     }
 
     /**
@@ -209,6 +378,22 @@ public class LateralTCPService<K, V>
     public void dispose( final String cacheName )
         throws IOException
     {
+        if ( batch != null )
+        {
+            synchronized ( batch )
+            {
+                try
+                {
+                    sendBatch();
+                }
+                catch ( final IOException e )
+                {
+                    log.warn( "Could not send last batch", e );
+                }
+            }
+            batchScheduler.shutdownNow();
+        }
+
         sender.dispose();
     }
 
@@ -320,9 +505,8 @@ public class LateralTCPService<K, V>
     }
 
     /**
-     * This issues a separate get for each item.
-     * <p>
-     * TODO We should change this. It should issue one request.
+     * If allow get is true, we will issue one request carrying the whole key set. The listener
+     * answers with a single map.
      * <p>
      * @param cacheName
      * @param keys
@@ -332,24 +516,27 @@ public class LateralTCPService<K, V>
      * @throws IOException
      */
     @Override
+    @SuppressWarnings("unchecked") // Need to cast from Object
     public Map<K, ICacheElement<K, V>> getMultiple( final String cacheName, final Set<K> keys, final long requesterId )
         throws IOException
     {
-        final Map<K, ICacheElement<K, V>> elements = new HashMap<>();
-
-        if ( keys != null && !keys.isEmpty() )
+        // if get is not allowed return
+        if ( !this.allowGet || keys == null || keys.isEmpty() )
         {
-            for (final K key : keys)
-            {
-                final ICacheElement<K, V> element = get( cacheName, key, requesterId );
+            return Collections.emptyMap();
+        }
 
-                if ( element != null )
-                {
-                    elements.put( key, element );
-                }
-            }
+        final CacheElement<HashSet<K>, String> ce = new CacheElement<>( cacheName, new HashSet<>( keys ), null );
+        final LateralElementDescriptor<HashSet<K>, String> led =
+                new LateralElementDescriptor<>(ce, LateralCommand.GET_MULTIPLE);
+        // led.requesterId = requesterId; // later
+
+        final Object response = sender.sendAndReceive( led );
+        if ( response != null )
+        {
+            return (Map<K, ICacheElement<K, V>>) response;
         }
-        return elements;
+        return Collections.emptyMap();
     }
 
     /**
@@ -398,7 +585,21 @@ public class LateralTCPService<K, V>
         final CacheElement<String, String> ce = new CacheElement<>( cacheName, "ALL", null );
         final LateralElementDescriptor<String, String> led =
                 new LateralElementDescriptor<>(ce, LateralCommand.REMOVEALL, requesterId);
-        sender.send( led );
+
+        if ( batch == null )
+        {
+            sender.send( led );
+            return;
+        }
+
+        synchronized ( batch )
+        {
+            checkBatchFailure();
+
+            // the waiting commands for the region are superseded
+            batch.keySet().removeIf( id -> cacheName.equals( id.getKey() ) );
+            sender.send( led );
+        }
     }
 
     /**
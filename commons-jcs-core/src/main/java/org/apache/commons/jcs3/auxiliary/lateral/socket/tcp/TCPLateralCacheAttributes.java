@@ -60,6 +60,15 @@ public class TCPLateralCacheAttributes
     /** default - Only block for 2 seconds before timing out on startup.*/
     private static final int DEFAULT_OPEN_TIMEOUT = 2000;
 
+    /** default */
+    private static final int DEFAULT_LISTENER_WORKER_THREADS = 4;
+
+    /** default */
+    private static final int DEFAULT_LISTENER_WORKER_QUEUE_SIZE = 1000;
+
+    /** default - Wait at most 10 milliseconds for a batch to fill up.*/
+    private static final long DEFAULT_BATCH_INTERVAL_MILLIS = 10;
+
     /** TCP -------------------------------------------- */
     private String tcpServers = "";
 
@@ -102,6 +111,27 @@ public class TCPLateralCacheAttributes
     /** Only block for openTimeOut seconds before timing out on startup. */
     private int openTimeOut = DEFAULT_OPEN_TIMEOUT;
 
+    /** Pipeline get requests on the connection, matching responses by request id */
+    private boolean multiplexed;
+
+    /** Number of threads the listener uses to process the received commands */
+    private int listenerWorkerThreads = DEFAULT_LISTENER_WORKER_THREADS;
+
+    /** Maximum number of received commands waiting for each listener worker */
+    private int listenerWorkerQueueSize = DEFAULT_LISTENER_WORKER_QUEUE_SIZE;
+
+    /** Maximum number of updates and removes sent in one batch, 0 to send them one by one */
+    private int batchSize;
+
+    /** Maximum time an update or remove waits for its batch to fill up */
+    private long batchIntervalMillis = DEFAULT_BATCH_INTERVAL_MILLIS;
+
+    /** Send invalidations instead of the values */
+    private boolean invalidationOnly;
+
+    /** Negotiate the binary message codec */
+    private boolean binaryCodec;
+
     /**
      * Sets the tcpServer attribute of the ILateralCacheAttributes object
      * <p>
@@ -420,6 +450,132 @@ public class TCPLateralCacheAttributes
         return openTimeOut;
     }
 
+    /**
+     * @param multiplexed whether get requests are pipelined on the connection
+     */
+    @Override
+    public void setMultiplexed( final boolean multiplexed )
+    {
+        this.multiplexed = multiplexed;
+    }
+
+    /**
+     * @return whether get requests are pipelined on the connection
+     */
+    @Override
+    public boolean isMultiplexed()
+    {
+        return multiplexed;
+    }
+
+    /**
+     * @param listenerWorkerThreads the number of threads processing the received commands
+     */
+    @Override
+    public void setListenerWorkerThreads( final int listenerWorkerThreads )
+    {
+        this.listenerWorkerThreads = listenerWorkerThreads;
+    }
+
+    /**
+     * @return the number of threads processing the received commands
+     */
+    @Override
+    public int getListenerWorkerThreads()
+    {
+        return listenerWorkerThreads;
+    }
+
+    /**
+     * @param listenerWorkerQueueSize the maximum number of commands waiting for a worker
+     */
+    @Override
+    public void setListenerWorkerQueueSize( final int listenerWorkerQueueSize )
+    {
+        this.listenerWorkerQueueSize = listenerWorkerQueueSize;
+    }
+
+    /**
+     * @return the maximum number of commands waiting for a worker
+     */
+    @Override
+    public int getListenerWorkerQueueSize()
+    {
+        return listenerWorkerQueueSize;
+    }
+
+    /**
+     * @param batchSize the maximum number of updates and removes sent in one batch
+     */
+    @Override
+    public void setBatchSize( final int batchSize )
+    {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the maximum number of updates and removes sent in one batch
+     */
+    @Override
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    /**
+     * @param batchIntervalMillis the maximum time an update or remove waits for its batch
+     */
+    @Override
+    public void setBatchIntervalMillis( final long batchIntervalMillis )
+    {
+        this.batchIntervalMillis = batchIntervalMillis;
+    }
+
+    /**
+     * @return the maximum time an update or remove waits for its batch
+     */
+    @Override
+    public long getBatchIntervalMillis()
+    {
+        return batchIntervalMillis;
+    }
+
+    /**
+     * @param invalidationOnly whether puts are sent as invalidations
+     */
+    @Override
+    public void setInvalidationOnly( final boolean invalidationOnly )
+    {
+        this.invalidationOnly = invalidationOnly;
+    }
+
+    /**
+     * @return whether puts are sent as invalidations
+     */
+    @Override
+    public boolean isInvalidationOnly()
+    {
+        return invalidationOnly;
+    }
+
+    /**
+     * @param binaryCodec whether the binary message codec is negotiated
+     */
+    @Override
+    public void setBinaryCodec( final boolean binaryCodec )
+    {
+        this.binaryCodec = binaryCodec;
+    }
+
+    /**
+     * @return whether the binary message codec is negotiated
+     */
+    @Override
+    public boolean isBinaryCodec()
+    {
+        return binaryCodec;
+    }
+
     /**
      * Used to key the instance TODO create another method for this and use toString for debugging
      * only.
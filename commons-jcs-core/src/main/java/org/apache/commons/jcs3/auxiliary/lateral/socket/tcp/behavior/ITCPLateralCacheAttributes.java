@@ -244,4 +244,107 @@ public interface ITCPLateralCacheAttributes
      * @return the openTimeOut
      */
     int getOpenTimeOut();
+
+    /**
+     * If true, many get requests can be in flight on the connection to a server at the same
+     * time. Each request carries an id and the responses are matched to the requests by this id,
+     * in whatever order they arrive. Otherwise only one get request is sent at a time. The server
+     * must run a version that understands request ids.
+     * <p>
+     * @param multiplexed whether get requests are pipelined on the connection
+     */
+    void setMultiplexed( boolean multiplexed );
+
+    /**
+     * @return whether get requests are pipelined on the connection
+     */
+    boolean isMultiplexed();
+
+    /**
+     * The listener reads the commands of all connections on one thread and hands them over to
+     * this number of worker threads. Commands for the same key are always processed by the same
+     * worker, in the order they were received. If 0, the commands are processed on the reading
+     * thread.
+     * <p>
+     * @param listenerWorkerThreads the number of threads processing the received commands
+     */
+    void setListenerWorkerThreads( int listenerWorkerThreads );
+
+    /**
+     * @return the number of threads processing the received commands
+     */
+    int getListenerWorkerThreads();
+
+    /**
+     * The maximum number of received commands waiting for each listener worker. A connection
+     * whose command fills the backlog of a worker stops reading until the worker has processed
+     * half of it, so a fast peer is slowed down through TCP flow control instead of filling the
+     * heap.
+     * <p>
+     * @param listenerWorkerQueueSize the maximum number of commands waiting for a worker
+     * @since 3.2
+     */
+    void setListenerWorkerQueueSize( int listenerWorkerQueueSize );
+
+    /**
+     * @return the maximum number of commands waiting for a worker
+     * @since 3.2
+     */
+    int getListenerWorkerQueueSize();
+
+    /**
+     * If greater than 1, updates and removes are collected and sent in batches of up to this
+     * number of commands. An update or remove replaces a command for the same key waiting in the
+     * batch. The receiver applies the commands of a batch in order.
+     * <p>
+     * @param batchSize the maximum number of updates and removes sent in one batch
+     */
+    void setBatchSize( int batchSize );
+
+    /**
+     * @return the maximum number of updates and removes sent in one batch
+     */
+    int getBatchSize();
+
+    /**
+     * An incomplete batch is sent after this time.
+     * <p>
+     * @param batchIntervalMillis the maximum time an update or remove waits for its batch
+     */
+    void setBatchIntervalMillis( long batchIntervalMillis );
+
+    /**
+     * @return the maximum time an update or remove waits for its batch
+     */
+    long getBatchIntervalMillis();
+
+    /**
+     * If true, a put is sent as an invalidation carrying the key, the hash code of the value and
+     * the create time of the element as its version, instead of the value. The receiver drops its
+     * copy of the element unless it has the same hash code or is newer. The next get for the key
+     * fetches the value from the laterals, if AllowGet is set.
+     * <p>
+     * @param invalidationOnly whether puts are sent as invalidations
+     */
+    void setInvalidationOnly( boolean invalidationOnly );
+
+    /**
+     * @return whether puts are sent as invalidations
+     */
+    boolean isInvalidationOnly();
+
+    /**
+     * If true, the sender offers the compact binary message codec when connecting. If the
+     * listener accepts, the messages are written in the binary encoding, with only the keys and
+     * values written by the configured serializer. Otherwise the whole messages are written by
+     * the serializer as before.
+     * <p>
+     * @param binaryCodec whether the binary message codec is negotiated
+     */
+    void setBinaryCodec( boolean binaryCodec );
+
+    /**
+     * @return whether the binary message codec is negotiated
+     */
+    boolean isBinaryCodec();
 }
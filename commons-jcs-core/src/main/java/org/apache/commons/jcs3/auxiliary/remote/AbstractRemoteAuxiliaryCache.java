@@ -196,28 +196,40 @@ public abstract class AbstractRemoteAuxiliaryCache<K, V>
      */
     public ICacheElement<K, V> getUsingPool( final K key )
         throws IOException
+    {
+        final ICacheElement<K, V> ice =
+                callUsingPool( () -> getRemoteCacheService().get( cacheName, key, getListenerId() ) );
+
+        if ( ice == null )
+        {
+            log.debug( "nothing found in remote cache" );
+        }
+        else
+        {
+            log.debug( "found item in remote cache" );
+        }
+        return ice;
+    }
+
+    /**
+     * Runs a request to the remote cache in the pool and waits at most GetTimeoutMillis for it.
+     * <p>
+     * @param command the request
+     * @return the result of the request
+     * @throws IOException if the request failed or timed out
+     */
+    private <T> T callUsingPool( final Callable<T> command )
+        throws IOException
     {
         final int timeout = getRemoteCacheAttributes().getGetTimeoutMillis();
 
         try
         {
-            final Callable<ICacheElement<K, V>> command = () -> getRemoteCacheService().get( cacheName, key, getListenerId() );
-
             // execute using the pool
-            final Future<ICacheElement<K, V>> future = pool.submit(command);
+            final Future<T> future = pool.submit(command);
 
             // used timed get in order to timeout
-            final ICacheElement<K, V> ice = future.get(timeout, TimeUnit.MILLISECONDS);
-
-            if ( ice == null )
-            {
-                log.debug( "nothing found in remote cache" );
-            }
-            else
-            {
-                log.debug( "found item in remote cache" );
-            }
-            return ice;
+            return future.get(timeout, TimeUnit.MILLISECONDS);
         }
         catch ( final TimeoutException te )
         {
@@ -237,6 +249,48 @@ public abstract class AbstractRemoteAuxiliaryCache<K, V>
         }
     }
 
+    /**
+     * Calls get multiple on the server, so that all keys are fetched in one round trip. Each
+     * entry in the result is unwrapped.
+     * <p>
+     * Uses the pool to timeout if a value is set for GetTimeoutMillis.
+     * <p>
+     * @param keys
+     * @return a map of K key to ICacheElement&lt;K, V&gt; element, or an empty map if there is no
+     *         data in cache for any of these keys
+     * @throws IOException
+     */
+    @Override
+    protected Map<K, ICacheElement<K, V>> processGetMultiple( final Set<K> keys )
+        throws IOException
+    {
+        if ( keys == null || keys.isEmpty() )
+        {
+            return new HashMap<>();
+        }
+
+        try
+        {
+            final Map<K, ICacheElement<K, V>> rawResults;
+            if ( usePoolForGet )
+            {
+                rawResults = callUsingPool( () -> getRemoteCacheService().getMultiple( cacheName, keys, getListenerId() ) );
+            }
+            else
+            {
+                rawResults = getRemoteCacheService().getMultiple( cacheName, keys, getListenerId() );
+            }
+
+            return unwrap( rawResults );
+        }
+        catch ( final IOException | ClassNotFoundException ex )
+        {
+            handleException( ex, "Failed to getMultiple " + keys + " from [" + cacheName + "]",
+                             ICacheEventLogger.GETMULTIPLE_EVENT );
+        }
+        return new HashMap<>();
+    }
+
     /**
      * Calls get matching on the server. Each entry in the result is unwrapped.
      * <p>
@@ -248,42 +302,54 @@ public abstract class AbstractRemoteAuxiliaryCache<K, V>
     public Map<K, ICacheElement<K, V>> processGetMatching( final String pattern )
         throws IOException
     {
-        final Map<K, ICacheElement<K, V>> results = new HashMap<>();
         try
         {
-            final Map<K, ICacheElement<K, V>> rawResults = getRemoteCacheService().getMatching( cacheName, pattern, getListenerId() );
+            return unwrap( getRemoteCacheService().getMatching( cacheName, pattern, getListenerId() ) );
+        }
+        catch ( final IOException | ClassNotFoundException ex )
+        {
+            handleException( ex, "Failed to getMatching [" + pattern + "] from [" + cacheName + "]",
+                             ICacheEventLogger.GET_EVENT );
+        }
+        return new HashMap<>();
+    }
 
-            // Eventually the instance of will not be necessary.
-            if ( rawResults != null )
+    /**
+     * Unwraps the serialized elements of a result map from the server.
+     * <p>
+     * @param rawResults the map returned by the server, may be null
+     * @return a new map of the unwrapped elements
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private Map<K, ICacheElement<K, V>> unwrap( final Map<K, ICacheElement<K, V>> rawResults )
+        throws IOException, ClassNotFoundException
+    {
+        final Map<K, ICacheElement<K, V>> results = new HashMap<>();
+
+        // Eventually the instance of will not be necessary.
+        if ( rawResults != null )
+        {
+            for (final Map.Entry<K, ICacheElement<K, V>> entry : rawResults.entrySet())
             {
-                for (final Map.Entry<K, ICacheElement<K, V>> entry : rawResults.entrySet())
+                ICacheElement<K, V> unwrappedResult = entry.getValue();
+
+                // Never try to deserialize if you are a cluster client. Cluster
+                // clients are merely intra-remote cache communicators. Remote caches are assumed
+                // to have no ability to deserialize the objects.
+                if ( unwrappedResult instanceof ICacheElementSerialized
+                        && this.getRemoteCacheAttributes().getRemoteType() != RemoteType.CLUSTER )
+                {
+                    unwrappedResult = SerializationConversionUtil
+                        .getDeSerializedCacheElement( (ICacheElementSerialized<K, V>) unwrappedResult,
+                                super.getElementSerializer() );
+                }
+                if ( unwrappedResult != null )
                 {
-                    ICacheElement<K, V> unwrappedResult = null;
-                    if ( entry.getValue() instanceof ICacheElementSerialized )
-                    {
-                        // Never try to deserialize if you are a cluster client. Cluster
-                        // clients are merely intra-remote cache communicators. Remote caches are assumed
-                        // to have no ability to deserialize the objects.
-                        if ( this.getRemoteCacheAttributes().getRemoteType() != RemoteType.CLUSTER )
-                        {
-                            unwrappedResult = SerializationConversionUtil
-                                .getDeSerializedCacheElement( (ICacheElementSerialized<K, V>) entry.getValue(),
-                                        super.getElementSerializer() );
-                        }
-                    }
-                    else
-                    {
-                        unwrappedResult = entry.getValue();
-                    }
                     results.put( entry.getKey(), unwrappedResult );
                 }
             }
         }
-        catch ( final IOException | ClassNotFoundException ex )
-        {
-            handleException( ex, "Failed to getMatching [" + pattern + "] from [" + cacheName + "]",
-                             ICacheEventLogger.GET_EVENT );
-        }
         return results;
     }
 
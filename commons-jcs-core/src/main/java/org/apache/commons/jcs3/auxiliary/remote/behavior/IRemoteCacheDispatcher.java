@@ -20,6 +20,7 @@ package org.apache.commons.jcs3.auxiliary.remote.behavior;
  */
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.commons.jcs3.auxiliary.remote.value.RemoteCacheRequest;
 import org.apache.commons.jcs3.auxiliary.remote.value.RemoteCacheResponse;
@@ -43,4 +44,30 @@ public interface IRemoteCacheDispatcher
     <K, V, T>
         RemoteCacheResponse<T> dispatchRequest( RemoteCacheRequest<K, V> remoteCacheRequest )
             throws IOException;
+
+    /**
+     * Sends the request without waiting for the response. The future completes with the response
+     * or exceptionally with the IOException the synchronous call would have thrown.
+     * <p>
+     * The default implementation dispatches synchronously on the calling thread. Dispatchers that
+     * can send requests in the background should override it.
+     * <p>
+     * @param remoteCacheRequest
+     * @return a future for the RemoteCacheResponse
+     * @since 3.2
+     */
+    default <K, V, T>
+        CompletableFuture<RemoteCacheResponse<T>> dispatchRequestAsync( final RemoteCacheRequest<K, V> remoteCacheRequest )
+    {
+        final CompletableFuture<RemoteCacheResponse<T>> future = new CompletableFuture<>();
+        try
+        {
+            future.complete( dispatchRequest( remoteCacheRequest ) );
+        }
+        catch ( final IOException e )
+        {
+            future.completeExceptionally( e );
+        }
+        return future;
+    }
 }
@@ -23,6 +23,7 @@ import java.io.IOException;
 
 import org.apache.commons.jcs3.auxiliary.remote.AbstractRemoteAuxiliaryCache;
 import org.apache.commons.jcs3.auxiliary.remote.behavior.IRemoteCacheListener;
+import org.apache.commons.jcs3.auxiliary.remote.http.client.behavior.IRemoteHttpCacheClient;
 import org.apache.commons.jcs3.engine.ZombieCacheServiceNonLocal;
 import org.apache.commons.jcs3.engine.behavior.ICacheServiceNonLocal;
 import org.apache.commons.jcs3.log.Log;
@@ -63,6 +64,24 @@ public class RemoteHttpCache<K, V>
         this.monitor = monitor;
     }
 
+    /**
+     * Disposes the remote cache and releases the client.
+     * <p>
+     * @throws IOException
+     */
+    @Override
+    protected void processDispose()
+        throws IOException
+    {
+        super.processDispose();
+
+        final ICacheServiceNonLocal<K, V> remote = getRemoteCacheService();
+        if ( remote instanceof IRemoteHttpCacheClient )
+        {
+            remote.release();
+        }
+    }
+
     /**
      * Nothing right now. This should setup a zombie and initiate recovery.
      * <p>
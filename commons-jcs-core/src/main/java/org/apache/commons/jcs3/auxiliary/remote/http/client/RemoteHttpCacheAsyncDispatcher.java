@@ -0,0 +1,171 @@
+package org.apache.commons.jcs3.auxiliary.remote.http.client;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.jcs3.auxiliary.remote.value.RemoteCacheRequest;
+import org.apache.commons.jcs3.auxiliary.remote.value.RemoteCacheResponse;
+import org.apache.commons.jcs3.log.Log;
+import org.apache.commons.jcs3.log.LogManager;
+import org.apache.commons.jcs3.utils.threadpool.DaemonThreadFactory;
+
+/**
+ * A dispatcher that sends requests in the background, so that callers do not have to hold a thread
+ * for the round trip.
+ * <p>
+ * Requests run on a small pool of daemon threads sized to the connection pool of the http client,
+ * so that every running request finds a pooled, kept alive connection. The number of requests
+ * that are running or waiting for a thread is bounded by MaxInFlightRequests. Requests beyond the
+ * limit fail immediately instead of queuing without bound behind a slow server.
+ */
+public class RemoteHttpCacheAsyncDispatcher
+    extends RemoteHttpCacheDispatcher
+{
+    /** The Logger. */
+    private static final Log log = LogManager.getLog( RemoteHttpCacheAsyncDispatcher.class );
+
+    /** How long idle threads are kept */
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    /** Runs the requests */
+    private final ExecutorService executor;
+
+    /** Permits for the requests in flight, null if unbounded */
+    private final Semaphore inFlight;
+
+    /**
+     * @param remoteHttpCacheAttributes
+     */
+    public RemoteHttpCacheAsyncDispatcher( final RemoteHttpCacheAttributes remoteHttpCacheAttributes )
+    {
+        super( remoteHttpCacheAttributes );
+
+        final int maxInFlightRequests = remoteHttpCacheAttributes.getMaxInFlightRequests();
+        int threads = remoteHttpCacheAttributes.getMaxConnectionsPerHost();
+        if ( threads <= 0 || maxInFlightRequests > 0 && maxInFlightRequests < threads )
+        {
+            threads = Math.max( 1, maxInFlightRequests );
+        }
+
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor( threads, threads,
+                THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new DaemonThreadFactory( "JCS-RemoteHttpCacheAsyncDispatcher-" ) );
+        pool.allowCoreThreadTimeOut( true );
+        this.executor = pool;
+        this.inFlight = maxInFlightRequests > 0 ? new Semaphore( maxInFlightRequests ) : null;
+    }
+
+    /**
+     * Sends the request on a pool thread.
+     * <p>
+     * @param remoteCacheRequest
+     * @return a future for the RemoteCacheResponse, failed with an IOException if too many
+     *         requests are in flight
+     */
+    @Override
+    public <K, V, T>
+        CompletableFuture<RemoteCacheResponse<T>> dispatchRequestAsync( final RemoteCacheRequest<K, V> remoteCacheRequest )
+    {
+        final CompletableFuture<RemoteCacheResponse<T>> future = new CompletableFuture<>();
+
+        if ( inFlight != null && !inFlight.tryAcquire() )
+        {
+            log.warn( "Too many requests in flight to {0}, rejecting {1}",
+                    getRemoteHttpCacheAttributes().getUrl(), remoteCacheRequest.getRequestType() );
+            future.completeExceptionally( new IOException( "Too many requests in flight, limit is "
+                    + getRemoteHttpCacheAttributes().getMaxInFlightRequests() ) );
+            return future;
+        }
+
+        try
+        {
+            executor.execute( () -> {
+                // the permit is returned before completing, so it is free once the caller sees the result
+                try
+                {
+                    final RemoteCacheResponse<T> response;
+                    try
+                    {
+                        response = dispatchRequest( remoteCacheRequest );
+                    }
+                    finally
+                    {
+                        releasePermit();
+                    }
+                    future.complete( response );
+                }
+                catch ( final IOException | RuntimeException e )
+                {
+                    future.completeExceptionally( e );
+                }
+                catch ( final Error e )
+                {
+                    future.completeExceptionally( e );
+                    throw e;
+                }
+            } );
+        }
+        catch ( final RejectedExecutionException e )
+        {
+            releasePermit();
+            future.completeExceptionally( new IOException( "Dispatcher is shut down.", e ) );
+        }
+
+        return future;
+    }
+
+    /**
+     * @return the number of requests running or waiting for a thread, -1 if unbounded
+     */
+    public int getInFlightRequests()
+    {
+        if ( inFlight == null )
+        {
+            return -1;
+        }
+        return getRemoteHttpCacheAttributes().getMaxInFlightRequests() - inFlight.availablePermits();
+    }
+
+    /**
+     * Stops the threads. Requests already submitted are still sent; new ones fail.
+     */
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+
+    /** Returns a permit taken in dispatchRequestAsync. */
+    private void releasePermit()
+    {
+        if ( inFlight != null )
+        {
+            inFlight.release();
+        }
+    }
+}
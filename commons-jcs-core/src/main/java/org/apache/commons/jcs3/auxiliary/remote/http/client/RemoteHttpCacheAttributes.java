@@ -61,6 +61,12 @@ public class RemoteHttpCacheAttributes
     /** This allows users to inject their own client implementation. */
     private String remoteHttpClientClassName = DEFAULT_REMOTE_HTTP_CLIENT_CLASS_NAME;
 
+    /** Send requests in the compact binary encoding */
+    private boolean binaryCodec;
+
+    /** The max number of asynchronous requests running or waiting for a connection */
+    private int maxInFlightRequests = 1000;
+
     /**
      * @param maxConnectionsPerHost the maxConnectionsPerHost to set
      */
@@ -205,6 +211,46 @@ public class RemoteHttpCacheAttributes
         return remoteHttpClientClassName;
     }
 
+    /**
+     * Should requests be sent in the compact binary encoding? Servers not understanding it are
+     * detected on the first request, which is then repeated with Java serialization.
+     * <p>
+     * @param binaryCodec the binaryCodec to set
+     * @since 3.2
+     */
+    public void setBinaryCodec( final boolean binaryCodec )
+    {
+        this.binaryCodec = binaryCodec;
+    }
+
+    /**
+     * @return the binaryCodec
+     * @since 3.2
+     */
+    public boolean isBinaryCodec()
+    {
+        return binaryCodec;
+    }
+
+    /**
+     * @param maxInFlightRequests the maxInFlightRequests to set, 0 or less to send asynchronous
+     *            requests on the calling thread
+     * @since 3.2
+     */
+    public void setMaxInFlightRequests( final int maxInFlightRequests )
+    {
+        this.maxInFlightRequests = maxInFlightRequests;
+    }
+
+    /**
+     * @return the maxInFlightRequests
+     * @since 3.2
+     */
+    public int getMaxInFlightRequests()
+    {
+        return maxInFlightRequests;
+    }
+
     /**
      * @return String details
      */
@@ -222,6 +268,8 @@ public class RemoteHttpCacheAttributes
         buf.append( "\n includeRequestTypeasAsParameter = [" + isIncludeRequestTypeasAsParameter() + "]" );
         buf.append( "\n url = [" + getUrl() + "]" );
         buf.append( "\n remoteHttpClientClassName = [" + getRemoteHttpClientClassName() + "]" );
+        buf.append( "\n binaryCodec = [" + isBinaryCodec() + "]" );
+        buf.append( "\n maxInFlightRequests = [" + getMaxInFlightRequests() + "]" );
         buf.append( super.toString() );
         return buf.toString();
     }
@@ -24,6 +24,7 @@ import java.io.Serializable;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.commons.jcs3.auxiliary.remote.behavior.IRemoteCacheDispatcher;
 import org.apache.commons.jcs3.auxiliary.remote.http.client.behavior.IRemoteHttpCacheClient;
@@ -71,12 +72,21 @@ public class RemoteHttpCacheClient<K, V>
      * The provides an extension point. If you want to extend this and use a special dispatcher,
      * here is the place to do it.
      * <p>
+     * Asynchronous requests are sent in the background unless MaxInFlightRequests is 0 or less.
+     * <p>
      * @param attributes
      */
     @Override
     public void initialize( final RemoteHttpCacheAttributes attributes )
     {
-        setRemoteDispatcher( new RemoteHttpCacheDispatcher( attributes ) );
+        if ( attributes.getMaxInFlightRequests() > 0 )
+        {
+            setRemoteDispatcher( new RemoteHttpCacheAsyncDispatcher( attributes ) );
+        }
+        else
+        {
+            setRemoteDispatcher( new RemoteHttpCacheDispatcher( attributes ) );
+        }
 
         log.info( "Created remote Dispatcher. {0}", this::getRemoteDispatcher);
         setInitialized( true );
@@ -132,6 +142,46 @@ public class RemoteHttpCacheClient<K, V>
         return null;
     }
 
+    /**
+     * Create a request and send it without waiting for the response.
+     * <p>
+     * @param cacheName
+     * @param key
+     * @return a future for the ICacheElement, completed with null if there is none
+     * @since 3.2
+     */
+    public CompletableFuture<ICacheElement<K, V>> getAsync( final String cacheName, final K key )
+    {
+        return getAsync( cacheName, key, 0 );
+    }
+
+    /**
+     * Create a request and send it without waiting for the response.
+     * <p>
+     * @param cacheName
+     * @param key
+     * @param requesterId
+     * @return a future for the ICacheElement, completed with null if there is none or
+     *         exceptionally with an IOException if the request failed
+     * @since 3.2
+     */
+    public CompletableFuture<ICacheElement<K, V>> getAsync( final String cacheName, final K key, final long requesterId )
+    {
+        if ( !isInitialized() )
+        {
+            return notInitialized();
+        }
+
+        final RemoteCacheRequest<K, Serializable> remoteHttpCacheRequest =
+            RemoteCacheRequestFactory.createGetRequest( cacheName, key, requesterId );
+
+        return getRemoteDispatcher().<K, Serializable, ICacheElement<K, V>>dispatchRequestAsync( remoteHttpCacheRequest )
+            .thenApply( remoteHttpCacheResponse -> {
+                log.debug( "GetAsync [{0}] = {1}", key, remoteHttpCacheResponse );
+                return remoteHttpCacheResponse != null ? remoteHttpCacheResponse.getPayload() : null;
+            } );
+    }
+
     /**
      * Gets multiple items from the cache matching the pattern.
      * <p>
@@ -228,6 +278,52 @@ public class RemoteHttpCacheClient<K, V>
         return remoteHttpCacheResponse.getPayload();
     }
 
+    /**
+     * Gets multiple items from the cache without waiting for the response.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @return a future for the map of K key to ICacheElement&lt;K, V&gt; element
+     * @since 3.2
+     */
+    public CompletableFuture<Map<K, ICacheElement<K, V>>> getMultipleAsync( final String cacheName, final Set<K> keys )
+    {
+        return getMultipleAsync( cacheName, keys, 0 );
+    }
+
+    /**
+     * Gets multiple items from the cache without waiting for the response.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @param requesterId
+     * @return a future for the map of K key to ICacheElement&lt;K, V&gt; element, completed with
+     *         an empty map if there is no data in cache for any of these keys or exceptionally
+     *         with an IOException if the request failed
+     * @since 3.2
+     */
+    public CompletableFuture<Map<K, ICacheElement<K, V>>> getMultipleAsync( final String cacheName, final Set<K> keys,
+            final long requesterId )
+    {
+        if ( !isInitialized() )
+        {
+            return notInitialized();
+        }
+
+        final RemoteCacheRequest<K, V> remoteHttpCacheRequest =
+            RemoteCacheRequestFactory.createGetMultipleRequest( cacheName, keys, requesterId );
+
+        return getRemoteDispatcher().<K, V, Map<K, ICacheElement<K, V>>>dispatchRequestAsync( remoteHttpCacheRequest )
+            .thenApply( remoteHttpCacheResponse -> {
+                log.debug( "GetMultipleAsync [{0}] = {1}", keys, remoteHttpCacheResponse );
+                if ( remoteHttpCacheResponse != null && remoteHttpCacheResponse.getPayload() != null )
+                {
+                    return remoteHttpCacheResponse.getPayload();
+                }
+                return Collections.<K, ICacheElement<K, V>>emptyMap();
+            } );
+    }
+
     /**
      * Removes the given key from the specified cache.
      * <p>
@@ -365,7 +461,7 @@ public class RemoteHttpCacheClient<K, V>
     }
 
     /**
-     * Frees the specified cache.
+     * Frees the client. The threads of an asynchronous dispatcher are stopped.
      * <p>
      * @throws IOException
      */
@@ -373,7 +469,11 @@ public class RemoteHttpCacheClient<K, V>
     public void release()
         throws IOException
     {
-        // noop
+        final IRemoteCacheDispatcher dispatcher = getRemoteDispatcher();
+        if ( dispatcher instanceof RemoteHttpCacheAsyncDispatcher )
+        {
+            ( (RemoteHttpCacheAsyncDispatcher) dispatcher ).shutdown();
+        }
     }
 
     /**
@@ -434,6 +534,18 @@ public class RemoteHttpCacheClient<K, V>
         return false;
     }
 
+    /**
+     * @return a future failed because the client is not initialized
+     */
+    private static <T> CompletableFuture<T> notInitialized()
+    {
+        final String message = "The Remote Http Client is not initialized.  Cannot process request.";
+        log.warn( message );
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally( new IOException( message ) );
+        return future;
+    }
+
     /**
      * @param remoteDispatcher the remoteDispatcher to set
      */
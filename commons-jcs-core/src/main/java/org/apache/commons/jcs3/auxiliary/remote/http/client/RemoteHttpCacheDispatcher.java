@@ -19,13 +19,17 @@ package org.apache.commons.jcs3.auxiliary.remote.http.client;
  * under the License.
  */
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
+import org.apache.commons.jcs3.auxiliary.BinaryMessageCodec;
 import org.apache.commons.jcs3.auxiliary.remote.behavior.IRemoteCacheDispatcher;
 import org.apache.commons.jcs3.auxiliary.remote.value.RemoteCacheRequest;
 import org.apache.commons.jcs3.auxiliary.remote.value.RemoteCacheResponse;
+import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
 import org.apache.commons.jcs3.log.Log;
 import org.apache.commons.jcs3.log.LogManager;
 import org.apache.commons.jcs3.utils.serialization.StandardSerializer;
@@ -59,12 +63,16 @@ public class RemoteHttpCacheDispatcher
     /** This needs to be standard, since the other side is standard */
     private final StandardSerializer serializer = new StandardSerializer();
 
+    /** Whether requests are sent in the binary encoding, cleared if the server does not read it */
+    private volatile boolean binaryCodec;
+
     /**
      * @param remoteHttpCacheAttributes
      */
     public RemoteHttpCacheDispatcher( final RemoteHttpCacheAttributes remoteHttpCacheAttributes )
     {
         super( remoteHttpCacheAttributes );
+        this.binaryCodec = remoteHttpCacheAttributes.isBinaryCodec();
     }
 
     /**
@@ -83,22 +91,23 @@ public class RemoteHttpCacheDispatcher
     {
         try
         {
-            final byte[] requestAsByteArray = serializer.serialize( remoteCacheRequest );
-
-            final byte[] responseAsByteArray = processRequest( requestAsByteArray,
-                    remoteCacheRequest,
-                    getRemoteHttpCacheAttributes().getUrl());
-
-            RemoteCacheResponse<T> remoteCacheResponse = null;
-            try
+            if ( binaryCodec )
             {
-                remoteCacheResponse = serializer.deSerialize( responseAsByteArray, null );
+                final BinaryMessageCodec codec = new BinaryMessageCodec( serializer );
+                final RemoteCacheResponse<T> remoteCacheResponse = dispatchRequest( remoteCacheRequest, codec );
+
+                if ( codec.isBinaryRead() || remoteCacheResponse == null || remoteCacheResponse.isSuccess() )
+                {
+                    return remoteCacheResponse;
+                }
+
+                // The server answered in Java serialization, so it could not read the request
+                log.warn( "Server at {0} does not support the binary encoding, falling back to Java serialization",
+                        getRemoteHttpCacheAttributes().getUrl() );
+                binaryCodec = false;
             }
-            catch ( final ClassNotFoundException e )
-            {
-                log.error( "Couldn't deserialize the response.", e );
-            }
-            return remoteCacheResponse;
+
+            return dispatchRequest( remoteCacheRequest, serializer );
         }
         catch ( final Exception e )
         {
@@ -106,6 +115,40 @@ public class RemoteHttpCacheDispatcher
         }
     }
 
+    /**
+     * Sends the request and reads the response with the given serializer. Both are length prefixed
+     * as expected and written by the servlet.
+     * <p>
+     * @param remoteCacheRequest
+     * @param wireSerializer the serializer for request and response
+     * @return RemoteCacheResponse
+     * @throws IOException
+     * @throws HttpException
+     */
+    private <K, V, T> RemoteCacheResponse<T> dispatchRequest( final RemoteCacheRequest<K, V> remoteCacheRequest,
+            final IElementSerializer wireSerializer )
+        throws IOException, HttpException
+    {
+        final ByteArrayOutputStream requestBytes = new ByteArrayOutputStream();
+        wireSerializer.serializeTo( remoteCacheRequest, requestBytes );
+
+        final byte[] responseAsByteArray = processRequest( requestBytes.toByteArray(),
+                remoteCacheRequest,
+                getRemoteHttpCacheAttributes().getUrl());
+
+        RemoteCacheResponse<T> remoteCacheResponse = null;
+        try
+        {
+            remoteCacheResponse = wireSerializer.deSerializeFrom(
+                    new ByteArrayInputStream( responseAsByteArray ), null );
+        }
+        catch ( final ClassNotFoundException e )
+        {
+            log.error( "Couldn't deserialize the response.", e );
+        }
+        return remoteCacheResponse;
+    }
+
     /**
      * Process single request
      *
@@ -118,6 +118,7 @@ public class RemoteHttpCacheMonitor extends AbstractAuxiliaryCacheMonitor
                     }
                     else
                     {
+                        remoteService.release();
                         allright.set(false);
                     }
                     break;
@@ -36,12 +36,14 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.jcs3.access.exception.CacheException;
 import org.apache.commons.jcs3.auxiliary.AuxiliaryCacheConfigurator;
+import org.apache.commons.jcs3.auxiliary.BinaryMessageCodec;
 import org.apache.commons.jcs3.auxiliary.remote.http.behavior.IRemoteHttpCacheConstants;
 import org.apache.commons.jcs3.auxiliary.remote.value.RemoteCacheRequest;
 import org.apache.commons.jcs3.auxiliary.remote.value.RemoteCacheResponse;
 import org.apache.commons.jcs3.engine.behavior.ICacheElement;
 import org.apache.commons.jcs3.engine.behavior.ICacheServiceNonLocal;
 import org.apache.commons.jcs3.engine.behavior.ICompositeCacheManager;
+import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
 import org.apache.commons.jcs3.engine.control.CompositeCacheManager;
 import org.apache.commons.jcs3.engine.logging.behavior.ICacheEventLogger;
 import org.apache.commons.jcs3.log.Log;
@@ -104,7 +106,8 @@ public class RemoteHttpCacheServlet
     }
 
     /**
-     * Read the request, call the processor, write the response.
+     * Read the request, call the processor, write the response. The response is written in the
+     * binary encoding if the request was.
      * <p>
      * @param request
      * @param response
@@ -118,10 +121,11 @@ public class RemoteHttpCacheServlet
         incrementServiceCallCount();
         log.debug( "Servicing a request. {0}", request );
 
-        final RemoteCacheRequest<Serializable, Serializable> remoteRequest = readRequest( request );
+        final BinaryMessageCodec codec = new BinaryMessageCodec( serializer );
+        final RemoteCacheRequest<Serializable, Serializable> remoteRequest = readRequest( request, codec );
         final RemoteCacheResponse<Object> cacheResponse = processRequest( remoteRequest );
 
-        writeResponse( response, cacheResponse );
+        writeResponse( response, cacheResponse, codec.isBinaryRead() ? codec : serializer );
     }
 
     /**
@@ -131,13 +135,27 @@ public class RemoteHttpCacheServlet
      * @return RemoteHttpCacheRequest
      */
     protected RemoteCacheRequest<Serializable, Serializable> readRequest( final HttpServletRequest request )
+    {
+        return readRequest( request, serializer );
+    }
+
+    /**
+     * Read the request from the input stream.
+     * <p>
+     * @param request
+     * @param requestSerializer the serializer to read the request with
+     * @return RemoteHttpCacheRequest
+     * @since 3.2
+     */
+    protected RemoteCacheRequest<Serializable, Serializable> readRequest( final HttpServletRequest request,
+            final IElementSerializer requestSerializer )
     {
         RemoteCacheRequest<Serializable, Serializable> remoteRequest = null;
 
         try (InputStream inputStream = request.getInputStream())
         {
             log.debug( "After getting input stream and before reading it" );
-            remoteRequest = readRequestFromStream( inputStream );
+            remoteRequest = readRequestFromStream( inputStream, requestSerializer );
         }
         catch ( final IOException | ClassNotFoundException e )
         {
@@ -158,7 +176,24 @@ public class RemoteHttpCacheServlet
     protected RemoteCacheRequest<Serializable, Serializable> readRequestFromStream( final InputStream inputStream )
         throws IOException, ClassNotFoundException
     {
-        return serializer.deSerializeFrom(inputStream, null);
+        return readRequestFromStream( inputStream, serializer );
+    }
+
+    /**
+     * Reads the response from the stream and then closes it.
+     * <p>
+     * @param inputStream
+     * @param requestSerializer the serializer to read the request with
+     * @return RemoteHttpCacheRequest
+     * @throws IOException
+     * @throws ClassNotFoundException
+     * @since 3.2
+     */
+    protected RemoteCacheRequest<Serializable, Serializable> readRequestFromStream( final InputStream inputStream,
+            final IElementSerializer requestSerializer )
+        throws IOException, ClassNotFoundException
+    {
+        return requestSerializer.deSerializeFrom(inputStream, null);
     }
 
     /**
@@ -168,11 +203,25 @@ public class RemoteHttpCacheServlet
      * @param cacheResponse
      */
     protected void writeResponse( final HttpServletResponse response, final RemoteCacheResponse<Object> cacheResponse )
+    {
+        writeResponse( response, cacheResponse, serializer );
+    }
+
+    /**
+     * Write the response to the output stream.
+     * <p>
+     * @param response
+     * @param cacheResponse
+     * @param responseSerializer the serializer to write the response with
+     * @since 3.2
+     */
+    protected void writeResponse( final HttpServletResponse response, final RemoteCacheResponse<Object> cacheResponse,
+            final IElementSerializer responseSerializer )
     {
         try (OutputStream outputStream = response.getOutputStream())
         {
             response.setContentType( "application/octet-stream" );
-            serializer.serializeTo(cacheResponse, outputStream);
+            responseSerializer.serializeTo(cacheResponse, outputStream);
         }
         catch ( final IOException e )
         {
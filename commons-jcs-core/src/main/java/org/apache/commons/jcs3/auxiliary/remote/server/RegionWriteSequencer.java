@@ -0,0 +1,252 @@
+package org.apache.commons.jcs3.auxiliary.remote.server;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.jcs3.log.Log;
+import org.apache.commons.jcs3.log.LogManager;
+
+/**
+ * Orders the writes to one region of the remote cache server and the notifications sent for them.
+ * <p>
+ * Writes to keys in different stripes run in parallel. Writes to keys in the same stripe, and so
+ * all writes to one key, are applied one at a time, and their notifications are handed to the
+ * listeners in the same order. The notifications run after the stripe lock has been released, by
+ * whichever writer of the stripe gets to them first, so a slow fan-out does not hold up the next
+ * write to the cache.
+ * <p>
+ * Region wide operations like removeAll are barriers. They wait for all running key writes and
+ * all pending notifications, and block new writes until they are done.
+ */
+final class RegionWriteSequencer
+{
+    /** The logger. */
+    private static final Log log = LogManager.getLog( RegionWriteSequencer.class );
+
+    /** Default number of stripes, a power of two */
+    static final int DEFAULT_STRIPES =
+        Integer.highestOneBit( Math.max( 1, Runtime.getRuntime().availableProcessors() ) * 8 - 1 ) << 1;
+
+    /**
+     * A write that runs under the lock and returns the notification to send afterwards.
+     */
+    @FunctionalInterface
+    interface Write
+    {
+        /**
+         * @return the notification to send in order, or null
+         * @throws IOException
+         */
+        Runnable apply() throws IOException;
+    }
+
+    /** A lock and the notifications not yet sent for its keys */
+    private static final class Stripe
+    {
+        /** Orders the writes */
+        final ReentrantLock writeLock = new ReentrantLock();
+
+        /** Held while sending notifications */
+        final ReentrantLock notifyLock = new ReentrantLock();
+
+        /** Notifications in write order */
+        final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    }
+
+    /** Shared by key writes, exclusive for barriers */
+    private final ReentrantReadWriteLock regionLock = new ReentrantReadWriteLock();
+
+    /** The stripes */
+    private final Stripe[] stripes;
+
+    /** Selects the stripe */
+    private final int mask;
+
+    /** Uses the default number of stripes. */
+    RegionWriteSequencer()
+    {
+        this( DEFAULT_STRIPES );
+    }
+
+    /**
+     * @param stripeCount the number of stripes, rounded up to a power of two
+     */
+    RegionWriteSequencer( final int stripeCount )
+    {
+        final int count = stripeCount <= 1 ? 1 : Integer.highestOneBit( stripeCount - 1 ) << 1;
+        this.stripes = new Stripe[count];
+        for ( int i = 0; i < count; i++ )
+        {
+            stripes[i] = new Stripe();
+        }
+        this.mask = count - 1;
+    }
+
+    /**
+     * Applies a write for the key and sends its notification after all notifications of earlier
+     * writes in the same stripe.
+     * <p>
+     * @param key the key written
+     * @param write the write
+     * @throws IOException if the write fails, nothing is sent then
+     */
+    void writeKey( final Object key, final Write write )
+        throws IOException
+    {
+        final Stripe stripe = stripeFor( key );
+
+        regionLock.readLock().lock();
+        try
+        {
+            stripe.writeLock.lock();
+            try
+            {
+                final Runnable notification = write.apply();
+                if ( notification != null )
+                {
+                    stripe.pending.add( notification );
+                }
+            }
+            finally
+            {
+                stripe.writeLock.unlock();
+            }
+        }
+        finally
+        {
+            regionLock.readLock().unlock();
+        }
+
+        sendPending( stripe );
+    }
+
+    /**
+     * Applies a region wide write once all key writes and their notifications are done. Its
+     * notification is sent before any later write is applied.
+     * <p>
+     * @param write the write
+     * @throws IOException if the write fails
+     */
+    void writeRegion( final Write write )
+        throws IOException
+    {
+        regionLock.writeLock().lock();
+        try
+        {
+            // wait for senders in progress and flush what they left
+            for ( final Stripe stripe : stripes )
+            {
+                stripe.notifyLock.lock();
+            }
+            try
+            {
+                for ( final Stripe stripe : stripes )
+                {
+                    send( stripe );
+                }
+
+                final Runnable notification = write.apply();
+                if ( notification != null )
+                {
+                    run( notification );
+                }
+            }
+            finally
+            {
+                for ( final Stripe stripe : stripes )
+                {
+                    stripe.notifyLock.unlock();
+                }
+            }
+        }
+        finally
+        {
+            regionLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param key
+     * @return the stripe of the key
+     */
+    private Stripe stripeFor( final Object key )
+    {
+        final int h = key == null ? 0 : key.hashCode();
+        return stripes[( h ^ h >>> 16 ) & mask];
+    }
+
+    /**
+     * Sends the pending notifications unless another thread is already doing so. The loop catches
+     * notifications added after that thread looked at the queue for the last time.
+     * <p>
+     * @param stripe
+     */
+    private static void sendPending( final Stripe stripe )
+    {
+        while ( !stripe.pending.isEmpty() && stripe.notifyLock.tryLock() )
+        {
+            try
+            {
+                send( stripe );
+            }
+            finally
+            {
+                stripe.notifyLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Sends the pending notifications. The notify lock must be held.
+     * <p>
+     * @param stripe
+     */
+    private static void send( final Stripe stripe )
+    {
+        Runnable notification;
+        while ( ( notification = stripe.pending.poll() ) != null )
+        {
+            run( notification );
+        }
+    }
+
+    /**
+     * Runs a notification, logging failures so that the following ones are still sent.
+     * <p>
+     * @param notification
+     */
+    private static void run( final Runnable notification )
+    {
+        try
+        {
+            notification.run();
+        }
+        catch ( final RuntimeException e )
+        {
+            log.error( "Problem sending notification", e );
+        }
+    }
+}
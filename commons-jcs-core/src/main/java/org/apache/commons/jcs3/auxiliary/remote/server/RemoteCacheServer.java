@@ -90,6 +90,10 @@ public class RemoteCacheServer<K, V>
     private final transient ConcurrentMap<String, CacheListeners<K, V>> clusterListenersMap =
         new ConcurrentHashMap<>();
 
+    /** Orders the writes and notifications of each region. */
+    private final transient ConcurrentMap<String, RegionWriteSequencer> writeSequencerMap =
+        new ConcurrentHashMap<>();
+
     /** The central hub */
     private transient CompositeCacheManager cacheManager;
 
@@ -270,7 +274,7 @@ public class RemoteCacheServer<K, V>
             log.debug( "In update, requesterId = [{0}] fromCluster = {1}", requesterId, fromCluster );
 
             // ordered cache item update and notification.
-            synchronized ( cacheDesc )
+            getWriteSequencer( item.getCacheName() ).writeKey( item.getKey(), () ->
             {
                 try
                 {
@@ -314,13 +318,11 @@ public class RemoteCacheServer<K, V>
                 // IF LOCAL CLUSTER CONSISTENCY IS CONFIGURED
                 if (!fromCluster || fromCluster && remoteCacheServerAttributes.isLocalClusterConsistency())
                 {
-                    final ICacheEventQueue<K, V>[] qlist = getEventQList( cacheDesc, requesterId );
-                    log.debug( "qlist.length = {0}", qlist.length );
-                    for (final ICacheEventQueue<K, V> element : qlist) {
-                        element.addPutEvent( item );
-                    }
+                    return notification( cacheDesc, requesterId, ICacheEventLogger.UPDATE_EVENT,
+                            q -> q.addPutEvent( item ) );
                 }
-            }
+                return null;
+            } );
         }
         catch ( final IOException e )
         {
@@ -810,9 +812,8 @@ public class RemoteCacheServer<K, V>
 
         if ( cacheDesc != null )
         {
-            // best attempt to achieve ordered cache item removal and
-            // notification.
-            synchronized ( cacheDesc )
+            // ordered cache item removal and notification.
+            getWriteSequencer( cacheName ).writeKey( key, () ->
             {
                 boolean removeSuccess = false;
 
@@ -837,13 +838,11 @@ public class RemoteCacheServer<K, V>
                 // IF LOCAL CLUSTER CONSISTENCY IS CONFIGURED
                 if (!fromCluster || fromCluster && remoteCacheServerAttributes.isLocalClusterConsistency())
                 {
-                    final ICacheEventQueue<K, V>[] qlist = getEventQList( cacheDesc, requesterId );
-
-                    for (final ICacheEventQueue<K, V> element : qlist) {
-                        element.addRemoveEvent( key );
-                    }
+                    return notification( cacheDesc, requesterId, ICacheEventLogger.REMOVE_EVENT,
+                            q -> q.addRemoveEvent( key ) );
                 }
-            }
+                return null;
+            } );
         }
     }
 
@@ -900,9 +899,8 @@ public class RemoteCacheServer<K, V>
 
         if ( cacheDesc != null )
         {
-            // best attempt to achieve ordered cache item removal and
-            // notification.
-            synchronized ( cacheDesc )
+            // waits for the key writes and orders the notification after theirs.
+            getWriteSequencer( cacheName ).writeRegion( () ->
             {
                 // No need to broadcast, or notify if it was not cached.
                 final CompositeCache<K, V> c = (CompositeCache<K, V>) cacheDesc.cache;
@@ -921,14 +919,11 @@ public class RemoteCacheServer<K, V>
                 // update registered listeners
                 if (!fromCluster || fromCluster && remoteCacheServerAttributes.isLocalClusterConsistency())
                 {
-                    final ICacheEventQueue<K, V>[] qlist = getEventQList( cacheDesc, requesterId );
-
-                    for (final ICacheEventQueue<K, V> q : qlist)
-                    {
-                        q.addRemoveAllEvent();
-                    }
+                    return notification( cacheDesc, requesterId, ICacheEventLogger.REMOVEALL_EVENT,
+                            ICacheEventQueue::addRemoveAllEvent );
                 }
-            }
+                return null;
+            } );
         }
     }
 
@@ -992,8 +987,9 @@ public class RemoteCacheServer<K, V>
         // this is dangerous
         if ( cacheDesc != null )
         {
-            // best attempt to achieve ordered free-cache-op and notification.
-            synchronized ( cacheDesc )
+            // waits for the key writes and orders the notification after theirs.
+            final RegionWriteSequencer sequencer = getWriteSequencer( cacheName );
+            sequencer.writeRegion( () ->
             {
                 final ICacheEventQueue<K, V>[] qlist = getEventQList( cacheDesc, requesterId );
 
@@ -1001,7 +997,11 @@ public class RemoteCacheServer<K, V>
                     element.addDisposeEvent();
                 }
                 cacheManager.freeCache( cacheName );
-            }
+                return null;
+            } );
+
+            // the region is gone, a later write starts a new sequencer
+            writeSequencerMap.remove( cacheName, sequencer );
         }
     }
 
@@ -1022,6 +1022,7 @@ public class RemoteCacheServer<K, V>
                 element.addDisposeEvent();
             }
         }
+        writeSequencerMap.clear();
         cacheManager.release();
     }
 
@@ -1057,6 +1058,80 @@ public class RemoteCacheServer<K, V>
         });
     }
 
+    /**
+     * This is for testing only.
+     * <p>
+     * @return the number of regions with a write sequencer
+     */
+    int getWriteSequencerCount()
+    {
+        return writeSequencerMap.size();
+    }
+
+    /**
+     * Returns the sequencer ordering the writes to the region. Creates it if it does not already
+     * exist.
+     * <p>
+     * @param cacheName
+     * @return the sequencer of the region
+     */
+    private RegionWriteSequencer getWriteSequencer( final String cacheName )
+    {
+        return writeSequencerMap.computeIfAbsent( cacheName, key -> new RegionWriteSequencer() );
+    }
+
+    /**
+     * Creates the notification of all listeners of a region but the requester. The queues are
+     * looked up when it runs. A failing queue is logged and does not keep the event from the
+     * others.
+     * <p>
+     * @param cacheDesc the listeners of the region
+     * @param requesterId the listener that sent the request
+     * @param eventName the event, for logging
+     * @param event adds the event to a queue
+     * @return the notification
+     */
+    private Runnable notification( final CacheListeners<K, V> cacheDesc, final long requesterId,
+            final String eventName, final EventSender<K, V> event )
+    {
+        return () ->
+        {
+            final ICacheEventQueue<K, V>[] qlist = getEventQList( cacheDesc, requesterId );
+            log.debug( "qlist.length = {0}", qlist.length );
+            for (final ICacheEventQueue<K, V> q : qlist)
+            {
+                try
+                {
+                    event.send( q );
+                }
+                catch ( final IOException e )
+                {
+                    if ( cacheEventLogger != null )
+                    {
+                        cacheEventLogger.logError( "RemoteCacheServer", eventName, e.getMessage()
+                            + " REGION: " + cacheDesc.cache.getCacheName() + " LISTENER: " + q.getListenerId() );
+                    }
+
+                    log.error( "Trouble notifying listener [{0}] of {1}. requesterId [{2}]",
+                            q.getListenerId(), eventName, requesterId, e );
+                }
+            }
+        };
+    }
+
+    /**
+     * Adds an event to a listener queue.
+     */
+    @FunctionalInterface
+    private interface EventSender<K, V>
+    {
+        /**
+         * @param q the queue
+         * @throws IOException
+         */
+        void send( ICacheEventQueue<K, V> q ) throws IOException;
+    }
+
     /**
      * Gets the eventQList attribute of the RemoteCacheServer object. This returns the event queues
      * stored in the cacheListeners object for a particular region, if the queue is not for this
@@ -58,12 +58,21 @@ public class CompositeCacheAttributes
     /** default */
     private static final int DEFAULT_MAX_SPOOL_PER_RUN = -1;
 
+    /** default max bytes value, no limit */
+    private static final long DEFAULT_MAX_BYTES = -1;
+
+    /** default */
+    private static final String DEFAULT_WEIGHER_CLASS_NAME = "org.apache.commons.jcs3.engine.memory.util.DefaultWeigher";
+
     /** default */
     private static final String DEFAULT_MEMORY_CACHE_NAME = "org.apache.commons.jcs3.engine.memory.lru.LRUMemoryCache";
 
     /** Default number to send to disk at a time when memory fills. */
     private static final int DEFAULT_CHUNK_SIZE = 2;
 
+    /** default refresh-ahead factor, disabled */
+    private static final double DEFAULT_REFRESH_AHEAD_FACTOR = 0;
+
     /** allow lateral caches */
     private boolean useLateral = DEFAULT_USE_LATERAL;
 
@@ -76,9 +85,18 @@ public class CompositeCacheAttributes
     /** Whether or not we should run the memory shrinker thread. */
     private boolean useMemoryShrinker = DEFAULT_USE_SHRINKER;
 
+    /** Whether the shrinker uses a timer wheel instead of scanning all elements. */
+    private boolean useTimerWheel;
+
     /** The maximum objects that the memory cache will be allowed to hold. */
     private int maxObjs = DEFAULT_MAX_OBJECTS;
 
+    /** The maximum number of bytes that the memory cache will be allowed to hold. */
+    private long maxBytes = DEFAULT_MAX_BYTES;
+
+    /** The name of the weigher implementation class. */
+    private String weigherClassName = DEFAULT_WEIGHER_CLASS_NAME;
+
     /** maxMemoryIdleTimeSeconds */
     private long maxMemoryIdleTimeSeconds = DEFAULT_MAX_MEMORY_IDLE_TIME_SECONDS;
 
@@ -100,6 +118,9 @@ public class CompositeCacheAttributes
     /** How many to spool to disk at a time. */
     private int spoolChunkSize = DEFAULT_CHUNK_SIZE;
 
+    /** Fraction of the max life after which a read triggers a reload. */
+    private double refreshAheadFactor = DEFAULT_REFRESH_AHEAD_FACTOR;
+
     /**
      * Constructor for the CompositeCacheAttributes object
      */
@@ -131,6 +152,50 @@ public class CompositeCacheAttributes
         return this.maxObjs;
     }
 
+    /**
+     * Sets the maxBytes attribute of the CompositeCacheAttributes object
+     * <p>
+     * @param maxBytes The new maxBytes value
+     */
+    @Override
+    public void setMaxBytes( final long maxBytes )
+    {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the maxBytes attribute of the CompositeCacheAttributes object
+     * <p>
+     * @return The maxBytes value
+     */
+    @Override
+    public long getMaxBytes()
+    {
+        return this.maxBytes;
+    }
+
+    /**
+     * Sets the weigherClassName attribute of the CompositeCacheAttributes object
+     * <p>
+     * @param weigherClassName The new weigherClassName value
+     */
+    @Override
+    public void setWeigherClassName( final String weigherClassName )
+    {
+        this.weigherClassName = weigherClassName;
+    }
+
+    /**
+     * Gets the weigherClassName attribute of the CompositeCacheAttributes object
+     * <p>
+     * @return The weigherClassName value
+     */
+    @Override
+    public String getWeigherClassName()
+    {
+        return this.weigherClassName;
+    }
+
     /**
      * Sets the useDisk attribute of the CompositeCacheAttributes object
      * <p>
@@ -263,6 +328,28 @@ public class CompositeCacheAttributes
         return this.useMemoryShrinker;
     }
 
+    /**
+     * Whether the shrinker uses a timer wheel instead of scanning all elements.
+     * <p>
+     * @param useTimerWheel The new UseTimerWheel value
+     */
+    @Override
+    public void setUseTimerWheel( final boolean useTimerWheel )
+    {
+        this.useTimerWheel = useTimerWheel;
+    }
+
+    /**
+     * Whether the shrinker uses a timer wheel instead of scanning all elements.
+     * <p>
+     * @return The UseTimerWheel value
+     */
+    @Override
+    public boolean isUseTimerWheel()
+    {
+        return this.useTimerWheel;
+    }
+
     /**
      * If UseMemoryShrinker is true the memory cache should auto-expire elements to reclaim space.
      * <p>
@@ -401,6 +488,26 @@ public class CompositeCacheAttributes
         return diskUsagePattern;
     }
 
+    /**
+     * Sets the fraction of the max life after which a read triggers a reload.
+     * <p>
+     * @param refreshAheadFactor The new refreshAheadFactor value
+     */
+    @Override
+    public void setRefreshAheadFactor( final double refreshAheadFactor )
+    {
+        this.refreshAheadFactor = refreshAheadFactor;
+    }
+
+    /**
+     * @return Returns the refreshAheadFactor.
+     */
+    @Override
+    public double getRefreshAheadFactor()
+    {
+        return refreshAheadFactor;
+    }
+
     /**
      * Dumps the core attributes.
      * <p>
@@ -416,9 +523,11 @@ public class CompositeCacheAttributes
         dump.append( ", useRemote = " ).append( useRemote );
         dump.append( ", useDisk = " ).append( useDisk );
         dump.append( ", maxObjs = " ).append( maxObjs );
+        dump.append( ", maxBytes = " ).append( maxBytes );
         dump.append( ", maxSpoolPerRun = " ).append( maxSpoolPerRun );
         dump.append( ", diskUsagePattern = " ).append( diskUsagePattern );
         dump.append( ", spoolChunkSize = " ).append( spoolChunkSize );
+        dump.append( ", refreshAheadFactor = " ).append( refreshAheadFactor );
         dump.append( " ]" );
 
         return dump.toString();
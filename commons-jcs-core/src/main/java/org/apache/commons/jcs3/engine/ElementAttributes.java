@@ -205,6 +205,17 @@ public class ElementAttributes
         createTime = System.currentTimeMillis();
     }
 
+    /**
+     * Sets the createTime attribute to the given time, e.g. when restoring an element.
+     * <p>
+     * @param time the create time in milliseconds
+     * @since 3.2
+     */
+    public void setCreateTime( final long time )
+    {
+        createTime = time;
+    }
+
     /**
      * Gets the idleTime attribute of the IAttributes object.
      * <p>
@@ -59,6 +59,38 @@ public interface ICompositeCacheAttributes
      */
     int getMaxObjects();
 
+    /**
+     * Sets the maximum number of bytes the memory cache may hold, as calculated by the weigher.
+     * If both maxObjects and maxBytes are set, elements are removed from memory as soon as
+     * either limit is reached. A value of zero or less means there is no byte limit.
+     * <p>
+     * @param maxBytes
+     *            The new maxBytes value
+     */
+    void setMaxBytes( long maxBytes );
+
+    /**
+     * Gets the maxBytes attribute of the ICompositeCacheAttributes object
+     * <p>
+     * @return The maxBytes value
+     */
+    long getMaxBytes();
+
+    /**
+     * Sets the name of the IWeigher implementation used to weigh elements if maxBytes is set.
+     * <p>
+     * @param weigherClassName
+     *            The new weigherClassName value
+     */
+    void setWeigherClassName( String weigherClassName );
+
+    /**
+     * Gets the weigherClassName attribute of the ICompositeCacheAttributes object
+     * <p>
+     * @return The weigherClassName value
+     */
+    String getWeigherClassName();
+
     /**
      * Sets the useDisk attribute of the ICompositeCacheAttributes object
      * <p>
@@ -151,6 +183,23 @@ public interface ICompositeCacheAttributes
      */
     boolean isUseMemoryShrinker();
 
+    /**
+     * If UseMemoryShrinker is true, whether the shrinker should find expired and idle elements
+     * through a timer wheel maintained on put instead of checking every element in memory on each
+     * run.
+     * <p>
+     * @param useTimerWheel
+     *            The new UseTimerWheel value
+     */
+    void setUseTimerWheel( boolean useTimerWheel );
+
+    /**
+     * Whether the shrinker uses a timer wheel to find expired and idle elements.
+     * <p>
+     * @return The UseTimerWheel value
+     */
+    boolean isUseTimerWheel();
+
     /**
      * If UseMemoryShrinker is true the memory cache should auto-expire elements
      * to reclaim space.
@@ -237,6 +286,23 @@ public interface ICompositeCacheAttributes
      */
     void setSpoolChunkSize( int spoolChunkSize );
 
+    /**
+     * Sets the fraction of the max life of an element after which a read triggers an asynchronous
+     * reload of the element, if a reloader is registered with the region. The current value is
+     * returned meanwhile. A value of zero or less, or of one or more, disables refresh-ahead.
+     * <p>
+     * @param refreshAheadFactor
+     *            The new refreshAheadFactor value, for example 0.75
+     */
+    void setRefreshAheadFactor( double refreshAheadFactor );
+
+    /**
+     * Gets the refreshAheadFactor attribute of the ICompositeCacheAttributes object
+     * <p>
+     * @return The refreshAheadFactor value
+     */
+    double getRefreshAheadFactor();
+
     /**
      * Clone object
      */
@@ -32,6 +32,9 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import org.apache.commons.jcs3.io.ByteBufferPool;
+import org.apache.commons.jcs3.io.ByteBufferSink;
+
 /**
  * Defines the behavior for cache element serializers. This layer of abstraction allows us to plug
  * in different serialization mechanisms, such as a compressing standard serializer.
@@ -61,6 +64,115 @@ public interface IElementSerializer
     <T> T deSerialize( byte[] bytes, ClassLoader loader )
         throws IOException, ClassNotFoundException;
 
+    /**
+     * Appends the serialized form of an object to a sink, without a length prefix.
+     * <p>
+     * The default implementation copies the result of {@link #serialize(Object)}. Implementations
+     * able to write into the sink directly should override this.
+     *
+     * @param <T> the type of the object
+     * @param obj the object to serialize
+     * @param sink the sink to append to
+     * @return the number of bytes appended
+     * @throws IOException if serialization fails
+     * @since 3.2
+     */
+    default <T> int serialize(T obj, ByteBufferSink sink)
+        throws IOException
+    {
+        final byte[] serialized = serialize(obj);
+        sink.put(serialized);
+        return serialized.length;
+    }
+
+    /**
+     * Turns the remaining bytes of a buffer into an object. The position of the buffer is
+     * advanced to its limit. Implementations must not keep a reference to the buffer, which
+     * may be a pooled or memory mapped buffer.
+     * <p>
+     * The default implementation passes the backing array of the buffer to
+     * {@link #deSerialize(byte[], ClassLoader)} if it holds exactly the data, else a copy.
+     *
+     * @param buffer the data
+     * @param loader class loader to use
+     * @return Object
+     * @throws IOException if de-serialization fails
+     * @throws ClassNotFoundException thrown if we don't know the object.
+     * @since 3.2
+     */
+    default <T> T deSerializeBuffer(ByteBuffer buffer, ClassLoader loader)
+        throws IOException, ClassNotFoundException
+    {
+        final byte[] bytes;
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+            && buffer.limit() == buffer.array().length)
+        {
+            bytes = buffer.array();
+            buffer.position(buffer.limit());
+        }
+        else
+        {
+            bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+        }
+
+        return deSerialize(bytes, loader);
+    }
+
+    /**
+     * Convenience method to append a serialized object to a sink.
+     * The data will be prepended with a four-byte length prefix.
+     *
+     * @param <T> the type of the object
+     * @param obj the object to serialize
+     * @param sink the sink to append to
+     * @return the number of bytes appended
+     * @throws IOException if serialization fails
+     * @since 3.2
+     */
+    default <T> int serializeTo(T obj, ByteBufferSink sink)
+        throws IOException
+    {
+        final int start = sink.position();
+        sink.putInt(0);
+        final int length = serialize(obj, sink);
+        sink.putInt(start, length);
+        return 4 + length;
+    }
+
+    /**
+     * Convenience method to read a serialized object from a buffer.
+     * The method expects to find a four-byte length prefix at the
+     * position of the buffer and advances the position past the object.
+     *
+     * @param <T> the type of the object
+     * @param buffer the data
+     * @param loader class loader to use
+     * @return Object
+     * @throws IOException if de-serialization fails
+     * @throws ClassNotFoundException thrown if we don't know the object.
+     * @since 3.2
+     */
+    default <T> T deSerializeFrom(ByteBuffer buffer, ClassLoader loader)
+        throws IOException, ClassNotFoundException
+    {
+        if (buffer.remaining() < 4)
+        {
+            throw new EOFException("End of buffer reached (length)");
+        }
+        final int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining())
+        {
+            throw new EOFException("End of buffer reached (object)");
+        }
+
+        final ByteBuffer serialized = buffer.duplicate();
+        serialized.limit(buffer.position() + length);
+        buffer.position(buffer.position() + length);
+
+        return deSerializeBuffer(serialized.slice(), loader);
+    }
+
     /**
      * Convenience method to write serialized object into a stream.
      * The stream data will be prepended with a four-byte length prefix.
@@ -76,13 +188,12 @@ public interface IElementSerializer
         throws IOException
     {
         final byte[] serialized = serialize(obj);
-        final ByteBuffer buffer = ByteBuffer.allocate(4 + serialized.length);
-        buffer.putInt(serialized.length);
-        buffer.put(serialized);
-        buffer.flip();
+        final int length = serialized.length;
 
-        os.write(buffer.array());
-        return buffer.capacity();
+        os.write(new byte[] {(byte) (length >>> 24), (byte) (length >>> 16),
+            (byte) (length >>> 8), (byte) length});
+        os.write(serialized);
+        return 4 + length;
     }
 
     /**
@@ -99,18 +210,18 @@ public interface IElementSerializer
     default <T> int serializeTo(T obj, WritableByteChannel oc)
         throws IOException
     {
-        final byte[] serialized = serialize(obj);
-        final ByteBuffer buffer = ByteBuffer.allocate(4 + serialized.length);
-        buffer.putInt(serialized.length);
-        buffer.put(serialized);
-        buffer.flip();
-
-        int count = 0;
-        while (buffer.hasRemaining())
+        try (ByteBufferSink sink = new ByteBufferSink())
         {
-            count += oc.write(buffer);
+            serializeTo(obj, sink);
+            final ByteBuffer buffer = sink.flip();
+
+            int count = 0;
+            while (buffer.hasRemaining())
+            {
+                count += oc.write(buffer);
+            }
+            return count;
         }
-        return count;
     }
 
     /**
@@ -129,27 +240,27 @@ public interface IElementSerializer
     default <T> int serializeTo(T obj, AsynchronousByteChannel oc, int writeTimeoutMs)
         throws IOException
     {
-        final byte[] serialized = serialize(obj);
-        final ByteBuffer buffer = ByteBuffer.allocate(4 + serialized.length);
-        buffer.putInt(serialized.length);
-        buffer.put(serialized);
-        buffer.flip();
-
-        int count = 0;
-        while (buffer.hasRemaining())
+        try (ByteBufferSink sink = new ByteBufferSink())
         {
-            Future<Integer> bytesWritten = oc.write(buffer);
-            try
-            {
-                count += bytesWritten.get(writeTimeoutMs, TimeUnit.MILLISECONDS);
-            }
-            catch (InterruptedException | ExecutionException | TimeoutException e)
+            serializeTo(obj, sink);
+            final ByteBuffer buffer = sink.flip();
+
+            int count = 0;
+            while (buffer.hasRemaining())
             {
-                throw new IOException("Write timeout exceeded " + writeTimeoutMs, e);
+                Future<Integer> bytesWritten = oc.write(buffer);
+                try
+                {
+                    count += bytesWritten.get(writeTimeoutMs, TimeUnit.MILLISECONDS);
+                }
+                catch (InterruptedException | ExecutionException | TimeoutException e)
+                {
+                    throw new IOException("Write timeout exceeded " + writeTimeoutMs, e);
+                }
             }
-        }
 
-        return count;
+            return count;
+        }
     }
 
     /**
@@ -168,17 +279,17 @@ public interface IElementSerializer
         throws IOException, ClassNotFoundException
     {
         final byte[] bufferSize = new byte[4];
-        int read = is.read(bufferSize);
-        if (read < 0)
+        if (!readFully(is, bufferSize))
         {
             throw new EOFException("End of stream reached");
         }
-        assert read == bufferSize.length;
         ByteBuffer size = ByteBuffer.wrap(bufferSize);
 
         byte[] serialized = new byte[size.getInt()];
-        read = is.read(serialized);
-        assert read == serialized.length;
+        if (!readFully(is, serialized))
+        {
+            throw new EOFException("End of stream reached (object)");
+        }
 
         return deSerialize(serialized, loader);
     }
@@ -199,26 +310,34 @@ public interface IElementSerializer
         throws IOException, ClassNotFoundException
     {
         final ByteBuffer bufferSize = ByteBuffer.allocate(4);
-        int read = ic.read(bufferSize);
-        if (read < 0)
+        while (bufferSize.remaining() > 0)
         {
-            throw new EOFException("End of stream reached (length)");
+            if (ic.read(bufferSize) < 0)
+            {
+                throw new EOFException("End of stream reached (length)");
+            }
         }
-        assert read == bufferSize.capacity();
         bufferSize.flip();
 
-        final ByteBuffer serialized = ByteBuffer.allocate(bufferSize.getInt());
-        while (serialized.remaining() > 0)
+        final ByteBufferPool pool = ByteBufferPool.getDefault();
+        final ByteBuffer serialized = pool.acquire(bufferSize.getInt());
+        try
         {
-            read = ic.read(serialized);
-            if (read < 0)
+            while (serialized.remaining() > 0)
             {
-                throw new EOFException("End of stream reached (object)");
+                if (ic.read(serialized) < 0)
+                {
+                    throw new EOFException("End of stream reached (object)");
+                }
             }
-        }
-        serialized.flip();
+            serialized.flip();
 
-        return deSerialize(serialized.array(), loader);
+            return deSerializeBuffer(serialized, loader);
+        }
+        finally
+        {
+            pool.release(serialized);
+        }
     }
 
     /**
@@ -239,44 +358,82 @@ public interface IElementSerializer
         throws IOException, ClassNotFoundException
     {
         final ByteBuffer bufferSize = ByteBuffer.allocate(4);
-        Future<Integer> readFuture = ic.read(bufferSize);
+        readFully(ic, bufferSize, readTimeoutMs, "length");
+        bufferSize.flip();
 
+        final ByteBufferPool pool = ByteBufferPool.getDefault();
+        final ByteBuffer serialized = pool.acquire(bufferSize.getInt());
         try
         {
-            int read = readFuture.get(readTimeoutMs, TimeUnit.MILLISECONDS);
-            if (read < 0)
-            {
-                throw new EOFException("End of stream reached (length)");
-            }
-            assert read == bufferSize.capacity();
+            readFully(ic, serialized, readTimeoutMs, "object");
+            serialized.flip();
+
+            return deSerializeBuffer(serialized, loader);
         }
-        catch (InterruptedException | ExecutionException | TimeoutException e)
+        finally
         {
-            throw new IOException("Read timeout exceeded (length)" + readTimeoutMs, e);
+            pool.release(serialized);
         }
+    }
 
-        bufferSize.flip();
-
-        final ByteBuffer serialized = ByteBuffer.allocate(bufferSize.getInt());
-        while (serialized.remaining() > 0)
+    /**
+     * Reads from a stream until the array is full.
+     *
+     * @param is the input stream
+     * @param bytes the array to fill
+     * @return false if the stream ended before any byte was read
+     * @throws IOException if reading fails or the stream ends within the data
+     * @since 3.2
+     */
+    static boolean readFully(InputStream is, byte[] bytes)
+        throws IOException
+    {
+        int offset = 0;
+        while (offset < bytes.length)
         {
-            readFuture = ic.read(serialized);
-            try
+            final int read = is.read(bytes, offset, bytes.length - offset);
+            if (read < 0)
             {
-                int read = readFuture.get(readTimeoutMs, TimeUnit.MILLISECONDS);
-                if (read < 0)
+                if (offset == 0)
                 {
-                    throw new EOFException("End of stream reached (object)");
+                    return false;
                 }
+                throw new EOFException("End of stream reached");
+            }
+            offset += read;
+        }
+        return true;
+    }
+
+    /**
+     * Reads from an asynchronous channel until the buffer is full.
+     *
+     * @param ic the input channel
+     * @param buffer the buffer to fill
+     * @param readTimeoutMs the read timeout in milliseconds
+     * @param what the part being read, for error messages
+     * @throws IOException if reading fails, times out or the channel ends
+     * @since 3.2
+     */
+    static void readFully(AsynchronousByteChannel ic, ByteBuffer buffer, int readTimeoutMs, String what)
+        throws IOException
+    {
+        while (buffer.remaining() > 0)
+        {
+            final Future<Integer> readFuture = ic.read(buffer);
+            final int read;
+            try
+            {
+                read = readFuture.get(readTimeoutMs, TimeUnit.MILLISECONDS);
             }
             catch (InterruptedException | ExecutionException | TimeoutException e)
             {
-                throw new IOException("Read timeout exceeded (object)" + readTimeoutMs, e);
+                throw new IOException("Read timeout exceeded (" + what + ")" + readTimeoutMs, e);
+            }
+            if (read < 0)
+            {
+                throw new EOFException("End of stream reached (" + what + ")");
             }
         }
-
-        serialized.flip();
-
-        return deSerialize(serialized.array(), loader);
     }
 }
@@ -30,18 +30,23 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.commons.jcs3.access.exception.CacheException;
 import org.apache.commons.jcs3.access.exception.ObjectNotFoundException;
 import org.apache.commons.jcs3.auxiliary.AuxiliaryCache;
+import org.apache.commons.jcs3.engine.CacheElement;
 import org.apache.commons.jcs3.engine.CacheStatus;
 import org.apache.commons.jcs3.engine.behavior.ICache;
 import org.apache.commons.jcs3.engine.behavior.ICacheElement;
@@ -66,6 +71,7 @@ import org.apache.commons.jcs3.engine.stats.behavior.ICacheStats;
 import org.apache.commons.jcs3.engine.stats.behavior.IStats;
 import org.apache.commons.jcs3.log.Log;
 import org.apache.commons.jcs3.log.LogManager;
+import org.apache.commons.jcs3.utils.struct.TimerWheel;
 
 /**
  * This is the primary hub for a single cache/region. It controls the flow of items through the
@@ -127,6 +133,27 @@ public class CompositeCache<K, V>
     /** Key matcher used by the getMatching API */
     private IKeyMatcher<K> keyMatcher = new KeyMatcherPatternImpl<>();
 
+    /** Loads of missing values in progress, shared by all access objects of the region */
+    private final ConcurrentMap<K, CompletableFuture<V>> loadsInFlight = new ConcurrentHashMap<>();
+
+    /** Reloads elements read after the refresh-ahead fraction of their life */
+    private volatile Function<K, V> reloader;
+
+    /** Keys with a refresh in progress */
+    private final Set<K> refreshesInFlight = ConcurrentHashMap.newKeySet();
+
+    /** Number of refresh-ahead reloads */
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    /** Runs the refresh-ahead reloads */
+    private ScheduledExecutorService scheduler;
+
+    /** Length of a tick of the timer wheel */
+    private static final long TIMER_WHEEL_TICK_MILLIS = 1000;
+
+    /** Expiration times of the elements in memory, if the shrinker uses a timer wheel */
+    private final TimerWheel<K> timerWheel;
+
     private ScheduledFuture<?> future;
 
     /**
@@ -147,6 +174,15 @@ public class CompositeCache<K, V>
         this.missCountNotFound = new AtomicLong();
         this.missCountExpired = new AtomicLong();
 
+        if (cattr.isUseMemoryShrinker() && cattr.isUseTimerWheel())
+        {
+            this.timerWheel = new TimerWheel<>(TIMER_WHEEL_TICK_MILLIS);
+        }
+        else
+        {
+            this.timerWheel = null;
+        }
+
         createMemoryCache(cattr);
 
         log.info("Constructed cache with name [{0}] and cache attributes {1}",
@@ -179,6 +215,8 @@ public class CompositeCache<K, V>
     @Override
     public void setScheduledExecutorService(final ScheduledExecutorService scheduledExecutor)
     {
+        this.scheduler = scheduledExecutor;
+
         if (cacheAttr.isUseMemoryShrinker())
         {
             future = scheduledExecutor.scheduleAtFixedRate(
@@ -297,6 +335,80 @@ public class CompositeCache<K, V>
         updateAuxiliaries(cacheElement, localOnly);
 
         cacheElement.getElementAttributes().setLastAccessTimeNow();
+        scheduleExpiration(cacheElement);
+    }
+
+    /**
+     * Enters the time the element in memory expires or becomes idle into the timer wheel, if
+     * the shrinker uses one. The wheel only holds candidates: the shrinker checks the element
+     * again when its time comes and reschedules it if it was accessed or replaced meanwhile.
+     * <p>
+     * @param element the element in memory
+     */
+    public void scheduleExpiration(final ICacheElement<K, V> element)
+    {
+        if (timerWheel == null)
+        {
+            return;
+        }
+
+        final long expirationTime = getExpirationTime(element);
+        if (expirationTime == Long.MAX_VALUE)
+        {
+            timerWheel.cancel(element.getKey());
+        }
+        else
+        {
+            timerWheel.schedule(element.getKey(), expirationTime);
+        }
+    }
+
+    /**
+     * Calculates the earliest time at which the shrinker has to look at the element: when it
+     * exceeds its max life or idle time, or the max memory idle time of the region.
+     * <p>
+     * @param element the element
+     * @return the time in milliseconds, or Long.MAX_VALUE if the element never expires
+     */
+    private long getExpirationTime(final ICacheElement<K, V> element)
+    {
+        final IElementAttributes attributes = element.getElementAttributes();
+        final long lastAccessTime = attributes.getLastAccessTime();
+        long expirationTime = Long.MAX_VALUE;
+
+        if (!attributes.getIsEternal())
+        {
+            final long timeFactorForMilliseconds = attributes.getTimeFactorForMilliseconds();
+
+            if (attributes.getMaxLife() != -1)
+            {
+                expirationTime = Math.min(expirationTime,
+                        attributes.getCreateTime() + attributes.getMaxLife() * timeFactorForMilliseconds);
+            }
+            if (attributes.getIdleTime() != -1)
+            {
+                expirationTime = Math.min(expirationTime,
+                        lastAccessTime + attributes.getIdleTime() * timeFactorForMilliseconds);
+            }
+        }
+
+        final long maxMemoryIdleTimeSeconds = cacheAttr.getMaxMemoryIdleTimeSeconds();
+        if (maxMemoryIdleTimeSeconds >= 0)
+        {
+            expirationTime = Math.min(expirationTime, lastAccessTime + maxMemoryIdleTimeSeconds * 1000);
+        }
+
+        return expirationTime;
+    }
+
+    /**
+     * Returns the timer wheel holding the expiration times of the elements in memory.
+     * <p>
+     * @return the timer wheel, or null if the shrinker scans the memory cache
+     */
+    public TimerWheel<K> getTimerWheel()
+    {
+        return timerWheel;
     }
 
     /**
@@ -410,6 +522,12 @@ public class CompositeCache<K, V>
      */
     public void spoolToDisk(final ICacheElement<K, V> ce)
     {
+        // the element leaves memory, the shrinker has nothing to do for it anymore
+        if (timerWheel != null)
+        {
+            timerWheel.cancel(ce.getKey());
+        }
+
         // if the item is not spoolable, return
         if (!ce.getElementAttributes().getIsSpool())
         {
@@ -600,11 +718,91 @@ public class CompositeCache<K, V>
         if (element != null)
         {
             element.getElementAttributes().setLastAccessTimeNow();
+
+            if (isRefreshDue(element))
+            {
+                refresh(element);
+            }
         }
 
         return element;
     }
 
+    /**
+     * Checks whether the element was read after the refresh-ahead fraction of its max life
+     * has elapsed.
+     * <p>
+     * @param element the element
+     * @return true if the element should be reloaded
+     */
+    private boolean isRefreshDue(final ICacheElement<K, V> element)
+    {
+        final double refreshAheadFactor = cacheAttr.getRefreshAheadFactor();
+        if (reloader == null || scheduler == null || refreshAheadFactor <= 0 || refreshAheadFactor >= 1)
+        {
+            return false;
+        }
+
+        final IElementAttributes attributes = element.getElementAttributes();
+        final long maxLifeSeconds = attributes.getMaxLife();
+        if (attributes.getIsEternal() || maxLifeSeconds == -1)
+        {
+            return false;
+        }
+
+        final long age = System.currentTimeMillis() - attributes.getCreateTime();
+        return age >= refreshAheadFactor * maxLifeSeconds * attributes.getTimeFactorForMilliseconds();
+    }
+
+    /**
+     * Reloads the element on the scheduler of the region and replaces it with the new value,
+     * unless a reload of the key is already in progress. The reloaded element gets a copy of the
+     * attributes of the current element and thus starts a new life.
+     * <p>
+     * @param element the element to refresh
+     */
+    private void refresh(final ICacheElement<K, V> element)
+    {
+        final K key = element.getKey();
+        if (!refreshesInFlight.add(key))
+        {
+            return;
+        }
+
+        try
+        {
+            scheduler.execute(() -> {
+                try
+                {
+                    final Function<K, V> currentReloader = this.reloader;
+                    final V value = currentReloader != null ? currentReloader.apply(key) : null;
+                    if (value != null && alive.get())
+                    {
+                        final CacheElement<K, V> ce = new CacheElement<>(getCacheName(), key, value);
+                        ce.setElementAttributes(element.getElementAttributes().clone());
+                        update(ce);
+                        refreshCount.incrementAndGet();
+
+                        log.debug("{0} - Refreshed key [{1}]", this::getCacheName, () -> key);
+                    }
+                }
+                catch (final Exception e)
+                {
+                    log.warn("Failure refreshing key [{0}] in region [{1}]", key, getCacheName(), e);
+                }
+                finally
+                {
+                    refreshesInFlight.remove(key);
+                }
+            });
+        }
+        catch (final RuntimeException e)
+        {
+            refreshesInFlight.remove(key);
+            log.warn("Could not schedule refresh of key [{0}] in region [{1}]", key, getCacheName(), e);
+        }
+    }
+
     protected void doExpires(final ICacheElement<K, V> element)
     {
         missCountExpired.incrementAndGet();
@@ -960,6 +1158,7 @@ public class CompositeCache<K, V>
         if (memCache.getCacheAttributes().getMaxObjects() > 0)
         {
             memCache.update(element);
+            scheduleExpiration(element);
         }
         else
         {
@@ -1073,6 +1272,11 @@ public class CompositeCache<K, V>
             log.error(e);
         }
 
+        if (timerWheel != null)
+        {
+            timerWheel.cancel(key);
+        }
+
         // Removes from all auxiliary caches.
         for (final ICache<K, V> aux : auxCaches)
         {
@@ -1154,6 +1358,11 @@ public class CompositeCache<K, V>
             log.error("Trouble updating memory cache.", ex);
         }
 
+        if (timerWheel != null)
+        {
+            timerWheel.clear();
+        }
+
         // Removes from all auxiliary disk caches.
         auxCaches.stream()
             .filter(aux -> aux.getCacheType() == CacheType.DISK_CACHE || !localOnly)
@@ -1370,7 +1579,8 @@ public class CompositeCache<K, V>
         // store the composite cache stats first
         stats.setStatElements(Arrays.asList(
                 new StatElement<>("HitCountRam", Long.valueOf(getHitCountRam())),
-                new StatElement<>("HitCountAux", Long.valueOf(getHitCountAux()))));
+                new StatElement<>("HitCountAux", Long.valueOf(getHitCountAux())),
+                new StatElement<>("RefreshCount", Long.valueOf(getRefreshCount()))));
 
         // memory + aux, memory is not considered an auxiliary internally
         final ArrayList<IStats> auxStats = new ArrayList<>(auxCaches.size() + 1);
@@ -1683,6 +1893,37 @@ public class CompositeCache<K, V>
         return this.keyMatcher;
     }
 
+    /**
+     * @return Returns the number of refresh-ahead reloads.
+     */
+    public long getRefreshCount()
+    {
+        return refreshCount.get();
+    }
+
+    /**
+     * Registers the function used to reload elements read after the refresh-ahead fraction of
+     * their max life, see {@link ICompositeCacheAttributes#getRefreshAheadFactor()}. The reloader
+     * runs on the scheduler of the region. If it returns null, the element is left to expire.
+     * <p>
+     * @param reloader the reloader, or null to disable refresh-ahead
+     */
+    public void setReloader(final Function<K, V> reloader)
+    {
+        this.reloader = reloader;
+    }
+
+    /**
+     * Returns the loads in progress by key. Callers missing a key register the future of their
+     * load here, so that concurrent callers for the same key wait for it instead of loading again.
+     * <p>
+     * @return the loads in flight
+     */
+    public ConcurrentMap<K, CompletableFuture<V>> getLoadsInFlight()
+    {
+        return this.loadsInFlight;
+    }
+
     /**
      * This returns the stats.
      * <p>
@@ -23,16 +23,20 @@ import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.jcs3.engine.behavior.ICacheElement;
 import org.apache.commons.jcs3.engine.control.CompositeCache;
 import org.apache.commons.jcs3.engine.control.group.GroupAttrName;
+import org.apache.commons.jcs3.engine.memory.behavior.IWeigher;
+import org.apache.commons.jcs3.engine.memory.util.DefaultWeigher;
 import org.apache.commons.jcs3.engine.memory.util.MemoryElementDescriptor;
 import org.apache.commons.jcs3.engine.stats.StatElement;
 import org.apache.commons.jcs3.engine.stats.behavior.IStatElement;
 import org.apache.commons.jcs3.engine.stats.behavior.IStats;
 import org.apache.commons.jcs3.log.Log;
 import org.apache.commons.jcs3.log.LogManager;
+import org.apache.commons.jcs3.utils.config.OptionConverter;
 import org.apache.commons.jcs3.utils.struct.DoubleLinkedList;
 
 /**
@@ -51,6 +55,12 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K, V> extends Abstract
     /** thread-safe double linked list for lru */
     protected DoubleLinkedList<MemoryElementDescriptor<K, V>> list; // TODO privatise
 
+    /** The weigher, only set if the region has a byte limit */
+    private IWeigher<K, V> weigher;
+
+    /** The sum of the weights of all elements in the list */
+    private final AtomicLong weightedSize = new AtomicLong();
+
     /**
      * For post reflection creation initialization.
      * <p>
@@ -62,6 +72,17 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K, V> extends Abstract
     {
         super.initialize(hub);
         list = new DoubleLinkedList<>();
+        weightedSize.set(0);
+
+        if (getCacheAttributes().getMaxBytes() > 0)
+        {
+            weigher = OptionConverter.instantiateByClassName(
+                    getCacheAttributes().getWeigherClassName(), new DefaultWeigher<>());
+            log.info("{0}: memory cache limited to {1} bytes using {2}",
+                    this::getCacheName, getCacheAttributes()::getMaxBytes,
+                    () -> weigher.getClass().getName());
+        }
+
         log.info("initialized MemoryCache for {0}", this::getCacheName);
     }
 
@@ -99,6 +120,11 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K, V> extends Abstract
         try
         {
             final MemoryElementDescriptor<K, V> newNode = adjustListForUpdate(ce);
+            if (weigher != null)
+            {
+                newNode.setWeight(weigher.weigh(ce));
+                weightedSize.addAndGet(newNode.getWeight());
+            }
 
             // this should be synchronized if we were not using a ConcurrentHashMap
             final K key = newNode.getCacheElement().getKey();
@@ -107,7 +133,7 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K, V> extends Abstract
             // If the node was the same as an existing node, remove it.
             if (oldNode != null && key.equals(oldNode.getCacheElement().getKey()))
             {
-                list.remove(oldNode);
+                lockedRemoveElement(oldNode);
             }
         }
         finally
@@ -142,6 +168,19 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K, V> extends Abstract
 
         if (size <= this.getCacheAttributes().getMaxObjects())
         {
+            if (isOverWeight())
+            {
+                lock.lock();
+                try
+                {
+                    freeWeight();
+                }
+                finally
+                {
+                    lock.unlock();
+                }
+            }
+
             return;
         }
 
@@ -163,6 +202,7 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K, V> extends Abstract
         try
         {
             freeElements(chunkSizeCorrected);
+            freeWeight();
 
             // If this is out of the sync block it can detect a mismatch
             // where there is none.
@@ -181,6 +221,39 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K, V> extends Abstract
                 () -> map.size(), () -> list.size());
     }
 
+    /**
+     * @return true if the region has a byte limit and the weight of the elements exceeds it
+     */
+    private boolean isOverWeight()
+    {
+        return weigher != null && weightedSize.get() > getCacheAttributes().getMaxBytes();
+    }
+
+    /**
+     * Spools elements from the end of the list until their accumulated weight is within the
+     * byte limit of the region.
+     * (guarded by the lock)
+     *
+     * @return the number of elements removed
+     */
+    protected int freeWeight()
+    {
+        int freed = 0;
+
+        while (isOverWeight() && spoolLastElement() != null)
+        {
+            freed++;
+        }
+
+        if (freed > 0)
+        {
+            log.debug("{0}: freed {1} elements to meet the byte limit, weight now {2}",
+                    getCacheName(), freed, weightedSize.get());
+        }
+
+        return freed;
+    }
+
     /**
      * This instructs the memory cache to remove the <i>numberToFree</i> according to its eviction
      * policy. For example, the LRUMemoryCache will remove the <i>numberToFree</i> least recently
@@ -248,7 +321,7 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K, V> extends Abstract
                 }
             }
 
-            list.remove(last);
+            lockedRemoveElement(last);
         }
 
         return toSpool;
@@ -300,6 +373,7 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K, V> extends Abstract
     protected void lockedRemoveElement(final MemoryElementDescriptor<K, V> me)
     {
         list.remove(me);
+        weightedSize.addAndGet(-me.getWeight());
     }
 
     /**
@@ -310,6 +384,7 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K, V> extends Abstract
     protected void lockedRemoveAll()
     {
         list.removeAll();
+        weightedSize.set(0);
     }
 
     // --------------------------- internal methods (linked list implementation)
@@ -504,6 +579,10 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K, V> extends Abstract
         final List<IStatElement<?>> elems = stats.getStatElements();
 
         elems.add(new StatElement<>("List Size", Integer.valueOf(list.size())));
+        if (weigher != null)
+        {
+            elems.add(new StatElement<>("Weighted Size", Long.valueOf(weightedSize.get())));
+        }
 
         return stats;
     }
@@ -0,0 +1,40 @@
+package org.apache.commons.jcs3.engine.memory.behavior;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+
+/**
+ * Calculates the weight of a cache element, i.e. the approximate number of bytes it occupies on
+ * the heap. Memory caches use it to enforce the MaxBytes limit of a region.
+ * <p>
+ * The weight of an element is calculated once, when it is put into the memory cache. Implementations
+ * should therefore be cheap and must not depend on mutable state of the value.
+ */
+public interface IWeigher<K, V>
+{
+    /**
+     * Returns the weight of the element.
+     * <p>
+     * @param ce the cache element
+     * @return the weight in bytes, never negative
+     */
+    long weigh( ICacheElement<K, V> ce );
+}
@@ -0,0 +1,180 @@
+package org.apache.commons.jcs3.engine.memory.lru;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+import org.apache.commons.jcs3.engine.control.CompositeCache;
+import org.apache.commons.jcs3.engine.memory.util.MemoryElementDescriptor;
+import org.apache.commons.jcs3.engine.stats.StatElement;
+import org.apache.commons.jcs3.engine.stats.behavior.IStatElement;
+import org.apache.commons.jcs3.engine.stats.behavior.IStats;
+import org.apache.commons.jcs3.log.Log;
+import org.apache.commons.jcs3.log.LogManager;
+import org.apache.commons.jcs3.utils.struct.StripedRingBuffer;
+
+/**
+ * An LRU memory cache with a lock-free read path.
+ * <p>
+ * The plain LRUMemoryCache takes the region lock on every hit to move the element to the front of
+ * the list. With many threads reading a hot region, this serializes all readers. This
+ * implementation records hits in striped ring buffers instead and replays them against the list in
+ * batches. A batch is applied when a buffer fills up (if the lock is free), and always before an
+ * update or an eviction so that spooling sees a recent access order.
+ * <p>
+ * Hits may be dropped when the buffers are full. This only makes the LRU order slightly less
+ * exact, it never affects the correctness of the cache contents.
+ */
+public class BufferedLRUMemoryCache<K, V>
+    extends LRUMemoryCache<K, V>
+{
+    /** The logger. */
+    private static final Log log = LogManager.getLog( BufferedLRUMemoryCache.class );
+
+    /** Recorded hits that have not been applied to the list yet */
+    private StripedRingBuffer<MemoryElementDescriptor<K, V>> readBuffer;
+
+    /**
+     * For post reflection creation initialization.
+     * <p>
+     * @param hub
+     */
+    @Override
+    public void initialize( final CompositeCache<K, V> hub )
+    {
+        super.initialize( hub );
+        readBuffer = new StripedRingBuffer<>();
+        log.info( "initialized BufferedLRUMemoryCache for {0}", this::getCacheName );
+    }
+
+    /**
+     * Get an item from the cache. This does not take the region lock unless the read buffer of
+     * the calling thread needs draining and the lock is free.
+     * <p>
+     * @param key Identifies item to find
+     * @return ICacheElement&lt;K, V&gt; if found, else null
+     * @throws IOException
+     */
+    @Override
+    public ICacheElement<K, V> get( final K key )
+        throws IOException
+    {
+        final MemoryElementDescriptor<K, V> me = map.get( key );
+
+        if ( me == null )
+        {
+            missCnt.incrementAndGet();
+            log.debug( "{0}: MemoryCache miss for {1}", this::getCacheName, () -> key );
+            return null;
+        }
+
+        hitCnt.incrementAndGet();
+        log.debug( "{0}: MemoryCache hit for {1}", this::getCacheName, () -> key );
+
+        if ( readBuffer.offer( me ) && lock.tryLock() )
+        {
+            try
+            {
+                drainReadBuffer();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        return me.getCacheElement();
+    }
+
+    /**
+     * Applies the pending hits before adding the new element first.
+     * (guarded by the lock)
+     * <p>
+     * @param ce The cache element, or entry wrapper
+     * @return MemoryElementDescriptor the new node
+     * @throws IOException
+     */
+    @Override
+    protected MemoryElementDescriptor<K, V> adjustListForUpdate( final ICacheElement<K, V> ce )
+        throws IOException
+    {
+        drainReadBuffer();
+        return super.adjustListForUpdate( ce );
+    }
+
+    /**
+     * Applies the pending hits so that the least recently used elements are freed.
+     * <p>
+     * @param numberToFree
+     * @return the number that were removed.
+     */
+    @Override
+    public int freeElements( final int numberToFree )
+    {
+        lock.lock();
+        try
+        {
+            drainReadBuffer();
+            return super.freeElements( numberToFree );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all cached items from the cache control structures.
+     * (guarded by the lock)
+     */
+    @Override
+    protected void lockedRemoveAll()
+    {
+        readBuffer.clear();
+        super.lockedRemoveAll();
+    }
+
+    /**
+     * Replays the recorded hits against the list. Elements that have been removed from the list
+     * in the meantime are ignored by the list.
+     * (guarded by the lock)
+     */
+    private void drainReadBuffer()
+    {
+        readBuffer.drainTo( this::adjustListForGet );
+    }
+
+    /**
+     * @return statistics about the cache
+     */
+    @Override
+    public IStats getStatistics()
+    {
+        final IStats stats = super.getStatistics();
+        stats.setTypeName( "Buffered LRU Memory Cache" );
+
+        final List<IStatElement<?>> elems = stats.getStatElements();
+        elems.add( new StatElement<>( "Pending Reads", Integer.valueOf( readBuffer.size() ) ) );
+
+        return stats;
+    }
+}
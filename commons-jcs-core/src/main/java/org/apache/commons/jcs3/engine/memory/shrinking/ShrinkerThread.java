@@ -19,6 +19,8 @@ package org.apache.commons.jcs3.engine.memory.shrinking;
  * under the License.
  */
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.jcs3.engine.behavior.ICacheElement;
@@ -28,6 +30,7 @@ import org.apache.commons.jcs3.engine.control.event.behavior.ElementEventType;
 import org.apache.commons.jcs3.engine.memory.behavior.IMemoryCache;
 import org.apache.commons.jcs3.log.Log;
 import org.apache.commons.jcs3.log.LogManager;
+import org.apache.commons.jcs3.utils.struct.TimerWheel;
 
 /**
  * A background memory shrinker. Memory problems and concurrent modification exception caused by
@@ -100,6 +103,9 @@ public class ShrinkerThread<K, V>
      * the element attributes? If so, remove it. If there are event listeners registered for the
      * cache element, they will be called.</li>
      * </ol>
+     * If the region maintains a timer wheel, only the elements whose time has come are checked,
+     * see {@link #shrinkDue(TimerWheel)}.
+     * <p>
      * TODO Change element event handling to use the queue, then move the queue to the region and
      *       access via the Cache.
      */
@@ -107,6 +113,13 @@ public class ShrinkerThread<K, V>
     {
         log.debug( "Shrinking memory cache for: {0}", this.cache::getCacheName);
 
+        final TimerWheel<K> timerWheel = cache.getTimerWheel();
+        if ( timerWheel != null )
+        {
+            shrinkDue( timerWheel );
+            return;
+        }
+
         final IMemoryCache<K, V> memCache = cache.getMemoryCache();
 
         try
@@ -196,4 +209,69 @@ public class ShrinkerThread<K, V>
             return;
         }
     }
+
+    /**
+     * Checks only the elements that fell due in the timer wheel of the region since the last run,
+     * instead of all elements in memory. The checks are the same as for the full scan. Elements
+     * that turn out not to be expired, because they were accessed or replaced after they were
+     * scheduled, are scheduled again with their current expiration time. So are idle elements
+     * that exceed the spool limit of this run.
+     * <p>
+     * @param timerWheel the timer wheel of the region
+     */
+    protected void shrinkDue( final TimerWheel<K> timerWheel )
+    {
+        final IMemoryCache<K, V> memCache = cache.getMemoryCache();
+        final long now = System.currentTimeMillis();
+
+        final List<K> dueKeys = new ArrayList<>();
+        timerWheel.advance( now, dueKeys::add );
+        log.debug( "Due keys: {0}", dueKeys.size() );
+
+        int spoolCount = 0;
+
+        for ( final K key : dueKeys )
+        {
+            try
+            {
+                final ICacheElement<K, V> cacheElement = memCache.getQuiet( key );
+
+                if ( cacheElement == null )
+                {
+                    // removed or spooled meanwhile
+                    continue;
+                }
+
+                final IElementAttributes attributes = cacheElement.getElementAttributes();
+
+                if ( !attributes.getIsEternal()
+                    && cache.isExpired( cacheElement, now,
+                        ElementEventType.EXCEEDED_MAXLIFE_BACKGROUND,
+                        ElementEventType.EXCEEDED_IDLETIME_BACKGROUND ) )
+                {
+                    memCache.remove( key );
+                    continue;
+                }
+
+                if ( maxMemoryIdleTime != -1
+                    && attributes.getLastAccessTime() + maxMemoryIdleTime < now
+                    && ( !spoolLimit || spoolCount < this.maxSpoolPerRun ) )
+                {
+                    log.debug( "Exceeded memory idle time: {0}", key );
+
+                    spoolCount++;
+
+                    memCache.remove( key );
+                    memCache.waterfal( cacheElement );
+                    continue;
+                }
+
+                cache.scheduleExpiration( cacheElement );
+            }
+            catch ( final Exception e )
+            {
+                log.info( "Unexpected trouble in shrink cycle for key {0}", key, e );
+            }
+        }
+    }
 }
@@ -0,0 +1,189 @@
+package org.apache.commons.jcs3.engine.memory.tinylfu;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+
+/**
+ * A count-min sketch estimating the access frequency of keys in a fixed amount of memory.
+ * <p>
+ * Each long of the table holds sixteen 4-bit counters. A key is mapped to four counters, one in
+ * each of four rows selected by differently seeded hashes, and its frequency is the minimum of
+ * these counters. The counters saturate at 15.
+ * <p>
+ * To let the sketch adapt to changing access patterns, all counters are halved once the number of
+ * recorded increments reaches ten times the configured capacity.
+ * <p>
+ * This class is not thread safe. The memory cache guards it with its lock.
+ */
+public class FrequencySketch
+{
+    /** Hash seeds, one per row */
+    private static final long[] SEED = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+    /** Mask to clear the high bit of each counter when halving */
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    /** Mask to count the odd counters lost when halving */
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    /** The counters */
+    private final long[] table;
+
+    /** Mask for the table index */
+    private final int tableMask;
+
+    /** Number of increments after which the counters are halved */
+    private final int sampleSize;
+
+    /** Number of increments since the last reset */
+    private int size;
+
+    /**
+     * Constructs a sketch for a cache of the given capacity.
+     * <p>
+     * @param capacity the expected maximum number of entries
+     */
+    public FrequencySketch(final int capacity)
+    {
+        final int maximum = Math.max(capacity, 16);
+        int length = 1;
+        while (length < maximum)
+        {
+            length <<= 1;
+        }
+
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = 10 * maximum;
+    }
+
+    /**
+     * Returns the estimated number of occurrences of the key, up to 15.
+     * <p>
+     * @param key the key
+     * @return the estimated frequency
+     */
+    public int frequency(final Object key)
+    {
+        final int hash = spread(key.hashCode());
+        final int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+
+        for (int i = 0; i < 4; i++)
+        {
+            final int index = indexOf(hash, i);
+            final int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+
+        return frequency;
+    }
+
+    /**
+     * Records an occurrence of the key. Halves all counters if the sample size is reached.
+     * <p>
+     * @param key the key
+     */
+    public void increment(final Object key)
+    {
+        final int hash = spread(key.hashCode());
+        final int start = (hash & 3) << 2;
+        boolean added = false;
+
+        for (int i = 0; i < 4; i++)
+        {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+
+        if (added && ++size >= sampleSize)
+        {
+            reset();
+        }
+    }
+
+    /**
+     * Clears all counters.
+     */
+    public void clear()
+    {
+        Arrays.fill(table, 0L);
+        size = 0;
+    }
+
+    /**
+     * Increments the counter at the given position if it is not saturated.
+     * <p>
+     * @param i the table index
+     * @param j the counter index within the long
+     * @return true if the counter was incremented
+     */
+    private boolean incrementAt(final int i, final int j)
+    {
+        final int offset = j << 2;
+        final long mask = 0xfL << offset;
+        if ((table[i] & mask) != mask)
+        {
+            table[i] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Halves every counter and adjusts the sample count accordingly.
+     */
+    private void reset()
+    {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++)
+        {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size - (odd >>> 2)) >>> 1;
+    }
+
+    /**
+     * @param hash the spread hash of the key
+     * @param row the row
+     * @return the table index of the key for the row
+     */
+    private int indexOf(final int hash, final int row)
+    {
+        long h = (hash + SEED[row]) * SEED[row];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    /**
+     * Applies a supplemental hash function to defend against poor quality hash codes.
+     * <p>
+     * @param hashCode the hash code
+     * @return the spread hash
+     */
+    private static int spread(final int hashCode)
+    {
+        int x = ((hashCode >>> 16) ^ hashCode) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
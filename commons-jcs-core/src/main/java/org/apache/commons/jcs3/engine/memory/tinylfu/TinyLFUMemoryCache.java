@@ -0,0 +1,397 @@
+package org.apache.commons.jcs3.engine.memory.tinylfu;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+import org.apache.commons.jcs3.engine.control.CompositeCache;
+import org.apache.commons.jcs3.engine.memory.AbstractMemoryCache;
+import org.apache.commons.jcs3.engine.memory.util.MemoryElementDescriptor;
+import org.apache.commons.jcs3.engine.stats.StatElement;
+import org.apache.commons.jcs3.engine.stats.behavior.IStatElement;
+import org.apache.commons.jcs3.engine.stats.behavior.IStats;
+import org.apache.commons.jcs3.log.Log;
+import org.apache.commons.jcs3.log.LogManager;
+import org.apache.commons.jcs3.utils.struct.DoubleLinkedList;
+
+/**
+ * A memory cache implementing the W-TinyLFU policy.
+ * <p>
+ * New elements enter a small LRU admission window (1% of maxObjects). Elements falling out of the
+ * window compete with the least recently used element of the main space for admission: the one
+ * with the higher estimated access frequency, as recorded by a {@link FrequencySketch}, is kept.
+ * The main space is a segmented LRU with a probation segment for elements seen once and a protected
+ * segment (80% of the main space) for elements hit again while on probation.
+ * <p>
+ * This keeps frequently used elements in memory when the region is scanned by a burst of
+ * one-time accesses, which flushes a plain LRU cache. Evicted elements are spooled to disk if the
+ * region has a disk auxiliary.
+ */
+public class TinyLFUMemoryCache<K, V>
+    extends AbstractMemoryCache<K, V>
+{
+    /** The logger. */
+    private static final Log log = LogManager.getLog( TinyLFUMemoryCache.class );
+
+    /** Queue id of the admission window */
+    private static final int WINDOW = 0;
+
+    /** Queue id of the probation segment */
+    private static final int PROBATION = 1;
+
+    /** Queue id of the protected segment */
+    private static final int PROTECTED = 2;
+
+    /** Percentage of maxObjects reserved for the admission window */
+    private static final int WINDOW_PERCENT = 1;
+
+    /** Percentage of the main space reserved for the protected segment */
+    private static final int PROTECTED_PERCENT = 80;
+
+    /** The admission window */
+    private DoubleLinkedList<TinyLFUElementDescriptor<K, V>> window;
+
+    /** Elements admitted to the main space but not hit since */
+    private DoubleLinkedList<TinyLFUElementDescriptor<K, V>> probation;
+
+    /** Elements hit while on probation */
+    private DoubleLinkedList<TinyLFUElementDescriptor<K, V>> protectedSegment;
+
+    /** The access frequency estimates */
+    private FrequencySketch sketch;
+
+    /** Number of candidates rejected by the admission filter */
+    private long rejectedCnt;
+
+    /**
+     * For post reflection creation initialization
+     * <p>
+     * @param hub
+     */
+    @Override
+    public void initialize( final CompositeCache<K, V> hub )
+    {
+        super.initialize( hub );
+        window = new DoubleLinkedList<>();
+        probation = new DoubleLinkedList<>();
+        protectedSegment = new DoubleLinkedList<>();
+        sketch = new FrequencySketch( getCacheAttributes().getMaxObjects() );
+        log.info( "initialized TinyLFUMemoryCache for {0}", this::getCacheName );
+    }
+
+    /**
+     * @see org.apache.commons.jcs3.engine.memory.AbstractMemoryCache#createMap()
+     */
+    @Override
+    public ConcurrentMap<K, MemoryElementDescriptor<K, V>> createMap()
+    {
+        return new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Puts an item to the cache. The item enters the admission window and may push other items
+     * out of memory.
+     * <p>
+     * @param ce the cache element
+     * @throws IOException
+     */
+    @Override
+    public void update( final ICacheElement<K, V> ce )
+        throws IOException
+    {
+        putCnt.incrementAndGet();
+
+        lock.lock();
+        try
+        {
+            final TinyLFUElementDescriptor<K, V> newNode = new TinyLFUElementDescriptor<>( ce );
+            final MemoryElementDescriptor<K, V> oldNode = map.put( ce.getKey(), newNode );
+            if ( oldNode != null )
+            {
+                lockedRemoveElement( oldNode );
+            }
+
+            sketch.increment( ce.getKey() );
+            newNode.queue = WINDOW;
+            window.addFirst( newNode );
+
+            evict();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves elements overflowing the window into the main space, evicting the less frequently
+     * used one of candidate and victim if the main space is full.
+     * (guarded by the lock)
+     */
+    private void evict()
+    {
+        final int maxObjects = Math.max( 0, getCacheAttributes().getMaxObjects() );
+        final int windowMax = getWindowMax( maxObjects );
+        final int mainMax = maxObjects - windowMax;
+
+        while ( window.size() > windowMax )
+        {
+            final TinyLFUElementDescriptor<K, V> candidate = window.getLast();
+            window.remove( candidate );
+            candidate.queue = -1;
+
+            if ( probation.size() + protectedSegment.size() < mainMax )
+            {
+                candidate.queue = PROBATION;
+                probation.addFirst( candidate );
+                continue;
+            }
+
+            TinyLFUElementDescriptor<K, V> victim = probation.getLast();
+            if ( victim == null )
+            {
+                victim = protectedSegment.getLast();
+            }
+
+            if ( victim != null
+                && sketch.frequency( candidate.getCacheElement().getKey() )
+                    > sketch.frequency( victim.getCacheElement().getKey() ) )
+            {
+                spool( victim );
+                candidate.queue = PROBATION;
+                probation.addFirst( candidate );
+            }
+            else
+            {
+                rejectedCnt++;
+                spool( candidate );
+            }
+        }
+    }
+
+    /**
+     * Removes the element from memory and hands it over to the disk cache.
+     * (guarded by the lock)
+     * <p>
+     * @param me the element to evict
+     */
+    private void spool( final TinyLFUElementDescriptor<K, V> me )
+    {
+        lockedRemoveElement( me );
+
+        final ICacheElement<K, V> ce = me.getCacheElement();
+        map.remove( ce.getKey(), me );
+        waterfal( ce );
+    }
+
+    /**
+     * @param maxObjects the capacity of the region
+     * @return the capacity of the admission window
+     */
+    private static int getWindowMax( final int maxObjects )
+    {
+        return Math.min( maxObjects, Math.max( 1, maxObjects * WINDOW_PERCENT / 100 ) );
+    }
+
+    /**
+     * Records the access and promotes the element according to its segment.
+     * (guarded by the lock)
+     *
+     * @param me the memory element descriptor
+     */
+    @Override
+    protected void lockedGetElement( final MemoryElementDescriptor<K, V> me )
+    {
+        final TinyLFUElementDescriptor<K, V> node = (TinyLFUElementDescriptor<K, V>) me;
+        if ( node.queue < 0 )
+        {
+            // removed concurrently
+            return;
+        }
+
+        sketch.increment( node.getCacheElement().getKey() );
+
+        switch ( node.queue )
+        {
+            case WINDOW:
+                window.makeFirst( node );
+                break;
+
+            case PROBATION:
+                probation.remove( node );
+                node.queue = PROTECTED;
+                protectedSegment.addFirst( node );
+
+                final int maxObjects = Math.max( 0, getCacheAttributes().getMaxObjects() );
+                final int protectedMax = ( maxObjects - getWindowMax( maxObjects ) ) * PROTECTED_PERCENT / 100;
+                while ( protectedSegment.size() > protectedMax )
+                {
+                    final TinyLFUElementDescriptor<K, V> demoted = protectedSegment.getLast();
+                    protectedSegment.remove( demoted );
+                    demoted.queue = PROBATION;
+                    probation.addFirst( demoted );
+                }
+                break;
+
+            default:
+                protectedSegment.makeFirst( node );
+                break;
+        }
+    }
+
+    /**
+     * Remove element from control structure
+     * (guarded by the lock)
+     *
+     * @param me the memory element descriptor
+     */
+    @Override
+    protected void lockedRemoveElement( final MemoryElementDescriptor<K, V> me )
+    {
+        final TinyLFUElementDescriptor<K, V> node = (TinyLFUElementDescriptor<K, V>) me;
+        switch ( node.queue )
+        {
+            case WINDOW:
+                window.remove( node );
+                break;
+
+            case PROBATION:
+                probation.remove( node );
+                break;
+
+            case PROTECTED:
+                protectedSegment.remove( node );
+                break;
+
+            default:
+                // already removed
+                break;
+        }
+        node.queue = -1;
+    }
+
+    /**
+     * Removes all cached items from the cache control structures.
+     * (guarded by the lock)
+     */
+    @Override
+    protected void lockedRemoveAll()
+    {
+        map.values().forEach( me -> ( (TinyLFUElementDescriptor<K, V>) me ).queue = -1 );
+        window.removeAll();
+        probation.removeAll();
+        protectedSegment.removeAll();
+        sketch.clear();
+    }
+
+    /**
+     * Frees the least valuable elements: first those on probation, then those in the window and
+     * last the protected ones. These will be spooled to disk if a disk auxiliary is available.
+     * <p>
+     * @param numberToFree
+     * @return the number that were removed.
+     */
+    @Override
+    public int freeElements( final int numberToFree )
+    {
+        int freed = 0;
+
+        lock.lock();
+        try
+        {
+            for ( ; freed < numberToFree; freed++ )
+            {
+                TinyLFUElementDescriptor<K, V> last = probation.getLast();
+                if ( last == null )
+                {
+                    last = window.getLast();
+                }
+                if ( last == null )
+                {
+                    last = protectedSegment.getLast();
+                }
+                if ( last == null )
+                {
+                    break;
+                }
+
+                spool( last );
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        return freed;
+    }
+
+    /**
+     * @return statistics about the cache
+     */
+    @Override
+    public IStats getStatistics()
+    {
+        final IStats stats = super.getStatistics();
+        stats.setTypeName( "TinyLFU Memory Cache" );
+
+        final List<IStatElement<?>> elems = stats.getStatElements();
+
+        lock.lock();
+        try
+        {
+            elems.add( new StatElement<>( "Window Size", Integer.valueOf( window.size() ) ) );
+            elems.add( new StatElement<>( "Probation Size", Integer.valueOf( probation.size() ) ) );
+            elems.add( new StatElement<>( "Protected Size", Integer.valueOf( protectedSegment.size() ) ) );
+            elems.add( new StatElement<>( "Rejected Count", Long.valueOf( rejectedCnt ) ) );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        return stats;
+    }
+
+    /**
+     * A memory element descriptor that knows which segment it belongs to.
+     */
+    private static class TinyLFUElementDescriptor<K, V>
+        extends MemoryElementDescriptor<K, V>
+    {
+        /** Don't change */
+        private static final long serialVersionUID = 4352718925127640457L;
+
+        /** The segment, or -1 if removed */
+        int queue = -1;
+
+        /**
+         * @param ce the cache element
+         */
+        TinyLFUElementDescriptor( final ICacheElement<K, V> ce )
+        {
+            super( ce );
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.apache.commons.jcs3.engine.memory.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.IntToLongFunction;
+
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+import org.apache.commons.jcs3.engine.behavior.ICacheElementSerialized;
+import org.apache.commons.jcs3.engine.memory.behavior.IWeigher;
+
+/**
+ * A weigher that estimates the heap size of an element from the types of key and value, without
+ * serializing anything.
+ * <p>
+ * Strings, arrays, boxed primitives, collections and maps are measured from their length. The
+ * contents of arrays, collections and maps are estimated from a sample of their first elements and
+ * only up to a small nesting depth. Any other object is counted with a fixed size. Regions holding
+ * large objects of their own classes should configure a specific weigher via WeigherClassName.
+ */
+public class DefaultWeigher<K, V>
+    implements IWeigher<K, V>
+{
+    /** Estimated size of the element wrapper, its attributes, descriptor and map entry */
+    protected static final long ELEMENT_OVERHEAD = 160;
+
+    /** Object header size */
+    protected static final long OBJECT_HEADER = 16;
+
+    /** Size of a reference */
+    protected static final long REFERENCE_SIZE = 8;
+
+    /** Size assumed for objects of unknown type */
+    protected static final long DEFAULT_OBJECT_SIZE = 64;
+
+    /** Maximum nesting level of containers to look into */
+    private static final int MAX_DEPTH = 3;
+
+    /** Number of container elements to sample */
+    private static final int SAMPLE_SIZE = 16;
+
+    /**
+     * Returns the estimated weight of the element.
+     * <p>
+     * @param ce the cache element
+     * @return the weight in bytes
+     */
+    @Override
+    public long weigh( final ICacheElement<K, V> ce )
+    {
+        long weight = ELEMENT_OVERHEAD + estimate( ce.getKey(), 0 );
+
+        if ( ce instanceof ICacheElementSerialized )
+        {
+            final byte[] serialized = ( (ICacheElementSerialized<K, V>) ce ).getSerializedValue();
+            weight += estimate( serialized, 0 );
+        }
+        else
+        {
+            weight += estimate( ce.getVal(), 0 );
+        }
+
+        return weight;
+    }
+
+    /**
+     * Estimates the heap size of an object.
+     * <p>
+     * @param o the object
+     * @param depth the current nesting depth
+     * @return the estimated size in bytes
+     */
+    protected long estimate( final Object o, final int depth )
+    {
+        if ( o == null || o instanceof Enum )
+        {
+            return 0;
+        }
+
+        if ( o instanceof String )
+        {
+            return OBJECT_HEADER + 24 + 2L * ( (String) o ).length();
+        }
+
+        if ( o instanceof Number || o instanceof Boolean || o instanceof Character )
+        {
+            return OBJECT_HEADER + 8;
+        }
+
+        final Class<?> type = o.getClass();
+        if ( type.isArray() )
+        {
+            final int length = Array.getLength( o );
+            final Class<?> componentType = type.getComponentType();
+
+            if ( componentType.isPrimitive() )
+            {
+                return OBJECT_HEADER + length * primitiveSize( componentType );
+            }
+
+            return OBJECT_HEADER + length * REFERENCE_SIZE
+                + sample( length, depth, i -> estimate( Array.get( o, i ), depth + 1 ) );
+        }
+
+        // a concurrent container may shrink while it is sampled, missing elements count as empty
+        if ( o instanceof Collection )
+        {
+            final Collection<?> c = (Collection<?>) o;
+            final Iterator<?> it = c.iterator();
+            return 2 * OBJECT_HEADER + c.size() * 2 * REFERENCE_SIZE
+                + sample( c.size(), depth, i -> it.hasNext() ? estimate( it.next(), depth + 1 ) : 0 );
+        }
+
+        if ( o instanceof Map )
+        {
+            final Map<?, ?> m = (Map<?, ?>) o;
+            final Iterator<? extends Map.Entry<?, ?>> it = m.entrySet().iterator();
+            return 3 * OBJECT_HEADER + m.size() * ( OBJECT_HEADER + 4 * REFERENCE_SIZE )
+                + sample( m.size(), depth, i -> {
+                    if ( !it.hasNext() )
+                    {
+                        return 0;
+                    }
+                    final Map.Entry<?, ?> e = it.next();
+                    return estimate( e.getKey(), depth + 1 ) + estimate( e.getValue(), depth + 1 );
+                } );
+        }
+
+        return DEFAULT_OBJECT_SIZE;
+    }
+
+    /**
+     * Estimates the contents of a container from the first elements and extrapolates to its size.
+     * <p>
+     * @param size the number of elements in the container
+     * @param depth the nesting depth of the container
+     * @param estimator estimates the i-th element in iteration order
+     * @return the estimated size of the contents
+     */
+    private static long sample( final int size, final int depth, final IntToLongFunction estimator )
+    {
+        if ( size == 0 )
+        {
+            return 0;
+        }
+
+        if ( depth >= MAX_DEPTH )
+        {
+            return size * DEFAULT_OBJECT_SIZE;
+        }
+
+        final int sampled = Math.min( size, SAMPLE_SIZE );
+        long sum = 0;
+        for ( int i = 0; i < sampled; i++ )
+        {
+            sum += estimator.applyAsLong( i );
+        }
+
+        return sum * size / sampled;
+    }
+
+    /**
+     * @param type a primitive type
+     * @return its size in bytes
+     */
+    private static long primitiveSize( final Class<?> type )
+    {
+        if ( type == byte.class || type == boolean.class )
+        {
+            return 1;
+        }
+        if ( type == char.class || type == short.class )
+        {
+            return 2;
+        }
+        if ( type == int.class || type == float.class )
+        {
+            return 4;
+        }
+        return 8;
+    }
+}
@@ -31,6 +31,9 @@ public class MemoryElementDescriptor<K, V>
     /** Don't change */
     private static final long serialVersionUID = -1905161209035522460L;
 
+    /** The weight of the element, if the memory cache is bounded by bytes */
+    private long weight;
+
     /**
      * Constructs a usable MemoryElementDescriptor.
      * <p>
@@ -50,4 +53,24 @@ public class MemoryElementDescriptor<K, V>
     {
         return getPayload();
     }
+
+    /**
+     * Get the weight of the element as calculated when it was added to the memory cache.
+     *
+     * @return the weight in bytes, 0 if not weighed
+     */
+    public long getWeight()
+    {
+        return weight;
+    }
+
+    /**
+     * Set the weight of the element
+     *
+     * @param weight the weight in bytes
+     */
+    public void setWeight( final long weight )
+    {
+        this.weight = weight;
+    }
 }
@@ -0,0 +1,170 @@
+package org.apache.commons.jcs3.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct byte buffers in power of two sizes. Serializers, disk caches and network
+ * connections use them to write and read data without allocating a temporary array per call.
+ * <p>
+ * Requests larger than the largest pooled size get a heap buffer, which is not pooled. The pool
+ * keeps at most the configured number of bytes. A buffer must be released at most once and must
+ * not be used after it was released.
+ */
+public class ByteBufferPool
+{
+    /** The smallest buffer size */
+    private static final int DEFAULT_MIN_SIZE = 1024;
+
+    /** The largest pooled buffer size */
+    private static final int DEFAULT_MAX_SIZE = 1024 * 1024;
+
+    /** The number of bytes kept in the pool */
+    private static final long DEFAULT_MAX_POOLED_BYTES = 16L * 1024 * 1024;
+
+    /** The pool shared by default */
+    private static final ByteBufferPool DEFAULT = new ByteBufferPool( DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE,
+            DEFAULT_MAX_POOLED_BYTES );
+
+    /** The smallest buffer size, a power of two */
+    private final int minSize;
+
+    /** The largest pooled buffer size */
+    private final int maxSize;
+
+    /** The maximum number of bytes kept in the pool */
+    private final long maxPooledBytes;
+
+    /** The free buffers by size class */
+    private final ConcurrentLinkedDeque<ByteBuffer>[] free;
+
+    /** The number of bytes in the pool */
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    /**
+     * @param minSize the smallest buffer size, rounded up to a power of two
+     * @param maxSize the largest pooled buffer size
+     * @param maxPooledBytes the maximum number of bytes kept in the pool
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" }) // No generic arrays
+    public ByteBufferPool( final int minSize, final int maxSize, final long maxPooledBytes )
+    {
+        this.minSize = Integer.highestOneBit( Math.max( 1, minSize - 1 ) ) << 1;
+        this.maxPooledBytes = maxPooledBytes;
+
+        int classes = 1;
+        while ( (long) this.minSize << classes - 1 < maxSize )
+        {
+            classes++;
+        }
+        this.maxSize = this.minSize << classes - 1;
+
+        this.free = new ConcurrentLinkedDeque[classes];
+        for ( int i = 0; i < classes; i++ )
+        {
+            free[i] = new ConcurrentLinkedDeque<>();
+        }
+    }
+
+    /**
+     * @return the pool shared by default
+     */
+    public static ByteBufferPool getDefault()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Gets a buffer from the pool. Its position is zero and its limit the requested capacity.
+     * <p>
+     * @param capacity the required capacity
+     * @return a buffer with at least the requested capacity
+     */
+    public ByteBuffer acquire( final int capacity )
+    {
+        if ( capacity > maxSize )
+        {
+            final ByteBuffer buffer = ByteBuffer.allocate( capacity );
+            return buffer;
+        }
+
+        final int sizeClass = sizeClass( capacity );
+        ByteBuffer buffer = free[sizeClass].pollFirst();
+        if ( buffer == null )
+        {
+            buffer = ByteBuffer.allocateDirect( minSize << sizeClass );
+        }
+        else
+        {
+            pooledBytes.addAndGet( -buffer.capacity() );
+        }
+
+        buffer.clear().limit( capacity );
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. Buffers not taken from a pool are dropped.
+     * <p>
+     * @param buffer the buffer, may be null
+     */
+    public void release( final ByteBuffer buffer )
+    {
+        if ( buffer == null || !buffer.isDirect() || buffer.capacity() > maxSize
+            || buffer.capacity() < minSize || Integer.bitCount( buffer.capacity() ) != 1 )
+        {
+            return;
+        }
+
+        if ( pooledBytes.addAndGet( buffer.capacity() ) > maxPooledBytes )
+        {
+            pooledBytes.addAndGet( -buffer.capacity() );
+            return;
+        }
+
+        buffer.clear();
+        free[sizeClass( buffer.capacity() )].offerFirst( buffer );
+    }
+
+    /**
+     * @return the number of bytes in the pool
+     */
+    public long getPooledBytes()
+    {
+        return pooledBytes.get();
+    }
+
+    /**
+     * @param capacity a capacity not larger than the largest size
+     * @return the index of the smallest size class holding it
+     */
+    private int sizeClass( final int capacity )
+    {
+        if ( capacity <= minSize )
+        {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros( ( capacity - 1 ) / minSize );
+    }
+}
@@ -0,0 +1,183 @@
+package org.apache.commons.jcs3.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.nio.ByteBuffer;
+
+/**
+ * A growing buffer for serialized data, backed by buffers from a {@link ByteBufferPool}. Data is
+ * appended until {@link #flip()} returns the buffer for reading or writing to a channel. Closing
+ * the sink returns the buffer to the pool.
+ */
+public class ByteBufferSink
+    implements AutoCloseable
+{
+    /** The initial capacity */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** The pool the buffers come from */
+    private final ByteBufferPool pool;
+
+    /** The current buffer */
+    private ByteBuffer buffer;
+
+    /**
+     * Creates a sink using the default pool.
+     */
+    public ByteBufferSink()
+    {
+        this( ByteBufferPool.getDefault() );
+    }
+
+    /**
+     * @param pool the pool the buffers come from
+     */
+    public ByteBufferSink( final ByteBufferPool pool )
+    {
+        this.pool = pool;
+        this.buffer = acquire( INITIAL_CAPACITY );
+    }
+
+    /**
+     * Makes room for more data, replacing the buffer with a larger one if needed.
+     * <p>
+     * @param required the number of bytes to be appended
+     * @return the buffer to append the data to
+     */
+    public ByteBuffer ensureRemaining( final int required )
+    {
+        if ( buffer.remaining() < required )
+        {
+            final long needed = (long) buffer.position() + required;
+            if ( needed > Integer.MAX_VALUE )
+            {
+                throw new IllegalArgumentException( "Data too large: " + needed );
+            }
+
+            final int capacity = (int) Math.min( Integer.MAX_VALUE,
+                Math.max( needed, 2L * buffer.limit() ) );
+            final ByteBuffer larger = acquire( capacity );
+            buffer.flip();
+            larger.put( buffer );
+            pool.release( buffer );
+            buffer = larger;
+        }
+        return buffer;
+    }
+
+    /**
+     * Appends bytes.
+     * <p>
+     * @param src the bytes
+     */
+    public void put( final byte[] src )
+    {
+        put( src, 0, src.length );
+    }
+
+    /**
+     * Appends bytes.
+     * <p>
+     * @param src the bytes
+     * @param offset the offset of the first byte
+     * @param length the number of bytes
+     */
+    public void put( final byte[] src, final int offset, final int length )
+    {
+        ensureRemaining( length ).put( src, offset, length );
+    }
+
+    /**
+     * Appends an int.
+     * <p>
+     * @param value the value
+     */
+    public void putInt( final int value )
+    {
+        ensureRemaining( 4 ).putInt( value );
+    }
+
+    /**
+     * Writes an int at a position already written, e.g. a length prefix.
+     * <p>
+     * @param index the position
+     * @param value the value
+     */
+    public void putInt( final int index, final int value )
+    {
+        buffer.putInt( index, value );
+    }
+
+    /**
+     * @return the number of bytes appended so far
+     */
+    public int position()
+    {
+        return buffer.position();
+    }
+
+    /**
+     * Moves back to an earlier position, discarding the data appended after it.
+     * <p>
+     * @param newPosition the new position, not larger than the current one
+     */
+    public void position( final int newPosition )
+    {
+        if ( newPosition < 0 || newPosition > buffer.position() )
+        {
+            throw new IllegalArgumentException( "Invalid position " + newPosition );
+        }
+        buffer.position( newPosition );
+    }
+
+    /**
+     * Flips the buffer for reading the data. Nothing may be appended afterwards.
+     * <p>
+     * @return the buffer holding the data from position zero to its limit
+     */
+    public ByteBuffer flip()
+    {
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @param capacity the required capacity
+     * @return a buffer from the pool, using all of its capacity
+     */
+    private ByteBuffer acquire( final int capacity )
+    {
+        final ByteBuffer acquired = pool.acquire( capacity );
+        acquired.limit( acquired.capacity() );
+        return acquired;
+    }
+
+    /**
+     * Returns the buffer to the pool.
+     */
+    @Override
+    public void close()
+    {
+        final ByteBuffer released = buffer;
+        buffer = null;
+        pool.release( released );
+    }
+}
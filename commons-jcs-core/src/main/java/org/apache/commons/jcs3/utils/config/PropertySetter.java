@@ -247,6 +247,10 @@ public class PropertySetter
         {
             return Long.valueOf( v );
         }
+        if ( Double.TYPE.isAssignableFrom( type ) )
+        {
+            return Double.valueOf( v );
+        }
         if ( Boolean.TYPE.isAssignableFrom( type ) )
         {
             if ( "true".equalsIgnoreCase( v ) )
@@ -0,0 +1,691 @@
+package org.apache.commons.jcs3.utils.serialization;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs3.log.Log;
+import org.apache.commons.jcs3.log.LogManager;
+
+/**
+ * A compressing serializer for small values. Values below a size threshold, and values that do
+ * not get smaller, are stored as they are. The others are deflated with a compressor taken from a
+ * pool, optionally using a preset dictionary trained from samples of a region.
+ * <p>
+ * Every value starts with a header byte telling how it is stored. Compressed values are followed
+ * by the id of the dictionary, if one was used, and the uncompressed length. The id is the Adler-32
+ * checksum of the dictionary, so every peer and every restart using the same dictionary file reads
+ * the data. Dictionaries used before can be kept configured for reading after switching to a new
+ * one.
+ * <p>
+ * The format is not compatible with the {@link CompressingSerializer}.
+ *
+ * @since 3.2
+ */
+public class DictionaryCompressingSerializer
+    extends StandardSerializer
+{
+    /** The logger */
+    private static final Log log = LogManager.getLog( DictionaryCompressingSerializer.class );
+
+    /** The default size below which values are stored uncompressed */
+    public static final int DEFAULT_THRESHOLD = 128;
+
+    /** The default size of a trained dictionary */
+    public static final int DEFAULT_DICTIONARY_SIZE = 16 * 1024;
+
+    /** The default limit of the uncompressed length of a value read */
+    public static final int DEFAULT_MAX_LENGTH = 64 * 1024 * 1024;
+
+    /** The largest ratio deflate can reach, so a larger uncompressed length is corrupt */
+    private static final int MAX_DEFLATE_RATIO = 1032;
+
+    /** The largest useful dictionary, the deflate window */
+    private static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    /** Header of a value stored uncompressed */
+    private static final byte STORED = 0;
+
+    /** Header of a value compressed without a dictionary */
+    private static final byte DEFLATED = 1;
+
+    /** Header of a value compressed with a dictionary */
+    private static final byte DEFLATED_DICTIONARY = 2;
+
+    /** The length of the substrings counted when training */
+    private static final int GRAM_LENGTH = 8;
+
+    /** The length of the sample segments a dictionary is built from */
+    private static final int SEGMENT_LENGTH = 32;
+
+    /** The maximum number of sample bytes looked at when training */
+    private static final int MAX_TRAINING_BYTES = 4 * 1024 * 1024;
+
+    /** The maximum number of idle compressors and decompressors kept */
+    private static final int MAX_POOLED = 2 * Runtime.getRuntime().availableProcessors();
+
+    /** Wrapped serializer */
+    private final IElementSerializer serializer;
+
+    /** Values smaller than this are stored uncompressed */
+    private int threshold = DEFAULT_THRESHOLD;
+
+    /** The compression level */
+    private int level = Deflater.BEST_SPEED;
+
+    /** Values read must not be larger than this uncompressed */
+    private int maxLength = DEFAULT_MAX_LENGTH;
+
+    /** The dictionary used for compression, or null */
+    private volatile Dictionary dictionary;
+
+    /** All dictionaries known for decompression, by id */
+    private final Map<Integer, byte[]> dictionaries = new ConcurrentHashMap<>();
+
+    /** Idle compressors */
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+
+    /** Number of idle compressors */
+    private final AtomicInteger deflaterCount = new AtomicInteger();
+
+    /** Idle decompressors */
+    private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+
+    /** Number of idle decompressors */
+    private final AtomicInteger inflaterCount = new AtomicInteger();
+
+    /**
+     * Default constructor
+     */
+    public DictionaryCompressingSerializer()
+    {
+        this( new StandardSerializer() );
+    }
+
+    /**
+     * Wrapper constructor
+     *
+     * @param serializer the wrapped serializer
+     */
+    public DictionaryCompressingSerializer( final IElementSerializer serializer )
+    {
+        this.serializer = serializer;
+    }
+
+    /**
+     * @return the size below which values are stored uncompressed
+     */
+    public int getThreshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * @param threshold the size below which values are stored uncompressed
+     */
+    public void setThreshold( final int threshold )
+    {
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return the largest uncompressed length of a value read
+     */
+    public int getMaxLength()
+    {
+        return maxLength;
+    }
+
+    /**
+     * @param maxLength the largest uncompressed length of a value read, larger values are
+     *        rejected as corrupt before allocating them
+     */
+    public void setMaxLength( final int maxLength )
+    {
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @return the compression level
+     */
+    public int getLevel()
+    {
+        return level;
+    }
+
+    /**
+     * @param level the compression level from 0 to 9, defaults to 1, the fastest
+     */
+    public void setLevel( final int level )
+    {
+        if ( level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION )
+        {
+            throw new IllegalArgumentException( "Invalid compression level " + level );
+        }
+        this.level = level;
+    }
+
+    /**
+     * @return the dictionary used for compression, or null
+     */
+    public byte[] getDictionary()
+    {
+        final Dictionary current = dictionary;
+        return current == null ? null : current.bytes.clone();
+    }
+
+    /**
+     * @return the id of the dictionary used for compression, 0 if there is none
+     */
+    public int getDictionaryId()
+    {
+        final Dictionary current = dictionary;
+        return current == null ? 0 : current.id;
+    }
+
+    /**
+     * Compresses new values with the given dictionary. It stays known for decompression.
+     *
+     * @param dictionary the dictionary, null to compress without one
+     * @return the id of the dictionary
+     */
+    public int setDictionary( final byte[] dictionary )
+    {
+        if ( dictionary == null )
+        {
+            this.dictionary = null;
+            return 0;
+        }
+
+        final int id = addDictionary( dictionary );
+        this.dictionary = new Dictionary( id, dictionaries.get( Integer.valueOf( id ) ) );
+        return id;
+    }
+
+    /**
+     * Makes a dictionary known for decompression, e.g. one used before the current one.
+     *
+     * @param dictionary the dictionary
+     * @return the id of the dictionary
+     */
+    public int addDictionary( final byte[] dictionary )
+    {
+        if ( dictionary.length == 0 || dictionary.length > MAX_DICTIONARY_SIZE )
+        {
+            throw new IllegalArgumentException( "Invalid dictionary size " + dictionary.length );
+        }
+
+        final int id = dictionaryId( dictionary );
+        dictionaries.put( Integer.valueOf( id ), dictionary.clone() );
+        return id;
+    }
+
+    /**
+     * Loads dictionaries from files. All of them are known for decompression, the last one is
+     * used for compression. This is the DictionaryFiles configuration property.
+     *
+     * @param fileNames comma separated paths of the dictionary files
+     * @throws IllegalArgumentException if a file cannot be read
+     */
+    public void setDictionaryFiles( final String fileNames )
+    {
+        byte[] last = null;
+        for ( final String fileName : fileNames.split( "," ) )
+        {
+            if ( fileName.trim().isEmpty() )
+            {
+                continue;
+            }
+
+            try
+            {
+                last = Files.readAllBytes( Paths.get( fileName.trim() ) );
+            }
+            catch ( final IOException e )
+            {
+                throw new IllegalArgumentException( "Could not read dictionary file " + fileName, e );
+            }
+
+            final int id = addDictionary( last );
+            log.info( "Loaded compression dictionary [{0}] with id {1}", fileName.trim(), id );
+        }
+
+        if ( last != null )
+        {
+            setDictionary( last );
+        }
+    }
+
+    /**
+     * Trains a dictionary from sample values, e.g. taken from a region, and compresses new values
+     * with it. Save the result to a file to decompress the values elsewhere.
+     *
+     * @param samples the sample values
+     * @return the dictionary
+     * @throws IOException if a sample cannot be serialized
+     */
+    public byte[] train( final Collection<?> samples )
+        throws IOException
+    {
+        final List<byte[]> serialized = new ArrayList<>( samples.size() );
+        for ( final Object sample : samples )
+        {
+            serialized.add( serializer.serialize( sample ) );
+        }
+
+        final byte[] trained = trainDictionary( serialized, DEFAULT_DICTIONARY_SIZE );
+        if ( trained.length > 0 )
+        {
+            final int id = setDictionary( trained );
+            log.info( "Trained compression dictionary with id {0} of {1} bytes from {2} samples",
+                    id, trained.length, samples.size() );
+        }
+        return trained;
+    }
+
+    /**
+     * Builds a dictionary from the segments of the samples containing the substrings found in
+     * the most samples. The most common segments are put last, closest to the compressed data.
+     *
+     * @param samples serialized sample values
+     * @param maxSize the maximum size of the dictionary, at most 32 KB
+     * @return the dictionary, empty if the samples have nothing in common
+     */
+    public static byte[] trainDictionary( final Collection<byte[]> samples, final int maxSize )
+    {
+        final int size = Math.min( maxSize, MAX_DICTIONARY_SIZE );
+
+        // in how many samples each substring occurs and where it occurs first
+        final Map<Long, int[]> grams = new HashMap<>();
+        final List<byte[]> used = new ArrayList<>();
+        int total = 0;
+        for ( final byte[] sample : samples )
+        {
+            if ( total >= MAX_TRAINING_BYTES )
+            {
+                break;
+            }
+            total += sample.length;
+
+            final int index = used.size();
+            used.add( sample );
+            for ( int i = 0; i + GRAM_LENGTH <= sample.length; i++ )
+            {
+                final Long key = Long.valueOf( gram( sample, i ) );
+                int[] entry = grams.get( key );
+                if ( entry == null )
+                {
+                    // count, last sample, first sample, offset in the first sample
+                    entry = new int[] { 0, -1, index, i };
+                    grams.put( key, entry );
+                }
+                if ( entry[1] != index )
+                {
+                    // count every sample once
+                    entry[0]++;
+                    entry[1] = index;
+                }
+            }
+        }
+
+        final List<int[]> candidates = new ArrayList<>();
+        for ( final int[] entry : grams.values() )
+        {
+            if ( entry[0] > 1 )
+            {
+                candidates.add( entry );
+            }
+        }
+        candidates.sort( ( a, b ) -> Integer.compare( b[0], a[0] ) );
+
+        final List<byte[]> segments = new ArrayList<>();
+        int length = 0;
+        for ( final int[] candidate : candidates )
+        {
+            if ( length >= size )
+            {
+                break;
+            }
+            if ( candidate[1] == -2 )
+            {
+                // covered by a segment taken before
+                continue;
+            }
+
+            final byte[] sample = used.get( candidate[2] );
+            final int start = candidate[3];
+            final int end = Math.min( sample.length, Math.min( start + SEGMENT_LENGTH, start + size - length ) );
+            segments.add( Arrays.copyOfRange( sample, start, end ) );
+            length += end - start;
+
+            for ( int i = start; i + GRAM_LENGTH <= end; i++ )
+            {
+                final int[] covered = grams.get( Long.valueOf( gram( sample, i ) ) );
+                covered[1] = -2;
+            }
+        }
+
+        final byte[] trained = new byte[length];
+        int pos = 0;
+        for ( int i = segments.size() - 1; i >= 0; i-- )
+        {
+            final byte[] segment = segments.get( i );
+            System.arraycopy( segment, 0, trained, pos, segment.length );
+            pos += segment.length;
+        }
+        return trained;
+    }
+
+    /**
+     * Serializes an object with the wrapped serializer and compresses the result if it is large
+     * enough and gets smaller.
+     *
+     * @param obj object
+     * @return byte[]
+     * @throws IOException on i/o problem
+     */
+    @Override
+    public <T> byte[] serialize( final T obj )
+        throws IOException
+    {
+        final byte[] uncompressed = serializer.serialize( obj );
+        if ( uncompressed.length < threshold )
+        {
+            return stored( uncompressed );
+        }
+
+        final Dictionary dict = dictionary;
+        final int headerLength = dict == null ? 5 : 9;
+
+        // the compressed form must be smaller than the uncompressed one
+        final byte[] compressed = new byte[uncompressed.length];
+        int length = headerLength;
+
+        final Deflater deflater = acquireDeflater();
+        try
+        {
+            if ( dict != null )
+            {
+                deflater.setDictionary( dict.bytes );
+            }
+            deflater.setInput( uncompressed );
+            deflater.finish();
+            while ( !deflater.finished() && length < compressed.length )
+            {
+                length += deflater.deflate( compressed, length, compressed.length - length );
+            }
+
+            if ( !deflater.finished() )
+            {
+                return stored( uncompressed );
+            }
+        }
+        finally
+        {
+            releaseDeflater( deflater );
+        }
+
+        final ByteBuffer header = ByteBuffer.wrap( compressed );
+        if ( dict == null )
+        {
+            header.put( DEFLATED );
+        }
+        else
+        {
+            header.put( DEFLATED_DICTIONARY );
+            header.putInt( dict.id );
+        }
+        header.putInt( uncompressed.length );
+
+        return Arrays.copyOf( compressed, length );
+    }
+
+    /**
+     * Decompresses the value if needed and de-serializes it with the wrapped serializer.
+     *
+     * @param data data bytes
+     * @param loader class loader to use
+     * @return Object
+     * @throws IOException on i/o problem or if the dictionary of the value is unknown
+     * @throws ClassNotFoundException if class is not found during deserialization
+     */
+    @Override
+    public <T> T deSerialize( final byte[] data, final ClassLoader loader )
+        throws IOException, ClassNotFoundException
+    {
+        if ( data == null )
+        {
+            return null;
+        }
+
+        if ( data.length == 0 )
+        {
+            throw new StreamCorruptedException( "Missing compression header" );
+        }
+
+        if ( data[0] == STORED )
+        {
+            return serializer.deSerializeBuffer( ByteBuffer.wrap( data, 1, data.length - 1 ), loader );
+        }
+
+        if ( data[0] != DEFLATED && data[0] != DEFLATED_DICTIONARY || data.length < 5 )
+        {
+            throw new StreamCorruptedException( "Unknown compression header " + data[0] );
+        }
+
+        final ByteBuffer header = ByteBuffer.wrap( data, 1, data.length - 1 );
+        byte[] dict = null;
+        if ( data[0] == DEFLATED_DICTIONARY )
+        {
+            final int id = header.getInt();
+            dict = dictionaries.get( Integer.valueOf( id ) );
+            if ( dict == null )
+            {
+                throw new IOException( "Unknown compression dictionary " + id );
+            }
+        }
+
+        if ( header.remaining() < 4 )
+        {
+            throw new StreamCorruptedException( "Truncated compression header" );
+        }
+        final int length = header.getInt();
+        if ( length < 0 || length > maxLength
+            || length > (long) header.remaining() * MAX_DEFLATE_RATIO )
+        {
+            throw new StreamCorruptedException( "Invalid uncompressed length " + length );
+        }
+
+        final byte[] uncompressed = new byte[length];
+        final Inflater inflater = acquireInflater();
+        try
+        {
+            if ( dict != null )
+            {
+                inflater.setDictionary( dict );
+            }
+            inflater.setInput( data, header.position(), header.remaining() );
+
+            int pos = 0;
+            while ( pos < length )
+            {
+                final int inflated = inflater.inflate( uncompressed, pos, length - pos );
+                if ( inflated == 0 && ( inflater.finished() || inflater.needsInput() ) )
+                {
+                    throw new StreamCorruptedException( "Truncated compressed data" );
+                }
+                pos += inflated;
+            }
+        }
+        catch ( final DataFormatException e )
+        {
+            throw new StreamCorruptedException( "Corrupt compressed data: " + e.getMessage() );
+        }
+        finally
+        {
+            releaseInflater( inflater );
+        }
+
+        return serializer.deSerialize( uncompressed, loader );
+    }
+
+    /**
+     * @param uncompressed the serialized value
+     * @return the value with the header of an uncompressed value
+     */
+    private static byte[] stored( final byte[] uncompressed )
+    {
+        final byte[] data = new byte[uncompressed.length + 1];
+        data[0] = STORED;
+        System.arraycopy( uncompressed, 0, data, 1, uncompressed.length );
+        return data;
+    }
+
+    /**
+     * @param dictionary a dictionary
+     * @return its id, the Adler-32 checksum
+     */
+    private static int dictionaryId( final byte[] dictionary )
+    {
+        final Adler32 adler = new Adler32();
+        adler.update( dictionary, 0, dictionary.length );
+        return (int) adler.getValue();
+    }
+
+    /**
+     * @param data sample data
+     * @param offset the start of the substring
+     * @return the substring packed into a long
+     */
+    private static long gram( final byte[] data, final int offset )
+    {
+        long gram = 0;
+        for ( int i = 0; i < GRAM_LENGTH; i++ )
+        {
+            gram = gram << 8 | data[offset + i] & 0xFF;
+        }
+        return gram;
+    }
+
+    /**
+     * @return an idle compressor or a new one, set to the current level
+     */
+    private Deflater acquireDeflater()
+    {
+        final Deflater deflater = deflaters.poll();
+        if ( deflater == null )
+        {
+            return new Deflater( level, true );
+        }
+
+        deflaterCount.decrementAndGet();
+        deflater.setLevel( level );
+        return deflater;
+    }
+
+    /**
+     * @param deflater a compressor to reuse
+     */
+    private void releaseDeflater( final Deflater deflater )
+    {
+        if ( deflaterCount.incrementAndGet() > MAX_POOLED )
+        {
+            deflaterCount.decrementAndGet();
+            deflater.end();
+            return;
+        }
+
+        deflater.reset();
+        deflaters.offer( deflater );
+    }
+
+    /**
+     * @return an idle decompressor or a new one
+     */
+    private Inflater acquireInflater()
+    {
+        final Inflater inflater = inflaters.poll();
+        if ( inflater == null )
+        {
+            return new Inflater( true );
+        }
+
+        inflaterCount.decrementAndGet();
+        return inflater;
+    }
+
+    /**
+     * @param inflater a decompressor to reuse
+     */
+    private void releaseInflater( final Inflater inflater )
+    {
+        if ( inflaterCount.incrementAndGet() > MAX_POOLED )
+        {
+            inflaterCount.decrementAndGet();
+            inflater.end();
+            return;
+        }
+
+        inflater.reset();
+        inflaters.offer( inflater );
+    }
+
+    /**
+     * A dictionary and its id.
+     */
+    private static final class Dictionary
+    {
+        /** The id */
+        final int id;
+
+        /** The content */
+        final byte[] bytes;
+
+        /**
+         * @param id the id
+         * @param bytes the content
+         */
+        Dictionary( final int id, final byte[] bytes )
+        {
+            this.id = id;
+            this.bytes = bytes;
+        }
+    }
+}
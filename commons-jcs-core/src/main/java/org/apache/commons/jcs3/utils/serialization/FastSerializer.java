@@ -0,0 +1,1490 @@
+package org.apache.commons.jcs3.utils.serialization;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.jcs3.engine.CacheElement;
+import org.apache.commons.jcs3.engine.CacheElementSerialized;
+import org.apache.commons.jcs3.engine.ElementAttributes;
+import org.apache.commons.jcs3.engine.behavior.IElementAttributes;
+import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs3.io.ByteBufferSink;
+import org.apache.commons.jcs3.io.ObjectInputStreamClassLoaderAware;
+import org.apache.commons.jcs3.log.Log;
+import org.apache.commons.jcs3.log.LogManager;
+
+/**
+ * A fast serializer writing a compact tagged binary format.
+ * <p>
+ * Strings, boxed primitives, primitive arrays, the common collections and maps, dates and the cache
+ * elements and their attributes are written directly. Classes registered with
+ * {@link #register(Class)} or the RegisteredClasses property are written field by field, in the
+ * order of their declaration in the class hierarchy, and identified by their registration index.
+ * They need a constructor without arguments and custom serialization methods like writeObject are
+ * not called. Registered classes do not have to be Serializable. Registration must happen in the
+ * same order wherever the data is read. Objects of other classes are written with Java
+ * serialization.
+ * <p>
+ * Shared references and cycles between collections, arrays and objects of registered classes are
+ * kept. Each thread reuses its buffers and no streams are created unless an object falls back to
+ * Java serialization. Objects are read from a {@link ByteBuffer} in place, including direct and
+ * memory mapped buffers. Data written by the {@link StandardSerializer} is still read, so an
+ * auxiliary can switch to this serializer without losing its contents.
+ */
+public class FastSerializer
+    implements IElementSerializer
+{
+    /** The logger */
+    private static final Log log = LogManager.getLog( FastSerializer.class );
+
+    /** First byte of the data, the version of the format */
+    private static final byte VERSION = 1;
+
+    /** Buffers larger than this are not kept for the next call */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+
+    /** Initial size of the output buffer */
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    // The tags marking the type of the following data
+
+    /** null */
+    private static final byte NULL = 0;
+
+    /** A reference to an object written before, followed by its index */
+    private static final byte REFERENCE = 1;
+
+    /** java.lang.String */
+    private static final byte STRING = 2;
+
+    /** java.lang.Integer */
+    private static final byte INTEGER = 3;
+
+    /** java.lang.Long */
+    private static final byte LONG = 4;
+
+    /** Boolean.TRUE */
+    private static final byte TRUE = 5;
+
+    /** Boolean.FALSE */
+    private static final byte FALSE = 6;
+
+    /** java.lang.Byte */
+    private static final byte BYTE = 7;
+
+    /** java.lang.Short */
+    private static final byte SHORT = 8;
+
+    /** java.lang.Character */
+    private static final byte CHARACTER = 9;
+
+    /** java.lang.Float */
+    private static final byte FLOAT = 10;
+
+    /** java.lang.Double */
+    private static final byte DOUBLE = 11;
+
+    /** byte[] */
+    private static final byte BYTE_ARRAY = 12;
+
+    /** int[] */
+    private static final byte INT_ARRAY = 13;
+
+    /** long[] */
+    private static final byte LONG_ARRAY = 14;
+
+    /** Object[] */
+    private static final byte OBJECT_ARRAY = 15;
+
+    /** String[] */
+    private static final byte STRING_ARRAY = 16;
+
+    /** java.util.ArrayList */
+    private static final byte ARRAY_LIST = 17;
+
+    /** java.util.LinkedList */
+    private static final byte LINKED_LIST = 18;
+
+    /** java.util.HashSet */
+    private static final byte HASH_SET = 19;
+
+    /** java.util.LinkedHashSet */
+    private static final byte LINKED_HASH_SET = 20;
+
+    /** java.util.TreeSet with natural ordering */
+    private static final byte TREE_SET = 21;
+
+    /** java.util.HashMap */
+    private static final byte HASH_MAP = 22;
+
+    /** java.util.LinkedHashMap in insertion order */
+    private static final byte LINKED_HASH_MAP = 23;
+
+    /** java.util.TreeMap with natural ordering */
+    private static final byte TREE_MAP = 24;
+
+    /** java.util.concurrent.ConcurrentHashMap */
+    private static final byte CONCURRENT_HASH_MAP = 25;
+
+    /** java.util.Date */
+    private static final byte DATE = 26;
+
+    /** CacheElement */
+    private static final byte CACHE_ELEMENT = 27;
+
+    /** CacheElementSerialized */
+    private static final byte CACHE_ELEMENT_SERIALIZED = 28;
+
+    /** ElementAttributes */
+    private static final byte ELEMENT_ATTRIBUTES = 29;
+
+    /** An object of a registered class, followed by the registration index */
+    private static final byte REGISTERED = 30;
+
+    /** An object written with Java serialization */
+    private static final byte JAVA = 31;
+
+    /** How to write ElementAttributes */
+    private static final ClassInfo ELEMENT_ATTRIBUTES_INFO = new ClassInfo( ElementAttributes.class );
+
+    /** The registered classes, by index */
+    private volatile ClassInfo[] registered = new ClassInfo[0];
+
+    /** The registered classes, by class */
+    private final Map<Class<?>, ClassInfo> registeredByClass = new ConcurrentHashMap<>();
+
+    /** The output buffer of each thread */
+    private final ThreadLocal<Output> outputs = ThreadLocal.withInitial( Output::new );
+
+    /** The input state of each thread */
+    private final ThreadLocal<Input> inputs = ThreadLocal.withInitial( Input::new );
+
+    /**
+     * Registers a class to be written field by field. Classes must be registered in the same order
+     * wherever the data is read, before the first object is serialized.
+     * <p>
+     * @param type the class
+     * @throws IllegalArgumentException if the class has no constructor without arguments or its
+     *         fields are not accessible
+     */
+    public synchronized void register( final Class<?> type )
+    {
+        if ( registeredByClass.containsKey( type ) )
+        {
+            return;
+        }
+
+        final ClassInfo info = new ClassInfo( type );
+        info.index = registered.length;
+
+        final ClassInfo[] newRegistered = Arrays.copyOf( registered, registered.length + 1 );
+        newRegistered[info.index] = info;
+        registeredByClass.put( type, info );
+        registered = newRegistered;
+    }
+
+    /**
+     * Registers a comma separated list of class names, see {@link #register(Class)}.
+     * <p>
+     * @param classNames the class names
+     * @throws IllegalArgumentException if a class cannot be loaded or registered
+     */
+    public void setRegisteredClasses( final String classNames )
+    {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if ( loader == null )
+        {
+            loader = FastSerializer.class.getClassLoader();
+        }
+
+        for ( final String className : classNames.split( "," ) )
+        {
+            final String name = className.trim();
+            if ( name.isEmpty() )
+            {
+                continue;
+            }
+
+            try
+            {
+                register( Class.forName( name, false, loader ) );
+            }
+            catch ( final ClassNotFoundException e )
+            {
+                throw new IllegalArgumentException( "Could not load class to register " + name, e );
+            }
+        }
+
+        log.info( "Registered classes {0}", registeredByClass::keySet );
+    }
+
+    /**
+     * @return a comma separated list of the names of the registered classes
+     */
+    public String getRegisteredClasses()
+    {
+        final StringBuilder sb = new StringBuilder();
+        for ( final ClassInfo info : registered )
+        {
+            if ( sb.length() > 0 )
+            {
+                sb.append( ',' );
+            }
+            sb.append( info.type.getName() );
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Serializes an object.
+     * <p>
+     * @param obj the object
+     * @return the serialized form
+     * @throws IOException if an object cannot be serialized
+     */
+    @Override
+    public <T> byte[] serialize( final T obj )
+        throws IOException
+    {
+        final Output out = write( obj );
+        try
+        {
+            return Arrays.copyOf( out.buffer, out.position );
+        }
+        finally
+        {
+            out.reset();
+        }
+    }
+
+    /**
+     * Serializes an object into a sink.
+     * <p>
+     * @param obj the object
+     * @param sink the sink to append to
+     * @return the number of bytes appended
+     * @throws IOException if an object cannot be serialized
+     */
+    @Override
+    public <T> int serialize( final T obj, final ByteBufferSink sink )
+        throws IOException
+    {
+        final Output out = write( obj );
+        try
+        {
+            sink.put( out.buffer, 0, out.position );
+            return out.position;
+        }
+        finally
+        {
+            out.reset();
+        }
+    }
+
+    /**
+     * Writes an object into the buffer of this thread. The caller must reset the buffer.
+     */
+    private Output write( final Object obj )
+        throws IOException
+    {
+        Output out = outputs.get();
+        if ( out.inUse )
+        {
+            // called from within a serialization on the same thread
+            out = new Output();
+        }
+
+        out.inUse = true;
+        try
+        {
+            out.writeByte( VERSION );
+            writeObject( out, obj );
+            return out;
+        }
+        catch ( final IOException | RuntimeException e )
+        {
+            out.reset();
+            throw e;
+        }
+    }
+
+    /**
+     * Deserializes an object. Data written by Java serialization is read with it.
+     * <p>
+     * @param data the serialized form
+     * @param loader class loader to use for objects written with Java serialization
+     * @return the object
+     * @throws IOException if the data is corrupt
+     * @throws ClassNotFoundException if the class of an object written with Java serialization
+     *         cannot be found
+     */
+    @Override
+    public <T> T deSerialize( final byte[] data, final ClassLoader loader )
+        throws IOException, ClassNotFoundException
+    {
+        if ( data == null )
+        {
+            return null;
+        }
+
+        return deSerializeBuffer( ByteBuffer.wrap( data ), loader );
+    }
+
+    /**
+     * Deserializes an object from the remaining bytes of a buffer, reading the buffer in place.
+     * Data written by Java serialization is read with it.
+     * <p>
+     * @param data the serialized form, its position is advanced to its limit
+     * @param loader class loader to use for objects written with Java serialization
+     * @return the object
+     * @throws IOException if the data is corrupt
+     * @throws ClassNotFoundException if the class of an object written with Java serialization
+     *         cannot be found
+     */
+    @Override
+    public <T> T deSerializeBuffer( final ByteBuffer data, final ClassLoader loader )
+        throws IOException, ClassNotFoundException
+    {
+        final int start = data.position();
+        final int end = data.limit();
+        data.position( end );
+
+        if ( end - start >= 2 && data.get( start ) == (byte) 0xAC && data.get( start + 1 ) == (byte) 0xED )
+        {
+            // Java serialization stream magic
+            return readJava( data, start, end - start, loader );
+        }
+
+        if ( end == start || data.get( start ) != VERSION )
+        {
+            throw new StreamCorruptedException( "Unsupported format version" );
+        }
+
+        Input in = inputs.get();
+        if ( in.inUse )
+        {
+            in = new Input();
+        }
+
+        in.inUse = true;
+        in.setData( data, start + 1, end );
+        in.loader = loader;
+        try
+        {
+            @SuppressWarnings("unchecked") // Need to cast to the type expected by the caller
+            final T obj = (T) readObject( in );
+            return obj;
+        }
+        catch ( final IndexOutOfBoundsException | BufferUnderflowException | NegativeArraySizeException
+            | ClassCastException e )
+        {
+            throw new StreamCorruptedException( "Corrupt data: " + e.getMessage() );
+        }
+        finally
+        {
+            in.reset();
+        }
+    }
+
+    /**
+     * Writes an object with its tag.
+     */
+    private void writeObject( final Output out, final Object obj )
+        throws IOException
+    {
+        if ( obj == null )
+        {
+            out.writeByte( NULL );
+            return;
+        }
+
+        final Class<?> type = obj.getClass();
+
+        // immutable values
+        if ( type == String.class )
+        {
+            out.writeByte( STRING );
+            out.writeString( (String) obj );
+            return;
+        }
+        if ( type == Integer.class )
+        {
+            out.writeByte( INTEGER );
+            out.writeVarInt( zigZag( ( (Integer) obj ).intValue() ) );
+            return;
+        }
+        if ( type == Long.class )
+        {
+            out.writeByte( LONG );
+            out.writeVarLong( zigZag( ( (Long) obj ).longValue() ) );
+            return;
+        }
+        if ( type == Boolean.class )
+        {
+            out.writeByte( ( (Boolean) obj ).booleanValue() ? TRUE : FALSE );
+            return;
+        }
+        if ( type == Byte.class )
+        {
+            out.writeByte( BYTE );
+            out.writeByte( ( (Byte) obj ).byteValue() );
+            return;
+        }
+        if ( type == Short.class )
+        {
+            out.writeByte( SHORT );
+            out.writeVarInt( zigZag( ( (Short) obj ).shortValue() ) );
+            return;
+        }
+        if ( type == Character.class )
+        {
+            out.writeByte( CHARACTER );
+            out.writeVarInt( ( (Character) obj ).charValue() );
+            return;
+        }
+        if ( type == Float.class )
+        {
+            out.writeByte( FLOAT );
+            out.writeInt( Float.floatToRawIntBits( ( (Float) obj ).floatValue() ) );
+            return;
+        }
+        if ( type == Double.class )
+        {
+            out.writeByte( DOUBLE );
+            out.writeLong( Double.doubleToRawLongBits( ( (Double) obj ).doubleValue() ) );
+            return;
+        }
+        if ( type == Date.class )
+        {
+            out.writeByte( DATE );
+            out.writeLong( ( (Date) obj ).getTime() );
+            return;
+        }
+        if ( type == CacheElement.class )
+        {
+            final CacheElement<?, ?> ce = (CacheElement<?, ?>) obj;
+            out.writeByte( CACHE_ELEMENT );
+            writeObject( out, ce.getCacheName() );
+            writeObject( out, ce.getKey() );
+            writeObject( out, ce.getVal() );
+            writeObject( out, ce.getElementAttributes() );
+            return;
+        }
+        if ( type == CacheElementSerialized.class )
+        {
+            final CacheElementSerialized<?, ?> ce = (CacheElementSerialized<?, ?>) obj;
+            out.writeByte( CACHE_ELEMENT_SERIALIZED );
+            writeObject( out, ce.getCacheName() );
+            writeObject( out, ce.getKey() );
+            writeObject( out, ce.getSerializedValue() );
+            writeObject( out, ce.getElementAttributes() );
+            return;
+        }
+        if ( type == ElementAttributes.class )
+        {
+            out.writeByte( ELEMENT_ATTRIBUTES );
+            writeFields( out, ELEMENT_ATTRIBUTES_INFO, obj );
+            return;
+        }
+
+        final ClassInfo info = registeredByClass.get( type );
+        if ( info != null && type.isEnum() )
+        {
+            out.writeByte( REGISTERED );
+            out.writeVarInt( info.index );
+            out.writeVarInt( ( (Enum<?>) obj ).ordinal() );
+            return;
+        }
+
+        // mutable objects, which may be shared
+        final Integer reference = out.references.get( obj );
+        if ( reference != null )
+        {
+            out.writeByte( REFERENCE );
+            out.writeVarInt( reference.intValue() );
+            return;
+        }
+
+        if ( info != null )
+        {
+            out.addReference( obj );
+            out.writeByte( REGISTERED );
+            out.writeVarInt( info.index );
+            writeFields( out, info, obj );
+        }
+        else if ( type == byte[].class )
+        {
+            final byte[] array = (byte[]) obj;
+            out.addReference( obj );
+            out.writeByte( BYTE_ARRAY );
+            out.writeVarInt( array.length );
+            out.writeBytes( array );
+        }
+        else if ( type == int[].class )
+        {
+            final int[] array = (int[]) obj;
+            out.addReference( obj );
+            out.writeByte( INT_ARRAY );
+            out.writeVarInt( array.length );
+            for ( final int i : array )
+            {
+                out.writeVarInt( zigZag( i ) );
+            }
+        }
+        else if ( type == long[].class )
+        {
+            final long[] array = (long[]) obj;
+            out.addReference( obj );
+            out.writeByte( LONG_ARRAY );
+            out.writeVarInt( array.length );
+            for ( final long l : array )
+            {
+                out.writeVarLong( zigZag( l ) );
+            }
+        }
+        else if ( type == Object[].class || type == String[].class )
+        {
+            final Object[] array = (Object[]) obj;
+            out.addReference( obj );
+            out.writeByte( type == Object[].class ? OBJECT_ARRAY : STRING_ARRAY );
+            out.writeVarInt( array.length );
+            for ( final Object element : array )
+            {
+                writeObject( out, element );
+            }
+        }
+        else if ( type == ArrayList.class || type == LinkedList.class || type == HashSet.class
+            || type == LinkedHashSet.class
+            || type == TreeSet.class && ( (TreeSet<?>) obj ).comparator() == null )
+        {
+            final Collection<?> collection = (Collection<?>) obj;
+            out.addReference( obj );
+            out.writeByte( collectionTag( type ) );
+            out.writeVarInt( collection.size() );
+            for ( final Object element : collection )
+            {
+                writeObject( out, element );
+            }
+        }
+        else if ( type == HashMap.class || type == LinkedHashMap.class || type == ConcurrentHashMap.class
+            || type == TreeMap.class && ( (TreeMap<?, ?>) obj ).comparator() == null )
+        {
+            final Map<?, ?> map = (Map<?, ?>) obj;
+            out.addReference( obj );
+            out.writeByte( mapTag( type ) );
+            out.writeVarInt( map.size() );
+            for ( final Map.Entry<?, ?> entry : map.entrySet() )
+            {
+                writeObject( out, entry.getKey() );
+                writeObject( out, entry.getValue() );
+            }
+        }
+        else
+        {
+            // Java serialization does not take part in the reference tracking
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try ( ObjectOutputStream oos = new ObjectOutputStream( bytes ) )
+            {
+                oos.writeUnshared( obj );
+            }
+            out.writeByte( JAVA );
+            out.writeVarInt( bytes.size() );
+            out.writeBytes( bytes.toByteArray() );
+        }
+    }
+
+    /**
+     * Reads an object with its tag.
+     */
+    private Object readObject( final Input in )
+        throws IOException, ClassNotFoundException
+    {
+        final byte tag = in.readByte();
+        switch ( tag )
+        {
+            case NULL:
+                return null;
+
+            case REFERENCE:
+                final int reference = in.readVarInt();
+                if ( reference < 0 || reference >= in.references.size() )
+                {
+                    throw new StreamCorruptedException( "Invalid reference " + reference );
+                }
+                return in.references.get( reference );
+
+            case STRING:
+                return in.readString();
+
+            case INTEGER:
+                return Integer.valueOf( unZigZag( in.readVarInt() ) );
+
+            case LONG:
+                return Long.valueOf( unZigZag( in.readVarLong() ) );
+
+            case TRUE:
+                return Boolean.TRUE;
+
+            case FALSE:
+                return Boolean.FALSE;
+
+            case BYTE:
+                return Byte.valueOf( in.readByte() );
+
+            case SHORT:
+                return Short.valueOf( (short) unZigZag( in.readVarInt() ) );
+
+            case CHARACTER:
+                return Character.valueOf( (char) in.readVarInt() );
+
+            case FLOAT:
+                return Float.valueOf( Float.intBitsToFloat( in.readInt() ) );
+
+            case DOUBLE:
+                return Double.valueOf( Double.longBitsToDouble( in.readLong() ) );
+
+            case DATE:
+                return new Date( in.readLong() );
+
+            case CACHE_ELEMENT:
+            {
+                final String cacheName = (String) readObject( in );
+                final Object key = readObject( in );
+                final Object val = readObject( in );
+                return new CacheElement<>( cacheName, key, val, (IElementAttributes) readObject( in ) );
+            }
+
+            case CACHE_ELEMENT_SERIALIZED:
+            {
+                final String cacheName = (String) readObject( in );
+                final Object key = readObject( in );
+                final byte[] val = (byte[]) readObject( in );
+                return new CacheElementSerialized<>( cacheName, key, val, (IElementAttributes) readObject( in ) );
+            }
+
+            case ELEMENT_ATTRIBUTES:
+                return readFields( in, ELEMENT_ATTRIBUTES_INFO, new ElementAttributes() );
+
+            case REGISTERED:
+                return readRegistered( in );
+
+            case BYTE_ARRAY:
+            {
+                final byte[] array = new byte[in.readLength()];
+                in.references.add( array );
+                in.readBytes( array );
+                return array;
+            }
+
+            case INT_ARRAY:
+            {
+                final int[] array = new int[in.readLength()];
+                in.references.add( array );
+                for ( int i = 0; i < array.length; i++ )
+                {
+                    array[i] = unZigZag( in.readVarInt() );
+                }
+                return array;
+            }
+
+            case LONG_ARRAY:
+            {
+                final long[] array = new long[in.readLength()];
+                in.references.add( array );
+                for ( int i = 0; i < array.length; i++ )
+                {
+                    array[i] = unZigZag( in.readVarLong() );
+                }
+                return array;
+            }
+
+            case OBJECT_ARRAY:
+            case STRING_ARRAY:
+            {
+                final int length = in.readLength();
+                final Object[] array = tag == OBJECT_ARRAY ? new Object[length] : new String[length];
+                in.references.add( array );
+                for ( int i = 0; i < array.length; i++ )
+                {
+                    array[i] = readObject( in );
+                }
+                return array;
+            }
+
+            case ARRAY_LIST:
+            case LINKED_LIST:
+            case HASH_SET:
+            case LINKED_HASH_SET:
+            case TREE_SET:
+            {
+                final int size = in.readLength();
+                final Collection<Object> collection = newCollection( tag, size );
+                in.references.add( collection );
+                for ( int i = 0; i < size; i++ )
+                {
+                    collection.add( readObject( in ) );
+                }
+                return collection;
+            }
+
+            case HASH_MAP:
+            case LINKED_HASH_MAP:
+            case TREE_MAP:
+            case CONCURRENT_HASH_MAP:
+            {
+                final int size = in.readLength();
+                final Map<Object, Object> map = newMap( tag, size );
+                in.references.add( map );
+                for ( int i = 0; i < size; i++ )
+                {
+                    final Object key = readObject( in );
+                    map.put( key, readObject( in ) );
+                }
+                return map;
+            }
+
+            case JAVA:
+            {
+                final int length = in.readLength();
+                return in.readJava( length );
+            }
+
+            default:
+                throw new StreamCorruptedException( "Unknown tag " + tag );
+        }
+    }
+
+    /**
+     * Reads an object of a registered class.
+     */
+    private Object readRegistered( final Input in )
+        throws IOException, ClassNotFoundException
+    {
+        final int index = in.readVarInt();
+        final ClassInfo[] infos = registered;
+        if ( index < 0 || index >= infos.length )
+        {
+            throw new StreamCorruptedException( "Class " + index + " is not registered" );
+        }
+
+        final ClassInfo info = infos[index];
+        if ( info.type.isEnum() )
+        {
+            final Object[] constants = info.type.getEnumConstants();
+            final int ordinal = in.readVarInt();
+            if ( ordinal < 0 || ordinal >= constants.length )
+            {
+                throw new StreamCorruptedException( "Invalid ordinal " + ordinal + " of " + info.type.getName() );
+            }
+            return constants[ordinal];
+        }
+
+        final Object obj;
+        try
+        {
+            obj = info.constructor.newInstance();
+        }
+        catch ( final ReflectiveOperationException e )
+        {
+            throw new IOException( "Could not create an instance of " + info.type.getName(), e );
+        }
+
+        in.references.add( obj );
+        return readFields( in, info, obj );
+    }
+
+    /**
+     * Writes the fields of an object.
+     */
+    private void writeFields( final Output out, final ClassInfo info, final Object obj )
+        throws IOException
+    {
+        try
+        {
+            for ( final Field field : info.fields )
+            {
+                final Class<?> type = field.getType();
+                if ( !type.isPrimitive() )
+                {
+                    writeObject( out, field.get( obj ) );
+                }
+                else if ( type == int.class )
+                {
+                    out.writeVarInt( zigZag( field.getInt( obj ) ) );
+                }
+                else if ( type == long.class )
+                {
+                    out.writeVarLong( zigZag( field.getLong( obj ) ) );
+                }
+                else if ( type == boolean.class )
+                {
+                    out.writeByte( field.getBoolean( obj ) ? 1 : 0 );
+                }
+                else if ( type == byte.class )
+                {
+                    out.writeByte( field.getByte( obj ) );
+                }
+                else if ( type == short.class )
+                {
+                    out.writeVarInt( zigZag( field.getShort( obj ) ) );
+                }
+                else if ( type == char.class )
+                {
+                    out.writeVarInt( field.getChar( obj ) );
+                }
+                else if ( type == float.class )
+                {
+                    out.writeInt( Float.floatToRawIntBits( field.getFloat( obj ) ) );
+                }
+                else
+                {
+                    out.writeLong( Double.doubleToRawLongBits( field.getDouble( obj ) ) );
+                }
+            }
+        }
+        catch ( final IllegalAccessException e )
+        {
+            throw new IOException( "Could not read the fields of " + info.type.getName(), e );
+        }
+    }
+
+    /**
+     * Reads the fields of an object.
+     */
+    private Object readFields( final Input in, final ClassInfo info, final Object obj )
+        throws IOException, ClassNotFoundException
+    {
+        try
+        {
+            for ( final Field field : info.fields )
+            {
+                final Class<?> type = field.getType();
+                if ( !type.isPrimitive() )
+                {
+                    final Object value = readObject( in );
+                    if ( value != null && !type.isInstance( value ) )
+                    {
+                        throw new StreamCorruptedException( "Wrong type " + value.getClass().getName()
+                            + " for field " + field.getName() + " of " + info.type.getName() );
+                    }
+                    field.set( obj, value );
+                }
+                else if ( type == int.class )
+                {
+                    field.setInt( obj, unZigZag( in.readVarInt() ) );
+                }
+                else if ( type == long.class )
+                {
+                    field.setLong( obj, unZigZag( in.readVarLong() ) );
+                }
+                else if ( type == boolean.class )
+                {
+                    field.setBoolean( obj, in.readByte() != 0 );
+                }
+                else if ( type == byte.class )
+                {
+                    field.setByte( obj, in.readByte() );
+                }
+                else if ( type == short.class )
+                {
+                    field.setShort( obj, (short) unZigZag( in.readVarInt() ) );
+                }
+                else if ( type == char.class )
+                {
+                    field.setChar( obj, (char) in.readVarInt() );
+                }
+                else if ( type == float.class )
+                {
+                    field.setFloat( obj, Float.intBitsToFloat( in.readInt() ) );
+                }
+                else
+                {
+                    field.setDouble( obj, Double.longBitsToDouble( in.readLong() ) );
+                }
+            }
+        }
+        catch ( final IllegalAccessException e )
+        {
+            throw new IOException( "Could not set the fields of " + info.type.getName(), e );
+        }
+
+        return obj;
+    }
+
+    /**
+     * Reads an object written with Java serialization from a buffer.
+     */
+    private static <T> T readJava( final ByteBuffer data, final int offset, final int length, final ClassLoader loader )
+        throws IOException, ClassNotFoundException
+    {
+        if ( data.hasArray() )
+        {
+            return readJava( data.array(), data.arrayOffset() + offset, length, loader );
+        }
+
+        final byte[] bytes = new byte[length];
+        final ByteBuffer source = data.duplicate();
+        source.limit( offset + length ).position( offset );
+        source.get( bytes );
+        return readJava( bytes, 0, length, loader );
+    }
+
+    /**
+     * Reads an object written with Java serialization.
+     */
+    private static <T> T readJava( final byte[] data, final int offset, final int length, final ClassLoader loader )
+        throws IOException, ClassNotFoundException
+    {
+        try ( ObjectInputStream ois = new ObjectInputStreamClassLoaderAware(
+                new ByteArrayInputStream( data, offset, length ), loader ) )
+        {
+            @SuppressWarnings("unchecked") // Need to cast from Object
+            final T obj = (T) ois.readObject();
+            return obj;
+        }
+    }
+
+    /**
+     * @param type a supported collection class
+     * @return its tag
+     */
+    private static byte collectionTag( final Class<?> type )
+    {
+        if ( type == ArrayList.class )
+        {
+            return ARRAY_LIST;
+        }
+        if ( type == LinkedList.class )
+        {
+            return LINKED_LIST;
+        }
+        if ( type == HashSet.class )
+        {
+            return HASH_SET;
+        }
+        if ( type == LinkedHashSet.class )
+        {
+            return LINKED_HASH_SET;
+        }
+        return TREE_SET;
+    }
+
+    /**
+     * @param type a supported map class
+     * @return its tag
+     */
+    private static byte mapTag( final Class<?> type )
+    {
+        if ( type == HashMap.class )
+        {
+            return HASH_MAP;
+        }
+        if ( type == LinkedHashMap.class )
+        {
+            return LINKED_HASH_MAP;
+        }
+        if ( type == ConcurrentHashMap.class )
+        {
+            return CONCURRENT_HASH_MAP;
+        }
+        return TREE_MAP;
+    }
+
+    /**
+     * @param tag a collection tag
+     * @param size the number of elements
+     * @return an empty collection
+     */
+    private static Collection<Object> newCollection( final byte tag, final int size )
+    {
+        switch ( tag )
+        {
+            case ARRAY_LIST:
+                return new ArrayList<>( size );
+            case LINKED_LIST:
+                return new LinkedList<>();
+            case HASH_SET:
+                return new HashSet<>( capacity( size ) );
+            case LINKED_HASH_SET:
+                return new LinkedHashSet<>( capacity( size ) );
+            default:
+                return new TreeSet<>();
+        }
+    }
+
+    /**
+     * @param tag a map tag
+     * @param size the number of entries
+     * @return an empty map
+     */
+    private static Map<Object, Object> newMap( final byte tag, final int size )
+    {
+        switch ( tag )
+        {
+            case HASH_MAP:
+                return new HashMap<>( capacity( size ) );
+            case LINKED_HASH_MAP:
+                return new LinkedHashMap<>( capacity( size ) );
+            case CONCURRENT_HASH_MAP:
+                return new ConcurrentHashMap<>( capacity( size ) );
+            default:
+                return new TreeMap<>();
+        }
+    }
+
+    /**
+     * @param size the number of entries
+     * @return the capacity of a hash table holding them without resizing
+     */
+    private static int capacity( final int size )
+    {
+        return size < 3 ? size + 1 : (int) ( size / 0.75f + 1.0f );
+    }
+
+    /** @return the value with the sign moved to the lowest bit */
+    private static int zigZag( final int value )
+    {
+        return value << 1 ^ value >> 31;
+    }
+
+    /** @return the value with the sign moved to the lowest bit */
+    private static long zigZag( final long value )
+    {
+        return value << 1 ^ value >> 63;
+    }
+
+    /** @return the value with the sign moved back */
+    private static int unZigZag( final int value )
+    {
+        return value >>> 1 ^ -( value & 1 );
+    }
+
+    /** @return the value with the sign moved back */
+    private static long unZigZag( final long value )
+    {
+        return value >>> 1 ^ -( value & 1 );
+    }
+
+    /**
+     * How to write the objects of a class.
+     */
+    private static class ClassInfo
+    {
+        /** The class */
+        final Class<?> type;
+
+        /** The constructor without arguments, null for enums */
+        final Constructor<?> constructor;
+
+        /** The fields to write, those of the super classes first */
+        final Field[] fields;
+
+        /** The registration index */
+        int index;
+
+        /**
+         * @param type the class
+         * @throws IllegalArgumentException if the class cannot be written field by field
+         */
+        ClassInfo( final Class<?> type )
+        {
+            this.type = type;
+
+            if ( type.isEnum() )
+            {
+                this.constructor = null;
+                this.fields = new Field[0];
+                return;
+            }
+
+            if ( type.isArray() || type.isInterface() || Modifier.isAbstract( type.getModifiers() ) )
+            {
+                throw new IllegalArgumentException( "Cannot register " + type.getName() );
+            }
+
+            try
+            {
+                this.constructor = type.getDeclaredConstructor();
+                this.constructor.setAccessible( true );
+
+                final List<Class<?>> hierarchy = new ArrayList<>();
+                for ( Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass() )
+                {
+                    hierarchy.add( 0, c );
+                }
+
+                final List<Field> fieldList = new ArrayList<>();
+                for ( final Class<?> c : hierarchy )
+                {
+                    final Field[] declared = c.getDeclaredFields();
+                    Arrays.sort( declared, Comparator.comparing( Field::getName ) );
+                    for ( final Field field : declared )
+                    {
+                        final int modifiers = field.getModifiers();
+                        if ( !Modifier.isStatic( modifiers ) && !Modifier.isTransient( modifiers ) )
+                        {
+                            field.setAccessible( true );
+                            fieldList.add( field );
+                        }
+                    }
+                }
+                this.fields = fieldList.toArray( new Field[0] );
+            }
+            catch ( final NoSuchMethodException e )
+            {
+                throw new IllegalArgumentException( type.getName() + " has no constructor without arguments", e );
+            }
+            catch ( final RuntimeException e )
+            {
+                // InaccessibleObjectException or SecurityException
+                throw new IllegalArgumentException( "Cannot access the fields of " + type.getName(), e );
+            }
+        }
+    }
+
+    /**
+     * The reusable output buffer of a thread.
+     */
+    private static class Output
+    {
+        /** The buffer */
+        byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+        /** The write position */
+        int position;
+
+        /** The objects written so far and their index */
+        final IdentityHashMap<Object, Integer> references = new IdentityHashMap<>();
+
+        /** Whether a serialization is running on this buffer */
+        boolean inUse;
+
+        /** Prepare for the next call */
+        void reset()
+        {
+            position = 0;
+            references.clear();
+            inUse = false;
+            if ( buffer.length > MAX_RETAINED_BUFFER_SIZE )
+            {
+                buffer = new byte[INITIAL_BUFFER_SIZE];
+            }
+        }
+
+        /** Remember an object for later references */
+        void addReference( final Object obj )
+        {
+            references.put( obj, Integer.valueOf( references.size() ) );
+        }
+
+        /** Make room for more bytes */
+        void ensureCapacity( final int required )
+        {
+            if ( position + required > buffer.length )
+            {
+                buffer = Arrays.copyOf( buffer, Math.max( buffer.length * 2, position + required ) );
+            }
+        }
+
+        void writeByte( final int b )
+        {
+            ensureCapacity( 1 );
+            buffer[position++] = (byte) b;
+        }
+
+        void writeBytes( final byte[] bytes )
+        {
+            ensureCapacity( bytes.length );
+            System.arraycopy( bytes, 0, buffer, position, bytes.length );
+            position += bytes.length;
+        }
+
+        void writeInt( final int i )
+        {
+            ensureCapacity( 4 );
+            buffer[position++] = (byte) ( i >>> 24 );
+            buffer[position++] = (byte) ( i >>> 16 );
+            buffer[position++] = (byte) ( i >>> 8 );
+            buffer[position++] = (byte) i;
+        }
+
+        void writeLong( final long l )
+        {
+            writeInt( (int) ( l >>> 32 ) );
+            writeInt( (int) l );
+        }
+
+        void writeVarInt( final int value )
+        {
+            ensureCapacity( 5 );
+            int v = value;
+            while ( ( v & ~0x7F ) != 0 )
+            {
+                buffer[position++] = (byte) ( v & 0x7F | 0x80 );
+                v >>>= 7;
+            }
+            buffer[position++] = (byte) v;
+        }
+
+        void writeVarLong( final long value )
+        {
+            ensureCapacity( 10 );
+            long v = value;
+            while ( ( v & ~0x7FL ) != 0 )
+            {
+                buffer[position++] = (byte) ( v & 0x7F | 0x80 );
+                v >>>= 7;
+            }
+            buffer[position++] = (byte) v;
+        }
+
+        /** Writes the length and the chars, one to three bytes each */
+        void writeString( final String s )
+        {
+            final int length = s.length();
+            writeVarInt( length );
+            ensureCapacity( length * 3 );
+            for ( int i = 0; i < length; i++ )
+            {
+                final char c = s.charAt( i );
+                if ( c < 0x80 )
+                {
+                    buffer[position++] = (byte) c;
+                }
+                else if ( c < 0x800 )
+                {
+                    buffer[position++] = (byte) ( 0xC0 | c >> 6 );
+                    buffer[position++] = (byte) ( 0x80 | c & 0x3F );
+                }
+                else
+                {
+                    buffer[position++] = (byte) ( 0xE0 | c >> 12 );
+                    buffer[position++] = (byte) ( 0x80 | c >> 6 & 0x3F );
+                    buffer[position++] = (byte) ( 0x80 | c & 0x3F );
+                }
+            }
+        }
+    }
+
+    /**
+     * The input state of a thread.
+     */
+    private static class Input
+    {
+        /** The data, if not backed by an array */
+        ByteBuffer buffer;
+
+        /** The backing array of the data */
+        byte[] array;
+
+        /** The read position, in the array if there is one */
+        int position;
+
+        /** The end of the data, in the array if there is one */
+        int limit;
+
+        /** The class loader for Java serialization */
+        ClassLoader loader;
+
+        /** The objects read so far, by index */
+        final List<Object> references = new ArrayList<>();
+
+        /** Whether a deserialization is running */
+        boolean inUse;
+
+        /** Prepare for the next call */
+        void reset()
+        {
+            buffer = null;
+            array = null;
+            loader = null;
+            references.clear();
+            inUse = false;
+        }
+
+        /** Start reading the remaining bytes of a buffer */
+        void setData( final ByteBuffer data, final int start, final int end )
+        {
+            if ( data.hasArray() )
+            {
+                array = data.array();
+                position = data.arrayOffset() + start;
+                limit = data.arrayOffset() + end;
+            }
+            else
+            {
+                buffer = data;
+                position = start;
+                limit = end;
+            }
+        }
+
+        byte readByte()
+        {
+            if ( position >= limit )
+            {
+                throw new IndexOutOfBoundsException( "End of data" );
+            }
+            return array != null ? array[position++] : buffer.get( position++ );
+        }
+
+        void readBytes( final byte[] bytes )
+        {
+            if ( array != null )
+            {
+                System.arraycopy( array, position, bytes, 0, bytes.length );
+            }
+            else
+            {
+                final ByteBuffer source = buffer.duplicate();
+                source.position( position );
+                source.get( bytes );
+            }
+            position += bytes.length;
+        }
+
+        /** Reads an object written with Java serialization */
+        <T> T readJava( final int length )
+            throws IOException, ClassNotFoundException
+        {
+            final byte[] data;
+            final int offset;
+            if ( array != null )
+            {
+                data = array;
+                offset = position;
+            }
+            else
+            {
+                data = new byte[length];
+                offset = 0;
+                readBytes( data );
+                position -= length;
+            }
+
+            final T obj = FastSerializer.readJava( data, offset, length, loader );
+            position += length;
+            return obj;
+        }
+
+        int readInt()
+        {
+            return ( readByte() & 0xFF ) << 24 | ( readByte() & 0xFF ) << 16
+                | ( readByte() & 0xFF ) << 8 | readByte() & 0xFF;
+        }
+
+        long readLong()
+        {
+            return (long) readInt() << 32 | readInt() & 0xFFFFFFFFL;
+        }
+
+        int readVarInt()
+        {
+            int value = 0;
+            for ( int shift = 0; shift < 35; shift += 7 )
+            {
+                final byte b = readByte();
+                value |= ( b & 0x7F ) << shift;
+                if ( b >= 0 )
+                {
+                    return value;
+                }
+            }
+            throw new IndexOutOfBoundsException( "Malformed variable length int" );
+        }
+
+        long readVarLong()
+        {
+            long value = 0;
+            for ( int shift = 0; shift < 70; shift += 7 )
+            {
+                final byte b = readByte();
+                value |= (long) ( b & 0x7F ) << shift;
+                if ( b >= 0 )
+                {
+                    return value;
+                }
+            }
+            throw new IndexOutOfBoundsException( "Malformed variable length long" );
+        }
+
+        /** Reads a length, which cannot be larger than the remaining data */
+        int readLength()
+        {
+            final int length = readVarInt();
+            if ( length < 0 || length > limit - position )
+            {
+                throw new IndexOutOfBoundsException( "Invalid length " + length );
+            }
+            return length;
+        }
+
+        String readString()
+        {
+            final char[] chars = new char[readLength()];
+            for ( int i = 0; i < chars.length; i++ )
+            {
+                final int b = readByte() & 0xFF;
+                if ( b < 0x80 )
+                {
+                    chars[i] = (char) b;
+                }
+                else if ( b < 0xE0 )
+                {
+                    chars[i] = (char) ( ( b & 0x1F ) << 6 | readByte() & 0x3F );
+                }
+                else
+                {
+                    chars[i] = (char) ( ( b & 0x0F ) << 12 | ( readByte() & 0x3F ) << 6
+                        | readByte() & 0x3F );
+                }
+            }
+            return new String( chars );
+        }
+    }
+}
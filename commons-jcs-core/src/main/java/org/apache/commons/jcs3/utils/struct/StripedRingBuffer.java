@@ -0,0 +1,219 @@
+package org.apache.commons.jcs3.utils.struct;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A lossy, striped set of bounded ring buffers. Many threads may offer elements concurrently
+ * without blocking. Each thread is mapped to one of the stripes by its id so that contention on a
+ * single stripe stays low. If a stripe is full, the offered element is simply dropped.
+ * <p>
+ * Draining is NOT thread safe. The caller has to make sure that only one thread drains at a time,
+ * usually by holding a lock.
+ * <p>
+ * This is used by memory caches to record accesses without taking the region lock on every hit.
+ * Losing a few of these records under heavy load only makes the eviction order slightly less
+ * precise.
+ */
+public class StripedRingBuffer<T>
+{
+    /** The number of elements each stripe can hold. Must be a power of two. */
+    private static final int STRIPE_SIZE = 32;
+
+    /** Mask for the index in a stripe */
+    private static final int STRIPE_MASK = STRIPE_SIZE - 1;
+
+    /** Number of pending elements in a stripe to request a drain */
+    private static final int DRAIN_THRESHOLD = STRIPE_SIZE / 2;
+
+    /** The stripes */
+    private final Stripe<T>[] stripes;
+
+    /** Mask for the stripe index */
+    private final int stripeMask;
+
+    /**
+     * Constructs a buffer with a stripe count matching the number of available processors.
+     */
+    public StripedRingBuffer()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a buffer with at least the given number of stripes.
+     * <p>
+     * @param minStripes the minimum number of stripes, rounded up to the next power of two
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"}) // No generic arrays in java
+    public StripedRingBuffer(final int minStripes)
+    {
+        int count = 1;
+        while (count < minStripes)
+        {
+            count <<= 1;
+        }
+
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++)
+        {
+            stripes[i] = new Stripe<>();
+        }
+        this.stripeMask = count - 1;
+    }
+
+    /**
+     * Offers an element to the stripe of the current thread. This never blocks.
+     * <p>
+     * @param element the element to record
+     * @return true if the stripe has collected enough elements that it should be drained
+     */
+    public boolean offer(final T element)
+    {
+        final long id = Thread.currentThread().getId();
+        final int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & stripeMask].offer(element);
+    }
+
+    /**
+     * Drains all stripes, passing every recorded element to the consumer in the order in which it
+     * was recorded within its stripe.
+     * <p>
+     * Must only be called by one thread at a time.
+     * <p>
+     * @param consumer the consumer of the elements
+     * @return the number of elements drained
+     */
+    public int drainTo(final Consumer<T> consumer)
+    {
+        int drained = 0;
+        for (final Stripe<T> stripe : stripes)
+        {
+            drained += stripe.drainTo(consumer);
+        }
+        return drained;
+    }
+
+    /**
+     * Drops all recorded elements.
+     * <p>
+     * Must only be called by one thread at a time.
+     */
+    public void clear()
+    {
+        drainTo(element -> {});
+    }
+
+    /**
+     * @return the approximate number of pending elements over all stripes
+     */
+    public int size()
+    {
+        int size = 0;
+        for (final Stripe<T> stripe : stripes)
+        {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * A single ring buffer. Producers claim a slot by incrementing the write counter, the consumer
+     * frees slots by advancing the read counter.
+     */
+    private static class Stripe<T>
+    {
+        /** The slots */
+        private final AtomicReferenceArray<T> buffer = new AtomicReferenceArray<>(STRIPE_SIZE);
+
+        /** Next slot to write to */
+        private final AtomicLong writeCounter = new AtomicLong();
+
+        /** Next slot to read from, only written by the draining thread */
+        private volatile long readCounter;
+
+        /**
+         * @param element the element to add
+         * @return true if a drain should be requested
+         */
+        boolean offer(final T element)
+        {
+            final long head = readCounter;
+            final long tail = writeCounter.get();
+            final long pending = tail - head;
+
+            if (pending >= STRIPE_SIZE)
+            {
+                // full, drop the element
+                return true;
+            }
+
+            if (writeCounter.compareAndSet(tail, tail + 1))
+            {
+                buffer.lazySet((int) (tail & STRIPE_MASK), element);
+                return pending + 1 >= DRAIN_THRESHOLD;
+            }
+
+            // lost the race against another producer, drop the element
+            return false;
+        }
+
+        /**
+         * @param consumer the consumer of the elements
+         * @return the number of elements drained
+         */
+        int drainTo(final Consumer<T> consumer)
+        {
+            long head = readCounter;
+            final long tail = writeCounter.get();
+            int drained = 0;
+
+            while (head < tail)
+            {
+                final int index = (int) (head & STRIPE_MASK);
+                final T element = buffer.get(index);
+                if (element == null)
+                {
+                    // slot claimed but not yet published
+                    break;
+                }
+
+                buffer.lazySet(index, null);
+                consumer.accept(element);
+                head++;
+                drained++;
+            }
+
+            readCounter = head;
+            return drained;
+        }
+
+        /**
+         * @return the number of pending elements
+         */
+        int size()
+        {
+            return (int) (writeCounter.get() - readCounter);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package org.apache.commons.jcs3.utils.struct;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel holding one deadline per key.
+ * <p>
+ * Time is divided into ticks. The wheel has several levels of 64 buckets each. A bucket of the
+ * first level covers one tick, a bucket of the next level covers 64 ticks, and so on. A key is
+ * placed in the finest level whose range contains its deadline. When time advances to a bucket of a
+ * higher level, its keys are moved down to finer levels. When it reaches a bucket of the first
+ * level, its keys are due.
+ * <p>
+ * Scheduling and cancelling a key are O(1). Advancing the wheel costs O(1) per elapsed tick plus
+ * the work for the keys that cascade or fall due, independent of the number of keys in the wheel.
+ * <p>
+ * This class is thread safe.
+ */
+public class TimerWheel<K>
+{
+    /** Number of bits of the bucket index */
+    private static final int BUCKET_BITS = 6;
+
+    /** Number of buckets per level */
+    private static final int BUCKETS = 1 << BUCKET_BITS;
+
+    /** Mask for the bucket index */
+    private static final int BUCKET_MASK = BUCKETS - 1;
+
+    /** Number of levels. The wheel covers 2^30 ticks before keys get cascaded repeatedly */
+    private static final int LEVELS = 5;
+
+    /** The length of a tick in milliseconds */
+    private final long tickMillis;
+
+    /** Sentinels of the bucket lists by level and bucket */
+    private final Node<K>[][] wheel;
+
+    /** Nodes by key */
+    private final Map<K, Node<K>> nodes = new HashMap<>();
+
+    /** The last processed tick */
+    private long currentTick;
+
+    /** Guards the wheel */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Constructs a wheel with the given tick length, starting at the current time.
+     * <p>
+     * @param tickMillis the length of a tick in milliseconds
+     */
+    public TimerWheel(final long tickMillis)
+    {
+        this(tickMillis, System.currentTimeMillis());
+    }
+
+    /**
+     * Constructs a wheel with the given tick length, starting at the given time.
+     * <p>
+     * @param tickMillis the length of a tick in milliseconds
+     * @param nowMillis the start time in milliseconds
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"}) // No generic arrays in java
+    public TimerWheel(final long tickMillis, final long nowMillis)
+    {
+        if (tickMillis <= 0)
+        {
+            throw new IllegalArgumentException("Tick length must be positive: " + tickMillis);
+        }
+
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        this.wheel = new Node[LEVELS][BUCKETS];
+        for (int level = 0; level < LEVELS; level++)
+        {
+            for (int bucket = 0; bucket < BUCKETS; bucket++)
+            {
+                wheel[level][bucket] = new Node<>(null);
+            }
+        }
+    }
+
+    /**
+     * Schedules the key to fall due at the deadline, replacing an earlier deadline of the key.
+     * The key falls due with the first advance to a time at or after the deadline.
+     * <p>
+     * @param key the key
+     * @param deadlineMillis the deadline in milliseconds
+     */
+    public void schedule(final K key, final long deadlineMillis)
+    {
+        lock.lock();
+        try
+        {
+            Node<K> node = nodes.get(key);
+            if (node == null)
+            {
+                node = new Node<>(key);
+                nodes.put(key, node);
+            }
+            else
+            {
+                node.unlink();
+            }
+
+            // round up, so that the key does not fall due before its deadline
+            node.deadlineTick = deadlineMillis / tickMillis + (deadlineMillis % tickMillis == 0 ? 0 : 1);
+            insert(node);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the key from the wheel.
+     * <p>
+     * @param key the key
+     * @return true if the key was scheduled
+     */
+    public boolean cancel(final K key)
+    {
+        lock.lock();
+        try
+        {
+            final Node<K> node = nodes.remove(key);
+            if (node != null)
+            {
+                node.unlink();
+            }
+            return node != null;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Advances the wheel to the given time and hands the keys that fell due to the consumer. The
+     * keys are removed from the wheel before the consumer is called, outside of the lock, so the
+     * consumer may schedule them again.
+     * <p>
+     * @param nowMillis the current time in milliseconds
+     * @param consumer receives the keys that fell due
+     * @return the number of keys that fell due
+     */
+    public int advance(final long nowMillis, final Consumer<K> consumer)
+    {
+        final List<K> due = new ArrayList<>();
+
+        lock.lock();
+        try
+        {
+            final long targetTick = nowMillis / tickMillis;
+            while (currentTick < targetTick)
+            {
+                currentTick++;
+
+                // move keys of coarser buckets starting now down to finer levels
+                for (int level = LEVELS - 1; level > 0; level--)
+                {
+                    if ((currentTick & ((1L << (BUCKET_BITS * level)) - 1)) == 0)
+                    {
+                        cascade(wheel[level][(int) (currentTick >>> (BUCKET_BITS * level)) & BUCKET_MASK]);
+                    }
+                }
+
+                final Node<K> sentinel = wheel[0][(int) currentTick & BUCKET_MASK];
+                while (sentinel.next != sentinel)
+                {
+                    final Node<K> node = sentinel.next;
+                    node.unlink();
+                    nodes.remove(node.key);
+                    due.add(node.key);
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        due.forEach(consumer);
+        return due.size();
+    }
+
+    /**
+     * Removes all keys.
+     */
+    public void clear()
+    {
+        lock.lock();
+        try
+        {
+            nodes.values().forEach(Node::unlink);
+            nodes.clear();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of scheduled keys
+     */
+    public int size()
+    {
+        lock.lock();
+        try
+        {
+            return nodes.size();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the length of a tick in milliseconds
+     */
+    public long getTickMillis()
+    {
+        return tickMillis;
+    }
+
+    /**
+     * Re-inserts all nodes of the bucket relative to the current tick.
+     * (guarded by the lock)
+     * <p>
+     * @param sentinel the sentinel of the bucket
+     */
+    private void cascade(final Node<K> sentinel)
+    {
+        Node<K> node = sentinel.next;
+        sentinel.next = sentinel;
+        sentinel.prev = sentinel;
+
+        while (node != sentinel)
+        {
+            final Node<K> next = node.next;
+            node.next = node;
+            node.prev = node;
+            insert(node);
+            node = next;
+        }
+    }
+
+    /**
+     * Adds the node to the bucket of the finest level whose range contains the deadline. Overdue
+     * nodes fall due with the next tick.
+     * (guarded by the lock)
+     * <p>
+     * @param node the unlinked node
+     */
+    private void insert(final Node<K> node)
+    {
+        final long tick = Math.max(node.deadlineTick, currentTick + 1);
+
+        int level = 0;
+        while (level < LEVELS - 1
+                && (tick >>> (BUCKET_BITS * (level + 1))) != (currentTick >>> (BUCKET_BITS * (level + 1))))
+        {
+            level++;
+        }
+
+        final Node<K> sentinel = wheel[level][(int) (tick >>> (BUCKET_BITS * level)) & BUCKET_MASK];
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    /**
+     * An entry of a bucket list.
+     */
+    private static class Node<K>
+    {
+        /** The key, null for sentinels */
+        final K key;
+
+        /** The tick the key falls due */
+        long deadlineTick;
+
+        /** Previous node in the bucket */
+        Node<K> prev;
+
+        /** Next node in the bucket */
+        Node<K> next;
+
+        /**
+         * @param key the key
+         */
+        Node(final K key)
+        {
+            this.key = key;
+            this.prev = this;
+            this.next = this;
+        }
+
+        /**
+         * Removes the node from its bucket.
+         */
+        void unlink()
+        {
+            prev.next = next;
+            next.prev = prev;
+            prev = this;
+            next = this;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.apache.commons.jcs3.utils.timing;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records latencies in buckets of powers of two microseconds and estimates their percentiles.
+ * <p>
+ * Recording is lock free and cheap enough for every request. To follow changes in latency, all
+ * counts are halved once the number of samples reaches a limit, so old samples lose weight.
+ * Percentiles are reported as the upper bound of their bucket, so they are conservative by up to
+ * a factor of two.
+ */
+public class LatencyHistogram
+{
+    /** Number of buckets. The last one holds everything above about 2^38 microseconds. */
+    private static final int BUCKETS = 40;
+
+    /** Default number of samples after which the counts are halved */
+    public static final long DEFAULT_DECAY_THRESHOLD = 1024;
+
+    /** Samples per bucket, bucket i holds latencies below 2^i microseconds */
+    private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+
+    /** Sum of the counts */
+    private final AtomicLong total = new AtomicLong();
+
+    /** Number of samples after which the counts are halved */
+    private final long decayThreshold;
+
+    /** Uses the default decay threshold. */
+    public LatencyHistogram()
+    {
+        this( DEFAULT_DECAY_THRESHOLD );
+    }
+
+    /**
+     * @param decayThreshold number of samples after which the counts are halved
+     */
+    public LatencyHistogram( final long decayThreshold )
+    {
+        this.decayThreshold = Math.max( 2, decayThreshold );
+    }
+
+    /**
+     * Records a latency.
+     * <p>
+     * @param nanos the latency in nanoseconds
+     */
+    public void record( final long nanos )
+    {
+        final long micros = Math.max( 1, nanos / 1000 );
+        final int bucket = Math.min( BUCKETS - 1, 64 - Long.numberOfLeadingZeros( micros ) );
+        counts.incrementAndGet( bucket );
+
+        if ( total.incrementAndGet() >= decayThreshold )
+        {
+            decay();
+        }
+    }
+
+    /**
+     * Estimates a percentile of the recorded latencies.
+     * <p>
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency in nanoseconds, or -1 if nothing was recorded
+     */
+    public long getPercentile( final double percentile )
+    {
+        long sum = 0;
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            sum += counts.get( i );
+        }
+        if ( sum == 0 )
+        {
+            return -1;
+        }
+
+        final long rank = Math.max( 1, (long) Math.ceil( sum * percentile / 100 ) );
+        long seen = 0;
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            seen += counts.get( i );
+            if ( seen >= rank )
+            {
+                return TimeUnit.MICROSECONDS.toNanos( 1L << i );
+            }
+        }
+        return TimeUnit.MICROSECONDS.toNanos( 1L << ( BUCKETS - 1 ) );
+    }
+
+    /**
+     * @return the weighted number of samples, which drops when old samples are decayed
+     */
+    public long getCount()
+    {
+        return total.get();
+    }
+
+    /**
+     * Halves all counts. Samples recorded concurrently may be halved or not, which does not matter
+     * for an estimate.
+     */
+    private synchronized void decay()
+    {
+        if ( total.get() < decayThreshold )
+        {
+            // another thread was first
+            return;
+        }
+
+        long sum = 0;
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            sum += counts.updateAndGet( i, c -> c >> 1 );
+        }
+        total.set( sum );
+    }
+}
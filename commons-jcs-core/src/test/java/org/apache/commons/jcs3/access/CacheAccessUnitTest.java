@@ -22,6 +22,14 @@ package org.apache.commons.jcs3.access;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.jcs3.JCS;
 import org.apache.commons.jcs3.access.exception.CacheException;
@@ -200,6 +208,144 @@ public class CacheAccessUnitTest
         assertEquals( "value four", suppliedValue1, suppliedValue2);
     }
 
+    /**
+     * Verify that concurrent callers missing the same key run the supplier only once.
+     * @throws Exception
+     */
+    public void testGetWithSupplierCoalescesConcurrentLoads()
+        throws Exception
+    {
+        // SETUP
+        final CacheAccess<String, String> access = JCS.getInstance( "testGetWithSupplierCoalescesConcurrentLoads" );
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final int threads = 10;
+        final ExecutorService executor = Executors.newFixedThreadPool( threads );
+
+        try
+        {
+            // DO WORK
+            final Set<Future<String>> results = new HashSet<>();
+            for ( int i = 0; i < threads; i++ )
+            {
+                results.add( executor.submit( () -> {
+                    start.await();
+                    return access.get( "key", () -> {
+                        loads.incrementAndGet();
+                        try
+                        {
+                            Thread.sleep( 200 );
+                        }
+                        catch ( final InterruptedException e )
+                        {
+                            Thread.currentThread().interrupt();
+                        }
+                        return "value";
+                    } );
+                } ) );
+            }
+            start.countDown();
+
+            // VERIFY
+            for ( final Future<String> result : results )
+            {
+                assertEquals( "Wrong value", "value", result.get( 10, TimeUnit.SECONDS ) );
+            }
+            assertEquals( "Supplier should run once", 1, loads.get() );
+            assertEquals( "Value should be cached", "value", access.get( "key" ) );
+            assertTrue( "No load should be left in flight", access.getCacheControl().getLoadsInFlight().isEmpty() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Verify that asynchronous callers share a single load and that failures are not cached.
+     * @throws Exception
+     */
+    public void testGetAsync()
+        throws Exception
+    {
+        // SETUP
+        final CacheAccess<String, String> access = JCS.getInstance( "testGetAsync" );
+        final AtomicInteger loads = new AtomicInteger();
+        final CompletableFuture<String> load = new CompletableFuture<>();
+
+        // DO WORK
+        final CompletableFuture<String> first = access.getAsync( "key", key -> {
+            loads.incrementAndGet();
+            return load;
+        } );
+        final CompletableFuture<String> second = access.getAsync( "key", key -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture( "other" );
+        } );
+
+        // VERIFY
+        assertFalse( "Should wait for the load", first.isDone() || second.isDone() );
+        load.complete( "value" );
+        assertEquals( "Wrong value", "value", first.get() );
+        assertEquals( "Wrong value", "value", second.get() );
+        assertEquals( "Loader should run once", 1, loads.get() );
+        assertEquals( "Value should be cached", "value", access.get( "key" ) );
+
+        // a failed load is reported to the caller and retried later
+        final CompletableFuture<String> failed = access.getAsync( "failing", key -> {
+            throw new IllegalStateException( "expected" );
+        } );
+        try
+        {
+            failed.get();
+            fail( "Should have failed" );
+        }
+        catch ( final ExecutionException e )
+        {
+            assertTrue( "Wrong cause", e.getCause() instanceof IllegalStateException );
+        }
+        assertNull( "Failure should not be cached", access.get( "failing" ) );
+        assertEquals( "Should load again", "retried",
+            access.getAsync( "failing", key -> CompletableFuture.completedFuture( "retried" ) ).get() );
+    }
+
+    /**
+     * Verify that a supplier throwing an error does not leave its load in flight.
+     * @throws Exception
+     */
+    public void testGetWithSupplierError()
+        throws Exception
+    {
+        // SETUP
+        final CacheAccess<String, String> access = JCS.getInstance( "testGetWithSupplierError" );
+
+        // DO WORK
+        try
+        {
+            access.get( "key", () -> {
+                throw new AssertionError( "expected" );
+            } );
+            fail( "Should have thrown the error" );
+        }
+        catch ( final AssertionError e )
+        {
+            assertEquals( "Wrong error", "expected", e.getMessage() );
+        }
+
+        // VERIFY
+        assertTrue( "No load should be left in flight", access.getCacheControl().getLoadsInFlight().isEmpty() );
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            final Future<String> second = executor.submit( () -> access.get( "key", () -> "value" ) );
+            assertEquals( "Second caller should not hang", "value", second.get( 10, TimeUnit.SECONDS ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * Verify that we can get a region using the define region method.
      * @throws Exception
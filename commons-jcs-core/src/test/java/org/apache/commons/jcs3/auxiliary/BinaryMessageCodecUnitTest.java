@@ -0,0 +1,399 @@
+package org.apache.commons.jcs3.auxiliary;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.jcs3.auxiliary.lateral.LateralCommand;
+import org.apache.commons.jcs3.auxiliary.lateral.LateralElementDescriptor;
+import org.apache.commons.jcs3.auxiliary.lateral.LateralResponse;
+import org.apache.commons.jcs3.auxiliary.remote.value.RemoteCacheRequest;
+import org.apache.commons.jcs3.auxiliary.remote.value.RemoteCacheResponse;
+import org.apache.commons.jcs3.auxiliary.remote.value.RemoteRequestType;
+import org.apache.commons.jcs3.engine.CacheElement;
+import org.apache.commons.jcs3.engine.ElementAttributes;
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+import org.apache.commons.jcs3.utils.serialization.StandardSerializer;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the binary message codec.
+ */
+public class BinaryMessageCodecUnitTest
+    extends TestCase
+{
+    /** Encodes the messages */
+    private BinaryMessageCodec writer;
+
+    /** Decodes the messages */
+    private BinaryMessageCodec reader;
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        writer = new BinaryMessageCodec( new StandardSerializer() );
+        reader = new BinaryMessageCodec( new StandardSerializer() );
+    }
+
+    /**
+     * Verify that a lateral update and its element attributes survive the round trip.
+     * <p>
+     * @throws Exception
+     */
+    public void testLateralUpdate()
+        throws Exception
+    {
+        // SETUP
+        final ElementAttributes attributes = new ElementAttributes();
+        attributes.setMaxLife( 123 );
+        attributes.setIdleTime( 45 );
+        attributes.setIsEternal( false );
+        final LateralElementDescriptor<String, String> led = new LateralElementDescriptor<>(
+            new CacheElement<>( "region", "key", "value", attributes ), LateralCommand.UPDATE, 42 );
+        led.setRequestId( 7 );
+        led.setVersion( 99 );
+
+        // DO WORK
+        final byte[] data = writer.serialize( led );
+        final LateralElementDescriptor<String, String> after = reader.deSerialize( data, null );
+
+        // VERIFY
+        assertTrue( "Should be binary", BinaryMessageCodec.isBinary( data ) );
+        assertTrue( "Should have read binary", reader.isBinaryRead() );
+        assertEquals( "Wrong command", LateralCommand.UPDATE, after.getCommand() );
+        assertEquals( "Wrong requester", 42, after.getRequesterId() );
+        assertEquals( "Wrong request id", 7, after.getRequestId() );
+        assertEquals( "Wrong version", 99, after.getVersion() );
+        assertEquals( "Wrong cache name", "region", after.getPayload().getCacheName() );
+        assertEquals( "Wrong key", "key", after.getPayload().getKey() );
+        assertEquals( "Wrong value", "value", after.getPayload().getVal() );
+        assertEquals( "Wrong max life", 123, after.getPayload().getElementAttributes().getMaxLife() );
+        assertEquals( "Wrong idle time", 45, after.getPayload().getElementAttributes().getIdleTime() );
+        assertFalse( "Should not be eternal", after.getPayload().getElementAttributes().getIsEternal() );
+        assertEquals( "Wrong create time", attributes.getCreateTime(),
+            after.getPayload().getElementAttributes().getCreateTime() );
+    }
+
+    /**
+     * Verify that the commands of a batch survive the round trip.
+     * <p>
+     * @throws Exception
+     */
+    public void testLateralBatch()
+        throws Exception
+    {
+        // SETUP
+        final List<LateralElementDescriptor<String, String>> commands = new ArrayList<>();
+        for ( int i = 0; i < 10; i++ )
+        {
+            commands.add( new LateralElementDescriptor<>( new CacheElement<>( "region", "key" + i, "value" + i ),
+                i % 2 == 0 ? LateralCommand.UPDATE : LateralCommand.REMOVE, 1 ) );
+        }
+        final LateralElementDescriptor<String, String> led = new LateralElementDescriptor<>( commands, 1 );
+
+        // DO WORK
+        final LateralElementDescriptor<String, String> after = reader.deSerialize( writer.serialize( led ), null );
+
+        // VERIFY
+        assertEquals( "Wrong command", LateralCommand.BATCH, after.getCommand() );
+        assertEquals( "Wrong batch size", 10, after.getBatch().size() );
+        for ( int i = 0; i < 10; i++ )
+        {
+            final LateralElementDescriptor<String, String> command = after.getBatch().get( i );
+            assertEquals( "Wrong command " + i, commands.get( i ).getCommand(), command.getCommand() );
+            assertEquals( "Wrong key " + i, "key" + i, command.getPayload().getKey() );
+            assertEquals( "Wrong value " + i, "value" + i, command.getPayload().getVal() );
+        }
+    }
+
+    /**
+     * Verify that cache names are only sent once per codec.
+     * <p>
+     * @throws Exception
+     */
+    public void testCacheNameSentOnce()
+        throws Exception
+    {
+        // SETUP
+        final String cacheName = "aRatherLongCacheNameThatShouldOnlyBeSentOnce";
+        final LateralElementDescriptor<String, String> led = new LateralElementDescriptor<>(
+            new CacheElement<>( cacheName, "key", "value", new ElementAttributes() ) );
+
+        // DO WORK
+        final byte[] first = writer.serialize( led );
+        final byte[] second = writer.serialize( led );
+
+        // VERIFY
+        assertTrue( "Second message should be shorter", second.length < first.length - cacheName.length() + 1 );
+        final LateralElementDescriptor<String, String> afterFirst = reader.deSerialize( first, null );
+        final LateralElementDescriptor<String, String> afterSecond = reader.deSerialize( second, null );
+        assertEquals( "Wrong cache name", cacheName, afterFirst.getPayload().getCacheName() );
+        assertEquals( "Wrong cache name", cacheName, afterSecond.getPayload().getCacheName() );
+    }
+
+    /**
+     * Verify that a name announced by a message which failed to encode is announced again.
+     * <p>
+     * @throws Exception
+     */
+    public void testNameAnnouncedAgainAfterFailure()
+        throws Exception
+    {
+        // SETUP
+        final LateralElementDescriptor<String, Object> broken = new LateralElementDescriptor<>(
+            new CacheElement<>( "region", "key", new Object(), new ElementAttributes() ) );
+        final LateralElementDescriptor<String, Object> valid = new LateralElementDescriptor<>(
+            new CacheElement<>( "region", "key", "value", new ElementAttributes() ) );
+
+        // DO WORK
+        try
+        {
+            writer.serialize( broken );
+            fail( "Should not serialize a plain object" );
+        }
+        catch ( final NotSerializableException e )
+        {
+            // expected
+        }
+        final LateralElementDescriptor<String, Object> after = reader.deSerialize( writer.serialize( valid ), null );
+
+        // VERIFY
+        assertEquals( "Wrong cache name", "region", after.getPayload().getCacheName() );
+        assertEquals( "Wrong value", "value", after.getPayload().getVal() );
+    }
+
+    /**
+     * Verify that lateral responses carrying a map of elements survive the round trip.
+     * <p>
+     * @throws Exception
+     */
+    public void testLateralResponseWithElementMap()
+        throws Exception
+    {
+        // SETUP
+        final Map<String, ICacheElement<String, String>> elements = new HashMap<>();
+        for ( int i = 0; i < 5; i++ )
+        {
+            elements.put( "key" + i, new CacheElement<>( "region", "key" + i, "value" + i ) );
+        }
+
+        // DO WORK
+        final LateralResponse<Map<String, ICacheElement<String, String>>> after =
+            reader.deSerialize( writer.serialize( new LateralResponse<>( 3, elements ) ), null );
+
+        // VERIFY
+        assertEquals( "Wrong request id", 3, after.getRequestId() );
+        assertEquals( "Wrong size", 5, after.getPayload().size() );
+        assertEquals( "Wrong value", "value3", after.getPayload().get( "key3" ).getVal() );
+    }
+
+    /**
+     * Verify that remote requests and responses survive the round trip.
+     * <p>
+     * @throws Exception
+     */
+    public void testRemoteRequestAndResponse()
+        throws Exception
+    {
+        // SETUP
+        final Set<Serializable> keys = new HashSet<>();
+        keys.add( "a" );
+        keys.add( "b" );
+        final RemoteCacheRequest<Serializable, Serializable> request = new RemoteCacheRequest<>();
+        request.setRequestType( RemoteRequestType.GET_MULTIPLE );
+        request.setCacheName( "region" );
+        request.setKeySet( keys );
+        request.setRequesterId( 5 );
+
+        final RemoteCacheResponse<Object> response = new RemoteCacheResponse<>();
+        response.setSuccess( false );
+        response.setErrorMessage( "failed" );
+        response.setPayload( keys );
+
+        // DO WORK
+        final RemoteCacheRequest<Serializable, Serializable> requestAfter =
+            reader.deSerialize( writer.serialize( request ), null );
+        final RemoteCacheResponse<Set<Serializable>> responseAfter =
+            reader.deSerialize( writer.serialize( response ), null );
+
+        // VERIFY
+        assertEquals( "Wrong type", RemoteRequestType.GET_MULTIPLE, requestAfter.getRequestType() );
+        assertEquals( "Wrong cache name", "region", requestAfter.getCacheName() );
+        assertEquals( "Wrong keys", keys, requestAfter.getKeySet() );
+        assertEquals( "Wrong requester", 5, requestAfter.getRequesterId() );
+        assertFalse( "Should not be successful", responseAfter.isSuccess() );
+        assertEquals( "Wrong message", "failed", responseAfter.getErrorMessage() );
+        assertEquals( "Wrong payload", keys, responseAfter.getPayload() );
+    }
+
+    /**
+     * Verify that messages written with Java serialization are still read.
+     * <p>
+     * @throws Exception
+     */
+    public void testJavaSerializationFallback()
+        throws Exception
+    {
+        // SETUP
+        final LateralElementDescriptor<String, String> led = new LateralElementDescriptor<>(
+            new CacheElement<>( "region", "key", "value" ), LateralCommand.REMOVE );
+        final byte[] data = new StandardSerializer().serialize( led );
+
+        // DO WORK
+        final LateralElementDescriptor<String, String> after = reader.deSerialize( data, null );
+
+        // VERIFY
+        assertFalse( "Should not be binary", BinaryMessageCodec.isBinary( data ) );
+        assertFalse( "Should not have read binary", reader.isBinaryRead() );
+        assertEquals( "Wrong command", LateralCommand.REMOVE, after.getCommand() );
+        assertEquals( "Wrong key", "key", after.getPayload().getKey() );
+    }
+
+    /**
+     * Verify that commands and request types are written with their fixed codes.
+     * <p>
+     * @throws Exception
+     */
+    public void testStableCodes()
+        throws Exception
+    {
+        // DO WORK
+        final byte[] update = writer.serialize( new LateralElementDescriptor<>(
+            new CacheElement<>( "region", "key", "value" ), LateralCommand.UPDATE, 1 ) );
+        final byte[] getMultiple = writer.serialize( new LateralElementDescriptor<>(
+            new CacheElement<>( "region", "key", null ), LateralCommand.GET_MULTIPLE, 1 ) );
+        final RemoteCacheRequest<String, String> request = new RemoteCacheRequest<>();
+        request.setRequestType( RemoteRequestType.GET_MULTIPLE );
+        final byte[] remote = writer.serialize( request );
+
+        // VERIFY
+        assertEquals( "Wrong code of UPDATE", 0, update[6] );
+        assertEquals( "Wrong code of GET_MULTIPLE", 9, getMultiple[6] );
+        assertEquals( "Wrong code of the remote GET_MULTIPLE", 2, remote[6] );
+    }
+
+    /**
+     * Verify that a length beyond the end of the message is rejected before allocating it.
+     * <p>
+     * @throws Exception
+     */
+    public void testLengthBeyondMessage()
+        throws Exception
+    {
+        // SETUP
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = header( bytes, 5 );
+        out.writeByte( 5 );
+        out.writeInt( Integer.MAX_VALUE );
+
+        // DO WORK
+        try
+        {
+            reader.deSerialize( bytes.toByteArray(), null );
+            fail( "Should have rejected the length" );
+        }
+        catch ( final StreamCorruptedException e )
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Verify that batch and key counts beyond the end of the message are rejected before
+     * allocating the collections.
+     * <p>
+     * @throws Exception
+     */
+    public void testCountBeyondMessage()
+        throws Exception
+    {
+        // SETUP
+        final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        final DataOutputStream out = header( batch, 1 );
+        out.writeByte( 7 );
+        out.writeLong( 1 );
+        out.writeInt( 0 );
+        out.writeLong( 0 );
+        out.writeLong( 0 );
+        out.writeByte( 0 );
+        out.writeInt( Integer.MAX_VALUE );
+
+        final ByteArrayOutputStream keys = new ByteArrayOutputStream();
+        final DataOutputStream keysOut = header( keys, 5 );
+        keysOut.writeByte( 4 );
+        keysOut.writeInt( Integer.MAX_VALUE );
+
+        // DO WORK
+        for ( final byte[] data : new byte[][] { batch.toByteArray(), keys.toByteArray() } )
+        {
+            try
+            {
+                reader.deSerialize( data, null );
+                fail( "Should have rejected the count" );
+            }
+            catch ( final StreamCorruptedException e )
+            {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * @param bytes receives the message
+     * @param type the message type
+     * @return a stream positioned after the message type
+     * @throws IOException
+     */
+    private static DataOutputStream header( final ByteArrayOutputStream bytes, final int type )
+        throws IOException
+    {
+        final DataOutputStream out = new DataOutputStream( bytes );
+        out.writeInt( BinaryMessageCodec.MAGIC );
+        out.writeByte( BinaryMessageCodec.VERSION );
+        out.writeByte( type );
+        return out;
+    }
+
+    /**
+     * Verify the handshake message.
+     */
+    public void testHello()
+    {
+        assertTrue( "Should be a handshake", BinaryMessageCodec.isHello( BinaryMessageCodec.hello() ) );
+        assertFalse( "Should not be a handshake", BinaryMessageCodec.isHello( new byte[] { 1, 2, 3, 4, 5, 6 } ) );
+    }
+}
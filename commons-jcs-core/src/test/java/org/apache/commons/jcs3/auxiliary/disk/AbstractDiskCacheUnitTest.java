@@ -73,6 +73,32 @@ public class AbstractDiskCacheUnitTest
         assertNotNull( "Item should be in the map.", result );
     }
 
+    /**
+     * Verify that a purgatory size of 0 writes the element immediately.
+     * <p>
+     * @throws IOException
+     */
+    public void testUpdate_noPurgatory()
+        throws IOException
+    {
+        // SETUP
+        final String cacheName = "testUpdate_noPurgatory";
+        final IDiskCacheAttributes diskCacheAttributes = new IndexedDiskCacheAttributes();
+        diskCacheAttributes.setCacheName( cacheName );
+        diskCacheAttributes.setMaxPurgatorySize( 0 );
+
+        final AbstractDiskCacheTestInstance<String, String> diskCache = new AbstractDiskCacheTestInstance<>( diskCacheAttributes );
+
+        final String key = "myKey";
+        final ICacheElement<String, String> cacheElement = new CacheElement<>( cacheName, key, "myValue", new ElementAttributes() );
+
+        // DO WORK
+        diskCache.update( cacheElement );
+
+        // VERIFY
+        assertSame( "Item should have been written.", cacheElement, diskCache.map.get( key ) );
+    }
+
     /**
      * Verify that alive is set to false..
      * <p>
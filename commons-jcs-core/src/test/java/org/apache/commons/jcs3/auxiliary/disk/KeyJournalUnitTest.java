@@ -0,0 +1,224 @@
+package org.apache.commons.jcs3.auxiliary.disk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.jcs3.utils.serialization.StandardSerializer;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the key journal of the disk caches.
+ */
+public class KeyJournalUnitTest
+    extends TestCase
+{
+    /** The journal file */
+    private File file;
+
+    /**
+     * Start with a fresh journal file.
+     * <p>
+     * @throws Exception
+     */
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        final File dir = new File( "target/test-sandbox/KeyJournalUnitTest" );
+        dir.mkdirs();
+        file = new File( dir, getName() + ".journal" );
+        Files.deleteIfExists( file.toPath() );
+    }
+
+    /**
+     * @return a journal on the test file
+     * @throws IOException
+     */
+    private KeyJournal<String, int[]> open()
+        throws IOException
+    {
+        return new KeyJournal<>( file, new StandardSerializer(), 10 );
+    }
+
+    /**
+     * Replays the test file into a map.
+     * <p>
+     * @param keys the map to replay into
+     * @return the number of records replayed
+     * @throws IOException
+     */
+    private long replay( final Map<String, int[]> keys )
+        throws IOException
+    {
+        try (KeyJournal<String, int[]> journal = open())
+        {
+            return journal.replay( keys::put, keys::remove );
+        }
+    }
+
+    /**
+     * Verify that puts and removals are replayed in order.
+     * <p>
+     * @throws Exception
+     */
+    public void testReplay()
+        throws Exception
+    {
+        // SETUP
+        try (KeyJournal<String, int[]> journal = open())
+        {
+            journal.put( "a", new int[] { 1 } );
+            journal.put( "b", new int[] { 2, 3 } );
+            journal.remove( "a" );
+            journal.put( "b", new int[] { 4 } );
+
+            final Map<String, int[]> batch = new LinkedHashMap<>();
+            batch.put( "c", new int[] { 5 } );
+            batch.put( "d", new int[] { 6 } );
+            journal.putAll( batch );
+
+            assertEquals( "Wrong record count", 6, journal.getRecordCount() );
+        }
+
+        // DO WORK
+        final Map<String, int[]> keys = new HashMap<>();
+        final long records = replay( keys );
+
+        // VERIFY
+        assertEquals( "Wrong number of records replayed", 6, records );
+        assertEquals( "Wrong number of keys", 3, keys.size() );
+        assertNull( "a should have been removed", keys.get( "a" ) );
+        assertEquals( "Wrong blocks for b", 4, keys.get( "b" )[0] );
+        assertEquals( "Wrong blocks for c", 5, keys.get( "c" )[0] );
+        assertEquals( "Wrong blocks for d", 6, keys.get( "d" )[0] );
+    }
+
+    /**
+     * Verify that an incomplete record at the end is dropped and the journal can be appended to
+     * afterwards.
+     * <p>
+     * @throws Exception
+     */
+    public void testTornTail()
+        throws Exception
+    {
+        // SETUP
+        try (KeyJournal<String, int[]> journal = open())
+        {
+            journal.put( "a", new int[] { 1 } );
+            journal.put( "b", new int[] { 2 } );
+        }
+        try (RandomAccessFile raf = new RandomAccessFile( file, "rw" ))
+        {
+            raf.setLength( raf.length() - 3 );
+        }
+
+        // DO WORK
+        final Map<String, int[]> keys = new HashMap<>();
+        try (KeyJournal<String, int[]> journal = open())
+        {
+            assertEquals( "Should only replay the complete record", 1,
+                    journal.replay( keys::put, keys::remove ) );
+            journal.put( "c", new int[] { 3 } );
+        }
+
+        // VERIFY
+        assertTrue( "Should have a", keys.containsKey( "a" ) );
+        assertFalse( "Should not have b", keys.containsKey( "b" ) );
+
+        keys.clear();
+        assertEquals( "Should replay the appended record", 2, replay( keys ) );
+        assertTrue( "Should have c", keys.containsKey( "c" ) );
+    }
+
+    /**
+     * Verify that replay stops at a corrupted record.
+     * <p>
+     * @throws Exception
+     */
+    public void testChecksumMismatch()
+        throws Exception
+    {
+        // SETUP
+        final long firstLength;
+        try (KeyJournal<String, int[]> journal = open())
+        {
+            journal.put( "a", new int[] { 1 } );
+            firstLength = journal.length();
+            journal.put( "b", new int[] { 2 } );
+            journal.put( "c", new int[] { 3 } );
+        }
+        try (RandomAccessFile raf = new RandomAccessFile( file, "rw" ))
+        {
+            // flip a byte in the body of the second record
+            final long pos = firstLength + 12;
+            raf.seek( pos );
+            final int b = raf.read();
+            raf.seek( pos );
+            raf.write( b ^ 0xff );
+        }
+
+        // DO WORK
+        final Map<String, int[]> keys = new HashMap<>();
+        final long records = replay( keys );
+
+        // VERIFY
+        assertEquals( "Should stop at the corrupted record", 1, records );
+        assertEquals( "Wrong number of keys", 1, keys.size() );
+        assertEquals( "Should have truncated the journal", firstLength, file.length() );
+    }
+
+    /**
+     * Verify when compaction is due and that reset empties the journal.
+     * <p>
+     * @throws Exception
+     */
+    public void testCompaction()
+        throws Exception
+    {
+        try (KeyJournal<String, int[]> journal = open())
+        {
+            for ( int i = 0; i < 9; i++ )
+            {
+                journal.put( "key", new int[] { i } );
+            }
+            assertFalse( "Too few records", journal.isCompactionDue( 1 ) );
+
+            journal.put( "key", new int[] { 9 } );
+            assertTrue( "Should be due", journal.isCompactionDue( 1 ) );
+            assertFalse( "Not more records than keys", journal.isCompactionDue( 10 ) );
+
+            journal.reset();
+            assertEquals( "Should be empty", 0, journal.length() );
+            assertEquals( "Should have no records", 0, journal.getRecordCount() );
+        }
+
+        assertEquals( "Should replay nothing", 0, replay( new HashMap<>() ) );
+    }
+}
@@ -0,0 +1,274 @@
+package org.apache.commons.jcs3.auxiliary.disk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.jcs3.engine.CacheElement;
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the write-behind buffer of the disk caches.
+ */
+public class WriteBehindBufferUnitTest
+    extends TestCase
+{
+    /** Runs the flush task */
+    private ExecutorService executor;
+
+    /** Released to let the writer proceed */
+    private CountDownLatch release;
+
+    /** Counted down when the writer starts */
+    private CountDownLatch started;
+
+    /** The written elements */
+    private final List<ICacheElement<String, String>> written = Collections.synchronizedList( new ArrayList<>() );
+
+    /** Number of writes */
+    private int writes;
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        executor = Executors.newSingleThreadExecutor();
+        release = new CountDownLatch( 1 );
+        started = new CountDownLatch( 1 );
+    }
+
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        release.countDown();
+        executor.shutdownNow();
+        super.tearDown();
+    }
+
+    /**
+     * Create a buffer whose writer blocks until released.
+     * <p>
+     * @param maxSize
+     * @param maxBytes
+     * @return the buffer
+     */
+    private WriteBehindBuffer<String, String> createBuffer( final int maxSize, final long maxBytes )
+    {
+        return new WriteBehindBuffer<>( "test", executor, new ReentrantReadWriteLock().readLock(),
+            elements -> {
+                started.countDown();
+                try
+                {
+                    release.await();
+                }
+                catch ( final InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                synchronized ( this )
+                {
+                    writes++;
+                }
+                written.addAll( elements );
+            }, maxSize, maxBytes );
+    }
+
+    /**
+     * @param key
+     * @param value
+     * @return a new element
+     */
+    private static ICacheElement<String, String> element( final String key, final String value )
+    {
+        return new CacheElement<>( "test", key, value );
+    }
+
+    /**
+     * Verify that updates of a waiting key are merged into one write of the latest value.
+     * <p>
+     * @throws Exception
+     */
+    public void testCoalesceUpdates()
+        throws Exception
+    {
+        // SETUP
+        final WriteBehindBuffer<String, String> buffer = createBuffer( -1, -1 );
+        buffer.setBatchSize( 100 );
+        buffer.put( element( "blocker", "x" ) );
+        assertTrue( "Writer should have started", started.await( 5, TimeUnit.SECONDS ) );
+
+        // DO WORK
+        for ( int i = 0; i < 100; i++ )
+        {
+            buffer.put( element( "hot", "value" + i ) );
+        }
+        buffer.put( element( "cold", "value" ) );
+
+        // VERIFY
+        assertEquals( "Wrong pending value", "value99", buffer.get( "hot" ).getVal() );
+        assertEquals( "Wrong coalesced count", 99, buffer.getCoalescedCount() );
+
+        release.countDown();
+        assertTrue( "Should have been written", buffer.awaitEmpty( 5000 ) );
+        assertEquals( "Wrong number of writes", 2, writes );
+        assertEquals( "Wrong number of elements", 3, written.size() );
+        assertEquals( "Wrong written value", "value99", written.get( 1 ).getVal() );
+        assertEquals( "Wrong order", "cold", written.get( 2 ).getKey() );
+        assertEquals( "Buffer should be empty", 0, buffer.getBytes() );
+    }
+
+    /**
+     * Verify that a remove cancels the pending write and waits for a running one.
+     * <p>
+     * @throws Exception
+     */
+    public void testCancel()
+        throws Exception
+    {
+        // SETUP
+        final WriteBehindBuffer<String, String> buffer = createBuffer( -1, -1 );
+        buffer.put( element( "running", "x" ) );
+        assertTrue( "Writer should have started", started.await( 5, TimeUnit.SECONDS ) );
+        buffer.put( element( "pending", "x" ) );
+
+        // DO WORK
+        final boolean pending = buffer.cancel( "pending" );
+        final Thread remover = new Thread( () -> buffer.cancel( "running" ) );
+        remover.start();
+        remover.join( 200 );
+
+        // VERIFY
+        assertTrue( "Write should have been pending", pending );
+        assertNull( "Should not be in the buffer", buffer.get( "pending" ) );
+        assertTrue( "Should wait for the running write", remover.isAlive() );
+
+        release.countDown();
+        remover.join( 5000 );
+        assertFalse( "Should be done after the write", remover.isAlive() );
+        assertTrue( "Should have been written", buffer.awaitEmpty( 5000 ) );
+        assertEquals( "Only the running write should have happened", 1, written.size() );
+        assertEquals( "Wrong key written", "running", written.get( 0 ).getKey() );
+    }
+
+    /**
+     * Verify that updates of new keys wait while the buffer is over its byte budget.
+     * <p>
+     * @throws Exception
+     */
+    public void testBackpressure()
+        throws Exception
+    {
+        // SETUP
+        final WriteBehindBuffer<String, String> buffer = createBuffer( -1, 1 );
+        buffer.put( element( "first", "x" ) );
+        assertTrue( "Writer should have started", started.await( 5, TimeUnit.SECONDS ) );
+
+        // DO WORK
+        final Thread putter = new Thread( () -> buffer.put( element( "second", "x" ) ) );
+        putter.start();
+        putter.join( 300 );
+
+        // VERIFY
+        assertTrue( "Should wait for space", putter.isAlive() );
+        assertNull( "Should not be in the buffer yet", buffer.get( "second" ) );
+
+        release.countDown();
+        putter.join( 5000 );
+        assertFalse( "Should be done once there is space", putter.isAlive() );
+        assertTrue( "Should have been written", buffer.awaitEmpty( 5000 ) );
+        assertEquals( "Both should have been written", 2, written.size() );
+        assertEquals( "Wrong wait count", 1, buffer.getWaitCount() );
+    }
+
+    /**
+     * Verify that a full key limit blocks new keys but not updates of waiting ones.
+     * <p>
+     * @throws Exception
+     */
+    public void testMaxSize()
+        throws Exception
+    {
+        // SETUP
+        final WriteBehindBuffer<String, String> buffer = createBuffer( 1, -1 );
+        buffer.put( element( "running", "x" ) );
+        assertTrue( "Writer should have started", started.await( 5, TimeUnit.SECONDS ) );
+        buffer.put( element( "pending", "x" ) );
+
+        // DO WORK
+        buffer.put( element( "pending", "y" ) );
+        final Thread putter = new Thread( () -> buffer.put( element( "other", "x" ) ) );
+        putter.start();
+        putter.join( 300 );
+
+        // VERIFY
+        assertEquals( "Update should have been merged", "y", buffer.get( "pending" ).getVal() );
+        assertTrue( "New key should wait for space", putter.isAlive() );
+
+        release.countDown();
+        putter.join( 5000 );
+        assertTrue( "Should have been written", buffer.awaitEmpty( 5000 ) );
+        assertEquals( "Wrong number of elements", 3, written.size() );
+    }
+
+    /**
+     * Verify that clearing discards the pending writes.
+     * <p>
+     * @throws Exception
+     */
+    public void testClear()
+        throws Exception
+    {
+        // SETUP
+        final WriteBehindBuffer<String, String> buffer = createBuffer( -1, -1 );
+        buffer.put( element( "running", "x" ) );
+        assertTrue( "Writer should have started", started.await( 5, TimeUnit.SECONDS ) );
+        for ( int i = 0; i < 10; i++ )
+        {
+            buffer.put( element( "key" + i, "x" ) );
+        }
+
+        // DO WORK
+        buffer.clear();
+
+        // VERIFY
+        assertEquals( "Only the running write should be left", 1, buffer.size() );
+        release.countDown();
+        assertTrue( "Should have been written", buffer.awaitEmpty( 5000 ) );
+        assertEquals( "Wrong number of elements", 1, written.size() );
+    }
+}
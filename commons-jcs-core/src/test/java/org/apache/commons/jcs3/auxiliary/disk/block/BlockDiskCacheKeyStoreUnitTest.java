@@ -185,4 +185,42 @@ public class BlockDiskCacheKeyStoreUnitTest
         assertNull(keyStore.get("1"));
         assertNotNull(keyStore.get("2"));
     }
+
+    /**
+     * Put and remove keys with the key journal enabled, then load the keys
+     * into a new key store without saving them first, as after a crash.
+     */
+    public void testKeyJournalWithoutSave()
+    {
+        final BlockDiskCacheAttributes attributes = new BlockDiskCacheAttributes();
+        attributes.setCacheName("testKeyJournalWithoutSave");
+        attributes.setDiskPath(rootDirName);
+        attributes.setMaxKeySize(1000);
+        attributes.setBlockSizeBytes(2000);
+        attributes.setUseKeyJournal(true);
+        attributes.setKeyJournalCompactionRecords(50);
+
+        final BlockDiskCache<String, String> blockDiskCache = new BlockDiskCache<>(attributes);
+        final BlockDiskKeyStore<String> keyStore = new BlockDiskKeyStore<>(attributes, blockDiskCache);
+        keyStore.reset();
+
+        final int numElements = 100;
+        for (int i = 0; i < numElements; i++)
+        {
+            keyStore.put(String.valueOf(i), new int[] { i });
+        }
+        keyStore.remove("0");
+
+        final BlockDiskKeyStore<String> reopened = new BlockDiskKeyStore<>(attributes, blockDiskCache);
+
+        assertEquals("Wrong number of keys after loading", numElements - 1, reopened.size());
+        assertNull("0 should have been removed", reopened.get("0"));
+        for (int i = 1; i < numElements; i++)
+        {
+            assertEquals("Wrong block", i, reopened.get(String.valueOf(i))[0]);
+        }
+
+        keyStore.close();
+        reopened.close();
+    }
 }
@@ -2,6 +2,7 @@ package org.apache.commons.jcs3.auxiliary.disk.block;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Random;
 
 import org.apache.commons.jcs3.utils.serialization.StandardSerializer;
@@ -64,6 +65,13 @@ public class BlockDiskUnitTest
         this.disk = new BlockDisk(file, blockSize, new StandardSerializer());
     }
 
+    private void setUpBlockDisk(final String fileName, final int blockSize, final int mapRegionSize) throws IOException
+    {
+        final File file = new File(rafDir, fileName + ".data");
+        file.delete();
+        this.disk = new BlockDisk(file, blockSize, new StandardSerializer(), mapRegionSize);
+    }
+
     /**
      * @see junit.framework.TestCase#tearDown()
      */
@@ -363,4 +371,67 @@ public class BlockDiskUnitTest
         assertTrue("Must not wrap round", offset > 0);
         assertEquals(Integer.MAX_VALUE*4096L,offset);
     }
+
+    /**
+     * Verify that memory mapped reads return what was written while the file grows over several
+     * regions.
+     * <p>
+     * @throws Exception
+     */
+    public void testWriteAndRead_MemoryMapped()
+        throws Exception
+    {
+        // SETUP
+        setUpBlockDisk("testWriteAndRead_MemoryMapped", 1024, 4096);
+        assertTrue( "Should be memory mapped", disk.isMemoryMapped() );
+
+        final int bytes = getBytesForBlocksOfByteArrays( disk.getBlockSizeBytes(), 3 );
+        final Random r = new Random(42);
+        final byte[][] src = new byte[50][bytes];
+        final int[][] blocks = new int[src.length][];
+
+        // DO WORK
+        for ( int i = 0; i < src.length; i++ )
+        {
+            r.nextBytes(src[i]);
+            blocks[i] = disk.write( src[i] );
+
+            // read the latest element, which makes the file grow past the mapped regions
+            assertTrue( "Mismatch in element " + i, Arrays.equals( src[i], (byte[]) disk.read( blocks[i] ) ) );
+        }
+
+        // VERIFY
+        for ( int i = 0; i < src.length; i++ )
+        {
+            assertTrue( "Mismatch in element " + i, Arrays.equals( src[i], (byte[]) disk.read( blocks[i] ) ) );
+        }
+        assertEquals( "Wrong number of mapped regions", 38, disk.getMappedRegions() );
+        assertTrue( "Regions should have been remapped on growth", disk.getMapCount() > 38 );
+        assertEquals( "Wrong item retured.", "single", disk.read( disk.write( "single" ) ) );
+    }
+
+    /**
+     * Verify that memory mapped reads work after the file has been reset.
+     * <p>
+     * @throws Exception
+     */
+    public void testReset_MemoryMapped()
+        throws Exception
+    {
+        // SETUP
+        setUpBlockDisk("testReset_MemoryMapped", 128, 1024);
+        for ( int i = 0; i < 20; i++ )
+        {
+            assertEquals( "Wrong item retured.", "before" + i, disk.read( disk.write( "before" + i ) ) );
+        }
+
+        // DO WORK
+        disk.reset();
+        assertEquals( "Should have dropped the mappings", 0, disk.getMappedRegions() );
+
+        // VERIFY
+        final int[] blocks = disk.write( "after" );
+        assertEquals( "Should reuse the first block", 0, blocks[0] );
+        assertEquals( "Wrong item retured.", "after", disk.read( blocks ) );
+    }
 }
@@ -0,0 +1,147 @@
+package org.apache.commons.jcs3.auxiliary.disk.indexed;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.jcs3.engine.CacheElement;
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+import org.apache.commons.jcs3.engine.stats.behavior.IStatElement;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the batched updates of the indexed disk cache.
+ */
+public class IndexedDiskCacheBatchUnitTest
+    extends TestCase
+{
+    /**
+     * Create the attributes for a region.
+     * <p>
+     * @param cacheName
+     * @return the attributes
+     */
+    private static IndexedDiskCacheAttributes createAttributes( final String cacheName )
+    {
+        final IndexedDiskCacheAttributes cattr = new IndexedDiskCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxKeySize( 1000 );
+        cattr.setDiskPath( "target/test-sandbox/" + cacheName );
+        return cattr;
+    }
+
+    /**
+     * @param disk the disk cache
+     * @return the number of batches written
+     */
+    private static int getUpdateBatchCount( final IndexedDiskCache<?, ?> disk )
+    {
+        for ( final IStatElement<?> element : disk.getStatistics().getStatElements() )
+        {
+            if ( "Update Batch Count".equals( element.getName() ) )
+            {
+                return ( (Integer) element.getData() ).intValue();
+            }
+        }
+        fail( "No update batch count" );
+        return -1;
+    }
+
+    /**
+     * Verify that a batch is appended contiguously and replaces the existing elements.
+     * <p>
+     * @throws Exception
+     */
+    public void testProcessUpdateBatch()
+        throws Exception
+    {
+        // SETUP
+        final IndexedDiskCacheAttributes cattr = createAttributes( "testProcessUpdateBatch" );
+        cattr.setSyncOnUpdateBatch( true );
+        final IndexedDiskCache<String, String> disk = new IndexedDiskCache<>( cattr );
+        disk.processRemoveAll();
+
+        for ( int i = 0; i < 5; i++ )
+        {
+            disk.processUpdate( new CacheElement<>( cattr.getCacheName(), "key" + i, "old" + i ) );
+        }
+        final long sizeBefore = disk.getDataFileSize();
+
+        final List<ICacheElement<String, String>> batch = new ArrayList<>();
+        long batchBytes = 0;
+        for ( int i = 0; i < 10; i++ )
+        {
+            final ICacheElement<String, String> ce = new CacheElement<>( cattr.getCacheName(), "key" + i, "new" + i );
+            batch.add( ce );
+            batchBytes += IndexedDisk.HEADER_SIZE_BYTES + disk.getElementSerializer().serialize( ce ).length;
+        }
+
+        // DO WORK
+        disk.processUpdateBatch( batch );
+
+        // VERIFY
+        assertEquals( "Wrong data file size", sizeBefore + batchBytes, disk.getDataFileSize() );
+        assertEquals( "Wrong batch count", 1, getUpdateBatchCount( disk ) );
+        assertEquals( "Wrong key count", 10, disk.getSize() );
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertEquals( "Wrong value", "new" + i, disk.processGet( "key" + i ).getVal() );
+        }
+        assertEquals( "Replaced slots should be recycled", 5, disk.getRecyleBinSize() );
+    }
+
+    /**
+     * Verify that updates queued quickly are written in batches by the event queue.
+     * <p>
+     * @throws Exception
+     */
+    public void testQueuedUpdatesAreBatched()
+        throws Exception
+    {
+        // SETUP
+        final IndexedDiskCacheAttributes cattr = createAttributes( "testQueuedUpdatesAreBatched" );
+        cattr.setUpdateBatchSize( 50 );
+        cattr.setUpdateBatchLingerMillis( 100 );
+        final IndexedDiskCache<String, String> disk = new IndexedDiskCache<>( cattr );
+        disk.processRemoveAll();
+
+        // DO WORK
+        for ( int i = 0; i < 200; i++ )
+        {
+            disk.update( new CacheElement<>( cattr.getCacheName(), "key" + i, "value" + i ) );
+        }
+        disk.update( new CacheElement<>( cattr.getCacheName(), "key0", "last" ) );
+
+        assertTrue( "Purgatory should have been written", disk.awaitPurgatoryEmpty( 10000 ) );
+
+        // VERIFY
+        assertEquals( "Wrong key count", 200, disk.getSize() );
+        final int batches = getUpdateBatchCount( disk );
+        assertTrue( "Should have written in batches: " + batches, batches >= 4 && batches < 200 );
+        assertEquals( "Wrong value", "last", disk.processGet( "key0" ).getVal() );
+        for ( int i = 1; i < 200; i++ )
+        {
+            assertEquals( "Wrong value", "value" + i, disk.processGet( "key" + i ).getVal() );
+        }
+    }
+}
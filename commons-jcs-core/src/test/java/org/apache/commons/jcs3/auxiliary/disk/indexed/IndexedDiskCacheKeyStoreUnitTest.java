@@ -144,4 +144,47 @@ public class IndexedDiskCacheKeyStoreUnitTest
             assertEquals( "postsave, element is wrong.", "data:" + i, element.getVal() );
         }
     }
+
+    /**
+     * Update and remove with the key journal enabled, then open the region again without disposing
+     * it first, as after a crash. The keys should be restored from the journal.
+     *
+     * @throws Exception
+     */
+    public void testKeyJournalWithoutDispose()
+        throws Exception
+    {
+        final IndexedDiskCacheAttributes cattr = new IndexedDiskCacheAttributes();
+        cattr.setCacheName( "testKeyJournalWithoutDispose" );
+        cattr.setMaxKeySize( 100 );
+        cattr.setDiskPath( "target/test-sandbox/KeyStoreUnitTest" );
+        cattr.setUseKeyJournal( true );
+        cattr.setKeyJournalCompactionRecords( 20 );
+        final IndexedDiskCache<String, String> disk = new IndexedDiskCache<>( cattr );
+
+        disk.processRemoveAll();
+
+        final int cnt = 25;
+        for ( int round = 0; round < 3; round++ )
+        {
+            for ( int i = 0; i < cnt; i++ )
+            {
+                disk.processUpdate( new CacheElement<>( cattr.getCacheName(), "key:" + i, "data:" + round + ":" + i ) );
+            }
+        }
+        disk.remove( "key:0" );
+
+        final IndexedDiskCache<String, String> reopened = new IndexedDiskCache<>( cattr );
+
+        assertEquals( "The disk is the wrong size.", cnt - 1, reopened.getSize() );
+        assertNull( "key:0 should have been removed.", reopened.processGet( "key:0" ) );
+        for ( int i = 1; i < cnt; i++ )
+        {
+            final ICacheElement<String, String> element = reopened.processGet( "key:" + i );
+            assertNotNull( "Should have received an element.", element );
+            assertEquals( "element is wrong.", "data:2:" + i, element.getVal() );
+        }
+
+        reopened.dispose();
+    }
 }
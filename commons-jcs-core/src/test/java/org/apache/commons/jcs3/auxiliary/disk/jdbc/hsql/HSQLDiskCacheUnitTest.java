@@ -1,13 +1,23 @@
 package org.apache.commons.jcs3.auxiliary.disk.jdbc.hsql;
 
+import java.lang.reflect.Proxy;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.jcs3.JCS;
 import org.apache.commons.jcs3.access.CacheAccess;
 import org.apache.commons.jcs3.access.exception.CacheException;
+import org.apache.commons.jcs3.auxiliary.AuxiliaryCache;
+import org.apache.commons.jcs3.auxiliary.disk.AbstractDiskCache;
+import org.apache.commons.jcs3.auxiliary.disk.jdbc.JDBCDiskCacheAttributes;
+import org.apache.commons.jcs3.auxiliary.disk.jdbc.TableState;
 import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+import org.apache.commons.jcs3.engine.stats.behavior.IStatElement;
+import org.apache.commons.jcs3.engine.stats.behavior.IStats;
 
 /*
  * Licensed to the Apache Software Foundation (ASF) under one
@@ -126,7 +136,8 @@ public class HSQLDiskCacheUnitTest
         // though the put
         // was called before clear.
         // I discovered it and removed it.
-        // Thread.sleep( 500 );
+        // Wait until the elements are on disk, so remove all has to delete them there.
+        awaitPurgatoryEmpty( jcs );
 
 //        System.out.println( jcs.getStats() );
 
@@ -159,8 +170,8 @@ public class HSQLDiskCacheUnitTest
             jcs.put( i + ":key", region + " data " + i );
         }
 
-        // a db thread could be updating the disk when
-        // Thread.sleep( 500 );
+        // the elements must survive on disk as well
+        awaitPurgatoryEmpty( jcs );
 
         jcs.clear();
 
@@ -170,4 +181,183 @@ public class HSQLDiskCacheUnitTest
             assertEquals( "key = [" + i + ":key] value = [" + value + "]", region + " data " + i, value );
         }
     }
+
+    /**
+     * Verify that batched updates insert new rows and replace existing ones.
+     * <p>
+     * @throws Exception
+     */
+    public void testBatchedPutGet()
+        throws Exception
+    {
+        final String region = "batchedUpdates";
+        final CacheAccess<String, String> jcs = JCS.getInstance( region );
+
+        final int batches = getDiskStat( jcs, "Update Batch Count" );
+        final int items = 200;
+
+        // Add items to cache, then replace every other one
+        for ( int i = 0; i <= items; i++ )
+        {
+            jcs.put( i + ":key", region + " data " + i );
+        }
+        for ( int i = 0; i <= items; i += 2 )
+        {
+            jcs.put( i + ":key", region + " new data " + i );
+        }
+
+        // wait for the write-behind buffer to write the batches
+        awaitPurgatoryEmpty( jcs );
+
+        for ( int i = 0; i <= items; i++ )
+        {
+            final String expected = region + ( i % 2 == 0 ? " new data " : " data " ) + i;
+            final String value = jcs.get( i + ":key" );
+            assertEquals( "key = [" + i + ":key] value = [" + value + "]", expected, value );
+        }
+
+        assertTrue( "Updates should have been written in batches",
+                getDiskStat( jcs, "Update Batch Count" ) > batches );
+        assertEquals( "No batch should have been written one by one",
+                0, getDiskStat( jcs, "Update Batch Fallback Count" ) );
+    }
+
+    /**
+     * Verify the merge statement of HSQLDB 2 and that older versions get none.
+     * <p>
+     * @throws SQLException
+     */
+    public void testCreateUpsertSql()
+        throws SQLException
+    {
+        // SETUP
+        final JDBCDiskCacheAttributes attributes = new JDBCDiskCacheAttributes();
+        attributes.setTableName( "JCS_UPSERT" );
+        final HSQLDiskCache<String, String> cache =
+            new HSQLDiskCache<>( attributes, null, new TableState( "JCS_UPSERT" ) );
+
+        // DO WORK
+        final String sql = cache.createUpsertSql( metaData( "HSQL Database Engine", 2 ) );
+
+        // VERIFY
+        assertNotNull( "HSQLDB 2 should have an upsert", sql );
+        assertTrue( "Wrong statement: " + sql, sql.startsWith( "merge into JCS_UPSERT using (values (" ) );
+        assertTrue( "Should name the values like the insert columns: " + sql, sql.contains( " as vals (CACHE_KEY,"
+                + " REGION, ELEMENT, MAX_LIFE_SECONDS, IS_ETERNAL, CREATE_TIME, UPDATE_TIME_SECONDS,"
+                + " SYSTEM_EXPIRE_TIME_SECONDS)" ) );
+        assertTrue( "Should match on the key: " + sql,
+                sql.contains( " on JCS_UPSERT.CACHE_KEY = vals.CACHE_KEY and JCS_UPSERT.REGION = vals.REGION" ) );
+        for ( final String column : new String[] { "ELEMENT", "MAX_LIFE_SECONDS", "IS_ETERNAL", "CREATE_TIME",
+                "UPDATE_TIME_SECONDS", "SYSTEM_EXPIRE_TIME_SECONDS" } )
+        {
+            assertTrue( "Should replace " + column, sql.contains( "JCS_UPSERT." + column + " = vals." + column ) );
+        }
+        assertTrue( "Should insert missing rows: " + sql, sql.contains( " when not matched then insert " ) );
+        assertEquals( "Should have the parameters of the insert", 8, countParameters( sql ) );
+        assertNull( "HSQLDB 1.8 has no merge", cache.createUpsertSql( metaData( "HSQL Database Engine", 1 ) ) );
+    }
+
+    /**
+     * Waits until the disk cache of the region has written its write-behind buffer.
+     * <p>
+     * @param jcs the region
+     */
+    private static void awaitPurgatoryEmpty( final CacheAccess<String, String> jcs )
+    {
+        for ( final AuxiliaryCache<String, String> aux : jcs.getCacheControl().getAuxCaches() )
+        {
+            if ( aux instanceof AbstractDiskCache )
+            {
+                assertTrue( "Purgatory should have been written",
+                        ( (AbstractDiskCache<String, String>) aux ).awaitPurgatoryEmpty( 10000 ) );
+            }
+        }
+    }
+
+    /**
+     * @param jcs the region
+     * @param name the name of the statistic
+     * @return the value of the statistic of the disk cache
+     */
+    private static int getDiskStat( final CacheAccess<String, String> jcs, final String name )
+    {
+        final List<IStats> istats = jcs.getStatistics().getAuxiliaryCacheStats();
+        for ( final IStats istat : istats )
+        {
+            for ( final IStatElement<?> statElement : istat.getStatElements() )
+            {
+                if ( name.equals( statElement.getName() ) )
+                {
+                    return ( (Number) statElement.getData() ).intValue();
+                }
+            }
+        }
+        fail( "No statistic " + name );
+        return -1;
+    }
+
+    /**
+     * Verify that getting more keys than fit into one query returns all of them.
+     * <p>
+     * @throws Exception
+     */
+    public void testGetMultipleManyKeys()
+        throws Exception
+    {
+        final String region = "testGetMultipleManyKeys";
+        final CacheAccess<String, String> jcs = JCS.getInstance( region );
+
+        final int items = 1200;
+
+        final Set<String> keys = new HashSet<>();
+        for ( int i = 0; i < items; i++ )
+        {
+            jcs.put( i + ":key", region + " data " + i );
+            keys.add( i + ":key" );
+        }
+        keys.add( "missing:key" );
+
+        // wait for the write-behind buffer to write the elements
+        awaitPurgatoryEmpty( jcs );
+
+        final Map<String, ICacheElement<String, String>> elements = jcs.getCacheElements( keys );
+
+        assertEquals( "Wrong number of elements", items, elements.size() );
+        for ( int i = 0; i < items; i++ )
+        {
+            final ICacheElement<String, String> element = elements.get( i + ":key" );
+            assertNotNull( "element " + i + ":key is missing", element );
+            assertEquals( "value " + i + ":key", region + " data " + i, element.getVal() );
+        }
+    }
+
+    /**
+     * @param product the database product name
+     * @param majorVersion the database major version
+     * @return meta data answering only the product name and version
+     */
+    private static DatabaseMetaData metaData( final String product, final int majorVersion )
+    {
+        return (DatabaseMetaData) Proxy.newProxyInstance( DatabaseMetaData.class.getClassLoader(),
+            new Class<?>[] { DatabaseMetaData.class }, ( proxy, method, args ) -> {
+                switch ( method.getName() )
+                {
+                    case "getDatabaseProductName":
+                        return product;
+                    case "getDatabaseMajorVersion":
+                        return Integer.valueOf( majorVersion );
+                    default:
+                        throw new UnsupportedOperationException( method.getName() );
+                }
+            } );
+    }
+
+    /**
+     * @param sql a statement
+     * @return the number of parameters
+     */
+    private static long countParameters( final String sql )
+    {
+        return sql.chars().filter( c -> c == '?' ).count();
+    }
 }
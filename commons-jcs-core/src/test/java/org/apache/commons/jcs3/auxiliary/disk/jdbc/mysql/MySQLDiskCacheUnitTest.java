@@ -19,6 +19,8 @@ package org.apache.commons.jcs3.auxiliary.disk.jdbc.mysql;
  * under the License.
  */
 
+import java.lang.reflect.Proxy;
+import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
 
 import org.apache.commons.jcs3.auxiliary.disk.jdbc.TableState;
@@ -67,4 +69,67 @@ public class MySQLDiskCacheUnitTest
         // VERIFY
         assertNull( "The result should be null", result );
     }
+
+    /**
+     * Verify the upsert statement for MySQL and that other databases get none.
+     * <p>
+     * @throws SQLException
+     */
+    public void testCreateUpsertSql() throws SQLException
+    {
+        // SETUP
+        final MySQLDiskCacheAttributes attributes = new MySQLDiskCacheAttributes();
+        attributes.setTableName( "JCS_UPSERT" );
+        final MySQLDiskCache<String, String> cache =
+            new MySQLDiskCache<>( attributes, null, new TableState( "JCS_UPSERT" ) );
+
+        // DO WORK
+        final String sql = cache.createUpsertSql( metaData( "MySQL", 8 ) );
+
+        // VERIFY
+        assertNotNull( "MySQL should have an upsert", sql );
+        assertTrue( "Wrong statement: " + sql, sql.startsWith( "insert into JCS_UPSERT" ) );
+        assertTrue( "Should use the insert columns in order: " + sql, sql.contains( "(CACHE_KEY, REGION, ELEMENT,"
+                + " MAX_LIFE_SECONDS, IS_ETERNAL, CREATE_TIME, UPDATE_TIME_SECONDS, SYSTEM_EXPIRE_TIME_SECONDS)" ) );
+        assertTrue( "Should update duplicates: " + sql, sql.contains( " on duplicate key update " ) );
+        for ( final String column : new String[] { "ELEMENT", "MAX_LIFE_SECONDS", "IS_ETERNAL", "CREATE_TIME",
+                "UPDATE_TIME_SECONDS", "SYSTEM_EXPIRE_TIME_SECONDS" } )
+        {
+            assertTrue( "Should replace " + column, sql.contains( column + " = values(" + column + ")" ) );
+        }
+        assertEquals( "Should have the parameters of the insert", 8, countParameters( sql ) );
+        assertNotNull( "MariaDB should have an upsert", cache.createUpsertSql( metaData( "MariaDB", 10 ) ) );
+        assertNull( "Other databases should have none",
+                cache.createUpsertSql( metaData( "HSQL Database Engine", 2 ) ) );
+    }
+
+    /**
+     * @param product the database product name
+     * @param majorVersion the database major version
+     * @return meta data answering only the product name and version
+     */
+    private static DatabaseMetaData metaData( final String product, final int majorVersion )
+    {
+        return (DatabaseMetaData) Proxy.newProxyInstance( DatabaseMetaData.class.getClassLoader(),
+            new Class<?>[] { DatabaseMetaData.class }, ( proxy, method, args ) -> {
+                switch ( method.getName() )
+                {
+                    case "getDatabaseProductName":
+                        return product;
+                    case "getDatabaseMajorVersion":
+                        return Integer.valueOf( majorVersion );
+                    default:
+                        throw new UnsupportedOperationException( method.getName() );
+                }
+            } );
+    }
+
+    /**
+     * @param sql a statement
+     * @return the number of parameters
+     */
+    private static long countParameters( final String sql )
+    {
+        return sql.chars().filter( c -> c == '?' ).count();
+    }
 }
@@ -0,0 +1,186 @@
+package org.apache.commons.jcs3.auxiliary.disk.offheap;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.util.Map;
+
+import org.apache.commons.jcs3.engine.CacheElement;
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the off-heap disk cache.
+ */
+public class OffHeapDiskCacheUnitTest
+    extends TestCase
+{
+    /**
+     * Create an off-heap cache.
+     * <p>
+     * @param cacheName
+     * @param blockSizeBytes
+     * @param maxBytes
+     * @return the cache
+     */
+    private static OffHeapDiskCache<String, String> createCache( final String cacheName,
+            final int blockSizeBytes, final long maxBytes )
+    {
+        final OffHeapDiskCacheAttributes cattr = new OffHeapDiskCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setBlockSizeBytes( blockSizeBytes );
+        cattr.setSlabSizeBytes( blockSizeBytes * 16 );
+        cattr.setMaxBytes( maxBytes );
+        return new OffHeapDiskCache<>( cattr );
+    }
+
+    /**
+     * Create a string of the given length.
+     * <p>
+     * @param length
+     * @return the string
+     */
+    private static String value( final int length )
+    {
+        final StringBuilder sb = new StringBuilder( length );
+        for ( int i = 0; i < length; i++ )
+        {
+            sb.append( (char) ( 'a' + i % 26 ) );
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Verify that elements spanning one or many blocks and slabs come back intact.
+     */
+    public void testPutGet()
+    {
+        // SETUP
+        final String cacheName = "testPutGet";
+        final OffHeapDiskCache<String, String> cache = createCache( cacheName, 64, 1024 * 1024 );
+
+        // DO WORK
+        for ( int i = 0; i < 200; i++ )
+        {
+            cache.processUpdate( new CacheElement<>( cacheName, "key" + i, value( i * 10 ) ) );
+        }
+
+        // VERIFY
+        assertEquals( "Wrong size", 200, cache.getSize() );
+        for ( int i = 0; i < 200; i++ )
+        {
+            final ICacheElement<String, String> element = cache.processGet( "key" + i );
+            assertNotNull( "Should have key" + i, element );
+            assertEquals( "Wrong value for key" + i, value( i * 10 ), element.getVal() );
+        }
+        assertNull( "Should not have missing key", cache.processGet( "missing" ) );
+    }
+
+    /**
+     * Verify that replacing and removing elements frees their blocks.
+     */
+    public void testReplaceAndRemove()
+    {
+        // SETUP
+        final String cacheName = "testReplaceAndRemove";
+        final OffHeapDiskCache<String, String> cache = createCache( cacheName, 64, 1024 * 1024 );
+
+        // DO WORK
+        for ( int i = 0; i < 100; i++ )
+        {
+            cache.processUpdate( new CacheElement<>( cacheName, "key", value( 1000 + i ) ) );
+        }
+        cache.processUpdate( new CacheElement<>( cacheName, "a:1", "1" ) );
+        cache.processUpdate( new CacheElement<>( cacheName, "a:2", "2" ) );
+
+        // VERIFY
+        assertEquals( "Wrong value", value( 1099 ), cache.processGet( "key" ).getVal() );
+        assertTrue( "Should have removed key", cache.processRemove( "key" ) );
+        assertFalse( "Should not remove key twice", cache.processRemove( "key" ) );
+        assertTrue( "Should have removed hierarchy", cache.processRemove( "a:" ) );
+        assertEquals( "Should be empty", 0, cache.getSize() );
+        assertEquals( "All blocks should be free", 0,
+                ( (Integer) cache.getStatistics().getStatElements().stream()
+                    .filter( se -> se.getName().equals( "Used Blocks" ) )
+                    .findFirst().get().getData() ).intValue() );
+    }
+
+    /**
+     * Verify that the least recently used elements are dropped when MaxBytes is reached.
+     */
+    public void testEvictionAtMaxBytes()
+    {
+        // SETUP
+        final String cacheName = "testEvictionAtMaxBytes";
+        final OffHeapDiskCache<String, String> cache = createCache( cacheName, 128, 64 * 1024 );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.processUpdate( new CacheElement<>( cacheName, "hot" + i, value( 1000 ) ) );
+        }
+
+        // DO WORK
+        for ( int i = 0; i < 200; i++ )
+        {
+            cache.processUpdate( new CacheElement<>( cacheName, "cold" + i, value( 1000 ) ) );
+            for ( int j = 0; j < 10; j++ )
+            {
+                cache.processGet( "hot" + j );
+            }
+        }
+
+        // VERIFY
+        assertTrue( "Should have dropped elements", cache.getSize() < 210 );
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertNotNull( "Recently used hot" + i + " should be kept", cache.processGet( "hot" + i ) );
+        }
+        assertNull( "Least recently used cold0 should be gone", cache.processGet( "cold0" ) );
+        assertNotNull( "Latest cold199 should be kept", cache.processGet( "cold199" ) );
+
+        // an element larger than the store is refused
+        cache.processUpdate( new CacheElement<>( cacheName, "huge", value( 128 * 1024 ) ) );
+        assertNull( "Huge element should not be stored", cache.processGet( "huge" ) );
+    }
+
+    /**
+     * Verify get matching and remove all.
+     */
+    public void testGetMatchingAndRemoveAll()
+    {
+        // SETUP
+        final String cacheName = "testGetMatchingAndRemoveAll";
+        final OffHeapDiskCache<String, String> cache = createCache( cacheName, 64, 1024 * 1024 );
+        for ( int i = 0; i <= 200; i++ )
+        {
+            cache.processUpdate( new CacheElement<>( cacheName, i + ":key", cacheName + " data " + i ) );
+        }
+
+        // DO WORK
+        final Map<String, ICacheElement<String, String>> matchingResults = cache.processGetMatching( "1.8.+" );
+        cache.processRemoveAll();
+
+        // VERIFY
+        assertEquals( "Wrong number returned", 10, matchingResults.size() );
+        assertEquals( "Should be empty", 0, cache.getSize() );
+        assertNull( "Should not have 1:key", cache.processGet( "1:key" ) );
+    }
+}
@@ -1,10 +1,21 @@
 package org.apache.commons.jcs3.auxiliary.lateral;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.jcs3.auxiliary.lateral.socket.tcp.TCPLateralCacheAttributes;
+import org.apache.commons.jcs3.engine.CacheElement;
+import org.apache.commons.jcs3.engine.MockCacheServiceNonLocal;
 import org.apache.commons.jcs3.engine.ZombieCacheServiceNonLocal;
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
 
 /*
  * Licensed to the Apache Software Foundation (ASF) under one
@@ -36,6 +47,112 @@ public class LateralCacheNoWaitFacadeUnitTest
     private LateralCacheNoWaitFacade<String, String> facade;
     private LateralCache<String, String> cache;
 
+    /** A lateral service answering after a delay. */
+    private static class SlowCacheService
+        extends MockCacheServiceNonLocal<String, String>
+    {
+        /** Time before answering */
+        final long delayMillis;
+
+        /** The value returned for every key, or null */
+        final String value;
+
+        /** Number of gets */
+        final AtomicInteger gets = new AtomicInteger();
+
+        /** Number of gets of multiple keys */
+        final AtomicInteger multiGets = new AtomicInteger();
+
+        SlowCacheService( final long delayMillis, final String value )
+        {
+            this.delayMillis = delayMillis;
+            this.value = value;
+        }
+
+        private void pause()
+        {
+            try
+            {
+                Thread.sleep( delayMillis );
+            }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public ICacheElement<String, String> get( final String cacheName, final String key )
+        {
+            return get( cacheName, key, 0 );
+        }
+
+        @Override
+        public ICacheElement<String, String> get( final String cacheName, final String key, final long requesterId )
+        {
+            gets.incrementAndGet();
+            pause();
+            return value == null ? null : new CacheElement<>( cacheName, key, value );
+        }
+
+        @Override
+        public Map<String, ICacheElement<String, String>> getMultiple( final String cacheName, final Set<String> keys,
+                final long requesterId )
+        {
+            multiGets.incrementAndGet();
+            pause();
+            final Map<String, ICacheElement<String, String>> found = new HashMap<>();
+            if ( value != null )
+            {
+                keys.forEach( key -> found.put( key, new CacheElement<>( cacheName, key, value ) ) );
+            }
+            return found;
+        }
+
+        @Override
+        public Map<String, ICacheElement<String, String>> getMatching( final String cacheName, final String pattern )
+        {
+            return getMatching( cacheName, pattern, 0 );
+        }
+
+        @Override
+        public Map<String, ICacheElement<String, String>> getMatching( final String cacheName, final String pattern,
+                final long requesterId )
+        {
+            pause();
+            return Collections.singletonMap( value, new CacheElement<>( cacheName, value, value ) );
+        }
+    }
+
+    /**
+     * Create a facade over laterals answering through the given services.
+     * <p>
+     * @param hedged whether gets are hedged
+     * @param services one service per lateral
+     * @return the facade and its laterals
+     */
+    private List<LateralCacheNoWait<String, String>> createNoWaits( final boolean hedged,
+            final SlowCacheService... services )
+    {
+        final TCPLateralCacheAttributes cattr = new TCPLateralCacheAttributes();
+        cattr.setCacheName( "testParallel" );
+        cattr.setPutOnlyMode( false );
+        cattr.setParallelGets( true );
+        cattr.setHedgedGets( hedged );
+
+        final List<LateralCacheNoWait<String, String>> noWaits = new ArrayList<>();
+        for ( int i = 0; i < services.length; i++ )
+        {
+            final LateralCacheNoWait<String, String> noWait =
+                new LateralCacheNoWait<>( new LateralCache<>( cattr, services[i], null ) );
+            noWait.setIdentityKey( "peer" + i );
+            noWaits.add( noWait );
+        }
+
+        facade = new LateralCacheNoWaitFacade<>( null, noWaits, cattr );
+        return noWaits;
+    }
+
     @Override
     protected void setUp() throws Exception
     {
@@ -128,4 +245,212 @@ public class LateralCacheNoWaitFacadeUnitTest
         // VERIFY
         assertFalse( "Should not be in the list.", facade.containsNoWait( noWait ) );
     }
+
+    /**
+     * Verify that a slow lateral without the element does not delay the answer of a fast one.
+     */
+    public void testGet_parallel()
+    {
+        // SETUP
+        createNoWaits( false, new SlowCacheService( 2000, null ), new SlowCacheService( 0, "fast" ) );
+
+        // DO WORK
+        final long start = System.nanoTime();
+        final ICacheElement<String, String> result = facade.get( "key" );
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+
+        // VERIFY
+        assertNotNull( "Should have found the element.", result );
+        assertEquals( "Wrong value.", "fast", result.getVal() );
+        assertTrue( "Should not wait for the slow lateral, took " + elapsed, elapsed < 1000 );
+        facade.dispose();
+    }
+
+    /**
+     * Verify that the next lateral is asked once the first is slower than its p95.
+     */
+    public void testGet_hedgedSlow()
+    {
+        // SETUP
+        final SlowCacheService usuallyFast = new SlowCacheService( 2000, "usuallyFast" );
+        final SlowCacheService unknown = new SlowCacheService( 0, "unknown" );
+        final List<LateralCacheNoWait<String, String>> noWaits = createNoWaits( true, usuallyFast, unknown );
+        noWaits.get( 0 ).getGetLatency().record( TimeUnit.MILLISECONDS.toNanos( 1 ) );
+
+        // DO WORK
+        final long start = System.nanoTime();
+        final ICacheElement<String, String> result = facade.get( "key" );
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+
+        // VERIFY
+        assertEquals( "Should have hedged to the other lateral.", "unknown", result.getVal() );
+        assertEquals( "Should have asked the known lateral first.", 1, usuallyFast.gets.get() );
+        assertTrue( "Should not wait for the slow lateral, took " + elapsed, elapsed < 1000 );
+        facade.dispose();
+    }
+
+    /**
+     * Verify that the next lateral is not asked while the first is within its p95.
+     */
+    public void testGet_hedgedFast()
+    {
+        // SETUP
+        final SlowCacheService known = new SlowCacheService( 50, "known" );
+        final SlowCacheService unknown = new SlowCacheService( 0, "unknown" );
+        final List<LateralCacheNoWait<String, String>> noWaits = createNoWaits( true, known, unknown );
+        noWaits.get( 0 ).getGetLatency().record( TimeUnit.SECONDS.toNanos( 5 ) );
+
+        // DO WORK
+        final ICacheElement<String, String> result = facade.get( "key" );
+
+        // VERIFY
+        assertEquals( "Wrong value.", "known", result.getVal() );
+        assertEquals( "Should not have hedged.", 0, unknown.gets.get() );
+        facade.dispose();
+    }
+
+    /**
+     * @param count the number of keys
+     * @return the keys
+     */
+    private static Set<String> keys( final int count )
+    {
+        final Set<String> keys = new HashSet<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            keys.add( "key" + i );
+        }
+        return keys;
+    }
+
+    /**
+     * Verify that a single lateral gets all keys in one request.
+     */
+    public void testGetMultiple_singleLateral()
+    {
+        // SETUP
+        final SlowCacheService service = new SlowCacheService( 0, "value" );
+        createNoWaits( false, service );
+
+        // DO WORK
+        final Map<String, ICacheElement<String, String>> result = facade.getMultiple( keys( 500 ) );
+
+        // VERIFY
+        assertEquals( "Wrong number of elements.", 500, result.size() );
+        assertEquals( "Should have sent one request.", 1, service.multiGets.get() );
+        assertEquals( "Should not have asked per key.", 0, service.gets.get() );
+        facade.dispose();
+    }
+
+    /**
+     * Verify that hedged laterals are asked for all keys at once.
+     */
+    public void testGetMultiple_hedged()
+    {
+        // SETUP
+        final SlowCacheService first = new SlowCacheService( 0, "first" );
+        final SlowCacheService second = new SlowCacheService( 0, "second" );
+        createNoWaits( true, first, second );
+
+        // DO WORK
+        final Map<String, ICacheElement<String, String>> result = facade.getMultiple( keys( 50 ) );
+
+        // VERIFY
+        assertEquals( "Wrong number of elements.", 50, result.size() );
+        final String winner = result.get( "key0" ).getVal();
+        for ( final ICacheElement<String, String> element : result.values() )
+        {
+            assertEquals( "All elements should come from the same lateral.", winner, element.getVal() );
+        }
+        assertEquals( "Should have sent one request to the first.", 1, first.multiGets.get() );
+        assertEquals( "Should have sent one request to the second.", 1, second.multiGets.get() );
+        assertEquals( "Should not have asked per key.", 0, first.gets.get() + second.gets.get() );
+        facade.dispose();
+    }
+
+    /**
+     * Verify that the keys are asked for one by one when the request for all fails.
+     */
+    public void testGetMultiple_fallback()
+    {
+        // SETUP
+        final SlowCacheService failing = new SlowCacheService( 0, "value" )
+        {
+            @Override
+            public Map<String, ICacheElement<String, String>> getMultiple( final String cacheName,
+                    final Set<String> keys, final long requesterId )
+            {
+                throw new UnsupportedOperationException( "expected" );
+            }
+        };
+        createNoWaits( false, failing );
+
+        // DO WORK
+        final Map<String, ICacheElement<String, String>> result = facade.getMultiple( keys( 10 ) );
+
+        // VERIFY
+        assertEquals( "Wrong number of elements.", 10, result.size() );
+        assertEquals( "Should have asked per key.", 10, failing.gets.get() );
+        facade.dispose();
+    }
+
+    /**
+     * Verify that a failed get counts toward the latency of the lateral.
+     */
+    public void testGet_failureRecordsLatency()
+    {
+        // SETUP
+        final TCPLateralCacheAttributes cattr = new TCPLateralCacheAttributes();
+        cattr.setCacheName( "testFailure" );
+        cattr.setPutOnlyMode( false );
+        final LateralCache<String, String> failing =
+            new LateralCache<String, String>( cattr, new SlowCacheService( 0, null ), null )
+        {
+            @Override
+            protected ICacheElement<String, String> processGet( final String key )
+                throws IOException
+            {
+                try
+                {
+                    Thread.sleep( 50 );
+                }
+                catch ( final InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException( "expected" );
+            }
+        };
+        final LateralCacheNoWait<String, String> noWait = new LateralCacheNoWait<>( failing );
+
+        // DO WORK
+        final ICacheElement<String, String> result = noWait.get( "key" );
+
+        // VERIFY
+        assertNull( "Should not have a value.", result );
+        assertEquals( "Should have recorded the failed get.", 1, noWait.getGetLatency().getCount() );
+        assertTrue( "Should have recorded the time until the failure.",
+                noWait.getGetLatency().getPercentile( 95 ) >= TimeUnit.MILLISECONDS.toNanos( 25 ) );
+        noWait.dispose();
+    }
+
+    /**
+     * Verify that matching results of all laterals are merged.
+     */
+    public void testGetMatching_parallel()
+    {
+        // SETUP
+        createNoWaits( false, new SlowCacheService( 300, "a" ), new SlowCacheService( 300, "b" ),
+                new SlowCacheService( 300, "c" ) );
+
+        // DO WORK
+        final long start = System.nanoTime();
+        final Map<String, ICacheElement<String, String>> result = facade.getMatching( ".*" );
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+
+        // VERIFY
+        assertEquals( "Wrong number of elements.", 3, result.size() );
+        assertTrue( "Should ask the laterals at once, took " + elapsed, elapsed < 800 );
+        facade.dispose();
+    }
 }
@@ -19,15 +19,25 @@ package org.apache.commons.jcs3.auxiliary.lateral.socket.tcp;
  * under the License.
  */
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.jcs3.JCS;
 import org.apache.commons.jcs3.auxiliary.lateral.LateralCacheAttributes;
 import org.apache.commons.jcs3.auxiliary.lateral.LateralCommand;
 import org.apache.commons.jcs3.auxiliary.lateral.LateralElementDescriptor;
 import org.apache.commons.jcs3.engine.CacheElement;
+import org.apache.commons.jcs3.engine.ElementAttributes;
 import org.apache.commons.jcs3.engine.behavior.ICacheElement;
 import org.apache.commons.jcs3.engine.behavior.ICompositeCacheManager;
 import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
@@ -173,6 +183,38 @@ public class TestTCPLateralUnitTest
         assertEquals( "Didn't get the correct number", cnt, cacheMgr.getCache().getUpdateCount() );
     }
 
+    /**
+     * Send more updates than the worker queue holds. Verify that the listener stops reading
+     * while the queue is full and still receives all of them.
+     * <p>
+     * @throws Exception
+     */
+    public void testReceive_BoundedWorkerQueue()
+        throws Exception
+    {
+        // SETUP
+        final TCPLateralCacheAttributes lattr = new TCPLateralCacheAttributes();
+        lattr.setTcpListenerPort(1180);
+        lattr.setListenerWorkerThreads(1);
+        lattr.setListenerWorkerQueueSize(2);
+        final LateralTCPListener<String, String> listener =
+            LateralTCPListener.getInstance( lattr, cacheMgr, new StandardSerializer() );
+
+        final LateralTCPService<String, String> service = createService(1181, 1180, 123463);
+
+        // DO WORK
+        final int cnt = 500;
+        for ( int i = 0; i < cnt; i++ )
+        {
+            service.update( new CacheElement<>( "test", "bounded" + i, "value" ) );
+        }
+
+        SleepUtil.sleepAtLeast( 1000 );
+
+        // VERIFY
+        assertEquals( "Should have received all updates", cnt, listener.getPutCnt() );
+    }
+
     /**
      * Send objects with the same key but different values.
      * <p>
@@ -261,12 +303,415 @@ public class TestTCPLateralUnitTest
         assertEquals( "Didn't get the correct object", element.getVal(), result.getVal() );
     }
 
+    /**
+     * Send many updates for a few keys and a remove all over a raw socket, split into small
+     * writes that cut through the messages. Verify that the listener assembles the messages and
+     * that its workers apply the commands for each key in order.
+     * <p>
+     * @throws Exception
+     */
+    public void testUpdateOrder_SplitMessages()
+        throws Exception
+    {
+        // SETUP
+        final CompositeCache<String, String> cache = createCache(1170);
+        final StandardSerializer serializer = new StandardSerializer();
+
+        final int keys = 10;
+        final int rounds = 20;
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream messages = new DataOutputStream( bytes );
+        for ( int round = 0; round < rounds; round++ )
+        {
+            for ( int i = 0; i < keys; i++ )
+            {
+                final ICacheElement<String, String> ce = new CacheElement<>( "test", "key" + i, "value" + round );
+                final byte[] message = serializer.serialize( new LateralElementDescriptor<>( ce, LateralCommand.UPDATE ) );
+                messages.writeInt( message.length );
+                messages.write( message );
+            }
+        }
+
+        // DO WORK
+        try (Socket socket = new Socket( "localhost", 1170 ))
+        {
+            final OutputStream os = socket.getOutputStream();
+            final byte[] all = bytes.toByteArray();
+            for ( int offset = 0; offset < all.length; offset += 97 )
+            {
+                os.write( all, offset, Math.min( 97, all.length - offset ) );
+                os.flush();
+            }
+
+            SleepUtil.sleepAtLeast( 500 );
+
+            // VERIFY
+            for ( int i = 0; i < keys; i++ )
+            {
+                final ICacheElement<String, String> result = cache.localGet( "key" + i );
+                assertNotNull( "Should have key" + i, result );
+                assertEquals( "Updates applied out of order", "value" + ( rounds - 1 ), result.getVal() );
+            }
+
+            // DO WORK
+            final ICacheElement<String, String> after = new CacheElement<>( "test", "after", "value" );
+            final List<LateralElementDescriptor<String, String>> commands = new ArrayList<>();
+            commands.add( new LateralElementDescriptor<>( new CacheElement<>( "test", "", null ), LateralCommand.REMOVEALL ) );
+            commands.add( new LateralElementDescriptor<>( after, LateralCommand.UPDATE ) );
+            for ( final LateralElementDescriptor<String, String> led : commands )
+            {
+                final byte[] message = serializer.serialize( led );
+                final DataOutputStream dos = new DataOutputStream( os );
+                dos.writeInt( message.length );
+                dos.write( message );
+                dos.flush();
+            }
+
+            SleepUtil.sleepAtLeast( 500 );
+
+            // VERIFY
+            assertEquals( "Only the update after the remove all should be left", 1, cache.getSize() );
+            assertNotNull( "Should have the update after the remove all", cache.localGet( "after" ) );
+        }
+    }
+
+    /**
+     * Send a message length beyond the limit over a raw socket. Verify that the listener closes
+     * the connection instead of allocating the message.
+     * <p>
+     * @throws Exception
+     */
+    public void testOversizedMessage_ClosesConnection()
+        throws Exception
+    {
+        // SETUP
+        createCache(1182);
+
+        try (Socket socket = new Socket( "localhost", 1182 ))
+        {
+            socket.setSoTimeout( 5000 );
+
+            // DO WORK
+            final DataOutputStream dos = new DataOutputStream( socket.getOutputStream() );
+            dos.writeInt( LateralTCPSender.MAX_MESSAGE_LENGTH + 1 );
+            dos.flush();
+
+            // VERIFY
+            assertEquals( "The connection should have been closed", -1, socket.getInputStream().read() );
+        }
+    }
+
+    /**
+     * Send updates and removes through a batching service. Verify that superseded commands are
+     * collapsed and that the listener applies the batches in order.
+     * <p>
+     * @throws Exception
+     */
+    public void testBatch_CollapsesSupersededCommands()
+        throws Exception
+    {
+        // SETUP
+        final CompositeCache<String, String> cache = createCache(1172);
+
+        final TCPLateralCacheAttributes lattr2 = new TCPLateralCacheAttributes();
+        lattr2.setTcpListenerPort(1173);
+        lattr2.setTransmissionType(LateralCacheAttributes.Type.TCP);
+        lattr2.setTcpServer("localhost:1172");
+        lattr2.setBatchSize(100);
+        lattr2.setBatchIntervalMillis(50);
+
+        final LateralTCPService<String, String> service = new LateralTCPService<>(lattr2, new StandardSerializer());
+        service.setListenerId(123462);
+
+        final TCPLateralCacheAttributes lattr = new TCPLateralCacheAttributes();
+        lattr.setTcpListenerPort(1172);
+        final LateralTCPListener<String, String> listener =
+            LateralTCPListener.getInstance( lattr, cacheMgr, new StandardSerializer() );
+
+        // DO WORK
+        for ( int round = 0; round < 10; round++ )
+        {
+            for ( int i = 0; i < 5; i++ )
+            {
+                service.update( new CacheElement<>( "test", "key" + i, "value" + round ) );
+            }
+        }
+        service.remove( "test", "key4" );
+
+        SleepUtil.sleepAtLeast( 500 );
+
+        // VERIFY
+        for ( int i = 0; i < 4; i++ )
+        {
+            final ICacheElement<String, String> result = cache.localGet( "key" + i );
+            assertNotNull( "Should have key" + i, result );
+            assertEquals( "Should have the last update", "value9", result.getVal() );
+        }
+        assertNull( "The remove should supersede the updates", cache.localGet( "key4" ) );
+        assertEquals( "Superseded updates should not be sent", 4, listener.getPutCnt() );
+
+        // DO WORK
+        for ( int i = 0; i < 250; i++ )
+        {
+            service.update( new CacheElement<>( "test", "many" + i, "value" ) );
+        }
+
+        SleepUtil.sleepAtLeast( 500 );
+
+        // VERIFY
+        assertEquals( "Should have sent all updates", 254, listener.getPutCnt() );
+
+        service.dispose( "test" );
+    }
+
+    /**
+     * Send puts through a service in invalidation only mode. Verify that the listener drops
+     * older copies, keeps identical and newer ones, and never receives a value.
+     * <p>
+     * @throws Exception
+     */
+    public void testInvalidationOnly()
+        throws Exception
+    {
+        // SETUP
+        final CompositeCache<String, String> cache = createCache(1174);
+
+        final TCPLateralCacheAttributes lattr2 = new TCPLateralCacheAttributes();
+        lattr2.setTcpListenerPort(1175);
+        lattr2.setTransmissionType(LateralCacheAttributes.Type.TCP);
+        lattr2.setTcpServer("localhost:1174");
+        lattr2.setInvalidationOnly(true);
+
+        final LateralTCPService<String, String> service = new LateralTCPService<>(lattr2, new StandardSerializer());
+        service.setListenerId(123463);
+
+        final TCPLateralCacheAttributes lattr = new TCPLateralCacheAttributes();
+        lattr.setTcpListenerPort(1174);
+        final LateralTCPListener<String, String> listener =
+            LateralTCPListener.getInstance( lattr, cacheMgr, new StandardSerializer() );
+
+        cache.localUpdate( new CacheElement<>( "test", "older", "value1" ) );
+        cache.localUpdate( new CacheElement<>( "test", "same", "value1" ) );
+        final ICacheElement<String, String> sent =
+            new CacheElement<>( "test", "newer", "value2", new ElementAttributes() );
+        SleepUtil.sleepAtLeast( 20 );
+        cache.localUpdate( new CacheElement<>( "test", "newer", "value3" ) );
+
+        // DO WORK
+        service.update( new CacheElement<>( "test", "older", "value2" ) );
+        service.update( new CacheElement<>( "test", "same", "value1" ) );
+        service.update( sent );
+
+        SleepUtil.sleepAtLeast( 500 );
+
+        // VERIFY
+        assertNull( "Older copy should be dropped", cache.localGet( "older" ) );
+        assertNotNull( "Identical copy should be kept", cache.localGet( "same" ) );
+        assertEquals( "Newer copy should be kept", "value3", cache.localGet( "newer" ).getVal() );
+        assertEquals( "No value should be sent", 0, listener.getPutCnt() );
+
+        service.dispose( "test" );
+    }
+
+    /**
+     * Verify that a lateral which does not allow puts sends no invalidation either.
+     * <p>
+     * @throws Exception
+     */
+    public void testInvalidationOnly_PutNotAllowed()
+        throws Exception
+    {
+        // SETUP
+        final CompositeCache<String, String> cache = createCache(1184);
+
+        final TCPLateralCacheAttributes lattr2 = new TCPLateralCacheAttributes();
+        lattr2.setTcpListenerPort(1185);
+        lattr2.setTransmissionType(LateralCacheAttributes.Type.TCP);
+        lattr2.setTcpServer("localhost:1184");
+        lattr2.setInvalidationOnly(true);
+        lattr2.setAllowPut(false);
+
+        final LateralTCPService<String, String> service = new LateralTCPService<>(lattr2, new StandardSerializer());
+        service.setListenerId(123465);
+
+        cache.localUpdate( new CacheElement<>( "test", "older", "value1" ) );
+        SleepUtil.sleepAtLeast( 20 );
+
+        // DO WORK
+        service.update( new CacheElement<>( "test", "older", "value2" ) );
+
+        SleepUtil.sleepAtLeast( 500 );
+
+        // VERIFY
+        assertNotNull( "Nothing should have been sent", cache.localGet( "older" ) );
+
+        service.dispose( "test" );
+    }
+
+    /**
+     * Create a listener with some elements. Send many gets over one multiplexed connection
+     * without waiting for the responses, including misses, and verify each response is matched
+     * to its request.
+     * <p>
+     * @throws Exception
+     */
+    @SuppressWarnings("unchecked")
+    public void testGet_Multiplexed()
+        throws Exception
+    {
+        // SETUP
+        final CompositeCache<String, String> cache = createCache(1160);
+
+        final int count = 100;
+        for ( int i = 0; i < count; i++ )
+        {
+            cache.update( new CacheElement<>( "test", "key" + i, "value" + i ) );
+        }
+
+        final TCPLateralCacheAttributes lattr2 = new TCPLateralCacheAttributes();
+        lattr2.setTcpListenerPort(1161);
+        lattr2.setTransmissionType(LateralCacheAttributes.Type.TCP);
+        lattr2.setTcpServer("localhost:1160");
+        lattr2.setMultiplexed(true);
+
+        final LateralTCPSender sender = new LateralTCPSender( lattr2, new StandardSerializer() );
+        final LateralTCPService<String, String> service = new LateralTCPService<>(lattr2, new StandardSerializer());
+        service.setListenerId(123460);
+
+        SleepUtil.sleepAtLeast( 300 );
+
+        // DO WORK
+        final List<CompletableFuture<Object>> futures = new ArrayList<>();
+        for ( int i = 0; i < count * 2; i++ )
+        {
+            final ICacheElement<String, String> ce = new CacheElement<>( "test", "key" + i, null );
+            final LateralElementDescriptor<String, String> led =
+                new LateralElementDescriptor<>( ce, LateralCommand.GET );
+            led.requesterId = 123461;
+            futures.add( sender.sendAndReceiveAsync( led ) );
+        }
+
+        // VERIFY
+        for ( int i = 0; i < count * 2; i++ )
+        {
+            final ICacheElement<String, String> result =
+                (ICacheElement<String, String>) futures.get( i ).get( 5, TimeUnit.SECONDS );
+            if ( i < count )
+            {
+                assertNotNull( "Result should not be null for key" + i, result );
+                assertEquals( "Response matched to the wrong request", "value" + i, result.getVal() );
+            }
+            else
+            {
+                assertNull( "Miss should return null for key" + i, result );
+            }
+        }
+        assertEquals( "No request should be pending", 0, sender.getPendingRequestCount() );
+
+        final ICacheElement<String, String> result = service.get( "test", "key42" );
+        assertNotNull( "Result should not be null.", result );
+        assertEquals( "Didn't get the correct object", "value42", result.getVal() );
+        assertNull( "Miss should return null", service.get( "test", "nokey" ) );
+
+        sender.dispose();
+        service.dispose( "test" );
+    }
+
+    /**
+     * Verify that a multiplexed sender fails requests after its connection failed, and accepts
+     * them again once it is connected anew.
+     * <p>
+     * @throws Exception
+     */
+    public void testMultiplexed_ReconnectClearsFailure()
+        throws Exception
+    {
+        // SETUP
+        final CompositeCache<String, String> cache = createCache(1183);
+        cache.update( new CacheElement<>( "test", "key", "value" ) );
+
+        final TCPLateralCacheAttributes lattr2 = new TCPLateralCacheAttributes();
+        lattr2.setTransmissionType(LateralCacheAttributes.Type.TCP);
+        lattr2.setTcpServer("localhost:1183");
+        lattr2.setMultiplexed(true);
+        final LateralTCPSender sender = new LateralTCPSender( lattr2, new StandardSerializer() );
+
+        final LateralElementDescriptor<String, String> led =
+            new LateralElementDescriptor<>( new CacheElement<>( "test", "key", null ), LateralCommand.GET );
+        led.requesterId = 123464;
+
+        // DO WORK
+        sender.dispose();
+
+        // VERIFY
+        assertTrue( "Should fail after the connection failed",
+                sender.sendAndReceiveAsync( led ).isCompletedExceptionally() );
+
+        // DO WORK
+        sender.init( "localhost", 1183 );
+
+        // VERIFY
+        final ICacheElement<String, String> result =
+            (ICacheElement<String, String>) sender.sendAndReceiveAsync( led ).get( 5, TimeUnit.SECONDS );
+        assertNotNull( "Result should not be null after reconnecting", result );
+        assertEquals( "Didn't get the correct object", "value", result.getVal() );
+        sender.dispose();
+    }
+
     /**
      * Create a listener. Add an element to the listeners cache. Setup a service. Try to get keys from
      * the service.
      * <p>
      * @throws Exception
      */
+    /**
+     * Send updates, removes and gets with the binary codec enabled. Verify that sender and
+     * listener agree on the encoding and that the commands arrive.
+     * <p>
+     * @throws Exception
+     */
+    public void testBinaryCodec()
+        throws Exception
+    {
+        // SETUP
+        final CompositeCache<String, String> cache = createCache(1176);
+
+        final TCPLateralCacheAttributes lattr2 = new TCPLateralCacheAttributes();
+        lattr2.setTcpListenerPort(1177);
+        lattr2.setTransmissionType(LateralCacheAttributes.Type.TCP);
+        lattr2.setTcpServer("localhost:1176");
+        lattr2.setBinaryCodec(true);
+
+        final LateralTCPService<String, String> service = new LateralTCPService<>(lattr2, new StandardSerializer());
+        service.setListenerId(123470);
+
+        SleepUtil.sleepAtLeast( 300 );
+
+        // DO WORK
+        for ( int i = 0; i < 10; i++ )
+        {
+            service.update( new CacheElement<>( "test", "key" + i, "value" + i ) );
+        }
+        service.remove( "test", "key0" );
+
+        SleepUtil.sleepAtLeast( 300 );
+
+        // VERIFY
+        assertNull( "key0 should have been removed", cache.get( "key0" ) );
+        for ( int i = 1; i < 10; i++ )
+        {
+            final ICacheElement<String, String> element = cache.get( "key" + i );
+            assertNotNull( "Listener should have key" + i, element );
+            assertEquals( "Wrong value", "value" + i, element.getVal() );
+        }
+
+        final ICacheElement<String, String> result = service.get( "test", "key5" );
+        assertNotNull( "Result should not be null.", result );
+        assertEquals( "Didn't get the correct object", "value5", result.getVal() );
+
+        service.dispose( "test" );
+    }
+
     public void testGetGroupKeys_SendAndReceived()  throws Exception
     {
         // SETUP
@@ -327,4 +772,41 @@ public class TestTCPLateralUnitTest
         assertNotNull( "Result should not be null.", result );
         assertEquals( "Wrong number returned 1:", numToInsertPrefix1, result.size() );
     }
+
+    /**
+     * Create a listener. Add elements to the listeners cache. Setup a service. Get a set of keys
+     * from the service in one request.
+     * <p>
+     * @throws Exception
+     */
+    public void testGetMultiple_WithData()
+        throws Exception
+    {
+        // SETUP
+        final CompositeCache<String, Integer> cache = createCache(1178);
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.update( new CacheElement<>( "test", "key" + i, Integer.valueOf( i ) ) );
+        }
+
+        // setup a service to talk to the listener started above.
+        final LateralTCPService<String, Integer> service = createService(1179, 1178, 123456);
+
+        SleepUtil.sleepAtLeast( 300 );
+
+        final Set<String> keys = new HashSet<>();
+        keys.add( "key1" );
+        keys.add( "key5" );
+        keys.add( "missing" );
+
+        // DO WORK
+        final Map<String, ICacheElement<String, Integer>> result = service.getMultiple( "test", keys );
+
+        // VERIFY
+        assertNotNull( "Result should not be null.", result );
+        assertEquals( "Wrong number returned", 2, result.size() );
+        assertEquals( "Wrong value", Integer.valueOf( 5 ), result.get( "key5" ).getVal() );
+        assertFalse( "Should not have the missing key", result.containsKey( "missing" ) );
+    }
 }
@@ -183,6 +183,29 @@ public class RemoteCacheUnitTest
         assertEquals( "End should have been called.", 1, cacheEventLogger.endICacheEventCalls );
     }
 
+    /**
+     * Verify that all keys are sent to the service in one request.
+     * <p>
+     * @throws Exception
+     */
+    public void testGetMultiple_oneRequest()
+        throws Exception
+    {
+        // SETUP
+        final RemoteCache<String, String> remoteCache = new RemoteCache<>( cattr, service, listener, monitor );
+        final HashSet<String> keys = new HashSet<>();
+        keys.add( "key1" );
+        keys.add( "key2" );
+
+        // DO WORK
+        final Map<String, ICacheElement<String, String>> result = remoteCache.getMultiple( keys );
+
+        // VERIFY
+        assertNotNull( "Should have a map", result );
+        assertEquals( "Wrong keys sent", keys, service.lastGetMultipleKeys );
+        assertNull( "Should not have issued single gets", service.lastGetKey );
+    }
+
     /**
      * Verify event log calls.
      * <p>
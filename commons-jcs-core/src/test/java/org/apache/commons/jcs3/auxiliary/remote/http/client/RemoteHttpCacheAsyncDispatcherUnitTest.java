@@ -0,0 +1,260 @@
+package org.apache.commons.jcs3.auxiliary.remote.http.client;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.jcs3.auxiliary.remote.util.RemoteCacheRequestFactory;
+import org.apache.commons.jcs3.auxiliary.remote.value.RemoteCacheRequest;
+import org.apache.commons.jcs3.auxiliary.remote.value.RemoteCacheResponse;
+import org.apache.commons.jcs3.engine.CacheElement;
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+import org.apache.commons.jcs3.utils.serialization.StandardSerializer;
+
+import junit.framework.TestCase;
+
+/** Unit tests for the asynchronous dispatcher. */
+public class RemoteHttpCacheAsyncDispatcherUnitTest
+    extends TestCase
+{
+    /** Answers every request with a canned response instead of calling a server. */
+    private static class CannedResponseDispatcher
+        extends RemoteHttpCacheAsyncDispatcher
+    {
+        /** The serialized response */
+        private final byte[] response;
+
+        /** Requests wait for this before answering */
+        final CountDownLatch proceed = new CountDownLatch( 1 );
+
+        /** The thread that processed the last request */
+        volatile Thread processingThread;
+
+        /** Fail instead of answering */
+        volatile boolean fail;
+
+        /** Thrown instead of answering */
+        volatile Error error;
+
+        /**
+         * @param attributes
+         * @param payload the payload of the response
+         * @throws IOException
+         */
+        CannedResponseDispatcher( final RemoteHttpCacheAttributes attributes, final Object payload )
+            throws IOException
+        {
+            super( attributes );
+            final RemoteCacheResponse<Object> remoteCacheResponse = new RemoteCacheResponse<>();
+            remoteCacheResponse.setPayload( payload );
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            new StandardSerializer().serializeTo( remoteCacheResponse, bytes );
+            this.response = bytes.toByteArray();
+        }
+
+        @Override
+        protected <K, V> byte[] processRequest( final byte[] requestAsByteArray,
+                final RemoteCacheRequest<K, V> remoteCacheRequest, final String url )
+            throws IOException
+        {
+            processingThread = Thread.currentThread();
+            try
+            {
+                proceed.await();
+            }
+            catch ( final InterruptedException e )
+            {
+                throw new IOException( e );
+            }
+            if ( fail )
+            {
+                throw new IOException( "Connection refused" );
+            }
+            if ( error != null )
+            {
+                throw error;
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Verify that the request is sent on another thread and the response is delivered.
+     * <p>
+     * @throws Exception
+     */
+    public void testDispatchRequestAsync_normal()
+        throws Exception
+    {
+        // SETUP
+        final ICacheElement<String, String> expected = new CacheElement<>( "test", "key", "value" );
+        final CannedResponseDispatcher dispatcher =
+            new CannedResponseDispatcher( new RemoteHttpCacheAttributes(), expected );
+
+        // DO WORK
+        final CompletableFuture<RemoteCacheResponse<ICacheElement<String, String>>> future =
+            dispatcher.dispatchRequestAsync( RemoteCacheRequestFactory.createGetRequest( "test", "key", 0 ) );
+        assertFalse( "Should not wait for the response.", future.isDone() );
+        dispatcher.proceed.countDown();
+
+        // VERIFY
+        final ICacheElement<String, String> result = future.get( 10, TimeUnit.SECONDS ).getPayload();
+        assertEquals( "Wrong key.", "key", result.getKey() );
+        assertEquals( "Wrong value.", "value", result.getVal() );
+        assertNotSame( "Should run on a pool thread.", Thread.currentThread(), dispatcher.processingThread );
+        assertEquals( "Nothing should be in flight.", 0, dispatcher.getInFlightRequests() );
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Verify that requests beyond the limit fail immediately.
+     * <p>
+     * @throws Exception
+     */
+    public void testDispatchRequestAsync_inFlightLimit()
+        throws Exception
+    {
+        // SETUP
+        final RemoteHttpCacheAttributes attributes = new RemoteHttpCacheAttributes();
+        attributes.setMaxInFlightRequests( 2 );
+        final CannedResponseDispatcher dispatcher = new CannedResponseDispatcher( attributes, "value" );
+        final RemoteCacheRequest<String, String> request =
+            RemoteCacheRequestFactory.createGetRequest( "test", "key", 0 );
+
+        // DO WORK
+        final CompletableFuture<RemoteCacheResponse<String>> first = dispatcher.dispatchRequestAsync( request );
+        final CompletableFuture<RemoteCacheResponse<String>> second = dispatcher.dispatchRequestAsync( request );
+        final CompletableFuture<RemoteCacheResponse<String>> third = dispatcher.dispatchRequestAsync( request );
+
+        // VERIFY
+        assertEquals( "Wrong number in flight.", 2, dispatcher.getInFlightRequests() );
+        assertTrue( "Should have been rejected.", third.isCompletedExceptionally() );
+
+        dispatcher.proceed.countDown();
+        assertEquals( "Wrong first.", "value", first.get( 10, TimeUnit.SECONDS ).getPayload() );
+        assertEquals( "Wrong second.", "value", second.get( 10, TimeUnit.SECONDS ).getPayload() );
+        assertEquals( "Nothing should be in flight.", 0, dispatcher.getInFlightRequests() );
+
+        final CompletableFuture<RemoteCacheResponse<String>> fourth = dispatcher.dispatchRequestAsync( request );
+        assertEquals( "Wrong fourth.", "value", fourth.get( 10, TimeUnit.SECONDS ).getPayload() );
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Verify that a failed request fails the future with an IOException.
+     * <p>
+     * @throws Exception
+     */
+    public void testDispatchRequestAsync_failure()
+        throws Exception
+    {
+        // SETUP
+        final CannedResponseDispatcher dispatcher =
+            new CannedResponseDispatcher( new RemoteHttpCacheAttributes(), "value" );
+        dispatcher.fail = true;
+        dispatcher.proceed.countDown();
+
+        // DO WORK
+        final CompletableFuture<RemoteCacheResponse<String>> future =
+            dispatcher.dispatchRequestAsync( RemoteCacheRequestFactory.createGetRequest( "test", "key", 0 ) );
+
+        // VERIFY
+        try
+        {
+            future.get( 10, TimeUnit.SECONDS );
+            fail( "Should have failed." );
+        }
+        catch ( final ExecutionException e )
+        {
+            assertTrue( "Wrong cause.", e.getCause() instanceof IOException );
+        }
+        assertEquals( "Nothing should be in flight.", 0, dispatcher.getInFlightRequests() );
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Verify that an error thrown by a request fails the future and returns the permit.
+     * <p>
+     * @throws Exception
+     */
+    public void testDispatchRequestAsync_error()
+        throws Exception
+    {
+        // SETUP
+        final RemoteHttpCacheAttributes attributes = new RemoteHttpCacheAttributes();
+        attributes.setMaxInFlightRequests( 1 );
+        final CannedResponseDispatcher dispatcher = new CannedResponseDispatcher( attributes, "value" );
+        dispatcher.error = new AssertionError( "Simulated" );
+        dispatcher.proceed.countDown();
+        final RemoteCacheRequest<String, String> request =
+            RemoteCacheRequestFactory.createGetRequest( "test", "key", 0 );
+
+        // DO WORK
+        final CompletableFuture<RemoteCacheResponse<String>> future = dispatcher.dispatchRequestAsync( request );
+
+        // VERIFY
+        try
+        {
+            future.get( 10, TimeUnit.SECONDS );
+            fail( "Should have failed." );
+        }
+        catch ( final ExecutionException e )
+        {
+            assertTrue( "Wrong cause.", e.getCause() instanceof AssertionError );
+        }
+        assertEquals( "Nothing should be in flight.", 0, dispatcher.getInFlightRequests() );
+
+        dispatcher.error = null;
+        final CompletableFuture<RemoteCacheResponse<String>> next = dispatcher.dispatchRequestAsync( request );
+        assertEquals( "Wrong next.", "value", next.get( 10, TimeUnit.SECONDS ).getPayload() );
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Verify that releasing the client stops the dispatcher.
+     * <p>
+     * @throws Exception
+     */
+    public void testClientReleaseShutsDownDispatcher()
+        throws Exception
+    {
+        // SETUP
+        final RemoteHttpCacheAttributes attributes = new RemoteHttpCacheAttributes();
+        attributes.setMaxInFlightRequests( 1 );
+        final RemoteHttpCacheClient<String, String> client = new RemoteHttpCacheClient<>( attributes );
+        final CannedResponseDispatcher dispatcher = new CannedResponseDispatcher( attributes, "value" );
+        client.setRemoteDispatcher( dispatcher );
+
+        // DO WORK
+        client.release();
+
+        // VERIFY
+        final CompletableFuture<RemoteCacheResponse<String>> future =
+            dispatcher.dispatchRequestAsync( RemoteCacheRequestFactory.createGetRequest( "test", "key", 0 ) );
+        assertTrue( "Should have been rejected.", future.isCompletedExceptionally() );
+        assertEquals( "Nothing should be in flight.", 0, dispatcher.getInFlightRequests() );
+    }
+}
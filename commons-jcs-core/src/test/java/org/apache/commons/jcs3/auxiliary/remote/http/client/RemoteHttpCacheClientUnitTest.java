@@ -26,6 +26,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.jcs3.auxiliary.remote.value.RemoteCacheResponse;
 import org.apache.commons.jcs3.auxiliary.remote.value.RemoteRequestType;
@@ -99,6 +100,64 @@ public class RemoteHttpCacheClientUnitTest
             .getRequestType() );
     }
 
+    /**
+     * Verify async get functionality
+     * <p>
+     * @throws Exception
+     */
+    public void testGetAsync_normal()
+        throws Exception
+    {
+        // SETUP
+        final RemoteHttpCacheAttributes attributes = new RemoteHttpCacheAttributes();
+        final RemoteHttpCacheClient<String, String> client = new RemoteHttpCacheClient<>( attributes );
+
+        final MockRemoteCacheDispatcher mockDispatcher = new MockRemoteCacheDispatcher();
+        client.setRemoteDispatcher( mockDispatcher );
+
+        final String cacheName = "test";
+        final String key = "key";
+
+        final ICacheElement<String, String> expected = new CacheElement<>( cacheName, key, "value" );
+        final RemoteCacheResponse<ICacheElement<String, String>> remoteHttpCacheResponse =
+            new RemoteCacheResponse<>();
+        remoteHttpCacheResponse.setPayload( expected );
+
+        mockDispatcher.setupRemoteCacheResponse = remoteHttpCacheResponse;
+
+        // DO WORK
+        final ICacheElement<String, String> result = client.getAsync( cacheName, key ).get();
+
+        // VERIFY
+        assertEquals( "Wrong result.", expected, result );
+        assertEquals( "Wrong type.", RemoteRequestType.GET, mockDispatcher.lastRemoteCacheRequest
+            .getRequestType() );
+    }
+
+    /**
+     * Verify that an uninitialized client fails the future instead of throwing.
+     * <p>
+     * @throws InterruptedException
+     */
+    public void testGetAsync_notInitialized()
+        throws InterruptedException
+    {
+        // SETUP
+        final RemoteHttpCacheClient<String, String> client = new RemoteHttpCacheClient<>();
+
+        // DO WORK
+        try
+        {
+            client.getAsync( "test", "key" ).get();
+            fail( "Should have failed." );
+        }
+        catch ( final ExecutionException e )
+        {
+            // VERIFY
+            assertTrue( "Wrong cause.", e.getCause() instanceof IOException );
+        }
+    }
+
     /**
      * Verify get functionality
      * <p>
@@ -171,6 +230,33 @@ public class RemoteHttpCacheClientUnitTest
                       mockDispatcher.lastRemoteCacheRequest.getRequestType() );
     }
 
+    /**
+     * Verify async get multiple functionality
+     * <p>
+     * @throws Exception
+     */
+    public void testGetMultipleAsync_nullFromDispatcher()
+        throws Exception
+    {
+        // SETUP
+        final RemoteHttpCacheAttributes attributes = new RemoteHttpCacheAttributes();
+        final RemoteHttpCacheClient<String, String> client = new RemoteHttpCacheClient<>( attributes );
+
+        final MockRemoteCacheDispatcher mockDispatcher = new MockRemoteCacheDispatcher();
+        client.setRemoteDispatcher( mockDispatcher );
+
+        mockDispatcher.setupRemoteCacheResponse = null;
+
+        // DO WORK
+        final Map<String, ICacheElement<String, String>> result =
+            client.getMultipleAsync( "test", Collections.singleton( "key" ) ).get();
+
+        // VERIFY
+        assertTrue( "Should be empty.", result.isEmpty() );
+        assertEquals( "Wrong type.", RemoteRequestType.GET_MULTIPLE, mockDispatcher.lastRemoteCacheRequest
+            .getRequestType() );
+    }
+
     /**
      * Verify remove functionality
      * <p>
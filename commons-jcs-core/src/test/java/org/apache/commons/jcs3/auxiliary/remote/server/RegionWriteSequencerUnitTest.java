@@ -0,0 +1,181 @@
+package org.apache.commons.jcs3.auxiliary.remote.server;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/** Unit tests for the region write sequencer. */
+public class RegionWriteSequencerUnitTest
+    extends TestCase
+{
+    /**
+     * Verify that the notifications for a key are sent in the order of the writes, even when
+     * several threads write it.
+     * <p>
+     * @throws Exception
+     */
+    public void testNotificationsInWriteOrder()
+        throws Exception
+    {
+        // SETUP
+        final RegionWriteSequencer sequencer = new RegionWriteSequencer( 4 );
+        final int threads = 8;
+        final int writes = 2000;
+        final Map<Integer, Integer> values = new ConcurrentHashMap<>();
+        final Map<Integer, List<Integer>> written = new ConcurrentHashMap<>();
+        final Map<Integer, List<Integer>> notified = new ConcurrentHashMap<>();
+        final AtomicInteger counter = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch( threads );
+
+        // DO WORK
+        for ( int t = 0; t < threads; t++ )
+        {
+            new Thread( () -> {
+                try
+                {
+                    for ( int i = 0; i < writes; i++ )
+                    {
+                        final Integer key = Integer.valueOf( i % 10 );
+                        sequencer.writeKey( key, () -> {
+                            final Integer value = Integer.valueOf( counter.incrementAndGet() );
+                            values.put( key, value );
+                            written.computeIfAbsent( key, k -> new ArrayList<>() ).add( value );
+                            return () -> notified.computeIfAbsent( key,
+                                    k -> Collections.synchronizedList( new ArrayList<>() ) ).add( value );
+                        } );
+                    }
+                }
+                catch ( final Exception e )
+                {
+                    fail( e.toString() );
+                }
+                finally
+                {
+                    done.countDown();
+                }
+            } ).start();
+        }
+        done.await();
+
+        // VERIFY
+        assertEquals( "Wrong number of keys.", 10, notified.size() );
+        for ( final Map.Entry<Integer, List<Integer>> e : written.entrySet() )
+        {
+            final List<Integer> sent = notified.get( e.getKey() );
+            assertEquals( "Wrong notifications for " + e.getKey(), e.getValue(), sent );
+            assertEquals( "Last notification should be the cached value.",
+                    values.get( e.getKey() ), sent.get( sent.size() - 1 ) );
+        }
+    }
+
+    /**
+     * Verify that a region write waits for the notifications of earlier key writes and blocks
+     * later key writes.
+     * <p>
+     * @throws Exception
+     */
+    public void testRegionWriteIsBarrier()
+        throws Exception
+    {
+        // SETUP
+        final RegionWriteSequencer sequencer = new RegionWriteSequencer( 4 );
+        final List<String> events = Collections.synchronizedList( new ArrayList<>() );
+        final CountDownLatch sending = new CountDownLatch( 1 );
+        final CountDownLatch proceed = new CountDownLatch( 1 );
+
+        final Thread slow = new Thread( () -> {
+            try
+            {
+                sequencer.writeKey( "a", () -> () -> {
+                    sending.countDown();
+                    try
+                    {
+                        proceed.await();
+                    }
+                    catch ( final InterruptedException e )
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                    events.add( "put a" );
+                } );
+            }
+            catch ( final Exception e )
+            {
+                fail( e.toString() );
+            }
+        } );
+        slow.start();
+        sending.await();
+
+        // DO WORK
+        final Thread barrier = new Thread( () -> {
+            try
+            {
+                sequencer.writeRegion( () -> () -> events.add( "removeAll" ) );
+            }
+            catch ( final Exception e )
+            {
+                fail( e.toString() );
+            }
+        } );
+        barrier.start();
+        Thread.sleep( 100 );
+        assertTrue( "Barrier should wait for the pending notification.", events.isEmpty() );
+
+        proceed.countDown();
+        barrier.join();
+        slow.join();
+        sequencer.writeKey( "b", () -> () -> events.add( "put b" ) );
+
+        // VERIFY
+        assertEquals( "Wrong order.", "[put a, removeAll, put b]", events.toString() );
+    }
+
+    /**
+     * Verify that a failing notification does not keep the following ones from being sent.
+     * <p>
+     * @throws Exception
+     */
+    public void testFailingNotification()
+        throws Exception
+    {
+        // SETUP
+        final RegionWriteSequencer sequencer = new RegionWriteSequencer( 1 );
+        final List<String> events = new ArrayList<>();
+
+        // DO WORK
+        sequencer.writeKey( "a", () -> () -> {
+            throw new IllegalStateException( "listener failed" );
+        } );
+        sequencer.writeKey( "b", () -> () -> events.add( "put b" ) );
+
+        // VERIFY
+        assertEquals( "Wrong events.", "[put b]", events.toString() );
+    }
+}
@@ -460,4 +460,24 @@ public class RemoteCacheServerUnitTest
         assertEquals( "Start should have been called.", 1, cacheEventLogger.startICacheEventCalls );
         assertEquals( "End should have been called.", 1, cacheEventLogger.endICacheEventCalls );
     }
+
+    /**
+     * Verify that disposing a region drops its write sequencer.
+     * <p>
+     * @throws Exception
+     */
+    public void testDispose_removesWriteSequencer()
+        throws Exception
+    {
+        // SETUP
+        final int before = server.getWriteSequencerCount();
+        server.update( new CacheElement<>( "disposedRegion", "key", "value" ) );
+        assertEquals( "The region should have a sequencer.", before + 1, server.getWriteSequencerCount() );
+
+        // DO WORK
+        server.dispose( "disposedRegion" );
+
+        // VERIFY
+        assertEquals( "The sequencer should have been removed.", before, server.getWriteSequencerCount() );
+    }
 }
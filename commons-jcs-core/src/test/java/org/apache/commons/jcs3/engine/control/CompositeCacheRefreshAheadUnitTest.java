@@ -0,0 +1,174 @@
+package org.apache.commons.jcs3.engine.control;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.jcs3.engine.CacheElement;
+import org.apache.commons.jcs3.engine.CompositeCacheAttributes;
+import org.apache.commons.jcs3.engine.ElementAttributes;
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+import org.apache.commons.jcs3.engine.behavior.ICompositeCacheAttributes;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the refresh-ahead of elements close to their max life.
+ */
+public class CompositeCacheRefreshAheadUnitTest
+    extends TestCase
+{
+    /** The scheduler of the region */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        scheduler = new ScheduledThreadPoolExecutor( 1 );
+    }
+
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        scheduler.shutdownNow();
+        super.tearDown();
+    }
+
+    /**
+     * Create a region whose elements live for one second.
+     * <p>
+     * @param cacheName
+     * @param refreshAheadFactor
+     * @return the region
+     */
+    private CompositeCache<String, String> createCache( final String cacheName, final double refreshAheadFactor )
+    {
+        final ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setUseMemoryShrinker( false );
+        cattr.setRefreshAheadFactor( refreshAheadFactor );
+
+        final ElementAttributes attr = new ElementAttributes();
+        attr.setIsEternal( false );
+        attr.setTimeFactorForMilliseconds( 100 );
+        attr.setMaxLife( 10 );
+
+        final CompositeCache<String, String> cache = new CompositeCache<>( cattr, attr );
+        cache.setScheduledExecutorService( scheduler );
+        return cache;
+    }
+
+    /**
+     * Put a value with the default attributes of the region.
+     * <p>
+     * @param cache
+     * @param key
+     * @param value
+     * @throws IOException
+     */
+    private static void put( final CompositeCache<String, String> cache, final String key, final String value )
+        throws IOException
+    {
+        final CacheElement<String, String> ce = new CacheElement<>( cache.getCacheName(), key, value );
+        ce.setElementAttributes( cache.getElementAttributes() );
+        cache.update( ce );
+    }
+
+    /**
+     * Verify that a read late in the life of an element returns the current value and reloads it
+     * in the background, so that the key never expires while it is read.
+     * <p>
+     * @throws Exception
+     */
+    public void testRefreshAhead()
+        throws Exception
+    {
+        // SETUP
+        final CompositeCache<String, String> cache = createCache( "testRefreshAhead", 0.5 );
+        final AtomicInteger reloads = new AtomicInteger();
+        final CountDownLatch reloaded = new CountDownLatch( 1 );
+        cache.setReloader( key -> {
+            reloads.incrementAndGet();
+            reloaded.countDown();
+            return "reloaded";
+        } );
+        put( cache, "key", "value" );
+
+        // DO WORK
+        assertEquals( "Early read should not refresh", "value", cache.get( "key" ).getVal() );
+        Thread.sleep( 700 );
+        final ICacheElement<String, String> late = cache.get( "key" );
+
+        // VERIFY
+        assertNotNull( "Late read should be a hit", late );
+        assertEquals( "Late read should return the current value", "value", late.getVal() );
+        assertTrue( "Should have reloaded", reloaded.await( 5, TimeUnit.SECONDS ) );
+        Thread.sleep( 100 );
+        assertEquals( "Should have reloaded once", 1, reloads.get() );
+        assertEquals( "Wrong refresh count", 1, cache.getRefreshCount() );
+
+        Thread.sleep( 500 );
+        final ICacheElement<String, String> afterExpiry = cache.get( "key" );
+        assertNotNull( "The reloaded element should have a new life", afterExpiry );
+        assertEquals( "Should have the reloaded value", "reloaded", afterExpiry.getVal() );
+    }
+
+    /**
+     * Verify that nothing is reloaded without a refresh-ahead factor and that elements expire.
+     * <p>
+     * @throws Exception
+     */
+    public void testNoRefreshWhenDisabled()
+        throws Exception
+    {
+        // SETUP
+        final CompositeCache<String, String> cache = createCache( "testNoRefreshWhenDisabled", 0 );
+        final AtomicInteger reloads = new AtomicInteger();
+        cache.setReloader( key -> {
+            reloads.incrementAndGet();
+            return "reloaded";
+        } );
+        put( cache, "key", "value" );
+
+        // DO WORK
+        Thread.sleep( 700 );
+        assertEquals( "Should return the current value", "value", cache.get( "key" ).getVal() );
+        Thread.sleep( 500 );
+
+        // VERIFY
+        assertNull( "Should have expired", cache.get( "key" ) );
+        assertEquals( "Should not have reloaded", 0, reloads.get() );
+    }
+}
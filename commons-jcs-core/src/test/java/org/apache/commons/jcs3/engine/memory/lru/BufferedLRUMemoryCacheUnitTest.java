@@ -0,0 +1,178 @@
+package org.apache.commons.jcs3.engine.memory.lru;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.jcs3.engine.CacheElement;
+import org.apache.commons.jcs3.engine.CompositeCacheAttributes;
+import org.apache.commons.jcs3.engine.ElementAttributes;
+import org.apache.commons.jcs3.engine.behavior.ICompositeCacheAttributes;
+import org.apache.commons.jcs3.engine.control.CompositeCache;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the LRU memory cache with the buffered read path.
+ */
+public class BufferedLRUMemoryCacheUnitTest
+    extends TestCase
+{
+    /**
+     * Create a cache with the given size.
+     * <p>
+     * @param cacheName
+     * @param maxObjects
+     * @return an initialized cache
+     */
+    private BufferedLRUMemoryCache<String, String> createCache( final String cacheName, final int maxObjects )
+    {
+        final ICompositeCacheAttributes attributes = new CompositeCacheAttributes();
+        attributes.setCacheName( cacheName );
+        attributes.setMaxObjects( maxObjects );
+        attributes.setSpoolChunkSize( 1 );
+
+        final BufferedLRUMemoryCache<String, String> cache = new BufferedLRUMemoryCache<>();
+        cache.initialize( new CompositeCache<>( attributes, new ElementAttributes() ) );
+        return cache;
+    }
+
+    /**
+     * Verify that a hit recorded in the buffer is applied before the next eviction.
+     * <p>
+     * @throws Exception
+     */
+    public void testRecentlyReadElementSurvivesEviction()
+        throws Exception
+    {
+        // SETUP
+        final int maxObjects = 10;
+        final String cacheName = "testRecentlyReadElementSurvivesEviction";
+        final BufferedLRUMemoryCache<String, String> cache = createCache( cacheName, maxObjects );
+
+        for ( int i = 0; i < maxObjects; i++ )
+        {
+            cache.update( new CacheElement<>( cacheName, "key" + i, "value" + i ) );
+        }
+
+        // DO WORK
+        assertNotNull( "Should have key0", cache.get( "key0" ) );
+        cache.update( new CacheElement<>( cacheName, "onemore", "onemore" ) );
+
+        // VERIFY
+        assertEquals( "Should have max elements", maxObjects, cache.getSize() );
+        assertNotNull( "Recently read key0 should have been kept", cache.getQuiet( "key0" ) );
+        assertNull( "key1 should have been evicted", cache.getQuiet( "key1" ) );
+    }
+
+    /**
+     * Verify that hits on removed elements do not corrupt the list.
+     * <p>
+     * @throws Exception
+     */
+    public void testGetThenRemove()
+        throws Exception
+    {
+        // SETUP
+        final int maxObjects = 10;
+        final String cacheName = "testGetThenRemove";
+        final BufferedLRUMemoryCache<String, String> cache = createCache( cacheName, maxObjects );
+
+        for ( int i = 0; i < maxObjects; i++ )
+        {
+            cache.update( new CacheElement<>( cacheName, "key" + i, "value" + i ) );
+        }
+
+        // DO WORK
+        for ( int i = 0; i < maxObjects; i++ )
+        {
+            cache.get( "key" + i );
+            cache.remove( "key" + i );
+        }
+        for ( int i = 0; i < maxObjects * 2; i++ )
+        {
+            cache.update( new CacheElement<>( cacheName, "new" + i, "value" + i ) );
+        }
+
+        // VERIFY
+        assertEquals( "Should have max elements", maxObjects, cache.getSize() );
+        for ( int i = maxObjects; i < maxObjects * 2; i++ )
+        {
+            assertNotNull( "Should have element new" + i, cache.getQuiet( "new" + i ) );
+        }
+    }
+
+    /**
+     * Hammer the cache with concurrent reads and writes and verify that it stays consistent.
+     * <p>
+     * @throws Exception
+     */
+    public void testConcurrentGetAndUpdate()
+        throws Exception
+    {
+        // SETUP
+        final int maxObjects = 100;
+        final String cacheName = "testConcurrentGetAndUpdate";
+        final BufferedLRUMemoryCache<String, String> cache = createCache( cacheName, maxObjects );
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        // DO WORK
+        final List<Thread> threads = new ArrayList<>();
+        for ( int t = 0; t < 8; t++ )
+        {
+            final int offset = t;
+            threads.add( new Thread( () -> {
+                try
+                {
+                    for ( int i = 0; i < 10000; i++ )
+                    {
+                        final String key = "key" + ( ( i + offset ) % 300 );
+                        if ( cache.get( key ) == null )
+                        {
+                            cache.update( new CacheElement<>( cacheName, key, key ) );
+                        }
+                    }
+                }
+                catch ( final Throwable e )
+                {
+                    failure.set( e );
+                }
+            } ) );
+        }
+        threads.forEach( Thread::start );
+        for ( final Thread thread : threads )
+        {
+            thread.join();
+        }
+
+        // VERIFY
+        assertNull( "Should not have failed: " + failure.get(), failure.get() );
+        assertTrue( "Should not exceed max elements", cache.getSize() <= maxObjects );
+        for ( final String key : cache.getKeySet() )
+        {
+            assertEquals( "Wrong value", key, cache.get( key ).getVal() );
+        }
+
+        cache.removeAll();
+        assertEquals( "Should be empty", 0, cache.getSize() );
+    }
+}
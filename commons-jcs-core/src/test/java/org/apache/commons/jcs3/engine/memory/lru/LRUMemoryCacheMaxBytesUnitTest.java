@@ -0,0 +1,240 @@
+package org.apache.commons.jcs3.engine.memory.lru;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.jcs3.engine.CacheElement;
+import org.apache.commons.jcs3.engine.CompositeCacheAttributes;
+import org.apache.commons.jcs3.engine.ElementAttributes;
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+import org.apache.commons.jcs3.engine.behavior.ICompositeCacheAttributes;
+import org.apache.commons.jcs3.engine.control.CompositeCache;
+import org.apache.commons.jcs3.engine.memory.behavior.IWeigher;
+import org.apache.commons.jcs3.engine.memory.util.DefaultWeigher;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the byte limit of the double linked list memory caches.
+ */
+public class LRUMemoryCacheMaxBytesUnitTest
+    extends TestCase
+{
+    /**
+     * Weighs every element by the length of its value.
+     */
+    public static class ValueLengthWeigher
+        implements IWeigher<String, String>
+    {
+        @Override
+        public long weigh( final ICacheElement<String, String> ce )
+        {
+            return ce.getVal().length();
+        }
+    }
+
+    /**
+     * Create an LRU cache with the given limits.
+     * <p>
+     * @param cacheName
+     * @param maxObjects
+     * @param maxBytes
+     * @param weigherClassName
+     * @return an initialized cache
+     */
+    private LRUMemoryCache<String, String> createCache( final String cacheName, final int maxObjects,
+            final long maxBytes, final String weigherClassName )
+    {
+        final ICompositeCacheAttributes attributes = new CompositeCacheAttributes();
+        attributes.setCacheName( cacheName );
+        attributes.setMaxObjects( maxObjects );
+        attributes.setMaxBytes( maxBytes );
+        if ( weigherClassName != null )
+        {
+            attributes.setWeigherClassName( weigherClassName );
+        }
+        attributes.setSpoolChunkSize( 1 );
+
+        final LRUMemoryCache<String, String> cache = new LRUMemoryCache<>();
+        cache.initialize( new CompositeCache<>( attributes, new ElementAttributes() ) );
+        return cache;
+    }
+
+    /**
+     * Create a string of the given length.
+     * <p>
+     * @param length
+     * @return the string
+     */
+    private static String value( final int length )
+    {
+        final StringBuilder sb = new StringBuilder( length );
+        for ( int i = 0; i < length; i++ )
+        {
+            sb.append( 'x' );
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Verify that a large element pushes out as many small elements as needed.
+     * <p>
+     * @throws IOException
+     */
+    public void testLargeElementEvictsByWeight()
+        throws IOException
+    {
+        // SETUP
+        final String cacheName = "testLargeElementEvictsByWeight";
+        final LRUMemoryCache<String, String> cache =
+            createCache( cacheName, 1000, 1000, ValueLengthWeigher.class.getName() );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.update( new CacheElement<>( cacheName, "small" + i, value( 100 ) ) );
+        }
+        assertEquals( "Should have all small elements", 10, cache.getSize() );
+
+        // DO WORK
+        cache.update( new CacheElement<>( cacheName, "large", value( 500 ) ) );
+
+        // VERIFY
+        assertEquals( "Should have evicted 5 small elements", 6, cache.getSize() );
+        assertNotNull( "Should have the large element", cache.getQuiet( "large" ) );
+        for ( int i = 0; i < 5; i++ )
+        {
+            assertNull( "Should have evicted small" + i, cache.getQuiet( "small" + i ) );
+        }
+        for ( int i = 5; i < 10; i++ )
+        {
+            assertNotNull( "Should have kept small" + i, cache.getQuiet( "small" + i ) );
+        }
+    }
+
+    /**
+     * Verify that replacing and removing elements releases their weight.
+     * <p>
+     * @throws IOException
+     */
+    public void testReplaceAndRemoveReleaseWeight()
+        throws IOException
+    {
+        // SETUP
+        final String cacheName = "testReplaceAndRemoveReleaseWeight";
+        final LRUMemoryCache<String, String> cache =
+            createCache( cacheName, 1000, 1000, ValueLengthWeigher.class.getName() );
+
+        // DO WORK
+        for ( int i = 0; i < 100; i++ )
+        {
+            cache.update( new CacheElement<>( cacheName, "key", value( 400 ) ) );
+        }
+        cache.update( new CacheElement<>( cacheName, "other", value( 400 ) ) );
+        cache.remove( "other" );
+        cache.update( new CacheElement<>( cacheName, "third", value( 600 ) ) );
+
+        // VERIFY
+        assertEquals( "Nothing should have been evicted", 2, cache.getSize() );
+        assertNotNull( "Should have key", cache.getQuiet( "key" ) );
+        assertNotNull( "Should have third", cache.getQuiet( "third" ) );
+    }
+
+    /**
+     * Verify that both limits apply.
+     * <p>
+     * @throws IOException
+     */
+    public void testMaxObjectsStillApplies()
+        throws IOException
+    {
+        // SETUP
+        final String cacheName = "testMaxObjectsStillApplies";
+        final LRUMemoryCache<String, String> cache =
+            createCache( cacheName, 5, 1000000, null );
+
+        // DO WORK
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.update( new CacheElement<>( cacheName, "key" + i, "value" + i ) );
+        }
+
+        // VERIFY
+        assertEquals( "Should be limited by maxObjects", 5, cache.getSize() );
+    }
+
+    /**
+     * Verify the estimates of the default weigher.
+     */
+    public void testDefaultWeigher()
+    {
+        final DefaultWeigher<String, Object> weigher = new DefaultWeigher<>();
+
+        final long empty = weigher.weigh( new CacheElement<>( "test", "key", null ) );
+        final long bytes = weigher.weigh( new CacheElement<>( "test", "key", new byte[10000] ) );
+        final long string = weigher.weigh( new CacheElement<>( "test", "key", value( 10000 ) ) );
+
+        final List<String> list = new ArrayList<>();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            list.add( value( 100 ) );
+        }
+        final long collection = weigher.weigh( new CacheElement<>( "test", "key", list ) );
+
+        assertTrue( "Element overhead should be counted", empty > 0 );
+        assertTrue( "byte[] should weigh about its length", bytes >= 10000 && bytes < 11000 );
+        assertTrue( "String should weigh about two bytes per char", string >= 20000 && string < 21000 );
+        assertTrue( "Collection contents should be counted", collection >= 200000 );
+    }
+
+    /**
+     * Verify that a collection which shrinks while it is weighed, so its size is larger than
+     * what the iterator returns, is weighed without failing.
+     */
+    public void testDefaultWeigher_ShrinkingCollection()
+    {
+        final DefaultWeigher<String, Object> weigher = new DefaultWeigher<>();
+        final List<String> remaining = Arrays.asList( value( 100 ), value( 100 ) );
+        final Collection<String> shrinking = new AbstractCollection<String>()
+        {
+            @Override
+            public Iterator<String> iterator()
+            {
+                return remaining.iterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return 10;
+            }
+        };
+
+        final long weight = weigher.weigh( new CacheElement<>( "test", "key", shrinking ) );
+
+        assertTrue( "Remaining contents should be counted", weight >= 400 );
+    }
+}
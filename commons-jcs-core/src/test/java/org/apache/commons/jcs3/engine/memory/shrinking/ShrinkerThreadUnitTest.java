@@ -331,4 +331,86 @@ public class ShrinkerThreadUnitTest
         //assertEquals( "Event handler ExceededIdleTimeBackground called the wrong number of times.", 3, handler.getExceededIdleTimeBackgroundCount() );
         assertEquals( "Wrong number of elements remain.", 7, memory.getSize() );
     }
+
+    /**
+     * Verify that with a timer wheel expired elements are removed once they are due and that
+     * eternal elements are not scheduled at all.
+     * <p>
+     * @throws Exception
+     */
+    public void testShrinkWithTimerWheel()
+        throws Exception
+    {
+        // SETUP
+        final CompositeCacheAttributes cacheAttr = new CompositeCacheAttributes();
+        cacheAttr.setCacheName("testRegion");
+        cacheAttr.setUseMemoryShrinker( true );
+        cacheAttr.setUseTimerWheel( true );
+        cacheAttr.setMaxMemoryIdleTimeSeconds( -1 );
+
+        final CompositeCache<String, String> cache = new CompositeCache<>(cacheAttr, new ElementAttributes());
+        assertNotNull( "Should have a timer wheel", cache.getTimerWheel() );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            final ICacheElement<String, String> element = new CacheElement<>( "testRegion", "key" + i, "value" );
+            final ElementAttributes elementAttr = new ElementAttributes();
+            elementAttr.setIsEternal( i >= 5 );
+            elementAttr.setMaxLife( 1 );
+            elementAttr.setIdleTime( i == 4 ? 1 : -1 );
+            element.setElementAttributes( elementAttr );
+            cache.update( element );
+        }
+        assertEquals( "Eternal elements should not be scheduled", 5, cache.getTimerWheel().size() );
+
+        // DO WORK
+        final ShrinkerThread<String, String> shrinker = new ShrinkerThread<>( cache );
+        shrinker.run();
+        assertEquals( "Nothing should be removed before the deadline", 10, cache.getMemoryCache().getSize() );
+
+        Thread.sleep( 2100 );
+        shrinker.run();
+
+        // VERIFY
+        assertEquals( "Wrong number of elements remain.", 5, cache.getMemoryCache().getSize() );
+        for ( int i = 5; i < 10; i++ )
+        {
+            assertNotNull( "Eternal key" + i + " should remain", cache.getMemoryCache().getQuiet( "key" + i ) );
+        }
+        assertEquals( "The wheel should be empty", 0, cache.getTimerWheel().size() );
+    }
+
+    /**
+     * Verify that elements evicted from memory are removed from the timer wheel.
+     * <p>
+     * @throws Exception
+     */
+    public void testTimerWheelAfterEviction()
+        throws Exception
+    {
+        // SETUP
+        final CompositeCacheAttributes cacheAttr = new CompositeCacheAttributes();
+        cacheAttr.setCacheName("testRegion");
+        cacheAttr.setUseMemoryShrinker( true );
+        cacheAttr.setUseTimerWheel( true );
+        cacheAttr.setMaxObjects( 5 );
+
+        final CompositeCache<String, String> cache = new CompositeCache<>(cacheAttr, new ElementAttributes());
+
+        // DO WORK
+        for ( int i = 0; i < 50; i++ )
+        {
+            final ICacheElement<String, String> element = new CacheElement<>( "testRegion", "key" + i, "value" );
+            final ElementAttributes elementAttr = new ElementAttributes();
+            elementAttr.setIsEternal( false );
+            elementAttr.setMaxLife( 3600 );
+            element.setElementAttributes( elementAttr );
+            cache.update( element );
+        }
+
+        // VERIFY
+        final int size = cache.getMemoryCache().getSize();
+        assertTrue( "Elements should have been evicted", size <= 5 );
+        assertEquals( "Evicted elements should not stay in the wheel", size, cache.getTimerWheel().size() );
+    }
 }
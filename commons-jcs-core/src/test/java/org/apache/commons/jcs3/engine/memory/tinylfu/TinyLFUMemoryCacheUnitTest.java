@@ -0,0 +1,249 @@
+package org.apache.commons.jcs3.engine.memory.tinylfu;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.jcs3.engine.CacheElement;
+import org.apache.commons.jcs3.engine.CompositeCacheAttributes;
+import org.apache.commons.jcs3.engine.ElementAttributes;
+import org.apache.commons.jcs3.engine.behavior.ICompositeCacheAttributes;
+import org.apache.commons.jcs3.engine.control.CompositeCache;
+import org.apache.commons.jcs3.engine.memory.behavior.IMemoryCache;
+import org.apache.commons.jcs3.engine.memory.lru.LRUMemoryCache;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the W-TinyLFU memory cache.
+ */
+public class TinyLFUMemoryCacheUnitTest
+    extends TestCase
+{
+    /** Number of distinct keys in the popular part of the trace */
+    private static final int KEY_SPACE = 5000;
+
+    /**
+     * Initialize the memory cache with the given size.
+     * <p>
+     * @param cache the memory cache
+     * @param cacheName the region name
+     * @param maxObjects the capacity
+     * @return the memory cache
+     */
+    private static <T extends IMemoryCache<String, String>> T initialize( final T cache, final String cacheName, final int maxObjects )
+    {
+        final ICompositeCacheAttributes attributes = new CompositeCacheAttributes();
+        attributes.setCacheName( cacheName );
+        attributes.setMaxObjects( maxObjects );
+        attributes.setSpoolChunkSize( 1 );
+
+        cache.initialize( new CompositeCache<>( attributes, new ElementAttributes() ) );
+        return cache;
+    }
+
+    /**
+     * Creates a repeatable trace of Zipf distributed keys, interrupted by sequential scans over
+     * keys that are never requested again, like a nightly batch report walking the catalog.
+     * <p>
+     * @return the trace
+     */
+    private static String[] createTrace()
+    {
+        final double[] cdf = new double[KEY_SPACE];
+        double sum = 0;
+        for ( int i = 0; i < KEY_SPACE; i++ )
+        {
+            sum += 1.0 / ( i + 1 );
+            cdf[i] = sum;
+        }
+
+        final Random random = new Random( 42 );
+        final String[] trace = new String[100000];
+        int scanKey = 0;
+        for ( int i = 0; i < trace.length; i++ )
+        {
+            if ( i % 10000 >= 8000 )
+            {
+                trace[i] = "scan" + scanKey++;
+            }
+            else
+            {
+                final double r = random.nextDouble() * sum;
+                int index = Arrays.binarySearch( cdf, r );
+                if ( index < 0 )
+                {
+                    index = -index - 1;
+                }
+                trace[i] = "key" + index;
+            }
+        }
+
+        return trace;
+    }
+
+    /**
+     * Replays the trace against the memory cache, loading every miss.
+     * <p>
+     * @param cache the memory cache
+     * @param trace the trace
+     * @return the hit rate
+     * @throws IOException
+     */
+    private static double replay( final IMemoryCache<String, String> cache, final String[] trace )
+        throws IOException
+    {
+        int hits = 0;
+        for ( final String key : trace )
+        {
+            if ( cache.get( key ) != null )
+            {
+                hits++;
+            }
+            else
+            {
+                cache.update( new CacheElement<>( "trace", key, key ) );
+            }
+        }
+        return (double) hits / trace.length;
+    }
+
+    /**
+     * Verify that the cache never holds more than maxObjects and keeps the data intact.
+     * <p>
+     * @throws IOException
+     */
+    public void testSizeLimit()
+        throws IOException
+    {
+        // SETUP
+        final int maxObjects = 100;
+        final TinyLFUMemoryCache<String, String> cache =
+            initialize( new TinyLFUMemoryCache<>(), "testSizeLimit", maxObjects );
+
+        // DO WORK
+        for ( int i = 0; i < maxObjects * 3; i++ )
+        {
+            cache.update( new CacheElement<>( "testSizeLimit", "key" + i, "value" + i ) );
+        }
+
+        // VERIFY
+        assertEquals( "Should have max elements", maxObjects, cache.getSize() );
+        for ( final String key : cache.getKeySet() )
+        {
+            assertEquals( "Wrong value", key.replace( "key", "value" ), cache.get( key ).getVal() );
+        }
+    }
+
+    /**
+     * Verify that frequently read elements survive a scan.
+     * <p>
+     * @throws IOException
+     */
+    public void testFrequentElementsSurviveScan()
+        throws IOException
+    {
+        // SETUP
+        final int maxObjects = 100;
+        final TinyLFUMemoryCache<String, String> cache =
+            initialize( new TinyLFUMemoryCache<>(), "testFrequentElementsSurviveScan", maxObjects );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.update( new CacheElement<>( "testFrequentElementsSurviveScan", "hot" + i, "hot" + i ) );
+        }
+        for ( int round = 0; round < 5; round++ )
+        {
+            for ( int i = 0; i < 10; i++ )
+            {
+                assertNotNull( "Should have hot" + i, cache.get( "hot" + i ) );
+            }
+        }
+
+        // DO WORK
+        for ( int i = 0; i < maxObjects * 10; i++ )
+        {
+            cache.update( new CacheElement<>( "testFrequentElementsSurviveScan", "scan" + i, "scan" + i ) );
+        }
+
+        // VERIFY
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertNotNull( "Should still have hot" + i, cache.getQuiet( "hot" + i ) );
+        }
+        assertTrue( "Should not exceed max elements", cache.getSize() <= maxObjects );
+    }
+
+    /**
+     * Verify removal and removeAll.
+     * <p>
+     * @throws IOException
+     */
+    public void testRemove()
+        throws IOException
+    {
+        // SETUP
+        final TinyLFUMemoryCache<String, String> cache =
+            initialize( new TinyLFUMemoryCache<>(), "testRemove", 100 );
+        for ( int i = 0; i < 50; i++ )
+        {
+            cache.update( new CacheElement<>( "testRemove", "key" + i, "value" + i ) );
+            cache.get( "key" + i );
+        }
+
+        // DO WORK
+        assertTrue( "Should have removed key0", cache.remove( "key0" ) );
+        assertFalse( "Should not remove key0 twice", cache.remove( "key0" ) );
+
+        // VERIFY
+        assertNull( "key0 should be gone", cache.get( "key0" ) );
+        assertEquals( "Wrong size", 49, cache.getSize() );
+
+        cache.removeAll();
+        assertEquals( "Should be empty", 0, cache.getSize() );
+        cache.update( new CacheElement<>( "testRemove", "key1", "value1" ) );
+        assertEquals( "Wrong value", "value1", cache.get( "key1" ).getVal() );
+    }
+
+    /**
+     * Compare the hit rates of TinyLFU and LRU on a skewed trace with periodic scans.
+     * <p>
+     * @throws IOException
+     */
+    public void testHitRateAgainstLRU()
+        throws IOException
+    {
+        // SETUP
+        final int maxObjects = 500;
+        final String[] trace = createTrace();
+
+        // DO WORK
+        final double lruHitRate =
+            replay( initialize( new LRUMemoryCache<>(), "lru", maxObjects ), trace );
+        final double tinyLfuHitRate =
+            replay( initialize( new TinyLFUMemoryCache<>(), "tinylfu", maxObjects ), trace );
+
+        // VERIFY
+        assertTrue( "TinyLFU hit rate " + tinyLfuHitRate + " should beat LRU hit rate " + lruHitRate,
+            tinyLfuHitRate > lruHitRate );
+    }
+}
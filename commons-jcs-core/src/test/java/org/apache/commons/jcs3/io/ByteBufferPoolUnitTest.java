@@ -0,0 +1,144 @@
+package org.apache.commons.jcs3.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the pooled byte buffers and the sink built on them.
+ */
+public class ByteBufferPoolUnitTest
+    extends TestCase
+{
+    /**
+     * Verify the size classes and that released buffers are reused.
+     */
+    public void testAcquireAndRelease()
+    {
+        final ByteBufferPool pool = new ByteBufferPool( 1000, 8192, 64 * 1024 );
+
+        final ByteBuffer small = pool.acquire( 10 );
+        assertTrue( "Should be direct", small.isDirect() );
+        assertEquals( "Wrong capacity", 1024, small.capacity() );
+        assertEquals( "Wrong limit", 10, small.limit() );
+        assertEquals( "Wrong position", 0, small.position() );
+
+        final ByteBuffer medium = pool.acquire( 3000 );
+        assertEquals( "Wrong capacity", 4096, medium.capacity() );
+
+        small.put( (byte) 1 );
+        pool.release( small );
+        pool.release( medium );
+        assertEquals( "Wrong pooled bytes", 1024 + 4096, pool.getPooledBytes() );
+
+        final ByteBuffer again = pool.acquire( 1024 );
+        assertSame( "Should reuse the released buffer", small, again );
+        assertEquals( "Wrong limit", 1024, again.limit() );
+        assertEquals( "Wrong position", 0, again.position() );
+        assertEquals( "Wrong pooled bytes", 4096, pool.getPooledBytes() );
+    }
+
+    /**
+     * Verify that large requests and foreign buffers are not pooled.
+     */
+    public void testUnpooledBuffers()
+    {
+        final ByteBufferPool pool = new ByteBufferPool( 1024, 8192, 64 * 1024 );
+
+        final ByteBuffer large = pool.acquire( 10000 );
+        assertFalse( "Should be a heap buffer", large.isDirect() );
+        assertEquals( "Wrong capacity", 10000, large.capacity() );
+
+        pool.release( large );
+        pool.release( ByteBuffer.allocateDirect( 1000 ) );
+        pool.release( ByteBuffer.allocate( 1024 ) );
+        pool.release( null );
+        assertEquals( "Nothing should be pooled", 0, pool.getPooledBytes() );
+    }
+
+    /**
+     * Verify that the pool keeps at most the configured number of bytes.
+     */
+    public void testMaxPooledBytes()
+    {
+        final ByteBufferPool pool = new ByteBufferPool( 1024, 8192, 2048 );
+
+        final ByteBuffer b1 = pool.acquire( 1024 );
+        final ByteBuffer b2 = pool.acquire( 1024 );
+        final ByteBuffer b3 = pool.acquire( 1024 );
+        pool.release( b1 );
+        pool.release( b2 );
+        pool.release( b3 );
+
+        assertEquals( "Wrong pooled bytes", 2048, pool.getPooledBytes() );
+    }
+
+    /**
+     * Verify that the sink grows and keeps its data.
+     */
+    public void testSinkGrows()
+    {
+        final ByteBufferPool pool = new ByteBufferPool( 1024, 8192, 64 * 1024 );
+
+        try ( ByteBufferSink sink = new ByteBufferSink( pool ) )
+        {
+            sink.putInt( 0 );
+            final byte[] data = new byte[5000];
+            for ( int i = 0; i < data.length; i++ )
+            {
+                data[i] = (byte) i;
+            }
+            sink.put( data );
+            sink.putInt( 0, data.length );
+            assertEquals( "Wrong position", 5004, sink.position() );
+
+            final ByteBuffer buffer = sink.flip();
+            assertEquals( "Wrong length", data.length, buffer.getInt() );
+            for ( int i = 0; i < data.length; i++ )
+            {
+                assertEquals( "Wrong byte at " + i, data[i], buffer.get() );
+            }
+        }
+
+        assertEquals( "Buffers should be back in the pool", 1024 + 8192, pool.getPooledBytes() );
+    }
+
+    /**
+     * Verify that moving back discards data.
+     */
+    public void testSinkPosition()
+    {
+        try ( ByteBufferSink sink = new ByteBufferSink() )
+        {
+            sink.putInt( 1 );
+            sink.putInt( 2 );
+            sink.position( 4 );
+            sink.putInt( 3 );
+
+            final ByteBuffer buffer = sink.flip();
+            assertEquals( "Wrong length", 8, buffer.remaining() );
+            assertEquals( "Wrong first value", 1, buffer.getInt() );
+            assertEquals( "Wrong second value", 3, buffer.getInt() );
+        }
+    }
+}
@@ -45,6 +45,9 @@ public class PropertySetterUnitTest
         final Object l = ps.convertArg("1", Long.TYPE);
         assertEquals("Should be a long", Long.valueOf(1), l);
 
+        final Object d = ps.convertArg("0.75", Double.TYPE);
+        assertEquals("Should be a double", Double.valueOf(0.75), d);
+
         final Object b = ps.convertArg("true", Boolean.TYPE);
         assertEquals("Should be a boolean", Boolean.TRUE, b);
 
@@ -0,0 +1,243 @@
+package org.apache.commons.jcs3.utils.serialization;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the dictionary compressing serializer.
+ */
+public class DictionaryCompressingSerializerUnitTest
+    extends TestCase
+{
+    /** The serializer under test */
+    private DictionaryCompressingSerializer serializer;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        this.serializer = new DictionaryCompressingSerializer();
+    }
+
+    /**
+     * @param i a number
+     * @return a small JSON like value
+     */
+    private static String sample( final int i )
+    {
+        return "{\"id\":" + i + ",\"type\":\"product\",\"name\":\"Product " + i
+            + "\",\"category\":\"household\",\"price\":{\"amount\":" + ( i * 7 % 100 )
+            + ",\"currency\":\"EUR\"},\"available\":true,\"tags\":[\"new\",\"sale\"]}";
+    }
+
+    /**
+     * Verify that null and small values round trip and small values are stored uncompressed.
+     * <p>
+     * @throws Exception
+     */
+    public void testSmallValues()
+        throws Exception
+    {
+        // DO WORK
+        final byte[] serialized = serializer.serialize( "small" );
+        final byte[] standard = new StandardSerializer().serialize( "small" );
+
+        // VERIFY
+        assertNull( "Should have nothing.", serializer.deSerialize( null, null ) );
+        assertEquals( "Should only add the header", standard.length + 1, serialized.length );
+        assertEquals( "small", serializer.deSerialize( serialized, null ) );
+    }
+
+    /**
+     * Verify that large values are compressed.
+     * <p>
+     * @throws Exception
+     */
+    public void testLargeValues()
+        throws Exception
+    {
+        // SETUP
+        final StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < 100; i++ )
+        {
+            sb.append( sample( i ) );
+        }
+        final String before = sb.toString();
+
+        // DO WORK
+        final byte[] serialized = serializer.serialize( before );
+        final String after = serializer.deSerialize( serialized, null );
+
+        // VERIFY
+        assertEquals( "Before and after should be the same.", before, after );
+        assertTrue( "Should be compressed", serialized.length < before.length() / 4 );
+    }
+
+    /**
+     * Verify that a trained dictionary compresses small values better and that its id lets other
+     * instances read them.
+     * <p>
+     * @throws Exception
+     */
+    public void testTrainedDictionary()
+        throws Exception
+    {
+        // SETUP
+        final List<String> samples = new ArrayList<>();
+        for ( int i = 0; i < 200; i++ )
+        {
+            samples.add( sample( i ) );
+        }
+        final String value = sample( 1234 );
+        final byte[] withoutDictionary = serializer.serialize( value );
+
+        // DO WORK
+        final byte[] dictionary = serializer.train( samples );
+        final byte[] withDictionary = serializer.serialize( value );
+
+        // VERIFY
+        assertTrue( "Should have trained a dictionary", dictionary.length > 0 );
+        assertTrue( "Dictionary should not exceed the default size",
+            dictionary.length <= DictionaryCompressingSerializer.DEFAULT_DICTIONARY_SIZE );
+        assertTrue( "Dictionary should compress better, " + withDictionary.length + " vs "
+            + withoutDictionary.length, withDictionary.length < withoutDictionary.length * 3 / 4 );
+        assertEquals( value, serializer.deSerialize( withDictionary, null ) );
+
+        final DictionaryCompressingSerializer other = new DictionaryCompressingSerializer();
+        try
+        {
+            other.deSerialize( withDictionary, null );
+            fail( "Should not read data of an unknown dictionary" );
+        }
+        catch ( final IOException e )
+        {
+            // expected
+        }
+
+        other.addDictionary( dictionary );
+        assertEquals( value, other.deSerialize( withDictionary, null ) );
+        assertEquals( "Values without a dictionary should still be read",
+            value, other.deSerialize( withoutDictionary, null ) );
+    }
+
+    /**
+     * Verify that dictionaries are loaded from files, the last one being used for compression.
+     * <p>
+     * @throws Exception
+     */
+    public void testDictionaryFiles()
+        throws Exception
+    {
+        // SETUP
+        final File old = File.createTempFile( "jcs", ".dict" );
+        final File current = File.createTempFile( "jcs", ".dict" );
+        old.deleteOnExit();
+        current.deleteOnExit();
+        Files.write( old.toPath(), "\"category\":\"garden\",\"currency\":\"USD\"".getBytes( "UTF-8" ) );
+        Files.write( current.toPath(), "\"category\":\"household\",\"currency\":\"EUR\"".getBytes( "UTF-8" ) );
+
+        final DictionaryCompressingSerializer writer = new DictionaryCompressingSerializer();
+        writer.setDictionary( Files.readAllBytes( old.toPath() ) );
+        final byte[] written = writer.serialize( sample( 1 ) );
+
+        // DO WORK
+        serializer.setDictionaryFiles( old.getAbsolutePath() + ", " + current.getAbsolutePath() );
+
+        // VERIFY
+        assertEquals( "The last dictionary should be used", writer.addDictionary(
+            Files.readAllBytes( current.toPath() ) ), serializer.getDictionaryId() );
+        assertEquals( sample( 1 ), serializer.deSerialize( written, null ) );
+    }
+
+    /**
+     * Verify that corrupt data results in an IOException.
+     * <p>
+     * @throws Exception
+     */
+    public void testCorruptData()
+        throws Exception
+    {
+        final byte[] serialized = serializer.serialize( sample( 1 ) + sample( 2 ) );
+        try
+        {
+            serializer.deSerialize( Arrays.copyOf( serialized, serialized.length / 2 ), null );
+            fail( "Should have detected truncated data" );
+        }
+        catch ( final IOException e )
+        {
+            // expected
+        }
+
+        try
+        {
+            serializer.deSerialize( new byte[] { 42, 0, 0 }, null );
+            fail( "Should have detected an unknown header" );
+        }
+        catch ( final IOException e )
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Verify that an uncompressed length beyond the maximum or beyond what the compressed data
+     * can hold is rejected before allocating it.
+     * <p>
+     * @throws Exception
+     */
+    public void testInvalidLength()
+        throws Exception
+    {
+        final byte[] serialized = serializer.serialize( sample( 1 ) + sample( 2 ) );
+        assertEquals( "Should be compressed", 1, serialized[0] );
+
+        final byte[] huge = serialized.clone();
+        huge[1] = 0x7F;
+        try
+        {
+            serializer.deSerialize( huge, null );
+            fail( "Should have rejected the length" );
+        }
+        catch ( final StreamCorruptedException e )
+        {
+            // expected
+        }
+
+        serializer.setMaxLength( 100 );
+        try
+        {
+            serializer.deSerialize( serialized, null );
+            fail( "Should have rejected the length above the maximum" );
+        }
+        catch ( final StreamCorruptedException e )
+        {
+            // expected
+        }
+    }
+}
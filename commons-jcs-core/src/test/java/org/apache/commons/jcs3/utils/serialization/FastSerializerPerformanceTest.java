@@ -0,0 +1,180 @@
+package org.apache.commons.jcs3.utils.serialization;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.jcs3.engine.CacheElement;
+import org.apache.commons.jcs3.engine.ElementAttributes;
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
+
+import junit.framework.TestCase;
+
+/**
+ * Compares the fast serializer with the standard serializer on typical cache elements. This is not
+ * run with the unit tests.
+ */
+public class FastSerializerPerformanceTest
+    extends TestCase
+{
+    /**
+     * A typical value object.
+     */
+    public static class Product
+        implements Serializable
+    {
+        /** Don't change */
+        private static final long serialVersionUID = 1L;
+
+        /** Test field */
+        long id;
+
+        /** Test field */
+        String name;
+
+        /** Test field */
+        String description;
+
+        /** Test field */
+        double price;
+
+        /** Test field */
+        int stock;
+
+        /** Test field */
+        Date modified;
+
+        /** Test field */
+        List<String> tags;
+    }
+
+    /** times to run */
+    private final int loops = 5;
+
+    /** serializations per run */
+    private final int tries = 10000;
+
+    /**
+     * @param i the index
+     * @return a product
+     */
+    private static Product createProduct( final int i )
+    {
+        final Product product = new Product();
+        product.id = i;
+        product.name = "Product " + i;
+        product.description = "A rather typical description of the product number " + i;
+        product.price = i * 1.25;
+        product.stock = i % 100;
+        product.modified = new Date( 1500000000000L + i );
+        product.tags = new ArrayList<>();
+        product.tags.add( "tag" + i % 7 );
+        product.tags.add( "tag" + i % 11 );
+        return product;
+    }
+
+    /**
+     * @return the elements to serialize: a string value, a map and a list of objects
+     */
+    private static List<ICacheElement<String, ?>> createElements()
+    {
+        final List<ICacheElement<String, ?>> elements = new ArrayList<>();
+
+        elements.add( new CacheElement<>( "region", "string", "A string value of moderate length, 1234567890",
+            new ElementAttributes() ) );
+
+        final Map<String, Object> map = new HashMap<>();
+        for ( int i = 0; i < 20; i++ )
+        {
+            map.put( "attribute" + i, i % 2 == 0 ? (Object) Integer.valueOf( i ) : "value" + i );
+        }
+        elements.add( new CacheElement<>( "region", "map", map, new ElementAttributes() ) );
+
+        final List<Product> products = new ArrayList<>();
+        for ( int i = 0; i < 50; i++ )
+        {
+            products.add( createProduct( i ) );
+        }
+        elements.add( new CacheElement<>( "region", "products", products, new ElementAttributes() ) );
+
+        return elements;
+    }
+
+    /**
+     * Serializes and deserializes the elements.
+     * <p>
+     * @param serializer
+     * @param element
+     * @return the time in milliseconds
+     * @throws Exception
+     */
+    private long run( final IElementSerializer serializer, final ICacheElement<String, ?> element )
+        throws Exception
+    {
+        final long start = System.currentTimeMillis();
+        for ( int i = 0; i < tries; i++ )
+        {
+            final ICacheElement<String, ?> after = serializer.deSerialize( serializer.serialize( element ), null );
+            assertEquals( element.getKey(), after.getKey() );
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Runs the comparison.
+     * <p>
+     * @throws Exception
+     */
+    public void testSerializers()
+        throws Exception
+    {
+        final StandardSerializer standard = new StandardSerializer();
+        final FastSerializer fast = new FastSerializer();
+        fast.register( Product.class );
+
+        for ( final ICacheElement<String, ?> element : createElements() )
+        {
+            final int standardSize = standard.serialize( element ).length;
+            final int fastSize = fast.serialize( element ).length;
+
+            long standardTotal = 0;
+            long fastTotal = 0;
+            for ( int j = 0; j < loops; j++ )
+            {
+                standardTotal += run( standard, element );
+                fastTotal += run( fast, element );
+            }
+
+            System.out.println( "Element " + element.getKey() + ": " + loops + " loops of " + tries
+                + " round trips" );
+            System.out.println( "  Standard: " + standardTotal / loops + " ms per loop, " + standardSize + " bytes" );
+            System.out.println( "  Fast:     " + fastTotal / loops + " ms per loop, " + fastSize + " bytes" );
+            System.out.println( "  Fast took " + (float) fastTotal / Math.max( 1, standardTotal )
+                + " times the time of the standard serializer" );
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package org.apache.commons.jcs3.utils.serialization;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.jcs3.engine.CacheElement;
+import org.apache.commons.jcs3.engine.CacheElementSerialized;
+import org.apache.commons.jcs3.engine.ElementAttributes;
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+import org.apache.commons.jcs3.io.ByteBufferSink;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the fast serializer.
+ */
+public class FastSerializerUnitTest
+    extends TestCase
+{
+    /**
+     * A class written field by field once registered. It is not Serializable.
+     */
+    public static class Person
+    {
+        /** Test field */
+        String name;
+
+        /** Test field */
+        int age;
+
+        /** Test field */
+        double score;
+
+        /** Test field */
+        Status status;
+
+        /** Test field */
+        Person friend;
+
+        /** Not written */
+        transient String cached;
+
+        /** Needed by the serializer */
+        Person()
+        {
+        }
+
+        /**
+         * @param name
+         * @param age
+         */
+        Person( final String name, final int age )
+        {
+            this.name = name;
+            this.age = age;
+        }
+    }
+
+    /**
+     * A registered subclass.
+     */
+    public static class Employee
+        extends Person
+    {
+        /** Test field */
+        long salary;
+    }
+
+    /** A registered enum */
+    public enum Status
+    {
+        /** Test value */
+        ACTIVE,
+
+        /** Test value */
+        RETIRED
+    }
+
+    /**
+     * A class not registered, written with Java serialization.
+     */
+    public static class Unregistered
+        implements Serializable
+    {
+        /** Don't change */
+        private static final long serialVersionUID = 1L;
+
+        /** Test field */
+        String value;
+    }
+
+    /** The serializer under test */
+    private FastSerializer serializer;
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        serializer = new FastSerializer();
+        serializer.register( Person.class );
+        serializer.register( Employee.class );
+        serializer.register( Status.class );
+    }
+
+    /**
+     * @param obj
+     * @return obj after a round trip
+     * @throws Exception
+     */
+    private <T> T roundTrip( final T obj )
+        throws Exception
+    {
+        return serializer.deSerialize( serializer.serialize( obj ), null );
+    }
+
+    /**
+     * Verify the round trip of the built in types.
+     * <p>
+     * @throws Exception
+     */
+    public void testBuiltInTypes()
+        throws Exception
+    {
+        assertNull( roundTrip( null ) );
+        assertEquals( "ascii", roundTrip( "ascii" ) );
+        assertEquals( "non ascii \u00e9\u4e2d\ud83d\ude00", roundTrip( "non ascii \u00e9\u4e2d\ud83d\ude00" ) );
+        assertEquals( "", roundTrip( "" ) );
+        assertEquals( Integer.valueOf( Integer.MIN_VALUE ), roundTrip( Integer.valueOf( Integer.MIN_VALUE ) ) );
+        assertEquals( Integer.valueOf( -1 ), roundTrip( Integer.valueOf( -1 ) ) );
+        assertEquals( Long.valueOf( Long.MAX_VALUE ), roundTrip( Long.valueOf( Long.MAX_VALUE ) ) );
+        assertEquals( Boolean.TRUE, roundTrip( Boolean.TRUE ) );
+        assertEquals( Byte.valueOf( (byte) -3 ), roundTrip( Byte.valueOf( (byte) -3 ) ) );
+        assertEquals( Short.valueOf( (short) -300 ), roundTrip( Short.valueOf( (short) -300 ) ) );
+        assertEquals( Character.valueOf( '\uffff' ), roundTrip( Character.valueOf( '\uffff' ) ) );
+        assertEquals( Float.valueOf( 1.5f ), roundTrip( Float.valueOf( 1.5f ) ) );
+        assertEquals( Double.valueOf( Double.NaN ), roundTrip( Double.valueOf( Double.NaN ) ) );
+        assertEquals( new Date( 123456789L ), roundTrip( new Date( 123456789L ) ) );
+        assertTrue( Arrays.equals( new byte[] { 1, 2, 3 }, roundTrip( new byte[] { 1, 2, 3 } ) ) );
+        assertTrue( Arrays.equals( new int[] { -1, 0, Integer.MAX_VALUE }, roundTrip( new int[] { -1, 0, Integer.MAX_VALUE } ) ) );
+        assertTrue( Arrays.equals( new long[] { Long.MIN_VALUE, 7 }, roundTrip( new long[] { Long.MIN_VALUE, 7 } ) ) );
+        assertTrue( Arrays.equals( new String[] { "a", null }, roundTrip( new String[] { "a", null } ) ) );
+    }
+
+    /**
+     * Verify the round trip of collections and maps, keeping their class and order.
+     * <p>
+     * @throws Exception
+     */
+    public void testCollections()
+        throws Exception
+    {
+        // SETUP
+        final List<Object> list = new ArrayList<>( Arrays.asList( "a", Integer.valueOf( 1 ), null ) );
+        final Map<String, Object> map = new LinkedHashMap<>();
+        for ( int i = 10; i > 0; i-- )
+        {
+            map.put( "key" + i, Long.valueOf( i ) );
+        }
+        map.put( "list", list );
+        map.put( "set", new HashSet<>( Arrays.asList( "x", "y" ) ) );
+        map.put( "sorted", new TreeMap<>( map ) );
+
+        // DO WORK
+        final Map<String, Object> after = roundTrip( map );
+
+        // VERIFY
+        assertEquals( "Wrong class", LinkedHashMap.class, after.getClass() );
+        assertEquals( "Wrong contents", map, after );
+        assertEquals( "Wrong order", new ArrayList<>( map.keySet() ), new ArrayList<>( after.keySet() ) );
+        assertEquals( "Wrong class", TreeMap.class, after.get( "sorted" ).getClass() );
+    }
+
+    /**
+     * Verify that registered classes are written field by field, with subclasses and enums, and
+     * that transient fields are skipped.
+     * <p>
+     * @throws Exception
+     */
+    public void testRegisteredClasses()
+        throws Exception
+    {
+        // SETUP
+        final Employee employee = new Employee();
+        employee.name = "Jane";
+        employee.age = 42;
+        employee.score = 0.5;
+        employee.status = Status.RETIRED;
+        employee.salary = 1000000L;
+        employee.cached = "cached";
+        employee.friend = new Person( "John", 17 );
+
+        // DO WORK
+        final Employee after = roundTrip( employee );
+
+        // VERIFY
+        assertEquals( "Jane", after.name );
+        assertEquals( 42, after.age );
+        assertEquals( 0.5, after.score, 0.0 );
+        assertSame( Status.RETIRED, after.status );
+        assertEquals( 1000000L, after.salary );
+        assertNull( "Transient field should not be written", after.cached );
+        assertEquals( "John", after.friend.name );
+        assertEquals( 17, after.friend.age );
+    }
+
+    /**
+     * Verify that shared references and cycles are kept.
+     * <p>
+     * @throws Exception
+     */
+    public void testSharedReferencesAndCycles()
+        throws Exception
+    {
+        // SETUP
+        final Person a = new Person( "a", 1 );
+        final Person b = new Person( "b", 2 );
+        a.friend = b;
+        b.friend = a;
+        final List<Object> list = new ArrayList<>();
+        list.add( a );
+        list.add( b );
+        list.add( a );
+        list.add( list );
+
+        // DO WORK
+        final List<Object> after = roundTrip( list );
+
+        // VERIFY
+        final Person afterA = (Person) after.get( 0 );
+        final Person afterB = (Person) after.get( 1 );
+        assertSame( "Shared reference should be kept", afterA, after.get( 2 ) );
+        assertSame( "Cycle should be kept", afterA, afterB.friend );
+        assertSame( "Cycle should be kept", afterB, afterA.friend );
+        assertSame( "Self reference should be kept", after, after.get( 3 ) );
+    }
+
+    /**
+     * Verify that cache elements and their attributes survive the round trip.
+     * <p>
+     * @throws Exception
+     */
+    public void testCacheElements()
+        throws Exception
+    {
+        // SETUP
+        final ElementAttributes attributes = new ElementAttributes();
+        attributes.setMaxLife( 123 );
+        attributes.setIsEternal( false );
+        final ICacheElement<String, Person> element =
+            new CacheElement<>( "region", "key", new Person( "p", 3 ), attributes );
+        final CacheElementSerialized<String, String> serialized =
+            new CacheElementSerialized<>( "region", "key", new byte[] { 4, 5 }, attributes );
+
+        // DO WORK
+        final ICacheElement<String, Person> after = roundTrip( element );
+        final CacheElementSerialized<String, String> serializedAfter = roundTrip( serialized );
+
+        // VERIFY
+        assertEquals( "region", after.getCacheName() );
+        assertEquals( "key", after.getKey() );
+        assertEquals( "p", after.getVal().name );
+        assertEquals( 123, after.getElementAttributes().getMaxLife() );
+        assertFalse( after.getElementAttributes().getIsEternal() );
+        assertEquals( attributes.getCreateTime(), after.getElementAttributes().getCreateTime() );
+        assertTrue( Arrays.equals( new byte[] { 4, 5 }, serializedAfter.getSerializedValue() ) );
+    }
+
+    /**
+     * Verify that unregistered classes are written with Java serialization and that data written
+     * by the standard serializer can be read.
+     * <p>
+     * @throws Exception
+     */
+    public void testJavaSerialization()
+        throws Exception
+    {
+        // SETUP
+        final Unregistered unregistered = new Unregistered();
+        unregistered.value = "value";
+        final Map<String, Object> map = new HashMap<>();
+        map.put( "unregistered", unregistered );
+
+        // DO WORK
+        final Map<String, Object> after = roundTrip( map );
+        final Unregistered fromStandard =
+            serializer.deSerialize( new StandardSerializer().serialize( unregistered ), null );
+
+        // VERIFY
+        assertEquals( "value", ( (Unregistered) after.get( "unregistered" ) ).value );
+        assertEquals( "value", fromStandard.value );
+    }
+
+    /**
+     * Verify the round trip through a sink and a direct buffer, for this serializer and the
+     * default implementation of the standard serializer.
+     * <p>
+     * @throws Exception
+     */
+    public void testByteBuffers()
+        throws Exception
+    {
+        // SETUP
+        final Person person = new Person();
+        person.name = "name";
+        final Unregistered unregistered = new Unregistered();
+        unregistered.value = "value";
+        final StandardSerializer standard = new StandardSerializer();
+
+        try ( ByteBufferSink sink = new ByteBufferSink() )
+        {
+            // DO WORK
+            serializer.serializeTo( person, sink );
+            serializer.serializeTo( unregistered, sink );
+            standard.serializeTo( "standard", sink );
+            final ByteBuffer buffer = sink.flip();
+
+            // VERIFY
+            assertTrue( "Should be direct", buffer.isDirect() );
+            final Person personAfter = serializer.deSerializeFrom( buffer, null );
+            final Unregistered unregisteredAfter = serializer.deSerializeFrom( buffer, null );
+            final String standardAfter = standard.deSerializeFrom( buffer, null );
+            assertEquals( "name", personAfter.name );
+            assertEquals( "value", unregisteredAfter.value );
+            assertEquals( "standard", standardAfter );
+            assertFalse( "Should have read everything", buffer.hasRemaining() );
+        }
+    }
+
+    /**
+     * Verify that the registration by property works and rejects unsuitable classes.
+     */
+    public void testRegisteredClassesProperty()
+    {
+        // SETUP
+        final FastSerializer configured = new FastSerializer();
+
+        // DO WORK
+        configured.setRegisteredClasses( Person.class.getName() + " , " + Status.class.getName() );
+
+        // VERIFY
+        assertEquals( Person.class.getName() + "," + Status.class.getName(), configured.getRegisteredClasses() );
+        try
+        {
+            configured.register( List.class );
+            fail( "Should not register an interface" );
+        }
+        catch ( final IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Verify that corrupt data results in an IOException.
+     * <p>
+     * @throws Exception
+     */
+    public void testCorruptData()
+        throws Exception
+    {
+        final byte[] data = serializer.serialize( new ArrayList<>( Arrays.asList( "a", "b", "c" ) ) );
+        try
+        {
+            serializer.deSerialize( Arrays.copyOf( data, data.length - 2 ), null );
+            fail( "Should have detected truncated data" );
+        }
+        catch ( final StreamCorruptedException e )
+        {
+            // expected
+        }
+
+        try
+        {
+            serializer.deSerialize( new byte[] { 99 }, null );
+            fail( "Should have detected an unknown version" );
+        }
+        catch ( final IOException e )
+        {
+            // expected
+        }
+    }
+}
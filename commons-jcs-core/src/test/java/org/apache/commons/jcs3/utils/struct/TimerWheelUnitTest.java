@@ -0,0 +1,121 @@
+package org.apache.commons.jcs3.utils.struct;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the timer wheel.
+ */
+public class TimerWheelUnitTest
+    extends TestCase
+{
+    /**
+     * Verify that keys fall due at their deadline and not before.
+     */
+    public void testKeysFallDueAtDeadline()
+    {
+        // SETUP
+        final TimerWheel<String> wheel = new TimerWheel<>( 10, 0 );
+        wheel.schedule( "a", 50 );
+        wheel.schedule( "b", 55 );
+        wheel.schedule( "c", 10000 );
+        wheel.schedule( "d", 5000000 );
+        final List<String> due = new ArrayList<>();
+
+        // DO WORK & VERIFY
+        assertEquals( "Nothing should be due yet", 0, wheel.advance( 49, due::add ) );
+        assertEquals( "a should be due", 1, wheel.advance( 50, due::add ) );
+        assertEquals( "Wrong key", "a", due.get( 0 ) );
+        assertEquals( "b rounds up to the next tick", 0, wheel.advance( 59, due::add ) );
+        assertEquals( "b should be due", 1, wheel.advance( 60, due::add ) );
+        assertEquals( "c is not due yet", 0, wheel.advance( 9999, due::add ) );
+        assertEquals( "c should be due", 1, wheel.advance( 10000, due::add ) );
+        assertEquals( "d is not due yet", 0, wheel.advance( 4999990, due::add ) );
+        assertEquals( "d should be due", 1, wheel.advance( 5000000, due::add ) );
+        assertEquals( "Wrong order", "[a, b, c, d]", due.toString() );
+        assertEquals( "Wheel should be empty", 0, wheel.size() );
+    }
+
+    /**
+     * Verify that rescheduling replaces the deadline and cancel removes the key.
+     */
+    public void testRescheduleAndCancel()
+    {
+        // SETUP
+        final TimerWheel<String> wheel = new TimerWheel<>( 10, 0 );
+        wheel.schedule( "a", 100 );
+        wheel.schedule( "b", 100 );
+        wheel.schedule( "a", 1000 );
+        final List<String> due = new ArrayList<>();
+
+        // DO WORK
+        assertTrue( "b should be scheduled", wheel.cancel( "b" ) );
+        assertFalse( "b should not be scheduled twice", wheel.cancel( "b" ) );
+        wheel.advance( 500, due::add );
+
+        // VERIFY
+        assertTrue( "Nothing should be due", due.isEmpty() );
+        assertEquals( "Only a should be left", 1, wheel.size() );
+        wheel.advance( 1000, due::add );
+        assertEquals( "a should be due once", "[a]", due.toString() );
+    }
+
+    /**
+     * Verify that overdue keys fall due with the next advance and that many random deadlines all
+     * fall due in time.
+     */
+    public void testOverdueAndRandomDeadlines()
+    {
+        // SETUP
+        final TimerWheel<Integer> wheel = new TimerWheel<>( 1, 1000 );
+        wheel.schedule( Integer.valueOf( -1 ), 10 );
+        final Random random = new Random( 42 );
+        final long[] deadlines = new long[10000];
+        for ( int i = 0; i < deadlines.length; i++ )
+        {
+            deadlines[i] = 1000 + random.nextInt( 1000000 );
+            wheel.schedule( Integer.valueOf( i ), deadlines[i] );
+        }
+
+        // DO WORK & VERIFY
+        final List<Integer> due = new ArrayList<>();
+        wheel.advance( 1001, due::add );
+        assertTrue( "Overdue key should be due", due.contains( Integer.valueOf( -1 ) ) );
+
+        for ( long now = 1001; now <= 1001000; now += 997 )
+        {
+            due.clear();
+            wheel.advance( now, due::add );
+            for ( final Integer key : due )
+            {
+                final long deadline = deadlines[key.intValue()];
+                assertTrue( "Key " + key + " due too early", deadline <= now );
+                assertTrue( "Key " + key + " due too late", deadline > now - 997 );
+            }
+        }
+        assertEquals( "All keys should have been due", 0, wheel.size() );
+    }
+}
@@ -0,0 +1,82 @@
+package org.apache.commons.jcs3.utils.timing;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/** Unit tests for the latency histogram. */
+public class LatencyHistogramUnitTest
+    extends TestCase
+{
+    /**
+     * Verify the percentiles of a known distribution.
+     */
+    public void testPercentiles()
+    {
+        // SETUP
+        final LatencyHistogram histogram = new LatencyHistogram( 100000 );
+        assertEquals( "Nothing recorded.", -1, histogram.getPercentile( 95 ) );
+
+        // DO WORK
+        for ( int i = 0; i < 90; i++ )
+        {
+            histogram.record( TimeUnit.MICROSECONDS.toNanos( 100 ) );
+        }
+        for ( int i = 0; i < 10; i++ )
+        {
+            histogram.record( TimeUnit.MILLISECONDS.toNanos( 10 ) );
+        }
+
+        // VERIFY
+        final long p50 = histogram.getPercentile( 50 );
+        final long p95 = histogram.getPercentile( 95 );
+        assertTrue( "p50 should be about 100us: " + p50,
+                p50 >= TimeUnit.MICROSECONDS.toNanos( 100 ) && p50 <= TimeUnit.MICROSECONDS.toNanos( 200 ) );
+        assertTrue( "p95 should be about 10ms: " + p95,
+                p95 >= TimeUnit.MILLISECONDS.toNanos( 10 ) && p95 <= TimeUnit.MILLISECONDS.toNanos( 20 ) );
+    }
+
+    /**
+     * Verify that old samples lose weight.
+     */
+    public void testDecay()
+    {
+        // SETUP
+        final LatencyHistogram histogram = new LatencyHistogram( 64 );
+        for ( int i = 0; i < 63; i++ )
+        {
+            histogram.record( TimeUnit.MILLISECONDS.toNanos( 100 ) );
+        }
+
+        // DO WORK
+        for ( int i = 0; i < 500; i++ )
+        {
+            histogram.record( TimeUnit.MILLISECONDS.toNanos( 1 ) );
+        }
+
+        // VERIFY
+        assertTrue( "Should have decayed.", histogram.getCount() < 64 );
+        assertTrue( "p95 should follow the recent samples.",
+                histogram.getPercentile( 95 ) <= TimeUnit.MILLISECONDS.toNanos( 2 ) );
+    }
+}
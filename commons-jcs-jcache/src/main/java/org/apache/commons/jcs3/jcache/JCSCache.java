@@ -65,9 +65,9 @@ import org.apache.commons.jcs3.jcache.jmx.JCSCacheStatisticsMXBean;
 import org.apache.commons.jcs3.jcache.jmx.JMXs;
 import org.apache.commons.jcs3.jcache.proxy.ExceptionWrapperHandler;
 import org.apache.commons.jcs3.jcache.thread.DaemonThreadFactory;
+import org.apache.commons.jcs3.utils.config.PropertySetter;
 import org.apache.commons.jcs3.utils.serialization.StandardSerializer;
 
-// TODO: configure serializer
 public class JCSCache<K, V> implements Cache<K, V>
 {
     private final ExpiryAwareCache<K, V> delegate;
@@ -109,7 +109,9 @@ public class JCSCache<K, V> implements Cache<K, V>
 
         try
         {
-            serializer = (IElementSerializer) classLoader.loadClass(property(properties, "serializer", cacheName, StandardSerializer.class.getName())).getDeclaredConstructor().newInstance();
+            serializer = (IElementSerializer) classLoader.loadClass(property(properties, cacheName, "serializer", StandardSerializer.class.getName())).getDeclaredConstructor().newInstance();
+            PropertySetter.setProperties(serializer, properties, "serializer.attributes.");
+            PropertySetter.setProperties(serializer, properties, cacheName + ".serializer.attributes.");
         }
         catch (final Exception e)
         {